@@ -0,0 +1,152 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.MediaMetadata;
+import io.neebu.apps.utils.SourceParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+/**
+ * Checks the bytes allocated per file name by the per-file processing against recorded budgets, and fails when an
+ * operation exceeds its budget by more than the margin.
+ * <p>
+ * Each operation runs over the whole {@link FilenameCorpus}, warmed up first so that the JIT has removed what
+ * escape analysis can, and is measured with the thread allocation counter ({@link Measurement}), keeping the least
+ * of a few rounds. Bytes per op do not depend on the speed of the machine, so the budgets can be checked anywhere,
+ * but they move with the JDK: the budgets file names the JDK it was recorded on, and the check fails on another JDK
+ * feature version. Record them again after a JDK upgrade, and after a change that is meant to allocate more (see
+ * src/bench/baseline/README.md).
+ * <p>
+ * The bench profile runs the check in the verify phase (mvn -Pbench verify), a failure fails the build. Without a
+ * budgets file the check is skipped with a warning, so that the profile builds until budgets are recorded.
+ * <p>
+ * Usage: AllocationBudgetCheck [budgets file, default src/bench/baseline/allocation-budgets.properties] [margin,
+ * default 0.10, or record to write the measured values as the new budgets]
+ */
+public class AllocationBudgetCheck {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AllocationBudgetCheck.class);
+
+    private static final String DEFAULT_BUDGETS = "src/bench/baseline/allocation-budgets.properties";
+    // The JDK the budgets were recorded on, not an operation
+    private static final String JDK_KEY = "jdk";
+    // Alignment and the odd lazily initialized field blur values by a few bytes
+    private static final double SLACK_BYTES = 16;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Path budgetsFile = Paths.get(args.length > 0 ? args[0] : DEFAULT_BUDGETS);
+        boolean record = args.length > 1 && args[1].equals("record");
+        double margin = args.length > 1 && !record ? Double.parseDouble(args[1]) : 0.10;
+
+        Map<String, Double> measured = measure(FilenameCorpus.load());
+
+        if (record) {
+            // Written by hand rather than with Properties.store, which adds a date and shuffles the keys
+            try (Writer writer = Files.newBufferedWriter(budgetsFile)) {
+                writer.write("# Bytes allocated per file name, recorded by AllocationBudgetCheck" + System.lineSeparator());
+                writer.write(JDK_KEY + "=" + Runtime.version() + System.lineSeparator());
+                for (Map.Entry<String, Double> entry : measured.entrySet()) {
+                    writer.write(entry.getKey() + "=" + (long) Math.ceil(entry.getValue()) + System.lineSeparator());
+                }
+            }
+            LOGGER.info("Recorded {} budget(s) in {}", measured.size(), budgetsFile);
+            return;
+        }
+
+        if (!Files.exists(budgetsFile)) {
+            LOGGER.warn("No allocation budgets in {}, check skipped: record them on JDK {}, see src/bench/baseline/README.md",
+                    budgetsFile, Runtime.version().feature());
+            return;
+        }
+        Properties budgets = new Properties();
+        try (Reader reader = Files.newBufferedReader(budgetsFile)) {
+            budgets.load(reader);
+        }
+        String recordedOn = budgets.getProperty(JDK_KEY);
+        if (recordedOn == null || Runtime.Version.parse(recordedOn).feature() != Runtime.version().feature()) {
+            throw new IllegalStateException("Allocation budgets in " + budgetsFile + " were recorded on JDK "
+                    + (recordedOn != null ? recordedOn : "unknown") + ", not comparable on JDK " + Runtime.version()
+                    + ": record them on this JDK, see src/bench/baseline/README.md");
+        }
+        List<String> exceeded = new ArrayList<>();
+        LOGGER.info(String.format("%-24s %10s %10s %10s", "operation", "budget", "B/op", "limit"));
+        for (Map.Entry<String, Double> entry : measured.entrySet()) {
+            String budget = budgets.getProperty(entry.getKey());
+            if (budget == null) {
+                LOGGER.warn(String.format("%-24s %10s %10.1f  no budget recorded", entry.getKey(), "-", entry.getValue()));
+                continue;
+            }
+            double limit = Double.parseDouble(budget) * (1 + margin) + SLACK_BYTES;
+            String line = String.format("%-24s %10s %10.1f %10.1f", entry.getKey(), budget, entry.getValue(), limit);
+            if (entry.getValue() > limit) {
+                exceeded.add(entry.getKey());
+                LOGGER.error("{}  OVER BUDGET", line);
+            } else {
+                LOGGER.info(line);
+            }
+        }
+        if (!exceeded.isEmpty()) {
+            // Thrown rather than System.exit, so exec:java fails the build with the message
+            throw new IllegalStateException("Allocation budget exceeded by " + exceeded + ", budgets in " + budgetsFile
+                    + ", margin " + margin);
+        }
+        LOGGER.info("All {} operation(s) within their allocation budget (margin {})", measured.size(), margin);
+    }
+
+    private static Map<String, Double> measure(FilenameCorpus corpus) throws Exception {
+        Map<String, Callable<?>> operations = new LinkedHashMap<>();
+        int[] next = {0};
+        operations.put("mediaFile", () -> {
+            FilenameCorpus.Entry entry = corpus.entries[next[0]++ % corpus.entries.length];
+            return new MediaFile(entry.path(), entry.type(), entry.probeResult(), 1);
+        });
+        operations.put("mediaMetadata", () -> new MediaMetadata(corpus.baseNames[next[0]++ % corpus.baseNames.length]));
+        operations.put("parseMediaSource",
+                () -> SourceParser.parseMediaSource(corpus.baseNames[next[0]++ % corpus.baseNames.length]));
+        operations.put("getStreamingSource",
+                () -> CollectionUtils.getStreamingSource(corpus.baseNames[next[0]++ % corpus.baseNames.length]));
+        operations.put("cleanString", () -> CollectionUtils.cleanString(corpus.titles[next[0]++ % corpus.titles.length]));
+        operations.put("detectResolution", () -> {
+            int[] dimensions = FilenameCorpus.DIMENSIONS[next[0]++ % FilenameCorpus.DIMENSIONS.length];
+            return CollectionUtils.detectResolution(dimensions[0], dimensions[1]);
+        });
+        operations.put("detectHdrFormat",
+                () -> CollectionUtils.detectHdrFormat(FilenameCorpus.HDR_SOURCES[next[0]++ % FilenameCorpus.HDR_SOURCES.length]));
+        operations.put("applyNamingConvention", () -> {
+            MediaFile mediaFile = corpus.mediaFiles[next[0]++ % corpus.mediaFiles.length];
+            mediaFile.applyNamingConvention();
+            return mediaFile.getNormalizedTitle();
+        });
+
+        // The least of several rounds over the corpus: a round that overlaps a late JIT compilation allocates more
+        Map<String, Double> measured = new LinkedHashMap<>();
+        int ops = corpus.baseNames.length;
+        for (Map.Entry<String, Callable<?>> operation : operations.entrySet()) {
+            next[0] = 0;
+            Measurement.runQuietly(operation.getKey(), WARMUP_ROUNDS * ops, 0, operation.getValue());
+            Measurement least = null;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                Measurement measurement = Measurement.runQuietly(operation.getKey(), 0, ops, operation.getValue());
+                if (least == null || measurement.getBytesPerOp() < least.getBytesPerOp()) least = measurement;
+            }
+            least.log();
+            measured.put(operation.getKey(), least.getBytesPerOp());
+        }
+        return measured;
+    }
+}
@@ -0,0 +1,169 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.conn.DatabaseApp;
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.MediaFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Throughput and latency of {@link DatabaseApp} insert, delete, getCollection and getCollectionRows on a
+ * {@link ScratchDatabase} seeded with a given number of collection rows, at increasing concurrency. Each client
+ * thread has its own DatabaseApp, as each scan has.
+ * <p>
+ * At every level the inserted files are deleted again, so each level starts from the seeded table. Inserted files
+ * are those of the {@link FilenameCorpus}, created empty in a temporary directory because insert reads their size;
+ * the size is read before timing starts. Full loads report rows per second as well.
+ * <p>
+ * DatabaseApp logs every insert and delete at info; to time the database rather than the console, run with
+ * -Dorg.slf4j.simpleLogger.defaultLogLevel=warn -Dorg.slf4j.simpleLogger.log.io.neebu.apps.bench=info
+ * <p>
+ * Usage: DatabaseThroughputHarness [seeded rows, default 100000] [inserts and deletes per level, default 5000] [full
+ * loads per level, default 20] [levels, e.g. 1,4,16] [JDBC URL of a scratch database, see ScratchDatabase, or -,
+ * default H2 in memory] [indexed or plain, default plain: whether ABSOLUTE_PATH is indexed]
+ */
+public class DatabaseThroughputHarness {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseThroughputHarness.class);
+
+    private static final String FORMAT = "%-18s %5s %10s %12s %9s %9s %9s %9s %8s";
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(DatabaseApp databaseApp, int index) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seedRows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int writes = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int loads = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int[] levels = Arrays.stream((args.length > 3 ? args[3] : "1,4,16").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        String databaseUrl = args.length > 4 && !args[4].equals("-") ? args[4] : null;
+        boolean indexed = args.length > 5 && args[5].equals("indexed");
+
+        Path dir = Files.createTempDirectory("database-harness-");
+        try (ScratchDatabase database = ScratchDatabase.open(databaseUrl, "throughput", indexed)) {
+            List<MediaFile> files = mediaFiles(dir, writes);
+            database.seed(seedRows, "/seeded");
+            LOGGER.info("{} seeded row(s), ABSOLUTE_PATH {}, {}", seedRows, indexed ? "indexed" : "not indexed", database.getUrl());
+
+            List<String> report = new ArrayList<>();
+            for (int concurrency : levels) {
+                report.add(line("insert", concurrency, measure(database, concurrency, writes,
+                        (databaseApp, i) -> databaseApp.insert(files.get(i))), -1));
+                AtomicLong rows = new AtomicLong();
+                report.add(line("getCollection", concurrency, measure(database, concurrency, loads,
+                        (databaseApp, i) -> rows.addAndGet(databaseApp.getCollection(
+                                i % 2 == 0 ? Constants.SELECT_MOVIES_SQL : Constants.SELECT_TV_SQL).size())), rows.get()));
+                rows.set(0);
+                report.add(line("getCollectionRows", concurrency, measure(database, concurrency, loads,
+                        (databaseApp, i) -> rows.addAndGet(databaseApp.getCollectionRows(
+                                i % 2 == 0 ? Constants.SELECT_MOVIE_ROWS_SQL : Constants.SELECT_TV_ROWS_SQL).size())), rows.get()));
+                report.add(line("delete", concurrency, measure(database, concurrency, writes,
+                        (databaseApp, i) -> databaseApp.delete(files.get(i).getAbsolutePath().toString())), -1));
+            }
+
+            LOGGER.info(String.format(FORMAT, "operation", "conc", "ops/s", "rows/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "failed"));
+            report.forEach(LOGGER::info);
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs an operation a number of times over a number of client threads, each with its own connection.
+     *
+     * @param database    The database.
+     * @param concurrency Number of client threads.
+     * @param ops         Number of operations in total, thread t runs those with index t, t + concurrency, ...
+     * @param operation   The operation.
+     * @return The result, timed once every client is connected.
+     * @throws Exception if the executor fails.
+     */
+    private static TmdbClientLoadHarness.Result measure(ScratchDatabase database, int concurrency, int ops,
+                                                        Operation operation) throws Exception {
+        List<DatabaseApp> clients = new ArrayList<>(concurrency);
+        for (int t = 0; t < concurrency; t++) {
+            DatabaseApp databaseApp = new DatabaseApp();
+            databaseApp.connect(database.getUrl(), database.getUser(), database.getPass());
+            clients.add(databaseApp);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[ops];
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < concurrency; t++) {
+            final int first = t;
+            futures.add(executor.submit(() -> {
+                DatabaseApp databaseApp = clients.get(first);
+                for (int i = first; i < ops; i += concurrency) {
+                    long opStart = System.nanoTime();
+                    try {
+                        operation.run(databaseApp, i);
+                    } catch (Exception e) {
+                        if (failures.getAndIncrement() == 0) LOGGER.warn("First failure: {}", e.toString());
+                    }
+                    latencies[i] = System.nanoTime() - opStart;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        clients.forEach(DatabaseApp::close);
+
+        Arrays.sort(latencies);
+        return new TmdbClientLoadHarness.Result(ops, elapsed, latencies, failures.get());
+    }
+
+    private static String line(String operation, int concurrency, TmdbClientLoadHarness.Result result, long rows) {
+        return String.format(FORMAT, operation, concurrency, String.format("%.1f", result.callsPerSecond()),
+                rows < 0 ? "-" : String.format("%.0f", rows / (result.elapsedNanos() / 1e9)),
+                String.format("%.2f", result.percentileMillis(50)), String.format("%.2f", result.percentileMillis(90)),
+                String.format("%.2f", result.percentileMillis(99)), String.format("%.2f", result.percentileMillis(100)),
+                result.failures());
+    }
+
+    // Empty files named after the corpus, their size read once so that insert does not stat them while timed
+    private static List<MediaFile> mediaFiles(Path dir, int count) throws IOException {
+        FilenameCorpus corpus = FilenameCorpus.load();
+        List<MediaFile> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FilenameCorpus.Entry entry = corpus.entries[i % corpus.entries.length];
+            Path folder = Files.createDirectories(dir.resolve(String.valueOf(i / corpus.entries.length)));
+            Path path = Files.createFile(folder.resolve(entry.path().getFileName()));
+            MediaFile mediaFile = new MediaFile(path, entry.type(), entry.probeResult(), 1);
+            mediaFile.setTmdbId(1000 + i);
+            mediaFile.setTmdbName(mediaFile.getName());
+            mediaFile.setReleaseDate("2001-01-01");
+            mediaFile.setTmdbDescription("An inserted row of the throughput harness.");
+            mediaFile.setEpisodeName(entry.type() == Constants.CollectionType.TV ? "Episode" : null);
+            mediaFile.getFileSize();
+            files.add(mediaFile);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,315 @@
+package io.neebu.apps.bench;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the TMDb v3 API, for exercising {@link io.neebu.apps.conn.TmdbApiClient} without the real
+ * service or an API key.
+ * <p>
+ * Serves search/movie, search/tv, movie/{id}, tv/{id} and tv/{id}/season/{n}/episode/{m} (GET and HEAD).
+ * Responses come from a fixture directory when one is configured and has a file for the request path
+ * (e.g. movie/603.json, search/movie.json), otherwise they are generated deterministically from the request:
+ * a search returns a result titled like the query, with an id derived from it.
+ * <p>
+ * Latency, HTTP 500 errors and HTTP 429 throttling can be injected to see how the client behaves under load.
+ */
+public class FakeTmdbServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FakeTmdbServer.class);
+
+    private static final Pattern MOVIE_DETAILS = Pattern.compile("^/3/movie/(\\d+)$");
+    private static final Pattern TV_DETAILS = Pattern.compile("^/3/tv/(\\d+)$");
+    private static final Pattern EPISODE = Pattern.compile("^/3/tv/(\\d+)/season/(\\d+)/episode/(\\d+)$");
+
+    static {
+        // Otherwise the JDK server's small writes wait for the client's delayed ACK, about 40 ms per kept-alive
+        // response, which would be the whole cost of a lookup. Read when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path fixtureDir;
+    private final int latencyMillis;
+    private final int latencyJitterMillis;
+    private final double errorRate;
+    private final double throttleRate;
+    private final int resultsPerSearch;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong injectedThrottles = new AtomicLong();
+
+    private FakeTmdbServer(Builder builder) throws IOException {
+        this.fixtureDir = builder.fixtureDir;
+        this.latencyMillis = builder.latencyMillis;
+        this.latencyJitterMillis = builder.latencyJitterMillis;
+        this.errorRate = builder.errorRate;
+        this.throttleRate = builder.throttleRate;
+        this.resultsPerSearch = builder.resultsPerSearch;
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", builder.port), 256);
+        this.executor = Executors.newFixedThreadPool(builder.threads);
+        this.server.setExecutor(executor);
+        this.server.createContext("/3/", this::handle);
+        this.server.start();
+        LOGGER.info("Fake TMDb listening on {} (latency={}±{}ms, errors={}, throttles={})",
+                getApiUri(), latencyMillis, latencyJitterMillis, errorRate, throttleRate);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The value to use as tmdb.api.uri.
+     */
+    public String getApiUri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/3";
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    public long getInjectedThrottleCount() {
+        return injectedThrottles.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            sleep(latencyMillis + (latencyJitterMillis > 0 ? ThreadLocalRandom.current().nextInt(latencyJitterMillis + 1) : 0));
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < throttleRate) {
+                injectedThrottles.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                send(exchange, 429, "{\"status_code\":25,\"status_message\":\"Your request count is over the allowed limit.\"}");
+                return;
+            }
+            if (roll < throttleRate + errorRate) {
+                injectedErrors.incrementAndGet();
+                send(exchange, 500, "{\"status_code\":11,\"status_message\":\"Internal error.\"}");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            String body = fixture(path);
+            if (body == null) {
+                body = generate(path, query);
+            }
+            if (body == null) {
+                send(exchange, 404, "{\"status_code\":34,\"status_message\":\"The resource you requested could not be found.\"}");
+            } else {
+                send(exchange, 200, body);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Fake TMDb failed on {}: {}", exchange.getRequestURI(), e.getMessage());
+        }
+    }
+
+    private String fixture(String path) throws IOException {
+        if (fixtureDir == null) return null;
+        Path file = fixtureDir.resolve(path.substring("/3/".length()) + ".json");
+        return Files.isRegularFile(file) ? Files.readString(file) : null;
+    }
+
+    private String generate(String path, Map<String, String> query) throws IOException {
+        if (path.equals("/3/search/movie")) {
+            return search(query.getOrDefault("query", ""), query.get("year"), true);
+        }
+        if (path.equals("/3/search/tv")) {
+            return search(query.getOrDefault("query", ""), null, false);
+        }
+
+        Matcher matcher = MOVIE_DETAILS.matcher(path);
+        if (matcher.matches()) {
+            return title(Integer.parseInt(matcher.group(1)), "Movie " + matcher.group(1), null, true);
+        }
+        matcher = TV_DETAILS.matcher(path);
+        if (matcher.matches()) {
+            return title(Integer.parseInt(matcher.group(1)), "Show " + matcher.group(1), null, false);
+        }
+        matcher = EPISODE.matcher(path);
+        if (matcher.matches()) {
+            StringWriter out = new StringWriter();
+            try (JsonWriter json = new JsonWriter(out)) {
+                json.beginObject()
+                        .name("air_date").value("2020-01-01")
+                        .name("episode_number").value(Integer.parseInt(matcher.group(3)))
+                        .name("id").value(Integer.parseInt(matcher.group(1)) * 1000L + Integer.parseInt(matcher.group(3)))
+                        .name("name").value("Episode " + matcher.group(3))
+                        .name("overview").value(overview())
+                        .name("season_number").value(Integer.parseInt(matcher.group(2)))
+                        .endObject();
+            }
+            return out.toString();
+        }
+        return null;
+    }
+
+    private String search(String queryTitle, String year, boolean movie) throws IOException {
+        int baseId = (queryTitle.toLowerCase().hashCode() & 0x3fffffff) % 1_000_000 + 1;
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject().name("page").value(1).name("results").beginArray();
+            for (int i = 0; i < resultsPerSearch; i++) {
+                String title = i == 0 ? queryTitle : queryTitle + " " + (i + 1);
+                writeTitle(json, baseId + i, title, year, movie);
+            }
+            json.endArray().name("total_pages").value(1).name("total_results").value(resultsPerSearch).endObject();
+        }
+        return out.toString();
+    }
+
+    private String title(int id, String title, String year, boolean movie) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            writeTitle(json, id, title, year, movie);
+        }
+        return out.toString();
+    }
+
+    private static void writeTitle(JsonWriter json, int id, String title, String year, boolean movie) throws IOException {
+        String date = (year != null ? year : "2015") + "-06-12";
+        json.beginObject()
+                .name("adult").value(false)
+                .name("backdrop_path").value("/backdrop" + id + ".jpg")
+                .name("genre_ids").beginArray().value(18).value(35).endArray()
+                .name("id").value(id)
+                .name("original_language").value("en")
+                .name(movie ? "original_title" : "original_name").value(title)
+                .name("overview").value(overview())
+                .name("popularity").value(50.0)
+                .name("poster_path").value("/poster" + id + ".jpg")
+                .name(movie ? "release_date" : "first_air_date").value(date)
+                .name(movie ? "title" : "name").value(title)
+                .name("vote_average").value(7.1)
+                .name("vote_count").value(1200)
+                .endObject();
+    }
+
+    private static String overview() {
+        return "A generated overview of realistic length for load testing the client. ".repeat(8).trim();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        boolean head = "HEAD".equalsIgnoreCase(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(status, head ? -1 : bytes.length);
+        if (!head) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void sleep(int millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class Builder {
+        private int port = 0;
+        private int threads = 64;
+        private Path fixtureDir;
+        private int latencyMillis = 0;
+        private int latencyJitterMillis = 0;
+        private double errorRate = 0;
+        private double throttleRate = 0;
+        private int resultsPerSearch = 20;
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder fixtureDir(Path fixtureDir) {
+            this.fixtureDir = fixtureDir;
+            return this;
+        }
+
+        public Builder latency(int latencyMillis, int jitterMillis) {
+            this.latencyMillis = latencyMillis;
+            this.latencyJitterMillis = jitterMillis;
+            return this;
+        }
+
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Builder throttleRate(double throttleRate) {
+            this.throttleRate = throttleRate;
+            return this;
+        }
+
+        public Builder resultsPerSearch(int resultsPerSearch) {
+            this.resultsPerSearch = resultsPerSearch;
+            return this;
+        }
+
+        public FakeTmdbServer start() throws IOException {
+            return new FakeTmdbServer(this);
+        }
+    }
+}
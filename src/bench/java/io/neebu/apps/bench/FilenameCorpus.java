@@ -0,0 +1,103 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.utils.ReleaseNames;
+import io.neebu.apps.utils.probe.FilenameProbe;
+import io.neebu.apps.utils.probe.ProbeResult;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fixed file name corpus of the per-name benchmarks: corpus/movies.txt and corpus/tv.txt in src/bench/resources,
+ * 1000 release-style names each (taken once from the movie and episode generators of
+ * {@link ReleaseNames}, without its fuzzed names), so that results stay comparable over time.
+ * <p>
+ * Files get their technical fields from {@link FilenameProbe} and their TMDb title from the parsed one, no file is
+ * read.
+ */
+final class FilenameCorpus {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilenameCorpus.class);
+
+    // As MediaInfo reports them: HDR_Format and transfer characteristics
+    static final String[] HDR_SOURCES = {"SMPTE ST 2086, HDR10 compatible", "SMPTE ST 2094 App 4, HDR10+ Profile B compatible",
+            "Dolby Vision, Version 1.0, dvhe.08.06, BL+RPU, HDR10 compatible / SMPTE ST 2086, HDR10 compatible",
+            "Dolby Vision, Version 1.0, dvhe.05.06, BL+RPU", "PQ", "HLG", "BT.709", "", "SMPTE ST 2084"};
+    static final int[][] DIMENSIONS = {{1920, 1080}, {1920, 800}, {1280, 720}, {3840, 2160}, {3840, 1600},
+            {720, 576}, {720, 480}, {1916, 1036}, {4096, 1716}, {640, 352}, {7680, 4320}};
+
+    /**
+     * A file of the corpus, with what MediaFile needs to be built again.
+     */
+    record Entry(Path path, Constants.CollectionType type, ProbeResult probeResult) {
+    }
+
+    final String[] baseNames;
+    final String[] titles;
+    final Entry[] entries;
+    final MediaFile[] mediaFiles;
+
+    private FilenameCorpus(String[] baseNames, String[] titles, Entry[] entries, MediaFile[] mediaFiles) {
+        this.baseNames = baseNames;
+        this.titles = titles;
+        this.entries = entries;
+        this.mediaFiles = mediaFiles;
+    }
+
+    static FilenameCorpus load() throws IOException {
+        List<String> names = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        List<MediaFile> files = new ArrayList<>();
+        int skipped = 0;
+        for (Constants.CollectionType type : Constants.CollectionType.values()) {
+            boolean movies = type == Constants.CollectionType.MOVIE;
+            for (String fileName : read(movies ? "/corpus/movies.txt" : "/corpus/tv.txt")) {
+                String baseName = FilenameUtils.getBaseName(fileName);
+                names.add(baseName);
+                Path path;
+                try {
+                    path = Paths.get(movies ? "/media/movies" : "/media/tv/Show/Season 1", fileName);
+                } catch (InvalidPathException e) {
+                    skipped++;
+                    continue;
+                }
+                Entry entry = new Entry(path, type, FilenameProbe.guess(baseName).result());
+                MediaFile mediaFile = new MediaFile(entry.path(), entry.type(), entry.probeResult(), 1);
+                mediaFile.setTmdbId(1000 + files.size());
+                mediaFile.setTmdbName(mediaFile.getName());
+                mediaFile.setEpisodeName(movies ? null : "Chapter One: The Vanishing of Will Byers");
+                entries.add(entry);
+                files.add(mediaFile);
+            }
+        }
+        if (skipped > 0) {
+            LOGGER.warn("{} name(s) are not valid paths here and have no MediaFile, run with a UTF-8 locale (LANG) for the full corpus",
+                    skipped);
+        }
+        return new FilenameCorpus(names.toArray(String[]::new),
+                files.stream().map(MediaFile::getName).toArray(String[]::new),
+                entries.toArray(Entry[]::new), files.toArray(MediaFile[]::new));
+    }
+
+    private static List<String> read(String resource) throws IOException {
+        try (InputStream input = FilenameCorpus.class.getResourceAsStream(resource)) {
+            if (input == null) throw new IOException("Corpus not on the class path: " + resource);
+            return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)).lines()
+                    .filter(line -> !line.isBlank())
+                    .toList();
+        }
+    }
+}
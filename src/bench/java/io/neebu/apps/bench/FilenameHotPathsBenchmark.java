@@ -0,0 +1,133 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.MediaMetadata;
+import io.neebu.apps.utils.SourceParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the per-file-name hot paths of a scan: {@link MediaMetadata} parsing,
+ * {@link SourceParser#parseMediaSource}, the {@link CollectionUtils} helpers and
+ * {@link MediaFile#applyNamingConvention}. Each operation handles one file name of the corpus, the next one on
+ * every call, so the numbers are per name.
+ * <p>
+ * The names are those of {@link FilenameCorpus}, fixed so that results stay comparable with the committed baseline.
+ * <p>
+ * Run through main, which adds the GC profiler (allocated bytes per op), writes JSON results and compares them
+ * with the baseline, or makes them the baseline if there is none yet:
+ * mvn -Pbench test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * -Dexec.args="-cp %classpath io.neebu.apps.bench.FilenameHotPathsBenchmark"
+ * <p>
+ * Usage: FilenameHotPathsBenchmark [results file, default target/jmh-results.json] [baseline file or -, default
+ * src/bench/baseline/filename-hot-paths.json] [JMH include regex, default all of this class]
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=error")
+@State(Scope.Thread)
+public class FilenameHotPathsBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilenameHotPathsBenchmark.class);
+
+    static final String DEFAULT_BASELINE = "src/bench/baseline/filename-hot-paths.json";
+
+    private String[] baseNames;
+    private String[] titles;
+    private MediaFile[] mediaFiles;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        FilenameCorpus corpus = FilenameCorpus.load();
+        baseNames = corpus.baseNames;
+        titles = corpus.titles;
+        mediaFiles = corpus.mediaFiles;
+    }
+
+    private int next(int length) {
+        if (++next >= length) next = 0;
+        return next;
+    }
+
+    @Benchmark
+    public MediaMetadata mediaMetadata() {
+        return new MediaMetadata(baseNames[next(baseNames.length)]);
+    }
+
+    @Benchmark
+    public SourceParser parseMediaSource() {
+        return SourceParser.parseMediaSource(baseNames[next(baseNames.length)]);
+    }
+
+    @Benchmark
+    public String cleanString() {
+        return CollectionUtils.cleanString(titles[next(titles.length)]);
+    }
+
+    @Benchmark
+    public String getStreamingSource() {
+        return CollectionUtils.getStreamingSource(baseNames[next(baseNames.length)]);
+    }
+
+    @Benchmark
+    public String detectResolution() {
+        int[] dimensions = FilenameCorpus.DIMENSIONS[next(FilenameCorpus.DIMENSIONS.length)];
+        return CollectionUtils.detectResolution(dimensions[0], dimensions[1]);
+    }
+
+    @Benchmark
+    public String detectHdrFormat() {
+        return CollectionUtils.detectHdrFormat(FilenameCorpus.HDR_SOURCES[next(FilenameCorpus.HDR_SOURCES.length)]);
+    }
+
+    @Benchmark
+    public Path applyNamingConvention() {
+        MediaFile mediaFile = mediaFiles[next(mediaFiles.length)];
+        mediaFile.applyNamingConvention();
+        return mediaFile.getNormalizedTitle();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String results = args.length > 0 ? args[0] : "target/jmh-results.json";
+        String baseline = args.length > 1 ? args[1] : DEFAULT_BASELINE;
+        String include = args.length > 2 ? args[2] : FilenameHotPathsBenchmark.class.getSimpleName();
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results)
+                .build()).run();
+        if (baseline.equals("-")) return;
+        if (!Files.exists(Paths.get(baseline))) {
+            Files.copy(Paths.get(results), Paths.get(baseline));
+            LOGGER.warn("No baseline at {}, recorded these results as the baseline on JDK {}: commit it", baseline,
+                    Runtime.version());
+            return;
+        }
+        JmhBaselineComparison.main(new String[]{results, baseline});
+    }
+}
@@ -0,0 +1,125 @@
+package io.neebu.apps.bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares JMH results (JSON, with the GC profiler) with a baseline and exits with status 1 if a benchmark lost
+ * more throughput or allocates more bytes per op than the tolerances allow.
+ * <p>
+ * Bytes per op do not depend on the machine, throughput does: compare ops/s only with a baseline taken on the
+ * same machine, or pass a throughput tolerance of -1 to skip it. Neither compares across JDK feature versions, so a
+ * baseline recorded on another JDK than the results fails the comparison. To take a new baseline, see
+ * src/bench/baseline/README.md.
+ * <p>
+ * Usage: JmhBaselineComparison &lt;results file&gt; [baseline file, default
+ * src/bench/baseline/filename-hot-paths.json] [throughput tolerance, default 0.15] [allocation tolerance, default
+ * 0.05]
+ */
+public class JmhBaselineComparison {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmhBaselineComparison.class);
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    record Result(double opsPerSecond, double opsError, double bytesPerOp) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            LOGGER.error("Usage: JmhBaselineComparison <results file> [baseline file] [throughput tolerance] [allocation tolerance]");
+            return;
+        }
+        Path resultsFile = Paths.get(args[0]);
+        Path baselineFile = Paths.get(args.length > 1 ? args[1] : FilenameHotPathsBenchmark.DEFAULT_BASELINE);
+        double throughputTolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+        double allocationTolerance = args.length > 3 ? Double.parseDouble(args[3]) : 0.05;
+        if (!Files.exists(baselineFile)) {
+            LOGGER.warn("No baseline at {}, nothing to compare", baselineFile);
+            return;
+        }
+
+        int resultsJdk = jdkFeature(resultsFile);
+        int baselineJdk = jdkFeature(baselineFile);
+        if (resultsJdk != baselineJdk) {
+            LOGGER.error("Baseline {} was recorded on JDK {}, the results on JDK {}: record a baseline on this JDK, see "
+                    + "src/bench/baseline/README.md", baselineFile, baselineJdk, resultsJdk);
+            System.exit(1);
+        }
+
+        Map<String, Result> results = read(resultsFile);
+        Map<String, Result> baseline = read(baselineFile);
+        int regressions = 0;
+        LOGGER.info(String.format("%-28s %14s %14s %7s %10s %10s", "benchmark", "baseline ops/s", "ops/s", "ratio",
+                "base B/op", "B/op"));
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            String name = entry.getKey().substring(entry.getKey().lastIndexOf('.') + 1);
+            if (before == null) {
+                LOGGER.info(String.format("%-28s %14s %14.0f %7s %10s %10.1f", name, "-", after.opsPerSecond(), "-", "-",
+                        after.bytesPerOp()));
+                continue;
+            }
+            double ratio = after.opsPerSecond() / before.opsPerSecond();
+            // A loss within the error of both measurements is noise
+            boolean slower = throughputTolerance >= 0 && ratio < 1 - throughputTolerance
+                    && after.opsPerSecond() + after.opsError() < before.opsPerSecond() - before.opsError();
+            // Allow a few bytes, alignment and TLAB sampling blur small values
+            boolean allocates = after.bytesPerOp() > before.bytesPerOp() * (1 + allocationTolerance) + 8;
+            String line = String.format("%-28s %14.0f %14.0f %6.2fx %10.1f %10.1f", name, before.opsPerSecond(),
+                    after.opsPerSecond(), ratio, before.bytesPerOp(), after.bytesPerOp());
+            if (slower || allocates) {
+                regressions++;
+                LOGGER.error("{}  REGRESSION{}{}", line, slower ? " throughput" : "", allocates ? " allocation" : "");
+            } else {
+                LOGGER.info(line);
+            }
+        }
+        if (regressions > 0) {
+            LOGGER.error("{} benchmark(s) regressed against {}", regressions, baselineFile);
+            System.exit(1);
+        }
+        LOGGER.info("No regression against {}", baselineFile);
+    }
+
+    // Feature version of the JDK of the first run, e.g. 22 for "22.0.2"
+    static int jdkFeature(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            JsonArray runs = JsonParser.parseReader(reader).getAsJsonArray();
+            if (runs.isEmpty() || !runs.get(0).getAsJsonObject().has("jdkVersion")) return -1;
+            return Runtime.Version.parse(runs.get(0).getAsJsonObject().get("jdkVersion").getAsString()).feature();
+        }
+    }
+
+    static Map<String, Result> read(Path file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            JsonArray runs = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : runs) {
+                JsonObject run = element.getAsJsonObject();
+                JsonObject primary = run.getAsJsonObject("primaryMetric");
+                JsonObject secondary = run.getAsJsonObject("secondaryMetrics");
+                double bytesPerOp = secondary != null && secondary.has(ALLOCATION)
+                        ? secondary.getAsJsonObject(ALLOCATION).get("score").getAsDouble() : Double.NaN;
+                double error = primary.get("scoreError").isJsonPrimitive()
+                        && primary.get("scoreError").getAsJsonPrimitive().isNumber() ? primary.get("scoreError").getAsDouble() : 0;
+                results.put(run.get("benchmark").getAsString(),
+                        new Result(primary.get("score").getAsDouble(), error, bytesPerOp));
+            }
+        }
+        return results;
+    }
+}
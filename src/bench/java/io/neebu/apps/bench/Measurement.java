@@ -0,0 +1,88 @@
+package io.neebu.apps.bench;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+
+/**
+ * Minimal timing and allocation measurement for the benchmark harnesses.
+ * <p>
+ * Runs an operation in a warm-up phase and then a measured phase on the calling thread, and reports
+ * nanoseconds and bytes allocated per operation using the HotSpot thread allocation counter.
+ */
+public class Measurement {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Measurement.class);
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Written by every run so the JIT cannot drop the operation as dead code
+    private static volatile Object sink;
+
+    private final String name;
+    private final double nanosPerOp;
+    private final double bytesPerOp;
+
+    private Measurement(String name, double nanosPerOp, double bytesPerOp) {
+        this.name = name;
+        this.nanosPerOp = nanosPerOp;
+        this.bytesPerOp = bytesPerOp;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getNanosPerOp() {
+        return nanosPerOp;
+    }
+
+    public double getBytesPerOp() {
+        return bytesPerOp;
+    }
+
+    /**
+     * Measures an operation.
+     *
+     * @param name       Label used in the report.
+     * @param warmupOps  Number of unmeasured invocations.
+     * @param measureOps Number of measured invocations.
+     * @param op         The operation, its result is kept alive until the next call.
+     * @return The measurement.
+     * @throws Exception if the operation fails.
+     */
+    public static Measurement run(String name, int warmupOps, int measureOps, Callable<?> op) throws Exception {
+        Measurement measurement = runQuietly(name, warmupOps, measureOps, op);
+        measurement.log();
+        return measurement;
+    }
+
+    /**
+     * Measures an operation without logging the result.
+     *
+     * @see #run(String, int, int, Callable)
+     */
+    public static Measurement runQuietly(String name, int warmupOps, int measureOps, Callable<?> op) throws Exception {
+        for (int i = 0; i < warmupOps; i++) {
+            sink = op.call();
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < measureOps; i++) {
+            sink = op.call();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREAD_BEAN.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        return new Measurement(name, (double) elapsed / measureOps, (double) bytes / measureOps);
+    }
+
+    public void log() {
+        LOGGER.info(String.format("%-40s %12.1f ns/op %12.1f B/op", name, nanosPerOp, bytesPerOp));
+    }
+}
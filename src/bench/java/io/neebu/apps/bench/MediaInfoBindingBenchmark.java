@@ -0,0 +1,109 @@
+package io.neebu.apps.bench;
+
+import com.amilesend.mediainfo.type.StreamType;
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.probe.MediaInfoBinding;
+import io.neebu.apps.utils.probe.MediaInfoPool;
+import io.neebu.apps.utils.probe.MediaProbe;
+import io.neebu.apps.utils.probe.ProbeResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compares the jna and ffm {@link MediaInfoBinding}s: the cost of a single field read and of one Inform call on
+ * an open file, then the time to take the {@link MediaProbe} snapshot of every file of a library. The ffm results
+ * are checked against jna, any difference is counted as a mismatch.
+ * <p>
+ * Run with --enable-native-access=ALL-UNNAMED. Usage: MediaInfoBindingBenchmark &lt;library dir&gt; [max files] [ops]
+ */
+public class MediaInfoBindingBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MediaInfoBindingBenchmark.class);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            LOGGER.error("Usage: MediaInfoBindingBenchmark <library dir> [max files] [ops]");
+            return;
+        }
+        int maxFiles = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int ops = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        List<Path> files = CollectionUtils.listFilesRecursively(Paths.get(args[0]).toAbsolutePath()).stream()
+                .limit(maxFiles)
+                .toList();
+        if (files.isEmpty()) {
+            LOGGER.error("No media files under {}", args[0]);
+            return;
+        }
+
+        MediaInfoBinding jna = MediaInfoBinding.named("jna");
+        MediaInfoBinding ffm = MediaInfoBinding.named("ffm");
+
+        LOGGER.info("Per-call cost on {}", files.get(0));
+        Measurement jnaGet = measureGet(jna, files.get(0), ops);
+        Measurement ffmGet = measureGet(ffm, files.get(0), ops);
+        Measurement jnaInform = measureInform(jna, files.get(0), ops / 10);
+        Measurement ffmInform = measureInform(ffm, files.get(0), ops / 10);
+        LOGGER.info(String.format("Get: ffm %.1fx faster, Inform: ffm %.1fx faster",
+                jnaGet.getNanosPerOp() / ffmGet.getNanosPerOp(), jnaInform.getNanosPerOp() / ffmInform.getNanosPerOp()));
+
+        LOGGER.info("Whole-file snapshots over {} file(s)", files.size());
+        List<ProbeResult> reference = new ArrayList<>();
+        double jnaMillis = probeAll(jna, files, reference, null);
+        double ffmMillis = probeAll(ffm, files, new ArrayList<>(), reference);
+        LOGGER.info(String.format("Snapshot: jna %.2f ms/file, ffm %.2f ms/file (%.1fx)",
+                jnaMillis, ffmMillis, jnaMillis / ffmMillis));
+    }
+
+    private static Measurement measureGet(MediaInfoBinding binding, Path file, int ops) throws Exception {
+        try (MediaInfoBinding.Handle handle = binding.newHandle()) {
+            if (!handle.open(file)) throw new IllegalStateException("Could not open " + file);
+            return Measurement.run(binding.name() + " Get(Video, 0, Format)", ops, ops,
+                    () -> handle.get(StreamType.Video, 0, "Format"));
+        }
+    }
+
+    private static Measurement measureInform(MediaInfoBinding binding, Path file, int ops) throws Exception {
+        try (MediaInfoBinding.Handle handle = binding.newHandle()) {
+            if (!handle.open(file)) throw new IllegalStateException("Could not open " + file);
+            handle.option("Inform", "Audio;%Title%|~|%Language%|~|%Format%|~|%Channels%\\n");
+            return Measurement.run(binding.name() + " Inform(audio template)", ops, ops, handle::inform);
+        }
+    }
+
+    // Returns ms per file; with a reference, counts and logs the files whose result differs from it
+    private static double probeAll(MediaInfoBinding binding, List<Path> files, List<ProbeResult> results,
+                                   List<ProbeResult> reference) {
+        long nanos = 0;
+        try (MediaInfoPool pool = new MediaInfoPool(binding)) {
+            for (Path file : files) {
+                ProbeResult result = null;
+                try {
+                    long start = System.nanoTime();
+                    MediaProbe probe = MediaProbe.probe(file, pool);
+                    nanos += System.nanoTime() - start;
+                    result = ProbeResult.of(probe);
+                } catch (Exception e) {
+                    LOGGER.warn("{} could not probe {}: {}", binding.name(), file, e.getMessage());
+                }
+                results.add(result);
+            }
+        }
+        if (reference != null) {
+            int mismatches = 0;
+            for (int i = 0; i < files.size(); i++) {
+                if (!Objects.equals(reference.get(i), results.get(i))) {
+                    mismatches++;
+                    LOGGER.warn("Mismatch on {}\n  jna: {}\n  {}: {}", files.get(i), reference.get(i), binding.name(), results.get(i));
+                }
+            }
+            LOGGER.info("{} mismatches against jna: {}", binding.name(), mismatches);
+        }
+        return nanos / 1e6 / files.size();
+    }
+}
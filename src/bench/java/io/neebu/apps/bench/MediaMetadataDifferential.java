@@ -0,0 +1,88 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.LegacyMediaMetadata;
+import io.neebu.apps.utils.MediaMetadata;
+import io.neebu.apps.utils.ReleaseNames;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Differential check of {@link MediaMetadata} against {@link LegacyMediaMetadata}, followed by a speed and
+ * allocation comparison of the two.
+ * <p>
+ * The corpus is generated by {@link ReleaseNames}, as in MediaMetadataTest but larger. Names from a library
+ * directory (base names of its video files, as MediaFile passes them) or from a text file with one name per line are
+ * added to it. All four fields must be equal for every name.
+ * <p>
+ * Usage: MediaMetadataDifferential [generated names, default 500000] [library dir, names file or -] [seed]
+ */
+public class MediaMetadataDifferential {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MediaMetadataDifferential.class);
+
+    public static void main(String[] args) throws Exception {
+        int generated = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 41;
+        List<String> corpus = ReleaseNames.generate(generated, new Random(seed));
+        if (args.length > 1 && !args[1].equals("-")) {
+            List<String> extra = readNames(Paths.get(args[1]));
+            LOGGER.info("Adding {} name(s) from {}", extra.size(), args[1]);
+            corpus.addAll(extra);
+        }
+        LOGGER.info("Comparing {} name(s)", corpus.size());
+
+        int mismatches = 0;
+        int titles = 0, seasons = 0, years = 0;
+        for (String name : corpus) {
+            LegacyMediaMetadata expected = new LegacyMediaMetadata(name);
+            MediaMetadata actual = new MediaMetadata(name);
+            if (!expected.getTitle().isEmpty()) titles++;
+            if (!expected.getSeason().isEmpty()) seasons++;
+            if (!expected.getYear().isEmpty()) years++;
+            if (!expected.getTitle().equals(actual.getTitle()) || !expected.getSeason().equals(actual.getSeason())
+                    || !expected.getEpisode().equals(actual.getEpisode()) || !expected.getYear().equals(actual.getYear())) {
+                if (mismatches++ < 50) {
+                    LOGGER.warn("Mismatch on '{}'\n  legacy: {}\n  lexer:  {}", escape(name), expected, actual);
+                }
+            }
+        }
+        LOGGER.info("Names={}, with title={}, with season={}, with year={}, mismatches={}",
+                corpus.size(), titles, seasons, years, mismatches);
+
+        int ops = Math.min(corpus.size(), 200_000);
+        int[] next = {0};
+        Measurement legacy = Measurement.run("regex (legacy)", ops, ops,
+                () -> new LegacyMediaMetadata(corpus.get(next[0]++ % corpus.size())));
+        next[0] = 0;
+        Measurement lexer = Measurement.run("lexer", ops, ops,
+                () -> new MediaMetadata(corpus.get(next[0]++ % corpus.size())));
+        LOGGER.info(String.format("Lexer: %.1fx faster, %.1fx fewer bytes than the regex cascade",
+                legacy.getNanosPerOp() / lexer.getNanosPerOp(), legacy.getBytesPerOp() / lexer.getBytesPerOp()));
+    }
+
+    private static List<String> readNames(Path source) throws Exception {
+        if (Files.isDirectory(source)) {
+            return CollectionUtils.listFilesRecursively(source.toAbsolutePath()).stream()
+                    .map(file -> FilenameUtils.getBaseName(file.toString()))
+                    .toList();
+        }
+        return Files.readAllLines(source);
+    }
+
+    private static String escape(String name) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            if (c < 0x20 || c > 0x7e) escaped.append(String.format("\\u%04x", (int) c));
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.NamingTemplate;
+import io.neebu.apps.utils.ReleaseNames;
+import io.neebu.apps.utils.probe.ProbeResult;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks {@link MediaFile#applyNamingConvention} with the default templates against the Stream pipeline it
+ * replaced, and {@link CollectionUtils#cleanString} against the regex version, then compares their cost per file.
+ * <p>
+ * Files come from the generated corpus of {@link ReleaseNames}, with technical fields and TMDb titles
+ * (some accented, some with '&' or punctuation) picked at random; no file is read.
+ * <p>
+ * Usage: NamingTemplateBenchmark [files, default 100000] [seed]
+ */
+public class NamingTemplateBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NamingTemplateBenchmark.class);
+
+    private static final String[] TITLES = {"The Matrix", "Spider-Man: No Way Home", "L\u00e9on: The Professional",
+            "Am\u00e9lie", "Fast & Furious", "Con Air", "Con.Man", "Mr. & Mrs. Smith", "...And Justice for All",
+            "Schindler's List", "Crouching Tiger, Hidden Dragon", "\u00c7a", "Pok\u00e9mon: The First Movie", "NOT_FOUND",
+            "Star Wars: Episode IV - A New Hope", "  ", "Zo\u00eb's Ocean 11?!", "Ocean's Eleven", "Se7en"};
+    private static final String[] EPISODES = {"Pilot", "The One Where Monica Gets a Roommate", "Ozymandias",
+            "Chapter One: The Vanishing of Will Byers", "Caf\u00e9 Scene", "", "Part 1 & 2", null};
+    private static final String[] RESOLUTIONS = {"2160p", "1080p", "720p", "480p", null, ""};
+    private static final String[] HDR = {"HDR10", "DV", "HDR10+", null, ""};
+    private static final String[] VIDEO = {"x265", "x264", "AV1", "VC-1", null};
+    private static final String[] AUDIO = {"DTS-HD.MA", "TrueHD.Atmos", "DDP", "AAC", null};
+    private static final String[] CHANNELS = {"7.1", "5.1", "2.0", null};
+    private static final String[] DIRECTORIES = {"/media/movies/", "/media/tv/Show/Season 1/"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 44;
+        Random random = new Random(seed);
+        List<MediaFile> files = new ArrayList<>(count);
+        for (String name : ReleaseNames.generate(count, random)) {
+            Constants.CollectionType type = random.nextBoolean() ? Constants.CollectionType.MOVIE : Constants.CollectionType.TV;
+            Path path;
+            try {
+                path = Paths.get(DIRECTORIES[type.ordinal()] + name.replace('/', '_') + ".mkv");
+            } catch (InvalidPathException e) {
+                continue;
+            }
+            MediaFile file = new MediaFile(path, type, new ProbeResult(pick(VIDEO, random), pick(RESOLUTIONS, random),
+                    pick(HDR, random), pick(AUDIO, random), pick(CHANNELS, random), List.of()), 1);
+            file.setTmdbId(random.nextInt(10) == 0 ? null : random.nextInt(1_000_000));
+            file.setTmdbName(pick(TITLES, random));
+            file.setEpisodeName(pick(EPISODES, random));
+            files.add(file);
+        }
+
+        int mismatches = 0, cleanMismatches = 0;
+        for (MediaFile file : files) {
+            Path expected = legacyNormalizedTitle(file);
+            file.applyNamingConvention();
+            // The Stream version wrote "tmdb-null" for files without TMDb id, the template leaves the id empty
+            if (file.getTmdbId() == null) expected = Paths.get(expected.toString().replace("{tmdb-null}", "{tmdb-}"));
+            if (!expected.equals(file.getNormalizedTitle()) && mismatches++ < 50) {
+                LOGGER.warn("Mismatch: Stream {}, template {}", expected, file.getNormalizedTitle());
+            }
+            String raw = file.getBaseName();
+            if (!legacyCleanString(raw).equals(CollectionUtils.cleanString(raw)) && cleanMismatches++ < 50) {
+                LOGGER.warn("cleanString mismatch on '{}': {} vs {}", raw, legacyCleanString(raw), CollectionUtils.cleanString(raw));
+            }
+        }
+        for (String title : TITLES) {
+            if (!legacyCleanString(title).equals(CollectionUtils.cleanString(title))) cleanMismatches++;
+        }
+        LOGGER.info("Files={}, name mismatches={}, cleanString mismatches={}", files.size(), mismatches, cleanMismatches);
+
+        int ops = files.size();
+        int[] next = {0};
+        Measurement legacy = Measurement.run("Streams and regex cleanString", ops, ops,
+                () -> legacyNormalizedTitle(files.get(next[0]++ % files.size())));
+        Measurement template = Measurement.run("compiled template", ops, ops, () -> {
+            MediaFile file = files.get(next[0]++ % files.size());
+            file.applyNamingConvention();
+            return file.getNormalizedTitle();
+        });
+        NamingTemplate custom = NamingTemplate.compile("{title} ({year}).{resolution}.{{tmdb-{tmdbId}}}.{ext}");
+        LOGGER.info("Custom template '{}' on {}: {}", custom, files.get(0).getBaseName(), custom.render(field -> switch (field) {
+            case TITLE -> files.get(0).getTmdbName();
+            case YEAR -> "1999";
+            case RESOLUTION -> files.get(0).getResolution();
+            case TMDB_ID -> String.valueOf(files.get(0).getTmdbId());
+            case EXTENSION -> files.get(0).getFileExtension();
+            default -> null;
+        }));
+
+        LOGGER.info(String.format("Template: %.1fx faster, %.1fx fewer bytes per file",
+                legacy.getNanosPerOp() / template.getNanosPerOp(), legacy.getBytesPerOp() / template.getBytesPerOp()));
+    }
+
+    // MediaFile.applyNamingConvention before the templates
+    private static Path legacyNormalizedTitle(MediaFile file) {
+        boolean movie = file.getCollectionType().equals(Constants.CollectionType.MOVIE);
+        String cleanTitle = legacyCleanString(file.getTmdbName().equalsIgnoreCase("NOT_FOUND") ? file.getName() : file.getTmdbName());
+        cleanTitle = cleanTitle.startsWith("Con.") ? cleanTitle.replaceFirst("Con\\.", "Con") : cleanTitle;
+
+        Stream<String> typeSpecificParts = movie
+                ? Stream.of(file.getReleaseYear() != null ? file.getReleaseYear().toString() : null)
+                : Stream.of("S" + file.getSeasonNumber() + "E" + file.getEpisodeNumber(), legacyCleanString(file.getEpisodeName()));
+
+        Stream<String> codecParts = movie
+                ? Stream.of(file.getHdrFormat(), file.getVideoCodec(), file.getAudioCodec(), file.getAudioChannels())
+                : Stream.of(file.getAudioCodec(), file.getAudioChannels(), file.getHdrFormat(), file.getVideoCodec());
+
+        return file.getAbsolutePath().resolveSibling(
+                Stream.of(
+                                Stream.of(cleanTitle),
+                                typeSpecificParts,
+                                Stream.of(file.getResolution(), file.getSource(), file.getSourceType()),
+                                codecParts,
+                                Stream.of("{tmdb-" + file.getTmdbId() + "}-" + (StringUtils.isBlank(file.getGroupName()) ? "Ayumi" : file.getGroupName()), file.getFileExtension())
+                        )
+                        .flatMap(s -> s)
+                        .filter(StringUtils::isNotBlank)
+                        .collect(Collectors.joining("."))
+        ).toAbsolutePath();
+    }
+
+    // CollectionUtils.cleanString before the ASCII path
+    private static String legacyCleanString(String input) {
+        if (input == null) return null;
+        String normalized = Normalizer.normalize(input.replace("&", "and"), Normalizer.Form.NFD);
+        normalized = normalized.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+        normalized = normalized.replaceAll("[^A-Za-z0-9.-]", ".");
+        normalized = normalized.replaceAll("\\.+", ".");
+        return normalized.replaceAll("^\\.|\\.$", "");
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,82 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.probe.MediaInfoPool;
+import io.neebu.apps.utils.probe.MediaProber;
+import io.neebu.apps.utils.probe.ProbeResult;
+import io.neebu.apps.utils.probe.ProbeStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Probes a library at several MediaInfo parse speeds and reports the I/O cost of each, to pick the setting for
+ * library.movies.parse.speed / library.tv.parse.speed.
+ * <p>
+ * Every speed is checked against the slowest (most thorough) one: a file whose technical fields differ is
+ * counted as a mismatch, so a faster setting is only worth it with zero mismatches. Run it against the share
+ * itself; on a local disk the page cache hides most of the difference in time, though not in bytes read.
+ * <p>
+ * Usage: ParseSpeedComparison &lt;library dir&gt; [speeds, e.g. 0,0.3,0.5,1] [max files]
+ */
+public class ParseSpeedComparison {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParseSpeedComparison.class);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            LOGGER.error("Usage: ParseSpeedComparison <library dir> [speeds] [max files]");
+            return;
+        }
+        List<String> speeds = Arrays.stream((args.length > 1 ? args[1] : "0,0.5,1").split(","))
+                .map(String::trim)
+                .sorted((a, b) -> Double.compare(Double.parseDouble(b), Double.parseDouble(a)))
+                .toList();
+        int maxFiles = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        List<Path> files = CollectionUtils.listFilesRecursively(Paths.get(args[0]).toAbsolutePath()).stream()
+                .limit(maxFiles)
+                .toList();
+        LOGGER.info("Probing {} file(s) at parse speeds {}", files.size(), speeds);
+
+        try (MediaInfoPool pool = new MediaInfoPool()) {
+            List<ProbeResult> reference = null;
+            LOGGER.info(String.format("%8s %12s %12s %10s %10s", "speed", "KiB/file", "total MiB", "ms/file", "mismatch"));
+            for (String speed : speeds) {
+                MediaProber prober = new MediaProber(pool, null, speed, false);
+                List<ProbeResult> results = new ArrayList<>(files.size());
+                for (Path file : files) {
+                    try {
+                        results.add(prober.probe(file));
+                    } catch (Exception e) {
+                        LOGGER.warn("Could not probe {} at speed {}: {}", file, speed, e.getMessage());
+                        results.add(null);
+                    }
+                }
+                if (reference == null) {
+                    reference = results;
+                }
+                ProbeStats stats = prober.getStats();
+                LOGGER.info(String.format("%8s %12s %12.1f %10.1f %10d", speed,
+                        stats.getAverageBytesRead() < 0 ? "n/a" : String.valueOf(stats.getAverageBytesRead() / 1024),
+                        stats.getBytesRead() / 1048576.0, stats.getAverageMillis(), mismatches(reference, results, files)));
+            }
+        }
+    }
+
+    private static int mismatches(List<ProbeResult> reference, List<ProbeResult> results, List<Path> files) {
+        int mismatches = 0;
+        for (int i = 0; i < files.size(); i++) {
+            if (!Objects.equals(reference.get(i), results.get(i))) {
+                mismatches++;
+                LOGGER.debug("Mismatch on {}: {} vs {}", files.get(i), reference.get(i), results.get(i));
+            }
+        }
+        return mismatches;
+    }
+}
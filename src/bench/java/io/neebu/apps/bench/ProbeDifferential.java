@@ -0,0 +1,81 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.probe.ContainerProbe;
+import io.neebu.apps.utils.probe.MediaInfoPool;
+import io.neebu.apps.utils.probe.MediaProbe;
+import io.neebu.apps.utils.probe.ProbeResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Differential check of {@link ContainerProbe} against MediaInfo over a real library.
+ * <p>
+ * Every file is probed both ways; for the files the container parser accepts, the derived
+ * {@link ProbeResult}s must be identical. Mismatches are logged with both results, and the summary gives the
+ * share of files the fast path covers and the time each path takes. Set probe.header.parser=false if this reports
+ * mismatches on a library.
+ * <p>
+ * Usage: ProbeDifferential &lt;library dir&gt; [max files]
+ */
+public class ProbeDifferential {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeDifferential.class);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            LOGGER.error("Usage: ProbeDifferential <library dir> [max files]");
+            return;
+        }
+        int maxFiles = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+        List<Path> files = CollectionUtils.listFilesRecursively(Paths.get(args[0]).toAbsolutePath()).stream()
+                .limit(maxFiles)
+                .toList();
+
+        int covered = 0, fellBack = 0, mismatches = 0, failures = 0;
+        long headerNanos = 0, mediaInfoNanos = 0;
+        try (MediaInfoPool pool = new MediaInfoPool()) {
+            for (Path file : files) {
+                try {
+                    long start = System.nanoTime();
+                    MediaProbe fast = ContainerProbe.probe(file);
+                    long middle = System.nanoTime();
+                    MediaProbe reference = MediaProbe.probe(file, pool);
+                    long end = System.nanoTime();
+
+                    if (fast == null) {
+                        fellBack++;
+                        LOGGER.debug("Falls back to MediaInfo: {}", file);
+                        continue;
+                    }
+                    covered++;
+                    headerNanos += middle - start;
+                    mediaInfoNanos += end - middle;
+
+                    ProbeResult fastResult = ProbeResult.of(fast);
+                    ProbeResult referenceResult = ProbeResult.of(reference);
+                    if (!fastResult.equals(referenceResult)) {
+                        mismatches++;
+                        LOGGER.warn("Mismatch on {}\n  headers:   {}\n  MediaInfo: {}\n  raw headers:   {} {}\n  raw MediaInfo: {} {}",
+                                file, fastResult, referenceResult, fast.getVideoStreams(), fast.getAudioStreams(),
+                                reference.getVideoStreams(), reference.getAudioStreams());
+                    }
+                } catch (Exception e) {
+                    failures++;
+                    LOGGER.warn("Could not probe {}: {}", file, e.getMessage());
+                }
+            }
+        }
+
+        LOGGER.info("Files={}, covered by container parser={}, fell back={}, failed={}, mismatches={}",
+                files.size(), covered, fellBack, failures, mismatches);
+        if (covered > 0) {
+            LOGGER.info(String.format("On covered files: container parser %.2f ms/file, MediaInfo %.2f ms/file (%.1fx)",
+                    headerNanos / 1e6 / covered, mediaInfoNanos / 1e6 / covered, (double) mediaInfoNanos / Math.max(1, headerNanos)));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.probe.MediaInfoPool;
+import io.neebu.apps.utils.probe.MediaProber;
+import io.neebu.apps.utils.probe.ProbeOrder;
+import io.neebu.apps.utils.probe.ProbeStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Probes a library once per {@link ProbeOrder.Mode} and reports throughput, to pick probe.order for a disk.
+ * <p>
+ * Each pass starts with a cold page cache, or the later passes would read from memory: run as root so the
+ * benchmark can drop the caches, otherwise use a library larger than RAM. Independently of timing, every order
+ * is scored by its total seek distance, the sum of the jumps between consecutive files' first extents (FIEMAP;
+ * not available on network shares).
+ * <p>
+ * Usage: ProbeOrderBenchmark &lt;library dir&gt; [modes, e.g. NAME,INODE,EXTENT] [max files]
+ */
+public class ProbeOrderBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeOrderBenchmark.class);
+
+    private static final Path DROP_CACHES = Paths.get("/proc/sys/vm/drop_caches");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            LOGGER.error("Usage: ProbeOrderBenchmark <library dir> [modes] [max files]");
+            return;
+        }
+        List<ProbeOrder.Mode> modes = Arrays.stream((args.length > 1 ? args[1] : "NAME,DIRECTORY,INODE,EXTENT").split(","))
+                .map(ProbeOrder::mode)
+                .toList();
+        int maxFiles = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        List<String> files = CollectionUtils.listFilesRecursively(Paths.get(args[0]).toAbsolutePath()).stream()
+                .limit(maxFiles)
+                .map(Path::toString)
+                .toList();
+        LOGGER.info("Probing {} file(s) in orders {}", files.size(), modes);
+
+        LOGGER.info(String.format("%-10s %12s %12s %12s %10s", "order", "seek GiB", "files/s", "ms/file", "order ms"));
+        try (MediaInfoPool pool = new MediaInfoPool()) {
+            for (ProbeOrder.Mode mode : modes) {
+                long orderStart = System.nanoTime();
+                List<String> ordered = ProbeOrder.sort(files, mode);
+                long orderMillis = (System.nanoTime() - orderStart) / 1_000_000;
+                double seekGiB = seekDistance(ordered) / 1073741824.0;
+
+                dropCaches();
+                MediaProber prober = new MediaProber(pool, null);
+                long start = System.nanoTime();
+                for (String file : ordered) {
+                    try {
+                        prober.probe(Paths.get(file));
+                    } catch (Exception e) {
+                        LOGGER.warn("Could not probe {}: {}", file, e.getMessage());
+                    }
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                ProbeStats stats = prober.getStats();
+                LOGGER.info(String.format("%-10s %12s %12.1f %12.2f %10d", mode,
+                        seekGiB < 0 ? "n/a" : String.format("%.1f", seekGiB), ordered.size() / seconds,
+                        stats.getAverageMillis(), orderMillis));
+            }
+        }
+    }
+
+    // Sum of the distances between consecutive first extents, -1 if no file could be located
+    private static long seekDistance(List<String> ordered) {
+        List<Long> offsets = new ArrayList<>(ordered.size());
+        for (String file : ordered) {
+            long offset = ProbeOrder.physicalOffset(Paths.get(file));
+            if (offset >= 0) offsets.add(offset);
+        }
+        if (offsets.isEmpty()) return -1;
+        long distance = 0;
+        for (int i = 1; i < offsets.size(); i++) {
+            distance += Math.abs(offsets.get(i) - offsets.get(i - 1));
+        }
+        return distance;
+    }
+
+    private static void dropCaches() {
+        try {
+            Files.writeString(DROP_CACHES, "3");
+        } catch (Exception e) {
+            LOGGER.warn("Could not drop the page cache ({}), timings after the first pass are optimistic", e.getMessage());
+        }
+    }
+}
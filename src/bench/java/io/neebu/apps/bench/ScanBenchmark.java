@@ -0,0 +1,121 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.App;
+import io.neebu.apps.core.AppProperties;
+import io.neebu.apps.core.ScanMetrics;
+import io.neebu.apps.core.entities.Constants.CollectionType;
+import io.neebu.apps.utils.probe.MediaInfoPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end scan of a {@link SyntheticLibrary} through {@link App#run}: walk, reconcile with the database, probe,
+ * TMDb lookup, persist and rename, at one or more library sizes, with the time of each stage per collection.
+ * <p>
+ * Nothing outside the machine is needed: probes go to {@link StubMediaInfoBinding}, TMDb to a
+ * {@link FakeTmdbServer}, and the collection table to an in-memory H2 database in MariaDB mode unless a JDBC URL is
+ * given (see {@link ScratchDatabase}, whose rows are deleted). Each size gets a fresh library in the work
+ * directory, removed afterwards, and an empty collection table.
+ * <p>
+ * The scan logs every file at info; to time the scan rather than the console, run with
+ * -Dorg.slf4j.simpleLogger.defaultLogLevel=warn -Dorg.slf4j.simpleLogger.log.io.neebu.apps.bench=info
+ * <p>
+ * Usage: ScanBenchmark [sizes, default 10000,100000,1000000] [work dir or -, default the temp dir] [JDBC URL of a
+ * scratch database or -, default H2 in memory, credentials from -Ddatabase.user and -Ddatabase.pass] [TMDb latency ms,
+ * default 0] [probe latency ms, default 0] [TV share, default 0.6] [seed]
+ */
+public class ScanBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanBenchmark.class);
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "10000,100000,1000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        Path workDir = args.length > 1 && !args[1].equals("-") ? Paths.get(args[1]) : Paths.get(System.getProperty("java.io.tmpdir"));
+        String databaseUrl = args.length > 2 && !args[2].equals("-") ? args[2] : null;
+        int tmdbLatencyMillis = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int probeLatencyMillis = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        double tvShare = args.length > 5 ? Double.parseDouble(args[5]) : 0.6;
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 47;
+
+        StubMediaInfoBinding.setLatency(probeLatencyMillis, TimeUnit.MILLISECONDS);
+        List<String> report = new ArrayList<>();
+        try (FakeTmdbServer server = FakeTmdbServer.builder()
+                .latency(tmdbLatencyMillis, tmdbLatencyMillis / 2)
+                .start()) {
+            for (int size : sizes) {
+                Path root = Files.createTempDirectory(workDir, "synthetic-library-" + size + "-");
+                try {
+                    SyntheticLibrary library = SyntheticLibrary.generate(root, size, tvShare, seed);
+                    try (ScratchDatabase database = ScratchDatabase.open(databaseUrl, "scan" + size, false)) {
+                        long start = System.nanoTime();
+                        Map<CollectionType, ScanMetrics> metrics = App.run(new AppProperties(properties(library, server, database)));
+                        long elapsed = System.nanoTime() - start;
+                        metrics.values().forEach(collection -> report(report, size, collection));
+                        report.add(String.format("%9d %-6s %-10s %10d %10.0f %10.1f", size, "all", "total", size,
+                                elapsed / 1e6, elapsed / 1e3 / size));
+                    }
+                } finally {
+                    delete(root);
+                }
+            }
+            LOGGER.info("Fake TMDb handled {} HTTP requests", server.getRequestCount());
+        } finally {
+            MediaInfoPool.closeShared();
+        }
+
+        LOGGER.info(String.format("%9s %-6s %-10s %10s %10s %10s", "files", "scan", "stage", "items", "ms", "us/file"));
+        report.forEach(LOGGER::info);
+    }
+
+    private static Properties properties(SyntheticLibrary library, FakeTmdbServer server, ScratchDatabase database) {
+        Properties properties = new Properties();
+        properties.setProperty("library.movies.enabled", "true");
+        properties.setProperty("library.tv.enabled", "true");
+        properties.setProperty("library.movies.rename", "true");
+        properties.setProperty("library.tv.rename", "true");
+        properties.setProperty("library.movies.paths", library.getMoviesDir().toString());
+        properties.setProperty("library.tv.paths", library.getTvDir().toString());
+        properties.setProperty("tmdb.api.key", "fake-key");
+        properties.setProperty("tmdb.api.uri", server.getApiUri());
+        // Sparse files have no container header to parse, everything goes to the stub
+        properties.setProperty("probe.header.parser", "false");
+        properties.setProperty("probe.mediainfo.binding", StubMediaInfoBinding.class.getName());
+        properties.setProperty("database.url", database.getUrl());
+        properties.setProperty("database.user", database.getUser());
+        properties.setProperty("database.pass", database.getPass());
+        return properties;
+    }
+
+    // Per file of the scan, the stages that do not see every file are still divided by all of them
+    private static void report(List<String> report, int size, ScanMetrics metrics) {
+        long files = Math.max(1, metrics.getCount(ScanMetrics.Stage.WALK));
+        for (ScanMetrics.Stage stage : ScanMetrics.Stage.values()) {
+            report.add(String.format("%9d %-6s %-10s %10d %10.0f %10.1f", size, metrics.getLabel(), stage,
+                    metrics.getCount(stage), metrics.getNanos(stage) / 1e6, metrics.getNanos(stage) / 1e3 / files));
+        }
+    }
+
+    private static void delete(Path root) throws IOException {
+        long start = System.nanoTime();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+        LOGGER.info("Removed {} in {} ms", root, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,172 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.core.entities.Constants;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Properties;
+
+/**
+ * A throwaway database with the collection table, for the harnesses that go through
+ * {@link io.neebu.apps.conn.DatabaseApp}: an in-memory H2 database in MariaDB mode, or the database at a given JDBC
+ * URL, e.g. a local MariaDB container, with credentials from -Ddatabase.user and -Ddatabase.pass.
+ * <p>
+ * A given database must be a scratch one: its collection rows are deleted when it is opened. So it is only opened
+ * with -Dscratch.database.confirm=true, and never if it is the database.url of application.properties. The
+ * connection held here keeps an in-memory database alive until {@link #close()}.
+ */
+final class ScratchDatabase implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScratchDatabase.class);
+
+    // Columns of what DatabaseApp inserts and reads; short enough for ABSOLUTE_PATH to be indexed in utf8mb4
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS collection ( ID BIGINT AUTO_INCREMENT PRIMARY KEY"
+            + " ,COLLECTION_TYPE VARCHAR(8) ,ABSOLUTE_PATH VARCHAR(700) ,FILE_NAME VARCHAR(512) ,FILE_EXTENSION VARCHAR(16)"
+            + " ,NAME VARCHAR(512) ,SOURCE_TYPE VARCHAR(64) ,SOURCE VARCHAR(64) ,GROUP_NAME VARCHAR(128) ,TMDB_ID VARCHAR(16)"
+            + " ,RELEASE_YEAR INT ,FILE_SIZE BIGINT ,RELEASE_DATE VARCHAR(16) ,TMDB_NAME VARCHAR(512) ,TMDB_DESCRIPTION TEXT"
+            + " ,SEASON_NUMBER VARCHAR(8) ,EPISODE_NUMBER VARCHAR(8) ,EPISODE_NAME VARCHAR(512) ,EPISODE_OVERVIEW TEXT"
+            + " ,RESOLUTION VARCHAR(16) ,HDR_FORMAT VARCHAR(32) ,VIDEO_CODEC VARCHAR(32) ,AUDIO_CODEC VARCHAR(32)"
+            + " ,AUDIO_CHANNELS VARCHAR(8) )";
+    private static final String CREATE_INDEX_SQL = "CREATE INDEX IF NOT EXISTS collection_absolute_path ON collection (ABSOLUTE_PATH)";
+    private static final int SEED_BATCH = 1000;
+    private static final String CONFIRM_PROPERTY = "scratch.database.confirm";
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final Connection connection;
+
+    private ScratchDatabase(String url, String user, String pass, Connection connection) {
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.connection = connection;
+    }
+
+    /**
+     * Opens the database, creates the collection table if needed and empties it.
+     *
+     * @param url     JDBC URL, or null for an in-memory H2 database.
+     * @param name    Name of the in-memory database, a new name gives a new database.
+     * @param indexed Whether to index ABSOLUTE_PATH, which DatabaseApp deletes by. An existing index is kept either way.
+     * @return The database.
+     * @throws SQLException if it cannot be opened or set up.
+     * @throws IllegalArgumentException if a given database is not confirmed as a scratch one, or is the application's.
+     */
+    static ScratchDatabase open(String url, String name, boolean indexed) throws SQLException {
+        if (url != null) {
+            if (sameDatabase(url, applicationDatabaseUrl())) {
+                throw new IllegalArgumentException(url + " is the database.url of application.properties, not a scratch database");
+            }
+            if (!Boolean.getBoolean(CONFIRM_PROPERTY)) {
+                throw new IllegalArgumentException("The collection rows of " + url + " would be deleted, run with -D"
+                        + CONFIRM_PROPERTY + "=true if it is a scratch database");
+            }
+        }
+        String jdbcUrl = url != null ? url : "jdbc:h2:mem:" + name + ";MODE=MariaDB;DB_CLOSE_DELAY=-1";
+        String user = System.getProperty("database.user", url != null ? "" : "sa");
+        String pass = System.getProperty("database.pass", "");
+        Connection connection = DriverManager.getConnection(jdbcUrl, user, pass);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE_SQL);
+            if (indexed) statement.execute(CREATE_INDEX_SQL);
+            int deleted = statement.executeUpdate("DELETE FROM collection");
+            if (deleted > 0) LOGGER.info("Deleted {} row(s) left in {}", deleted, jdbcUrl);
+        }
+        return new ScratchDatabase(jdbcUrl, user, pass, connection);
+    }
+
+    // The collection database of the application, on the class path with the harnesses
+    private static String applicationDatabaseUrl() {
+        try (InputStream input = ScratchDatabase.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (input == null) return null;
+            Properties properties = new Properties();
+            properties.load(input);
+            return StringUtils.trimToNull(properties.getProperty("database.url"));
+        } catch (IOException e) {
+            LOGGER.warn("Could not read application.properties: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Ignores the parameters after '?', which do not change the database
+    private static boolean sameDatabase(String url, String other) {
+        return other != null && StringUtils.substringBefore(url.trim(), "?").equalsIgnoreCase(StringUtils.substringBefore(other, "?"));
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    String getUser() {
+        return user;
+    }
+
+    String getPass() {
+        return pass;
+    }
+
+    /**
+     * Inserts rows with plausible values in batches, bypassing DatabaseApp. Paths are
+     * &lt;prefix&gt;/&lt;type&gt;/&lt;n&gt;.mkv, movies and episodes alternating.
+     *
+     * @param rows   Number of rows.
+     * @param prefix Start of their paths.
+     * @throws SQLException if an insert fails.
+     */
+    void seed(int rows, String prefix) throws SQLException {
+        long start = System.nanoTime();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(Constants.INSERT_MEDIA_SQL)) {
+            for (int row = 0; row < rows; row++) {
+                boolean movie = row % 2 == 0;
+                String name = (movie ? "Seeded Movie " : "Seeded Show ") + row / 20;
+                statement.setString(1, (movie ? Constants.CollectionType.MOVIE : Constants.CollectionType.TV).toString());
+                statement.setString(2, prefix + (movie ? "/movies/" : "/tv/") + row + ".mkv");
+                statement.setString(3, name.replace(' ', '.') + ".1080p.BluRay.x264-GRP");
+                statement.setString(4, "mkv");
+                statement.setString(5, name);
+                statement.setString(6, "BluRay");
+                statement.setString(7, null);
+                statement.setString(8, "GRP");
+                statement.setString(9, String.valueOf(100_000 + row / 20));
+                statement.setInt(10, 1990 + row % 35);
+                statement.setLong(11, 4_000_000_000L + row);
+                statement.setString(12, (1990 + row % 35) + "-06-01");
+                statement.setString(13, name);
+                statement.setString(14, "A seeded row of the throughput harness.");
+                statement.setString(15, movie ? null : String.valueOf(1 + row % 5));
+                statement.setString(16, movie ? null : String.valueOf(1 + row % 12));
+                statement.setString(17, movie ? null : "Episode " + (1 + row % 12));
+                statement.setString(18, null);
+                statement.setString(19, "1080p");
+                statement.setNull(20, Types.VARCHAR);
+                statement.setString(21, "x264");
+                statement.setString(22, "DTS");
+                statement.setString(23, "5.1");
+                statement.addBatch();
+                if ((row + 1) % SEED_BATCH == 0) statement.executeBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        LOGGER.info("Seeded {} row(s) in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connection.close();
+    }
+}
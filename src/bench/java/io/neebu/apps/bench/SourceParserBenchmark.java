@@ -0,0 +1,141 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.utils.ReleaseNames;
+import io.neebu.apps.utils.SourceParser;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Checks {@link SourceParser#parseMediaSource} against the regex version it replaced, then compares their cost per
+ * file name, and the cost of the batch API.
+ * <p>
+ * The names are the generated corpus of {@link ReleaseNames}, bare as MediaFile passes them, and also
+ * below relative and absolute directories whose names carry source tokens of their own, and with .strm extensions.
+ * <p>
+ * Usage: SourceParserBenchmark [names, default 100000] [seed]
+ */
+public class SourceParserBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SourceParserBenchmark.class);
+
+    private static final String[] DIRECTORIES = {"", "", "Movies/", "TV/Show.S01.1080p.BluRay/", "/media/library/",
+            "/media/WEB-DL/Title (2019)/", "library\\HDTV\\", "/", "Remux/BDMV/", "Season 1/"};
+
+    // The patterns before the tokens were compiled into one trie
+    private static final Map<String, String> LEGACY_PATTERNS = Map.of(
+            "BRRIP", "(bdrip|brrip|dbrip)",
+            "BLURAY", "(bluray|blueray|bd25|bd50|bdmv|blu\\-ray)",
+            "TV", "(tv|hdtv|pdtv|dsr|dtb|dtt|dttv|dtv|hdtvrip|tvrip|dvbrip|hdrip)",
+            "WEBRIP", "(webrip)",
+            "WEB_DL", "(web-dl|webdl|web)");
+    private static final String START_TOKEN = "[\\/\\\\ _,.()\\[\\]-]";
+    private static final String END_TOKEN = "([\\/\\\\ _,.()\\[\\]-]|$)";
+    private static final Map<SourceParser, Pattern> PATTERN = new HashMap<>();
+    private static final Map<SourceParser, Pattern> PATTERN_WO_DELIM = new HashMap<>();
+
+    static {
+        for (SourceParser source : SourceParser.values()) {
+            String pattern = LEGACY_PATTERNS.get(source.name());
+            if (pattern != null) {
+                PATTERN.put(source, Pattern.compile(START_TOKEN + pattern + END_TOKEN, Pattern.CASE_INSENSITIVE));
+                PATTERN_WO_DELIM.put(source, Pattern.compile("^" + pattern + "$", Pattern.CASE_INSENSITIVE));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 43;
+        Random random = new Random(seed);
+        List<String> names = new ArrayList<>(ReleaseNames.generate(count, random).stream()
+                .map(name -> DIRECTORIES[random.nextInt(DIRECTORIES.length)] + name
+                        + (random.nextInt(20) == 0 ? ".strm" : ""))
+                .toList());
+
+        int mismatches = 0;
+        Map<String, Integer> counts = new TreeMap<>();
+        for (String name : names) {
+            SourceParser expected = legacyParseMediaSource(name);
+            SourceParser actual = SourceParser.parseMediaSource(name);
+            counts.merge(actual.name(), 1, Integer::sum);
+            if (expected != actual && mismatches++ < 50) {
+                LOGGER.warn("Mismatch on '{}': regex {}, compiled {}", name, expected.name(), actual.name());
+            }
+        }
+        LOGGER.info("Names={}, sources={}, mismatches={}", names.size(), counts, mismatches);
+
+        int ops = names.size();
+        int[] next = {0};
+        Measurement legacy = Measurement.run("regexes per source and level", ops, ops,
+                () -> legacyParseMediaSource(names.get(next[0]++ % names.size())));
+        Measurement compiled = Measurement.run("compiled trie", ops, ops,
+                () -> SourceParser.parseMediaSource(names.get(next[0]++ % names.size())));
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < names.size(); i += 1000) {
+            batches.add(names.subList(i, Math.min(names.size(), i + 1000)));
+        }
+        Measurement batch = Measurement.run("compiled trie, batches of 1000", batches.size(), batches.size(),
+                () -> SourceParser.parseMediaSources(batches.get(next[0]++ % batches.size())));
+
+        LOGGER.info(String.format("Compiled: %.1fx faster, %.1fx fewer bytes per name; batched %.0f ns/name",
+                legacy.getNanosPerOp() / compiled.getNanosPerOp(), legacy.getBytesPerOp() / compiled.getBytesPerOp(),
+                batch.getNanosPerOp() / 1000));
+    }
+
+    // SourceParser.parseMediaSource as it was
+    private static SourceParser legacyParseMediaSource(String filename) {
+        String fn = filename.toLowerCase(Locale.ROOT);
+        SourceParser[] s = SourceParser.values();
+        Arrays.sort(s, (o1, o2) -> Integer.compare(o2.name().length(), o1.name().length()));
+
+        try {
+            Path p = Paths.get(fn);
+            for (SourceParser sourceParser : s) {
+                Pattern pattern = PATTERN.get(sourceParser);
+                Pattern patternWoDelim = PATTERN_WO_DELIM.get(sourceParser);
+                Path work = p;
+                while (work != null) {
+                    String name = work.getName(work.getNameCount() - 1).toString();
+                    if (pattern != null && pattern.matcher(name).find()) {
+                        return sourceParser;
+                    }
+                    if (patternWoDelim != null && patternWoDelim.matcher(name).find()) {
+                        return sourceParser;
+                    }
+                    name = FilenameUtils.getBaseName(name);
+                    if (name != null && patternWoDelim != null && patternWoDelim.matcher(name).find()) {
+                        return sourceParser;
+                    }
+                    work = work.getParent();
+                }
+            }
+        } catch (Exception e) {
+            for (SourceParser sourceParser : s) {
+                Pattern pattern = PATTERN.get(sourceParser);
+                if (pattern != null && pattern.matcher(filename).find()) {
+                    return sourceParser;
+                }
+            }
+        }
+
+        String ext = "";
+        try {
+            ext = FilenameUtils.getExtension(fn);
+        } catch (Exception e) {
+            int i = filename.lastIndexOf('.');
+            if (i > 0) {
+                ext = filename.substring(i + 1);
+            }
+        }
+        if (ext.equals("strm")) {
+            return SourceParser.STREAM;
+        }
+        return SourceParser.UNKNOWN;
+    }
+}
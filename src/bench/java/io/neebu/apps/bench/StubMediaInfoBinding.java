@@ -0,0 +1,176 @@
+package io.neebu.apps.bench;
+
+import com.amilesend.mediainfo.type.StreamType;
+import io.neebu.apps.utils.probe.MediaInfoBinding;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * A MediaInfo binding that reads nothing: every existing file gets plausible streams (a video stream, one to three
+ * audio streams, up to three subtitles) picked from a few common profiles by a hash of its name, so the same name
+ * always gives the same fields. Inform templates are rendered like MediaInfo does, field by field reads work too.
+ * <p>
+ * For scanning synthetic libraries (see {@link SyntheticLibrary}) without the native library: select it with
+ * probe.mediainfo.binding=io.neebu.apps.bench.StubMediaInfoBinding, and set {@link #setLatency} to stand in for
+ * the time MediaInfo spends reading a file.
+ */
+public class StubMediaInfoBinding implements MediaInfoBinding {
+
+    private static final Pattern FIELD = Pattern.compile("%([^%]+)%");
+
+    private static final String[] VIDEO_FIELDS = {"CodecID/Hint", "Format", "Format_Version", "Width", "Height",
+            "HDR_Format", "HDR_Format_String", "HDR_Format_Compatibility", "transfer_characteristics", "colour_primaries"};
+    private static final String[] AUDIO_FIELDS = {"Title", "Language", "Format", "Format_Profile", "Format_Commercial",
+            "Format_Commercial_IfAny", "Format_AdditionalFeatures", "Channels"};
+    private static final String[] TEXT_FIELDS = {"Title", "Language", "Format"};
+
+    private static final List<Map<String, String>> VIDEO = List.of(
+            stream(VIDEO_FIELDS, "", "AVC", "", "1920", "1080", "", "", "", "BT.709", "BT.709"),
+            stream(VIDEO_FIELDS, "", "AVC", "", "1920", "800", "", "", "", "BT.709", "BT.709"),
+            stream(VIDEO_FIELDS, "", "AVC", "", "1280", "720", "", "", "", "BT.709", "BT.709"),
+            stream(VIDEO_FIELDS, "", "HEVC", "", "1920", "1080", "", "", "", "BT.709", "BT.709"),
+            stream(VIDEO_FIELDS, "", "HEVC", "", "3840", "2160", "SMPTE ST 2086", "SMPTE ST 2086, HDR10 compatible",
+                    "HDR10", "PQ", "BT.2020"),
+            stream(VIDEO_FIELDS, "", "HEVC", "", "3840", "1600", "Dolby Vision / SMPTE ST 2086",
+                    "Dolby Vision, Version 1.0, dvhe.08.06, BL+RPU, HDR10 compatible / SMPTE ST 2086, HDR10 compatible",
+                    "Blu-ray / HDR10", "PQ", "BT.2020"),
+            stream(VIDEO_FIELDS, "", "HEVC", "", "3840", "2160", "", "", "", "HLG", "BT.2020"),
+            stream(VIDEO_FIELDS, "", "AV1", "", "1920", "1080", "", "", "", "BT.709", "BT.709"),
+            stream(VIDEO_FIELDS, "XVID", "MPEG-4 Visual", "", "720", "304", "", "", "", "", ""));
+    private static final List<Map<String, String>> AUDIO = List.of(
+            stream(AUDIO_FIELDS, "", "en", "E-AC-3", "", "Dolby Digital Plus", "Dolby Digital Plus", "", "6"),
+            stream(AUDIO_FIELDS, "", "en", "E-AC-3", "", "Dolby Digital Plus with Dolby Atmos", "Dolby Digital Plus with Dolby Atmos", "JOC", "6"),
+            stream(AUDIO_FIELDS, "", "en", "DTS", "MA / Core", "DTS-HD Master Audio", "DTS-HD Master Audio", "XLL", "8"),
+            stream(AUDIO_FIELDS, "", "en", "MLP FBA", "", "Dolby TrueHD with Dolby Atmos", "Dolby TrueHD with Dolby Atmos", "16-ch", "8"),
+            stream(AUDIO_FIELDS, "", "en", "AC-3", "", "Dolby Digital", "Dolby Digital", "", "6"),
+            stream(AUDIO_FIELDS, "", "en", "AAC", "LC", "", "", "", "2"),
+            stream(AUDIO_FIELDS, "Commentary", "en", "AAC", "LC", "", "", "", "2"),
+            stream(AUDIO_FIELDS, "", "fr", "AC-3", "", "Dolby Digital", "Dolby Digital", "", "6"));
+    private static final List<Map<String, String>> TEXT = List.of(
+            stream(TEXT_FIELDS, "", "en", "UTF-8"),
+            stream(TEXT_FIELDS, "SDH", "en", "PGS"),
+            stream(TEXT_FIELDS, "", "es", "UTF-8"),
+            stream(TEXT_FIELDS, "Forced", "en", "PGS"));
+
+    private static volatile long latencyNanos = 0;
+
+    /**
+     * Sets how long opening a file takes, for every handle.
+     *
+     * @param latency Time per open file.
+     * @param unit    Its unit.
+     */
+    public static void setLatency(long latency, TimeUnit unit) {
+        latencyNanos = unit.toNanos(latency);
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public Handle newHandle() {
+        return new StubHandle();
+    }
+
+    private static Map<String, String> stream(String[] fields, String... values) {
+        Map<String, String> stream = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            stream.put(fields[i], values[i]);
+        }
+        return Collections.unmodifiableMap(stream);
+    }
+
+    private static final class StubHandle implements Handle {
+
+        private Map<StreamType, List<Map<String, String>>> streams;
+        private String inform = "";
+
+        @Override
+        public boolean open(Path filePath) {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            if (!Files.isRegularFile(filePath)) {
+                return false;
+            }
+            // Spread the name's hash so that neighbouring names get unrelated profiles
+            int hash = filePath.getFileName().toString().hashCode() * 0x9E3779B9;
+            int video = Math.floorMod(hash, VIDEO.size());
+            int audio = Math.floorMod(hash >>> 8, AUDIO.size());
+            int text = Math.floorMod(hash >>> 16, TEXT.size());
+            int audioCount = 1 + Math.floorMod(hash >>> 20, 3);
+            int textCount = Math.floorMod(hash >>> 24, 4);
+            streams = Map.of(
+                    StreamType.General, List.of(Map.of("CodecID", filePath.toString().endsWith(".mp4") ? "mp42" : "")),
+                    StreamType.Video, List.of(VIDEO.get(video)),
+                    StreamType.Audio, pickAll(AUDIO, audio, audioCount),
+                    StreamType.Text, pickAll(TEXT, text, textCount));
+            return true;
+        }
+
+        private static List<Map<String, String>> pickAll(List<Map<String, String>> profiles, int first, int count) {
+            return IntStream.range(0, count).mapToObj(i -> profiles.get((first + i) % profiles.size())).toList();
+        }
+
+        @Override
+        public String option(String option, String value) {
+            if (option.equals("Inform")) {
+                inform = value;
+            }
+            return "";
+        }
+
+        // e.g. "Audio;%Title%|~|%Language%\n", rendered once per stream of the kind
+        @Override
+        public String inform() {
+            int separator = inform.indexOf(';');
+            if (streams == null || separator < 0) {
+                return "";
+            }
+            StreamType type = StreamType.valueOf(inform.substring(0, separator));
+            String body = inform.substring(separator + 1).replace("\\n", "\n");
+            StringBuilder rendered = new StringBuilder();
+            for (Map<String, String> stream : streams.getOrDefault(type, List.of())) {
+                Matcher matcher = FIELD.matcher(body);
+                while (matcher.find()) {
+                    matcher.appendReplacement(rendered, Matcher.quoteReplacement(stream.getOrDefault(matcher.group(1), "")));
+                }
+                matcher.appendTail(rendered);
+            }
+            return rendered.toString();
+        }
+
+        @Override
+        public int streamCount(StreamType type) {
+            return streams == null ? 0 : streams.getOrDefault(type, List.of()).size();
+        }
+
+        @Override
+        public String get(StreamType type, int streamNumber, String parameter) {
+            List<Map<String, String>> kind = streams == null ? List.of() : streams.getOrDefault(type, List.of());
+            return streamNumber < kind.size() ? kind.get(streamNumber).getOrDefault(parameter, "") : "";
+        }
+
+        @Override
+        public void closeFile() {
+            streams = null;
+        }
+
+        @Override
+        public void close() {
+            streams = null;
+        }
+    }
+}
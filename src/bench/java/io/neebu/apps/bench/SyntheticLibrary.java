@@ -0,0 +1,186 @@
+package io.neebu.apps.bench;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates a library of sparse files with release-style names, laid out the way collections usually are:
+ * movies/&lt;Title (Year)&gt;/&lt;release&gt;.mkv and tv/&lt;Show&gt;/Season NN/&lt;release&gt;.mkv, with a
+ * subtitle or .nfo next to some of them, so that a scan can be run on it without real media.
+ * <p>
+ * Files have a plausible length but no data (the length is set, nothing is written), so even a million of them
+ * take little disk space on file systems with sparse files. Their content is whatever a stub MediaInfo binding
+ * such as {@link StubMediaInfoBinding} makes of their names. The same seed gives the same library.
+ * <p>
+ * Usage: SyntheticLibrary &lt;dir&gt; [video files, default 10000] [TV share, default 0.6] [seed]
+ */
+public class SyntheticLibrary {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticLibrary.class);
+
+    private static final String[] WORDS = {"Silent", "Harbor", "Last", "Winter", "Broken", "Crown", "Iron", "River",
+            "Midnight", "Garden", "Hidden", "Empire", "Golden", "Shadow", "Northern", "Lights", "Lost", "Signal",
+            "Crimson", "Tide", "Glass", "Tower", "Wild", "Frontier", "Paper", "Moon", "Burning", "Bridge", "Distant",
+            "Shore", "Electric", "Dreams", "Fallen", "Kingdom", "Quiet", "Storm", "Velvet", "Road", "Savage", "Heart",
+            "Station", "Eleven", "Black", "Orchid", "Cold", "Summer", "Hollow", "Point", "Echo", "Park"};
+    private static final String[] ARTICLES = {"The", "A", "", "", "", ""};
+    private static final String[] RESOLUTIONS = {"2160p", "1080p", "1080p", "1080p", "720p", "480p"};
+    private static final String[] SOURCES = {"BluRay", "WEB-DL", "WEBRip", "BluRay.REMUX", "HDTV", "AMZN.WEB-DL",
+            "NF.WEB-DL", "DSNP.WEB-DL"};
+    private static final String[] VIDEO = {"x264", "x265", "H.264", "H.265", "HEVC", "10bit.x265", "HDR.HEVC", "DV.HDR.H.265"};
+    private static final String[] AUDIO = {"DTS-HD.MA.5.1", "TrueHD.Atmos.7.1", "DDP5.1", "DD5.1", "AAC2.0", "DDP5.1.Atmos",
+            "FLAC.2.0"};
+    private static final String[] GROUPS = {"SPARKS", "FGT", "NTb", "EVO", "FLUX", "CMRG", "GalaxyRG", "playWEB"};
+    private static final String[] EXTENSIONS = {".mkv", ".mkv", ".mkv", ".mkv", ".mp4", ".avi"};
+    private static final String[] SIDECARS = {".en.srt", ".nfo"};
+
+    private final Random random;
+    private final Path root;
+    private final Path moviesDir;
+    private final Path tvDir;
+
+    private int videoFiles = 0;
+    private int sidecarFiles = 0;
+    private int directories = 0;
+
+    private SyntheticLibrary(Path root, long seed) {
+        this.random = new Random(seed);
+        this.root = root;
+        this.moviesDir = root.resolve("movies");
+        this.tvDir = root.resolve("tv");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            LOGGER.error("Usage: SyntheticLibrary <dir> [video files] [TV share] [seed]");
+            return;
+        }
+        int files = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        double tvShare = args.length > 2 ? Double.parseDouble(args[2]) : 0.6;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 47;
+        generate(Paths.get(args[0]), files, tvShare, seed);
+    }
+
+    /**
+     * Generates a library.
+     *
+     * @param root    Directory to create it in, its movies and tv folders must not hold files already.
+     * @param files   Number of video files.
+     * @param tvShare Share of them that are episodes, from 0 to 1.
+     * @param seed    Random seed.
+     * @return The generated library.
+     * @throws IOException if a file cannot be created.
+     */
+    public static SyntheticLibrary generate(Path root, int files, double tvShare, long seed) throws IOException {
+        SyntheticLibrary library = new SyntheticLibrary(root, seed);
+        long start = System.nanoTime();
+        int episodes = (int) Math.round(files * tvShare);
+        library.generateShows(episodes);
+        library.generateMovies(files - episodes);
+        LOGGER.info("Generated {} video file(s), {} sidecar file(s) in {} folder(s) under {} in {} ms", library.videoFiles,
+                library.sidecarFiles, library.directories, root, (System.nanoTime() - start) / 1_000_000);
+        return library;
+    }
+
+    public Path getMoviesDir() {
+        return moviesDir;
+    }
+
+    public Path getTvDir() {
+        return tvDir;
+    }
+
+    public int getVideoFiles() {
+        return videoFiles;
+    }
+
+    private void generateMovies(int count) throws IOException {
+        int made = 0;
+        for (int movie = 0; made < count; movie++) {
+            String title = title(2 * movie);
+            int year = 1950 + random.nextInt(75);
+            Path folder = directory(moviesDir.resolve(title + " (" + year + ")"));
+            // Now and then a second cut or resolution of the same movie
+            int versions = random.nextInt(12) == 0 ? 2 : 1;
+            for (int version = 0; version < versions && made < count; version++, made++) {
+                String name = dotted(title) + "." + year + (version > 0 ? ".Extended" : "") + "." + release();
+                video(folder, name, 700L << 20, 60L << 30);
+            }
+        }
+    }
+
+    private void generateShows(int count) throws IOException {
+        int made = 0;
+        for (int show = 0; made < count; show++) {
+            String title = title(2 * show + 1);
+            Path showDir = directory(tvDir.resolve(title));
+            int seasons = 1 + random.nextInt(8);
+            // One release per season, as a season pack usually is
+            String release = release();
+            for (int season = 1; season <= seasons && made < count; season++) {
+                Path seasonDir = directory(showDir.resolve(String.format("Season %02d", season)));
+                int episodes = 6 + random.nextInt(19);
+                for (int episode = 1; episode <= episodes && made < count; episode++, made++) {
+                    String name = dotted(title) + String.format(".S%02dE%02d.", season, episode) + release;
+                    video(seasonDir, name, 150L << 20, 8L << 30);
+                }
+            }
+        }
+    }
+
+    // Unique per index: one word of WORDS per digit of the index in base WORDS.length, at least two words
+    private String title(int index) {
+        StringBuilder title = new StringBuilder(ARTICLES[(index * 31 + 7) % ARTICLES.length]);
+        for (int rest = index + WORDS.length; rest > 0; rest /= WORDS.length) {
+            if (!title.isEmpty()) title.append(' ');
+            title.append(WORDS[rest % WORDS.length]);
+        }
+        return title.toString();
+    }
+
+    private String release() {
+        return pick(RESOLUTIONS) + "." + pick(SOURCES) + "." + pick(AUDIO) + "." + pick(VIDEO) + "-" + pick(GROUPS);
+    }
+
+    private void video(Path folder, String name, long minLength, long maxLength) throws IOException {
+        String extension = pick(EXTENSIONS);
+        sparse(folder.resolve(name + extension), minLength + (long) (random.nextDouble() * (maxLength - minLength)));
+        videoFiles++;
+        if (random.nextInt(5) == 0) {
+            sparse(folder.resolve(name + pick(SIDECARS)), 1 + random.nextInt(100_000));
+            sidecarFiles++;
+        }
+    }
+
+    private Path directory(Path path) throws IOException {
+        Files.createDirectories(path);
+        directories++;
+        return path;
+    }
+
+    private static void sparse(Path file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    private static String dotted(String title) {
+        return title.replace(' ', '.');
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+}
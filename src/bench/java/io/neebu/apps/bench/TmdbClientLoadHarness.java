@@ -0,0 +1,111 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.conn.TmdbApiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives {@link TmdbApiClient} against a {@link FakeTmdbServer} at increasing concurrency and reports
+ * throughput, latency percentiles and failures per level.
+ * <p>
+ * The workload mixes the calls a scan makes: movie searches, TV searches (which also probe episodes) and
+ * episode lookups.
+ * <p>
+ * Usage: TmdbClientLoadHarness [callsPerLevel] [levels, e.g. 1,4,16,64] [latencyMs] [errorRate] [throttleRate]
+ */
+public class TmdbClientLoadHarness {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TmdbClientLoadHarness.class);
+
+    private static final String API_KEY = "fake-key";
+
+    public static void main(String[] args) throws Exception {
+        int callsPerLevel = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int[] levels = Arrays.stream((args.length > 1 ? args[1] : "1,2,4,8,16,32,64").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int latencyMillis = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.0;
+        double throttleRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.0;
+
+        try (FakeTmdbServer server = FakeTmdbServer.builder()
+                .latency(latencyMillis, latencyMillis / 2)
+                .errorRate(errorRate)
+                .throttleRate(throttleRate)
+                .threads(Arrays.stream(levels).max().orElse(1) * 2)
+                .start()) {
+            LOGGER.info(String.format("%6s %10s %9s %9s %9s %9s %8s", "conc", "calls/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "failed"));
+            for (int concurrency : levels) {
+                run(server.getApiUri(), concurrency, callsPerLevel).log(concurrency);
+            }
+            LOGGER.info("Server handled {} HTTP requests ({} injected 500s, {} injected 429s)",
+                    server.getRequestCount(), server.getInjectedErrorCount(), server.getInjectedThrottleCount());
+        }
+    }
+
+    /**
+     * Runs one concurrency level.
+     *
+     * @param apiUri      Base URI of the (fake) API.
+     * @param concurrency Number of client threads.
+     * @param calls       Number of client calls to make in total.
+     * @return The level's result.
+     * @throws Exception if the executor fails.
+     */
+    public static Result run(String apiUri, int concurrency, int calls) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[calls];
+        List<Future<?>> futures = new ArrayList<>(calls);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            final int call = i;
+            futures.add(executor.submit(() -> {
+                long callStart = System.nanoTime();
+                try {
+                    switch (call % 3) {
+                        case 0 -> TmdbApiClient.getTmdbMovieId(API_KEY, apiUri, "Movie Title " + (call % 500), 2000 + call % 20);
+                        case 1 -> TmdbApiClient.getTmdbTvId(API_KEY, apiUri, "Show Title " + (call % 200), 1 + call % 5, 1 + call % 12);
+                        default -> TmdbApiClient.getTvShowEpisodeInfo(API_KEY, apiUri, 1000 + call % 200, 1 + call % 5, 1 + call % 12);
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+                latencies[call] = System.nanoTime() - callStart;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        return new Result(calls, elapsed, latencies, failures.get());
+    }
+
+    public record Result(int calls, long elapsedNanos, long[] sortedLatencies, int failures) {
+
+        public double callsPerSecond() {
+            return calls / (elapsedNanos / 1e9);
+        }
+
+        public double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1e6;
+        }
+
+        void log(int concurrency) {
+            LOGGER.info(String.format("%6d %10.1f %9.1f %9.1f %9.1f %9.1f %8d", concurrency, callsPerSecond(),
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100), failures));
+        }
+    }
+}
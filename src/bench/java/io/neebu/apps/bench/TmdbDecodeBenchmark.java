@@ -0,0 +1,87 @@
+package io.neebu.apps.bench;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import io.neebu.apps.conn.TmdbJsonDecoder;
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.TmdbTitle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringReader;
+
+/**
+ * Compares the streaming {@link TmdbJsonDecoder} against the Gson tree parsing the client used before.
+ * <p>
+ * The input is a synthetic search/movie response with twenty results and long overviews, which is what
+ * a typical title search returns.
+ */
+public class TmdbDecodeBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TmdbDecodeBenchmark.class);
+    private static final Gson gson = new Gson();
+
+    public static void main(String[] args) throws Exception {
+        int ops = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        String response = searchResponse(20, 900);
+        LOGGER.info("Search response: {} chars, {} ops", response.length(), ops);
+
+        Measurement tree = Measurement.run("tree (JsonObject)", ops, ops, () -> decodeTree(response));
+        Measurement stream = Measurement.run("streaming (first result)", ops, ops, () -> decodeStreaming(response));
+        Measurement streamAll = Measurement.run("streaming (all results)", ops, ops,
+                () -> TmdbJsonDecoder.readResults(new JsonReader(new StringReader(response)), Constants.CollectionType.MOVIE));
+
+        LOGGER.info(String.format("Streaming first result: %.1fx faster, %.1fx fewer bytes than tree parsing",
+                tree.getNanosPerOp() / stream.getNanosPerOp(), tree.getBytesPerOp() / stream.getBytesPerOp()));
+        LOGGER.info(String.format("Streaming all results:  %.1fx faster, %.1fx fewer bytes than tree parsing",
+                tree.getNanosPerOp() / streamAll.getNanosPerOp(), tree.getBytesPerOp() / streamAll.getBytesPerOp()));
+    }
+
+    // The previous implementation: full tree, then read the first element
+    private static TmdbTitle decodeTree(String response) {
+        JsonObject json = gson.fromJson(new StringReader(response), JsonObject.class);
+        JsonArray results = json.getAsJsonArray("results");
+        JsonObject firstResult = results.get(0).getAsJsonObject();
+        TmdbTitle tmdbTitle = new TmdbTitle();
+        tmdbTitle.setTmdbId(firstResult.get("id").getAsInt());
+        tmdbTitle.setTmdbName(firstResult.get("title").getAsString());
+        tmdbTitle.setReleaseDate(firstResult.get("release_date").getAsString());
+        tmdbTitle.setTmdbDescription(firstResult.get("overview").getAsString());
+        return tmdbTitle;
+    }
+
+    private static TmdbTitle decodeStreaming(String response) throws Exception {
+        try (JsonReader reader = new JsonReader(new StringReader(response))) {
+            return TmdbJsonDecoder.readFirstResult(reader, Constants.CollectionType.MOVIE);
+        }
+    }
+
+    /**
+     * Builds a search response shaped like TMDb's, field order included.
+     *
+     * @param results        Number of entries in "results".
+     * @param overviewLength Length of each overview text.
+     * @return The JSON document.
+     */
+    static String searchResponse(int results, int overviewLength) {
+        String overview = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(overviewLength / 56 + 1)
+                .substring(0, overviewLength);
+        StringBuilder json = new StringBuilder("{\"page\":1,\"results\":[");
+        for (int i = 0; i < results; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"adult\":false,\"backdrop_path\":\"/b").append(i).append(".jpg\",")
+                    .append("\"genre_ids\":[28,12,878],\"id\":").append(1000 + i).append(',')
+                    .append("\"original_language\":\"en\",\"original_title\":\"Title ").append(i).append("\",")
+                    .append("\"overview\":\"").append(overview).append("\",")
+                    .append("\"popularity\":").append(100.5 - i).append(',')
+                    .append("\"poster_path\":\"/p").append(i).append(".jpg\",")
+                    .append("\"release_date\":\"20").append(10 + i % 10).append("-05-04\",")
+                    .append("\"title\":\"Title ").append(i).append("\",")
+                    .append("\"video\":false,\"vote_average\":7.4,\"vote_count\":").append(5000 - i).append('}');
+        }
+        json.append("],\"total_pages\":3,\"total_results\":54}");
+        return json.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package io.neebu.apps.bench;
+
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.ReleaseNames;
+import io.neebu.apps.utils.TokenDictionary;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Per-file-name cost of keyword matching with linear scans, as before, and with {@link TokenDictionary}.
+ * <p>
+ * Runs on the generated corpus of {@link ReleaseNames}: stopword classification of every token of
+ * a name (equalsIgnoreCase over HARD_STOPWORDS and SOFT_STOPWORDS against two perfect hash lookups), OTT
+ * platform detection (upper-casing and contains per platform against one automaton pass) and case-insensitive
+ * substring checks against a short and a long word list (containsIgnoreCase per word against
+ * {@link TokenDictionary#occursIn}); the automaton costs the same for any number of words. Before timing, the
+ * dictionary answers are checked against the linear scans.
+ * <p>
+ * Usage: TokenDictionaryBenchmark [names, default 100000] [seed]
+ */
+public class TokenDictionaryBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenDictionaryBenchmark.class);
+
+    private static final TokenDictionary HARD = TokenDictionary.of(Constants.HARD_STOPWORDS);
+    private static final TokenDictionary SOFT = TokenDictionary.of(Constants.SOFT_STOPWORDS);
+    private static final String[] SOURCES = {"BluRay", "WEB-DL", "WEBRip", "HDTV", "DVDRip", "Remux"};
+    private static final TokenDictionary SOURCE_DICTIONARY = TokenDictionary.of(SOURCES);
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        List<String> names = ReleaseNames.generate(count, new Random(seed));
+        String[][] tokens = names.stream().map(name -> StringUtils.split(name, Constants.DELIMITER)).toArray(String[][]::new);
+
+        int mismatches = 0;
+        for (String[] nameTokens : tokens) {
+            for (String token : nameTokens) {
+                if (isIn(token, Constants.HARD_STOPWORDS) != HARD.contains(token)) mismatches++;
+                if (isIn(token, Constants.SOFT_STOPWORDS) != SOFT.contains(token)) mismatches++;
+            }
+        }
+        for (String name : names) {
+            if (!streamingSourceByScan(name).equals(CollectionUtils.getStreamingSource(name))) mismatches++;
+            if (occursByScan(name, SOURCES) != SOURCE_DICTIONARY.occursIn(name)) mismatches++;
+            if (occursByScan(name, Constants.HARD_STOPWORDS) != HARD.occursIn(name)) mismatches++;
+        }
+        LOGGER.info("Names={}, tokens={}, mismatches against the linear scans={}",
+                names.size(), Arrays.stream(tokens).mapToInt(t -> t.length).sum(), mismatches);
+
+        int ops = names.size();
+        int[] next = {0};
+        Measurement stopwordsScan = Measurement.run("stopwords, linear scan", ops, ops,
+                () -> classifyByScan(tokens[next[0]++ % tokens.length]));
+        Measurement stopwordsDictionary = Measurement.run("stopwords, dictionary", ops, ops,
+                () -> classifyByDictionary(tokens[next[0]++ % tokens.length]));
+        Measurement ottScan = Measurement.run("OTT platform, split and contains", ops, ops,
+                () -> streamingSourceByScan(names.get(next[0]++ % names.size())));
+        Measurement ottDictionary = Measurement.run("OTT platform, dictionary", ops, ops,
+                () -> CollectionUtils.getStreamingSource(names.get(next[0]++ % names.size())));
+        Measurement shortScan = Measurement.run("6 substrings, contains per item", ops, ops,
+                () -> occursByScan(names.get(next[0]++ % names.size()), SOURCES));
+        Measurement shortDictionary = Measurement.run("6 substrings, dictionary", ops, ops,
+                () -> SOURCE_DICTIONARY.occursIn(names.get(next[0]++ % names.size())));
+        Measurement longScan = Measurement.run("hard stopword substrings, contains per item", ops, ops,
+                () -> occursByScan(names.get(next[0]++ % names.size()), Constants.HARD_STOPWORDS));
+        Measurement longDictionary = Measurement.run("hard stopword substrings, dictionary", ops, ops,
+                () -> HARD.occursIn(names.get(next[0]++ % names.size())));
+
+        report("Stopwords", stopwordsScan, stopwordsDictionary);
+        report("OTT platform", ottScan, ottDictionary);
+        report("6 substrings", shortScan, shortDictionary);
+        report(Constants.HARD_STOPWORDS.length + " substrings", longScan, longDictionary);
+    }
+
+    private static void report(String label, Measurement before, Measurement after) {
+        LOGGER.info(String.format("%-18s %8.0f -> %6.0f ns/name (%.1fx), %8.0f -> %6.0f B/name",
+                label, before.getNanosPerOp(), after.getNanosPerOp(), before.getNanosPerOp() / after.getNanosPerOp(),
+                before.getBytesPerOp(), after.getBytesPerOp()));
+    }
+
+    private static boolean occursByScan(String name, String[] words) {
+        for (String word : words) {
+            if (StringUtils.containsIgnoreCase(name, word)) return true;
+        }
+        return false;
+    }
+
+    private static int classifyByScan(String[] nameTokens) {
+        int stopwords = 0;
+        for (String token : nameTokens) {
+            if (isIn(token, Constants.HARD_STOPWORDS)) stopwords++;
+            if (isIn(token, Constants.SOFT_STOPWORDS)) stopwords++;
+        }
+        return stopwords;
+    }
+
+    private static int classifyByDictionary(String[] nameTokens) {
+        int stopwords = 0;
+        for (String token : nameTokens) {
+            if (HARD.contains(token)) stopwords++;
+            if (SOFT.contains(token)) stopwords++;
+        }
+        return stopwords;
+    }
+
+    // MediaMetadata.isIn before the dictionary
+    private static boolean isIn(String token, String[] list) {
+        for (String word : list) {
+            if (word.equalsIgnoreCase(token)) return true;
+        }
+        return false;
+    }
+
+    // CollectionUtils.getStreamingSource before the dictionary
+    private static String streamingSourceByScan(String fileLabel) {
+        for (String ottAbbreviation : Constants.OTT_PLATFORMS.split(",")) {
+            if (fileLabel.toUpperCase().contains("." + ottAbbreviation.toUpperCase() + ".")) {
+                return ottAbbreviation;
+            }
+        }
+        return Constants.WEB_DL_DEFAULT;
+    }
+}
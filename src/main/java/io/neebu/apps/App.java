@@ -1,9 +1,14 @@
 package io.neebu.apps;
 
+import io.neebu.apps.conn.TmdbApiClient;
+import io.neebu.apps.conn.TmdbTitleIndex;
 import io.neebu.apps.core.AppProperties;
 import io.neebu.apps.core.MovieScanner;
+import io.neebu.apps.core.RenameEngine;
+import io.neebu.apps.core.ScanMetrics;
 import io.neebu.apps.core.TvScanner;
 import io.neebu.apps.utils.CollectionUtils;
+import io.neebu.apps.utils.probe.MediaInfoPool;
 import io.neebu.apps.core.entities.Constants.CollectionType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,23 +30,65 @@ public class App {
     /**
      * Application entry point. Loads configuration and triggers scanning and processing for TV and Movie collections.
      *
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments: --undo-renames reverts the renames of the last scan instead (see
+     *             {@link RenameEngine#undo}).
      */
     public static void main(String[] args) {
         LOGGER.info("Application starting...");
         try {
-            AppProperties appProperties = new AppProperties();
-            // Process TV shows if enabled in configuration
-            if (appProperties.isParseTv()) {
-                processCollection(CollectionType.TV, appProperties, appProperties.getTvShowPaths());
-            }
-            // Process movies if enabled in configuration
-            if (appProperties.isParseMovies()) {
-                processCollection(CollectionType.MOVIE, appProperties, appProperties.getMoviePaths());
+            if (args.length > 0 && args[0].equals("--undo-renames")) {
+                RenameEngine.undo(new AppProperties());
+                return;
             }
+            run(new AppProperties());
             LOGGER.info("Application finished successfully.");
         } catch (Exception e) {
             LOGGER.error("Application failed with error: {}", e.getMessage(), e);
+        } finally {
+            // Dispose of the native MediaInfo handles and report their counts
+            MediaInfoPool.closeShared();
+        }
+    }
+
+    /**
+     * Scans and processes the enabled TV and Movie collections. The shared MediaInfo pool is left open.
+     *
+     * @param appProperties The application properties/configuration.
+     * @return The stage timings of each collection that had files to process.
+     * @throws Exception if scanning or processing fails.
+     */
+    public static Map<CollectionType, ScanMetrics> run(AppProperties appProperties) throws Exception {
+        MediaInfoPool.useSharedBinding(appProperties.getProbeMediaInfoBinding());
+        loadTitleIndex(CollectionType.MOVIE, appProperties.getTmdbMovieIndex());
+        loadTitleIndex(CollectionType.TV, appProperties.getTmdbTvIndex());
+        Map<CollectionType, ScanMetrics> metrics = new EnumMap<>(CollectionType.class);
+        // Process TV shows if enabled in configuration
+        if (appProperties.isParseTv()) {
+            ScanMetrics tvMetrics = processCollection(CollectionType.TV, appProperties, appProperties.getTvShowPaths());
+            if (tvMetrics != null) metrics.put(CollectionType.TV, tvMetrics);
+        }
+        // Process movies if enabled in configuration
+        if (appProperties.isParseMovies()) {
+            ScanMetrics movieMetrics = processCollection(CollectionType.MOVIE, appProperties, appProperties.getMoviePaths());
+            if (movieMetrics != null) metrics.put(CollectionType.MOVIE, movieMetrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Memory-maps an offline TMDb title index and registers it with the TMDb client, if one is configured.
+     *
+     * @param collectionType The collection the index belongs to.
+     * @param indexPath      Path of the index file, or blank if none is configured.
+     */
+    private static void loadTitleIndex(CollectionType collectionType, String indexPath) {
+        if (indexPath == null || indexPath.isBlank()) {
+            return;
+        }
+        try {
+            TmdbApiClient.useTitleIndex(collectionType, TmdbTitleIndex.open(Paths.get(indexPath)));
+        } catch (Exception e) {
+            LOGGER.warn("Could not load TMDb title index {} for {}, using live search only: {}", indexPath, collectionType, e.getMessage());
         }
     }
 
@@ -51,15 +98,18 @@ public class App {
      * @param collectionType The type of collection (TV or MOVIE).
      * @param appProperties  The application properties/configuration.
      * @param folderPaths    List of folder paths to scan for media files.
+     * @return The stage timings of the scan, or null if there was nothing to scan.
      * @throws Exception if scanning or processing fails.
      */
-    private static void processCollection(CollectionType collectionType, AppProperties appProperties, List<String> folderPaths) throws Exception {
+    private static ScanMetrics processCollection(CollectionType collectionType, AppProperties appProperties, List<String> folderPaths) throws Exception {
         if (folderPaths == null || folderPaths.isEmpty()) {
             LOGGER.warn("No folder paths configured for {}", collectionType);
-            return;
+            return null;
         }
 
         LOGGER.info("Scanning {} files from configured paths...", collectionType);
+        ScanMetrics metrics = new ScanMetrics(collectionType == CollectionType.MOVIE ? "Movie" : "TV");
+        long start = System.nanoTime();
 
         // Collect all media files from the configured folders
         List<String> mediaFiles = folderPaths.stream()
@@ -68,18 +118,20 @@ public class App {
                 .flatMap(path -> CollectionUtils.listFilesRecursively(path).stream())
                 .map(Path::toString) // already absolute from the utility
                 .toList();
+        metrics.record(ScanMetrics.Stage.WALK, start, mediaFiles.size());
 
         if (mediaFiles.isEmpty()) {
             LOGGER.warn("No media files found to process for {}", collectionType);
-            return;
+            return null;
         }
 
         LOGGER.info("Found {} file(s) for collection type {}", mediaFiles.size(), collectionType);
 
         // Invoke the appropriate scanner based on collection type
         switch (collectionType) {
-            case MOVIE -> MovieScanner.run(appProperties, mediaFiles);
-            case TV -> TvScanner.run(appProperties, mediaFiles);
+            case MOVIE -> MovieScanner.run(appProperties, mediaFiles, metrics);
+            case TV -> TvScanner.run(appProperties, mediaFiles, metrics);
         }
+        return metrics;
     }
 }
@@ -1,11 +1,16 @@
 package io.neebu.apps.conn;
 
 import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.CollectionRow;
 import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.utils.probe.ProbeResult;
 import lombok.SneakyThrows;
+import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -39,6 +44,61 @@ public class DatabaseApp {
         return moviesDb;
     }
 
+    @SneakyThrows
+    public List<CollectionRow> getCollectionRows(String collectionRowsSql){
+        List<CollectionRow> rows = new ArrayList<>();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery(collectionRowsSql);
+        while (rs.next()) {
+            CollectionRow row = new CollectionRow();
+            row.setAbsolutePath(rs.getString("ABSOLUTE_PATH"));
+            row.setName(rs.getString("NAME"));
+            int releaseYear = rs.getInt("RELEASE_YEAR");
+            row.setReleaseYear(rs.wasNull() ? null : releaseYear);
+            String tmdbId = rs.getString("TMDB_ID");
+            row.setTmdbId(tmdbId != null && tmdbId.matches("\\d+") ? Integer.valueOf(tmdbId) : null);
+            row.setTmdbName(rs.getString("TMDB_NAME"));
+            row.setTmdbDescription(rs.getString("TMDB_DESCRIPTION"));
+            row.setReleaseDate(rs.getString("RELEASE_DATE"));
+            rows.add(row);
+        }
+        rs.close();
+        stmt.close();
+        return rows;
+    }
+
+    /**
+     * Rebuilds the files of a collection from their rows, with the fields their names are rendered from.
+     *
+     * @param collectionFilesSql {@link Constants#SELECT_MOVIE_FILES_SQL} or {@link Constants#SELECT_TV_FILES_SQL}.
+     * @param collectionType     The collection.
+     */
+    @SneakyThrows
+    public List<MediaFile> getCollectionFiles(String collectionFilesSql, Constants.CollectionType collectionType){
+        List<MediaFile> files = new ArrayList<>();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery(collectionFilesSql);
+        while (rs.next()) {
+            Integer releaseYear = rs.getInt("RELEASE_YEAR");
+            if (rs.wasNull()) releaseYear = null;
+            ProbeResult probeResult = new ProbeResult(rs.getString("VIDEO_CODEC"), rs.getString("RESOLUTION"),
+                    rs.getString("HDR_FORMAT"), rs.getString("AUDIO_CODEC"), rs.getString("AUDIO_CHANNELS"), List.of());
+            MediaFile mediaFile = new MediaFile(Paths.get(rs.getString("ABSOLUTE_PATH")), collectionType,
+                    rs.getString("NAME"), rs.getString("SOURCE_TYPE"), rs.getString("SOURCE"), rs.getString("GROUP_NAME"),
+                    releaseYear, rs.getString("SEASON_NUMBER"), rs.getString("EPISODE_NUMBER"), probeResult);
+            String tmdbId = rs.getString("TMDB_ID");
+            mediaFile.setTmdbId(tmdbId != null && tmdbId.matches("\\d+") ? Integer.valueOf(tmdbId) : null);
+            String tmdbName = rs.getString("TMDB_NAME");
+            mediaFile.setTmdbName(tmdbName != null ? tmdbName : "NOT_FOUND");
+            mediaFile.setReleaseDate(rs.getString("RELEASE_DATE"));
+            mediaFile.setEpisodeName(rs.getString("EPISODE_NAME"));
+            files.add(mediaFile);
+        }
+        rs.close();
+        stmt.close();
+        return files;
+    }
+
     @SneakyThrows
     public void insert(MediaFile mediaFile){
         PreparedStatement statement = conn.prepareStatement(Constants.INSERT_MEDIA_SQL);
@@ -79,4 +139,59 @@ public class DatabaseApp {
         LOGGER.info("Deleted Record : {}",filePath);
     }
 
+    /**
+     * Starts a unit of work: the following statements are committed together by {@link #commit()}, or undone by
+     * {@link #rollback()}.
+     */
+    @SneakyThrows
+    public void begin(){
+        conn.setAutoCommit(false);
+    }
+
+    @SneakyThrows
+    public void commit(){
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    @SneakyThrows
+    public void rollback(){
+        conn.rollback();
+        conn.setAutoCommit(true);
+    }
+
+    /**
+     * Points a row at its file's new path. Not committed here, call it within {@link #begin()} and {@link #commit()}.
+     *
+     * @param oldPath The row's ABSOLUTE_PATH.
+     * @param newPath The file's new path.
+     * @return Number of rows updated.
+     */
+    @SneakyThrows
+    public int updatePath(String oldPath, Path newPath){
+        PreparedStatement statement = conn.prepareStatement(Constants.UPDATE_PATH_SQL);
+        statement.setString(1,newPath.toString());
+        statement.setString(2,FilenameUtils.getBaseName(newPath.toString()));
+        statement.setString(3,FilenameUtils.getExtension(newPath.toString()));
+        statement.setString(4,oldPath);
+        int updated = statement.executeUpdate();
+        statement.close();
+        LOGGER.debug("Updated path : {} -> {}",oldPath,newPath);
+        return updated;
+    }
+
+    @SneakyThrows
+    public void updateTechnicalFields(MediaFile mediaFile){
+        try (PreparedStatement statement = conn.prepareStatement(Constants.UPDATE_TECHNICAL_FIELDS_SQL)) {
+            statement.setString(1,mediaFile.getResolution());
+            statement.setString(2,mediaFile.getHdrFormat());
+            statement.setString(3,mediaFile.getVideoCodec());
+            statement.setString(4,mediaFile.getAudioCodec());
+            statement.setString(5,mediaFile.getAudioChannels());
+            statement.setString(6,mediaFile.getAbsolutePath().toString());
+            statement.executeUpdate();
+        }
+        LOGGER.info("Updated Record : {}",mediaFile.getAbsolutePath().toString());
+    }
+
 }
@@ -1,11 +1,7 @@
 package io.neebu.apps.conn;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import io.neebu.apps.core.entities.Constants;
-import io.neebu.apps.core.models.MediaFile;
 import io.neebu.apps.core.models.TmdbEpisode;
 import io.neebu.apps.core.models.TmdbTitle;
 import org.slf4j.Logger;
@@ -19,11 +15,28 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TmdbApiClient {
 
     private static final Logger logger = LoggerFactory.getLogger(TmdbApiClient.class);
-    private static final Gson gson = new Gson();
+
+    // Sub-resources fetched together with the details in a single request
+    private static final String MOVIE_APPEND = "external_ids,release_dates,translations";
+    private static final String TV_APPEND = "external_ids,content_ratings,translations";
+    private static final Map<Constants.CollectionType, TmdbTitleIndex> titleIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Registers an offline title index that {@link #getTmdbMovieId} / {@link #getTmdbTvId} consult before searching.
+     *
+     * @param collectionType The collection the index was built for.
+     * @param titleIndex     The index, see {@link TmdbExportImporter}.
+     */
+    public static void useTitleIndex(Constants.CollectionType collectionType, TmdbTitleIndex titleIndex) {
+        titleIndexes.put(collectionType, titleIndex);
+    }
 
     public static TmdbTitle getTmdbId(String tmdbApiKey, String tmdbApiUri, Constants.CollectionType collectionType, String titleName, Integer titleYear) throws Exception {
         String encodedTitle = URLEncoder.encode(titleName, StandardCharsets.UTF_8);
@@ -40,23 +53,9 @@ public class TmdbApiClient {
         String url = urlBuilder.toString();
         logger.debug("Fetching TMDB ID from URL: {}", url);
 
-        JsonObject json = getJsonFromUrl(url);
-        JsonArray results = json.getAsJsonArray("results");
+        TmdbTitle tmdbTitle = fetchJson(url, reader -> TmdbJsonDecoder.readFirstResult(reader, collectionType));
 
-        if (results != null && results.size() > 0) {
-            JsonObject firstResult = results.get(0).getAsJsonObject();
-            TmdbTitle tmdbTitle = new TmdbTitle();
-            tmdbTitle.setTmdbId(firstResult.get("id").getAsInt());
-
-            if (collectionType == Constants.CollectionType.MOVIE) {
-                tmdbTitle.setTmdbName(firstResult.get("title").getAsString());
-                tmdbTitle.setReleaseDate(getSafeString(firstResult, "release_date"));
-            } else if (collectionType == Constants.CollectionType.TV) {
-                tmdbTitle.setTmdbName(firstResult.get("name").getAsString());
-                tmdbTitle.setReleaseDate(getSafeString(firstResult, "first_air_date"));
-            }
-
-            tmdbTitle.setTmdbDescription(getSafeString(firstResult, "overview"));
+        if (tmdbTitle != null) {
             logger.info("TMDB ID fetched: {} - {}", tmdbTitle.getTmdbId(), tmdbTitle.getTmdbName());
             return tmdbTitle;
         }
@@ -69,33 +68,31 @@ public class TmdbApiClient {
 
 
     public static TmdbTitle getMovieByTmdbId(String tmdbApiKey, String tmdbApiUri, Integer tmdbId) throws Exception {
-        String url = String.format("%s/movie/%d?api_key=%s&language=en", tmdbApiUri, tmdbId, tmdbApiKey);
+        String url = String.format("%s/movie/%d?api_key=%s&language=en&append_to_response=%s", tmdbApiUri, tmdbId, tmdbApiKey, MOVIE_APPEND);
         logger.debug("Fetching movie by TMDB ID from URL: {}", url);
 
-        JsonObject json = getJsonFromUrl(url);
-
-        TmdbTitle tmdbTitle = new TmdbTitle();
-        tmdbTitle.setTmdbId(json.get("id").getAsInt());
-        tmdbTitle.setTmdbName(json.get("title").getAsString());
-        tmdbTitle.setTmdbDescription(getSafeString(json, "overview"));
-        tmdbTitle.setReleaseDate(getSafeString(json, "release_date"));
+        TmdbTitle tmdbTitle = fetchJson(url, reader -> TmdbJsonDecoder.readTitle(reader, Constants.CollectionType.MOVIE));
 
         logger.info("Fetched movie details for TMDB ID {}: {}", tmdbId, tmdbTitle.getTmdbName());
         return tmdbTitle;
     }
 
+    public static TmdbTitle getTvShowByTmdbId(String tmdbApiKey, String tmdbApiUri, Integer tmdbId) throws Exception {
+        String url = String.format("%s/tv/%d?api_key=%s&language=en&append_to_response=%s", tmdbApiUri, tmdbId, tmdbApiKey, TV_APPEND);
+        logger.debug("Fetching TV show by TMDB ID from URL: {}", url);
+
+        TmdbTitle tmdbTitle = fetchJson(url, reader -> TmdbJsonDecoder.readTitle(reader, Constants.CollectionType.TV));
+
+        logger.info("Fetched TV show details for TMDB ID {}: {}", tmdbId, tmdbTitle.getTmdbName());
+        return tmdbTitle;
+    }
+
     public static TmdbEpisode getTvShowEpisodeInfo(String tmdbApiKey, String tmdbApiUri, Integer tvShowId, Integer seasonNumber, Integer episodeNumber) throws Exception {
         String url = String.format("%s/tv/%d/season/%s/episode/%s?api_key=%s&language=en",
                 tmdbApiUri, tvShowId, seasonNumber, episodeNumber, tmdbApiKey);
         logger.debug("Fetching episode info from URL: {}", url);
 
-        JsonObject json = getJsonFromUrl(url);
-
-        TmdbEpisode episode = new TmdbEpisode();
-        episode.setEpisodeNumber(json.get("episode_number").getAsString());
-        episode.setSeasonNumber(json.get("season_number").getAsString());
-        episode.setName(json.get("name").getAsString());
-        episode.setOverview(getSafeString(json, "overview"));
+        TmdbEpisode episode = fetchJson(url, TmdbJsonDecoder::readEpisode);
 
         logger.info("Fetched episode info: S{}E{} - {}", seasonNumber, episodeNumber, episode.getName());
         return episode;
@@ -107,6 +104,17 @@ public class TmdbApiClient {
             String titleName,
             Integer titleYear) throws Exception {
 
+        TmdbTitleIndex.Candidate candidate = resolveFromIndex(Constants.CollectionType.MOVIE, titleName, titleYear);
+        if (candidate != null) {
+            TmdbTitle tmdbTitle = getMovieByTmdbId(tmdbApiKey, tmdbApiUri, candidate.tmdbId());
+            // Exports carry no release dates, so the index cannot tell a remake from the original
+            if (candidate.year() != null || isReleasedIn(tmdbTitle.getReleaseDate(), titleYear)) {
+                return tmdbTitle;
+            }
+            logger.info("TMDB Movie {} from the title index was released {}, not in {}, searching TMDB",
+                    candidate.tmdbId(), tmdbTitle.getReleaseDate(), titleYear);
+        }
+
         String encodedTitle = URLEncoder.encode(titleName, StandardCharsets.UTF_8);
         StringBuilder urlBuilder = new StringBuilder(tmdbApiUri)
                 .append("/search/movie")
@@ -121,17 +129,9 @@ public class TmdbApiClient {
         String url = urlBuilder.toString();
         logger.debug("Fetching TMDB Movie from URL: {}", url);
 
-        JsonObject json = getJsonFromUrl(url);
-        JsonArray results = json.getAsJsonArray("results");
-
-        if (results != null && results.size() > 0) {
-            JsonObject firstResult = results.get(0).getAsJsonObject();
-            TmdbTitle tmdbTitle = new TmdbTitle();
-            tmdbTitle.setTmdbId(firstResult.get("id").getAsInt());
-            tmdbTitle.setTmdbName(getSafeString(firstResult, "title"));
-            tmdbTitle.setReleaseDate(getSafeString(firstResult, "release_date"));
-            tmdbTitle.setTmdbDescription(getSafeString(firstResult, "overview"));
+        TmdbTitle tmdbTitle = fetchJson(url, reader -> TmdbJsonDecoder.readFirstResult(reader, Constants.CollectionType.MOVIE));
 
+        if (tmdbTitle != null) {
             logger.info("TMDB Movie fetched: {} - {}", tmdbTitle.getTmdbId(), tmdbTitle.getTmdbName());
             return tmdbTitle;
         }
@@ -147,6 +147,18 @@ public class TmdbApiClient {
             Integer seasonNumber,
             Integer episodeNumber) throws Exception {
 
+        TmdbTitleIndex.Candidate candidate = resolveFromIndex(Constants.CollectionType.TV, titleName, null);
+        if (candidate != null) {
+            // As for search results: shows sharing a name (remakes, foreign originals) are told apart by the episode
+            if (seasonNumber != null && episodeNumber != null && isHttp200(String.format(
+                    "%s/tv/%d/season/%s/episode/%s?api_key=%s&language=en",
+                    tmdbApiUri, candidate.tmdbId(), seasonNumber, episodeNumber, tmdbApiKey))) {
+                return getTvShowByTmdbId(tmdbApiKey, tmdbApiUri, candidate.tmdbId());
+            }
+            logger.info("TMDB TV Show {} from the title index has no S{}E{}, searching TMDB",
+                    candidate.tmdbId(), seasonNumber, episodeNumber);
+        }
+
         String encodedTitle = URLEncoder.encode(titleName, StandardCharsets.UTF_8);
         StringBuilder urlBuilder = new StringBuilder(tmdbApiUri)
                 .append("/search/tv")
@@ -157,13 +169,11 @@ public class TmdbApiClient {
         String url = urlBuilder.toString();
         logger.debug("Fetching TMDB TV Show(s) from URL: {}", url);
 
-        JsonObject json = getJsonFromUrl(url);
-        JsonArray results = json.getAsJsonArray("results");
+        List<TmdbTitle> results = fetchJson(url, reader -> TmdbJsonDecoder.readResults(reader, Constants.CollectionType.TV));
 
-        if (results != null && results.size() > 0 && seasonNumber != null && episodeNumber != null) {
-            for (JsonElement element : results) {
-                JsonObject resultObj = element.getAsJsonObject();
-                int tvId = resultObj.get("id").getAsInt();
+        if (!results.isEmpty() && seasonNumber != null && episodeNumber != null) {
+            for (TmdbTitle result : results) {
+                int tvId = result.getTmdbId();
 
                 String episodeUrl = String.format(
                         "%s/tv/%d/season/%s/episode/%s?api_key=%s&language=en",
@@ -175,14 +185,8 @@ public class TmdbApiClient {
                     // Now fetch full episode details (only once we know it exists)
                     getTvShowEpisodeInfo(tmdbApiKey, tmdbApiUri, tvId, seasonNumber, episodeNumber);
 
-                    TmdbTitle tmdbTitle = new TmdbTitle();
-                    tmdbTitle.setTmdbId(tvId);
-                    tmdbTitle.setTmdbName(getSafeString(resultObj, "name"));
-                    tmdbTitle.setReleaseDate(getSafeString(resultObj, "first_air_date"));
-                    tmdbTitle.setTmdbDescription(getSafeString(resultObj, "overview"));
-
-                    logger.info("TMDB TV Show fetched: {} - {}", tmdbTitle.getTmdbId(), tmdbTitle.getTmdbName());
-                    return tmdbTitle;
+                    logger.info("TMDB TV Show fetched: {} - {}", result.getTmdbId(), result.getTmdbName());
+                    return result;
                 } else {
                     logger.debug("Episode not found (HTTP != 200) for TV ID {}", tvId);
                 }
@@ -193,6 +197,39 @@ public class TmdbApiClient {
         return new TmdbTitle();
     }
 
+    /**
+     * Looks a title up in the registered offline index, if any.
+     *
+     * @return The unambiguous candidate, or null to fall through to a search request.
+     */
+    private static TmdbTitleIndex.Candidate resolveFromIndex(Constants.CollectionType collectionType, String titleName, Integer titleYear) {
+        TmdbTitleIndex titleIndex = titleIndexes.get(collectionType);
+        if (titleIndex == null) {
+            return null;
+        }
+        TmdbTitleIndex.Candidate candidate = titleIndex.resolve(titleName, titleYear);
+        if (candidate != null) {
+            logger.info("TMDB {} resolved from title index: {} ({}) -> {}", collectionType, titleName, titleYear, candidate.tmdbId());
+        } else {
+            logger.debug("Title index could not resolve {} ({}), searching TMDB", titleName, titleYear);
+        }
+        return candidate;
+    }
+
+    /**
+     * Whether a release date does not contradict the year from a file name.
+     *
+     * @param releaseDate The TMDb release date (yyyy-MM-dd), or null.
+     * @param year        The release year from the file name, or null.
+     * @return False only if both are known and the years differ.
+     */
+    static boolean isReleasedIn(String releaseDate, Integer year) {
+        if (year == null || releaseDate == null || releaseDate.length() < 4) {
+            return true;
+        }
+        return releaseDate.substring(0, 4).equals(year.toString());
+    }
+
     /**
      * Checks if a URL returns HTTP 200 without downloading the full content.
      */
@@ -212,8 +249,16 @@ public class TmdbApiClient {
     }
 
 
-    // Utility method to do HTTP GET and parse JSON response
-    private static JsonObject getJsonFromUrl(String urlStr) throws Exception {
+    /**
+     * Decodes a JSON response without materializing it, see {@link #fetchJson}.
+     */
+    @FunctionalInterface
+    interface JsonDecoder<T> {
+        T decode(JsonReader reader) throws IOException;
+    }
+
+    // Utility method to do HTTP GET and stream-decode the JSON response
+    private static <T> T fetchJson(String urlStr, JsonDecoder<T> decoder) throws Exception {
         URI uri = URI.create(urlStr);
         URL url = uri.toURL();
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
@@ -226,15 +271,11 @@ public class TmdbApiClient {
             throw new RuntimeException("HTTP error code: " + status);
         }
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-            return gson.fromJson(reader, JsonObject.class);
+        // The decoder may stop before the end of the document, closing the reader discards the rest
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)))) {
+            return decoder.decode(reader);
         } finally {
             conn.disconnect();
         }
     }
-
-    // Safely get a string field from a JSON object
-    private static String getSafeString(JsonObject json, String key) {
-        return json.has(key) && !json.get(key).isJsonNull() ? json.get(key).getAsString() : null;
-    }
 }
@@ -0,0 +1,183 @@
+package io.neebu.apps.conn;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.neebu.apps.utils.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Builds a {@link TmdbTitleIndex} from a TMDb daily ID export.
+ * <p>
+ * The exports (movie_ids_MM_DD_YYYY.json.gz, tv_series_ids_MM_DD_YYYY.json.gz) are gzip files with one JSON
+ * object per line, e.g. {"adult":false,"id":3924,"original_title":"Blondie","popularity":2.861,"video":false}.
+ * The official exports carry no release date; if a line has "release_date" or "first_air_date" its year is
+ * indexed as well. Adult titles are left out. Plain (not gzipped) JSON-lines files are accepted too.
+ * <p>
+ * Usage: TmdbExportImporter &lt;export.json.gz&gt; &lt;index file&gt;
+ */
+public class TmdbExportImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TmdbExportImporter.class);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            LOGGER.error("Usage: TmdbExportImporter <export.json.gz> <index file>");
+            System.exit(1);
+        }
+        importExport(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    /**
+     * Reads an export and writes the index file, replacing any existing index atomically.
+     *
+     * @param exportFile The daily export, gzipped or plain JSON lines.
+     * @param indexFile  The index file to write.
+     * @return The number of indexed titles.
+     * @throws IOException if the export cannot be read or the index cannot be written.
+     */
+    public static int importExport(Path exportFile, Path indexFile) throws IOException {
+        LOGGER.info("Importing TMDb export {}", exportFile);
+
+        int count = 0;
+        long[] hashes = new long[1 << 16];
+        int[] ids = new int[hashes.length];
+        int[] titleOffsets = new int[hashes.length];
+        short[] years = new short[hashes.length];
+        float[] popularities = new float[hashes.length];
+        ByteArrayOutputStream strings = new ByteArrayOutputStream(1 << 20);
+        DataOutputStream stringOut = new DataOutputStream(strings);
+
+        try (BufferedReader lines = openExport(exportFile)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+
+                ExportLine exportLine;
+                try {
+                    exportLine = parseLine(line);
+                } catch (IOException | IllegalStateException | NumberFormatException e) {
+                    LOGGER.warn("Skipping malformed export line {}: {}", lineNumber, e.getMessage());
+                    continue;
+                }
+
+                String normalized = CollectionUtils.normalizeTitle(exportLine.title);
+                if (exportLine.id <= 0 || normalized.isEmpty() || exportLine.adult) continue;
+
+                if (count == hashes.length) {
+                    int capacity = hashes.length * 2;
+                    hashes = Arrays.copyOf(hashes, capacity);
+                    ids = Arrays.copyOf(ids, capacity);
+                    titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+                    years = Arrays.copyOf(years, capacity);
+                    popularities = Arrays.copyOf(popularities, capacity);
+                }
+
+                byte[] titleBytes = truncate(exportLine.title.getBytes(StandardCharsets.UTF_8));
+                hashes[count] = TmdbTitleIndex.hash(normalized);
+                ids[count] = exportLine.id;
+                titleOffsets[count] = strings.size();
+                years[count] = exportLine.year;
+                popularities[count] = exportLine.popularity;
+                stringOut.writeShort(titleBytes.length);
+                stringOut.write(titleBytes);
+                count++;
+            }
+        }
+
+        final long[] sortHashes = hashes;
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(sortHashes[a], sortHashes[b]));
+
+        int stringTableOffset = TmdbTitleIndex.HEADER_SIZE + count * TmdbTitleIndex.ENTRY_SIZE;
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+            out.writeInt(TmdbTitleIndex.MAGIC);
+            out.writeInt(TmdbTitleIndex.VERSION);
+            out.writeInt(count);
+            out.writeInt(stringTableOffset);
+            for (int i : order) {
+                out.writeLong(hashes[i]);
+                out.writeInt(ids[i]);
+                out.writeInt(titleOffsets[i]);
+                out.writeShort(years[i]);
+                out.writeFloat(popularities[i]);
+            }
+            strings.writeTo(out);
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        LOGGER.info("Wrote TMDb title index {} with {} titles", indexFile, count);
+        return count;
+    }
+
+    private static BufferedReader openExport(Path exportFile) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(exportFile), 1 << 16);
+        in.mark(2);
+        boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+        if (gzip) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static class ExportLine {
+        int id;
+        boolean adult;
+        String title;
+        short year;
+        float popularity;
+    }
+
+    private static ExportLine parseLine(String line) throws IOException {
+        ExportLine exportLine = new ExportLine();
+        try (JsonReader reader = new JsonReader(new StringReader(line))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "id" -> exportLine.id = reader.nextInt();
+                    case "adult" -> exportLine.adult = reader.nextBoolean();
+                    case "original_title", "original_name" -> exportLine.title = reader.nextString();
+                    case "popularity" -> exportLine.popularity = (float) reader.nextDouble();
+                    case "release_date", "first_air_date" -> exportLine.year = parseYear(reader.nextString());
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return exportLine;
+    }
+
+    private static short parseYear(String date) {
+        if (date.length() >= 4) {
+            try {
+                return Short.parseShort(date.substring(0, 4));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return 0;
+    }
+
+    // Length is stored as an unsigned short
+    private static byte[] truncate(byte[] utf8) {
+        return utf8.length <= 0xFFFF ? utf8 : Arrays.copyOf(utf8, 0xFFFF);
+    }
+}
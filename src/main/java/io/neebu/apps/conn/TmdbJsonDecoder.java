@@ -0,0 +1,306 @@
+package io.neebu.apps.conn;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.TmdbEpisode;
+import io.neebu.apps.core.models.TmdbTitle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming decoder for TMDb responses.
+ * <p>
+ * Maps the JSON token stream straight into {@link TmdbTitle}/{@link TmdbEpisode} without building a
+ * Gson element tree. Fields we do not store are skipped, and search responses are only read as far
+ * as the results that are actually needed.
+ */
+public class TmdbJsonDecoder {
+
+    private static final String RESULTS = "results";
+
+    // Region whose certification / content rating is kept
+    private static final String CERTIFICATION_COUNTRY = "US";
+
+    private TmdbJsonDecoder() {
+    }
+
+    /**
+     * Reads the first entry of a search response's "results" array and stops.
+     *
+     * @param reader         Reader positioned at the start of the response.
+     * @param collectionType MOVIE or TV, selects the title and date field names.
+     * @return The first result, or null if there are no results.
+     * @throws IOException if the response is not valid JSON.
+     */
+    public static TmdbTitle readFirstResult(JsonReader reader, Constants.CollectionType collectionType) throws IOException {
+        if (!seekResults(reader) || !reader.hasNext()) {
+            return null;
+        }
+        return readTitle(reader, collectionType);
+    }
+
+    /**
+     * Reads every entry of a search response's "results" array.
+     *
+     * @param reader         Reader positioned at the start of the response.
+     * @param collectionType MOVIE or TV, selects the title and date field names.
+     * @return The results in response order, empty if there are none.
+     * @throws IOException if the response is not valid JSON.
+     */
+    public static List<TmdbTitle> readResults(JsonReader reader, Constants.CollectionType collectionType) throws IOException {
+        List<TmdbTitle> titles = new ArrayList<>();
+        if (!seekResults(reader)) {
+            return titles;
+        }
+        while (reader.hasNext()) {
+            titles.add(readTitle(reader, collectionType));
+        }
+        return titles;
+    }
+
+    /**
+     * Reads a single movie or TV show object (search result or details response).
+     * <p>
+     * Details responses requested with append_to_response=external_ids,release_dates|content_ratings,translations
+     * also fill the external ids, certification and translation languages.
+     *
+     * @param reader         Reader positioned at the start of the object.
+     * @param collectionType MOVIE or TV, selects the title and date field names.
+     * @return The decoded title.
+     * @throws IOException if the object is not valid JSON.
+     */
+    public static TmdbTitle readTitle(JsonReader reader, Constants.CollectionType collectionType) throws IOException {
+        String nameField = collectionType == Constants.CollectionType.MOVIE ? "title" : "name";
+        String dateField = collectionType == Constants.CollectionType.MOVIE ? "release_date" : "first_air_date";
+
+        TmdbTitle tmdbTitle = new TmdbTitle();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (field.equals("id")) {
+                tmdbTitle.setTmdbId(reader.nextInt());
+            } else if (field.equals(nameField)) {
+                tmdbTitle.setTmdbName(nextStringOrNull(reader));
+            } else if (field.equals(dateField)) {
+                tmdbTitle.setReleaseDate(nextStringOrNull(reader));
+            } else if (field.equals("overview")) {
+                tmdbTitle.setTmdbDescription(nextStringOrNull(reader));
+            } else if (field.equals("original_title") || field.equals("original_name")) {
+                tmdbTitle.setOriginalName(nextStringOrNull(reader));
+            } else if (field.equals("original_language")) {
+                tmdbTitle.setOriginalLanguage(nextStringOrNull(reader));
+            } else if (field.equals("runtime") && reader.peek() == JsonToken.NUMBER) {
+                tmdbTitle.setRuntime(reader.nextInt());
+            } else if (field.equals("episode_run_time") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readEpisodeRunTime(reader, tmdbTitle);
+            } else if (field.equals("genres") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readGenres(reader, tmdbTitle);
+            } else if (field.equals("imdb_id")) {
+                tmdbTitle.setImdbId(nextStringOrNull(reader));
+            } else if (field.equals("external_ids") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readExternalIds(reader, tmdbTitle);
+            } else if (field.equals("release_dates") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readCertification(reader, tmdbTitle, "release_dates");
+            } else if (field.equals("content_ratings") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readCertification(reader, tmdbTitle, null);
+            } else if (field.equals("translations") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readTranslations(reader, tmdbTitle);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return tmdbTitle;
+    }
+
+    /**
+     * Reads a TV episode details response.
+     *
+     * @param reader Reader positioned at the start of the response.
+     * @return The decoded episode.
+     * @throws IOException if the response is not valid JSON.
+     */
+    public static TmdbEpisode readEpisode(JsonReader reader) throws IOException {
+        TmdbEpisode episode = new TmdbEpisode();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "episode_number" -> episode.setEpisodeNumber(nextStringOrNull(reader));
+                case "season_number" -> episode.setSeasonNumber(nextStringOrNull(reader));
+                case "air_date" -> episode.setReleaseDate(nextStringOrNull(reader));
+                case "name" -> episode.setName(nextStringOrNull(reader));
+                case "overview" -> episode.setOverview(nextStringOrNull(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return episode;
+    }
+
+    // [{"id":18,"name":"Drama"}, ...]
+    private static void readGenres(JsonReader reader, TmdbTitle tmdbTitle) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("name")) {
+                    String genre = nextStringOrNull(reader);
+                    if (genre != null) tmdbTitle.getGenres().add(genre);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
+    // TV shows list one runtime per episode length, the first one is the typical length
+    private static void readEpisodeRunTime(JsonReader reader, TmdbTitle tmdbTitle) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (tmdbTitle.getRuntime() == null && reader.peek() == JsonToken.NUMBER) {
+                tmdbTitle.setRuntime(reader.nextInt());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+    }
+
+    // {"imdb_id":"tt0133093","tvdb_id":null,...}
+    private static void readExternalIds(JsonReader reader, TmdbTitle tmdbTitle) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "imdb_id" -> {
+                    String imdbId = nextStringOrNull(reader);
+                    if (imdbId != null && !imdbId.isEmpty()) tmdbTitle.setImdbId(imdbId);
+                }
+                case "tvdb_id" -> tmdbTitle.setTvdbId(nextStringOrNull(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Reads the certification for {@link #CERTIFICATION_COUNTRY}.
+     * <p>
+     * Movies: {"results":[{"iso_3166_1":"US","release_dates":[{"certification":"R",...}]}]}
+     * TV:     {"results":[{"iso_3166_1":"US","rating":"TV-MA"}]}
+     *
+     * @param datesField "release_dates" for movies, null for TV content ratings.
+     */
+    private static void readCertification(JsonReader reader, TmdbTitle tmdbTitle, String datesField) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals(RESULTS) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String country = null;
+                String certification = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if (field.equals("iso_3166_1")) {
+                        country = nextStringOrNull(reader);
+                    } else if (datesField == null && field.equals("rating")) {
+                        certification = nextStringOrNull(reader);
+                    } else if (field.equals(datesField) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        certification = readFirstCertification(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (CERTIFICATION_COUNTRY.equals(country) && certification != null && !certification.isEmpty()) {
+                    tmdbTitle.setCertification(certification);
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    private static String readFirstCertification(JsonReader reader) throws IOException {
+        String certification = null;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("certification")) {
+                    String value = nextStringOrNull(reader);
+                    if (certification == null && value != null && !value.isEmpty()) certification = value;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        return certification;
+    }
+
+    // {"translations":[{"iso_3166_1":"FR","iso_639_1":"fr","data":{...}}, ...]}, kept as "fr-FR"
+    private static void readTranslations(JsonReader reader, TmdbTitle tmdbTitle) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("translations") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String language = null;
+                String country = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "iso_639_1" -> language = nextStringOrNull(reader);
+                        case "iso_3166_1" -> country = nextStringOrNull(reader);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (language != null) {
+                    tmdbTitle.getTranslations().add(country != null ? language + "-" + country : language);
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Advances into the "results" array of a search response, skipping everything before it.
+     *
+     * @return true if the reader is now inside the array, false if the response has no results array.
+     */
+    private static boolean seekResults(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(RESULTS) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    // Numbers are returned in their JSON text form, nulls as null
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
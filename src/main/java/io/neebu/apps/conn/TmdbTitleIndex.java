@@ -0,0 +1,177 @@
+package io.neebu.apps.conn;
+
+import io.neebu.apps.utils.CollectionUtils;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only, memory-mapped index of TMDb titles built by {@link TmdbExportImporter}.
+ * <p>
+ * Maps a normalized title to the TMDb ids carrying that title, with release year (when the export has
+ * one) and popularity, so that most title lookups can be answered without a search request.
+ * <p>
+ * File layout (big endian):
+ * <pre>
+ * header   : int magic, int version, int entryCount, int stringTableOffset
+ * entries  : entryCount x { long titleHash, int tmdbId, int titleOffset, short year, float popularity }, sorted by titleHash
+ * strings  : { short length, byte[length] utf8 } per original title
+ * </pre>
+ */
+public class TmdbTitleIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TmdbTitleIndex.class);
+
+    static final int MAGIC = 0x544D4958; // "TMIX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 22;
+
+    // A candidate wins an ambiguous lookup only if it is this many times more popular than the runner-up
+    private static final float DOMINANT_POPULARITY_RATIO = 5f;
+
+    private final ByteBuffer buffer;
+    @Getter
+    private final int entryCount;
+    private final int stringTableOffset;
+
+    private TmdbTitleIndex(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a TMDb title index (or unsupported version)");
+        }
+        this.buffer = buffer;
+        this.entryCount = buffer.getInt(8);
+        this.stringTableOffset = buffer.getInt(12);
+    }
+
+    /**
+     * Memory-maps an index file.
+     *
+     * @param indexFile The file written by {@link TmdbExportImporter}.
+     * @return The index.
+     * @throws IOException if the file cannot be mapped or is not an index.
+     */
+    public static TmdbTitleIndex open(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            TmdbTitleIndex index = new TmdbTitleIndex(mapped);
+            LOGGER.info("Loaded TMDb title index {} with {} titles", indexFile, index.entryCount);
+            return index;
+        }
+    }
+
+    /**
+     * A title carried by the index.
+     *
+     * @param tmdbId     The TMDb id.
+     * @param title      The original title as exported.
+     * @param year       The release year, or null if unknown.
+     * @param popularity TMDb popularity at export time.
+     */
+    public record Candidate(int tmdbId, String title, Integer year, float popularity) {
+    }
+
+    /**
+     * Returns every title whose normalized form equals that of the given title, most popular first.
+     *
+     * @param title The title to look up, in any form.
+     * @return The matching candidates, possibly empty.
+     */
+    public List<Candidate> lookup(String title) {
+        String normalized = CollectionUtils.normalizeTitle(title);
+        List<Candidate> candidates = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            return candidates;
+        }
+
+        long hash = hash(normalized);
+        int low = 0;
+        int high = entryCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hashAt(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        for (int i = low; i < entryCount && hashAt(i) == hash; i++) {
+            int entry = HEADER_SIZE + i * ENTRY_SIZE;
+            String candidateTitle = stringAt(buffer.getInt(entry + 12));
+            // Guard against the (unlikely) hash collision between different titles
+            if (normalized.equals(CollectionUtils.normalizeTitle(candidateTitle))) {
+                short year = buffer.getShort(entry + 16);
+                candidates.add(new Candidate(buffer.getInt(entry + 8), candidateTitle, year > 0 ? (int) year : null,
+                        buffer.getFloat(entry + 18)));
+            }
+        }
+        candidates.sort(Comparator.comparing(Candidate::popularity).reversed());
+        return candidates;
+    }
+
+    /**
+     * Resolves a title to a single TMDb id if the index can do so unambiguously.
+     * <p>
+     * Candidates whose year the index knows are dropped when it is not the requested year. One remaining candidate
+     * is a match; with several, the most popular one is only accepted when no year was requested and it
+     * dominates the runner-up by a wide margin. A match without a year may still be from another year than the
+     * requested one, the caller has to check it against the details.
+     *
+     * @param title The title to resolve.
+     * @param year  The release year from the file name, or null.
+     * @return The candidate, or null if there is none or the choice is ambiguous.
+     */
+    public Candidate resolve(String title, Integer year) {
+        List<Candidate> candidates = lookup(title);
+        if (year != null) {
+            candidates = candidates.stream()
+                    .filter(candidate -> candidate.year() == null || year.equals(candidate.year()))
+                    .toList();
+        }
+
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        if (candidates.size() > 1 && year == null
+                && candidates.get(0).popularity() >= DOMINANT_POPULARITY_RATIO * candidates.get(1).popularity()) {
+            return candidates.get(0);
+        }
+        return null;
+    }
+
+    private long hashAt(int i) {
+        return buffer.getLong(HEADER_SIZE + i * ENTRY_SIZE);
+    }
+
+    private String stringAt(int offset) {
+        int position = stringTableOffset + offset;
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        byte[] bytes = new byte[length];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units of a normalized title.
+     */
+    static long hash(String normalized) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -1,6 +1,9 @@
 package io.neebu.apps.core;
 
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.utils.NamingTemplate;
 import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -19,33 +22,107 @@ public class AppProperties {
     private boolean renameTv = false;
     private String tmdbApiKey;
     private String tmdbApiUri;
+    private String tmdbMovieIndex;
+    private String tmdbTvIndex;
+    private String probeCachePath;
+    private int probeCacheMaxEntries = 200_000;
+    private String movieParseSpeed;
+    private String tvParseSpeed;
+    private boolean probeHeaderParser = true;
+    private String probeMediaInfoBinding;
+    private String probeMode = "FULL";
+    private String probeOrder = "NAME";
+    private String probeVerify = "LOW";
+    private double probeFilenameMinConfidence = 0.8;
+    private int probeWorkers = 0;
+    private int probeWorkerTimeoutSeconds = 120;
+    private String probeQuarantinePath;
+    private int renameThreads = 4;
+    private String renameJournalPath;
+    private String movieViewPath;
+    private String tvViewPath;
     private String databaseUrl;
     private String databaseUser;
     private String databasePass;
+    private NamingTemplate movieNamingTemplate = NamingTemplate.defaultFor(Constants.CollectionType.MOVIE);
+    private NamingTemplate tvNamingTemplate = NamingTemplate.defaultFor(Constants.CollectionType.TV);
 
     public AppProperties(){
+        this(load());
+    }
+
+    /**
+     * Reads the settings from properties other than application.properties, e.g. those of a benchmark.
+     *
+     * @param prop The properties, or null to keep the defaults.
+     */
+    public AppProperties(Properties prop) {
+        if (prop == null) {
+            return;
+        }
+        this.parseMovies = prop.getProperty("library.movies.enabled").equals("true");
+        this.parseTv = prop.getProperty("library.tv.enabled").equals("true");
+        this.renameMovies = prop.getProperty("library.movies.rename").equals("true");
+        this.renameTv = prop.getProperty("library.tv.rename").equals("true");
+        this.moviePaths = Arrays.stream(prop.getProperty("library.movies.paths").split(",")).distinct().toList();
+        this.tvShowPaths = Arrays.stream(prop.getProperty("library.tv.paths").split(",")).distinct().toList();
+        this.tmdbApiKey = prop.getProperty("tmdb.api.key");
+        this.tmdbApiUri = prop.getProperty("tmdb.api.uri");
+        this.tmdbMovieIndex = prop.getProperty("tmdb.index.movies");
+        this.tmdbTvIndex = prop.getProperty("tmdb.index.tv");
+        this.probeCachePath = prop.getProperty("probe.cache.path");
+        this.probeCacheMaxEntries = Integer.parseInt(prop.getProperty("probe.cache.max.entries", "200000").trim());
+        this.movieParseSpeed = prop.getProperty("library.movies.parse.speed");
+        this.tvParseSpeed = prop.getProperty("library.tv.parse.speed");
+        this.probeHeaderParser = !"false".equals(prop.getProperty("probe.header.parser"));
+        this.probeMediaInfoBinding = prop.getProperty("probe.mediainfo.binding");
+        this.probeMode = prop.getProperty("probe.mode", "FULL").trim().toUpperCase();
+        this.probeOrder = prop.getProperty("probe.order", "NAME").trim();
+        this.probeVerify = prop.getProperty("probe.verify", "LOW").trim().toUpperCase();
+        this.probeFilenameMinConfidence = Double.parseDouble(prop.getProperty("probe.filename.min.confidence", "0.8").trim());
+        this.probeWorkers = Integer.parseInt(prop.getProperty("probe.workers", "0").trim());
+        this.probeWorkerTimeoutSeconds = Integer.parseInt(prop.getProperty("probe.worker.timeout.seconds", "120").trim());
+        this.probeQuarantinePath = prop.getProperty("probe.quarantine.path");
+        this.renameThreads = Integer.parseInt(prop.getProperty("rename.threads", "4").trim());
+        this.renameJournalPath = prop.getProperty("rename.journal.path");
+        this.movieViewPath = prop.getProperty("library.movies.view");
+        this.tvViewPath = prop.getProperty("library.tv.view");
+        this.databaseUrl = prop.getProperty("database.url");
+        this.databaseUser = prop.getProperty("database.user");
+        this.databasePass = prop.getProperty("database.pass");
+        this.movieNamingTemplate = NamingTemplate.compile(prop.getProperty("naming.movie.template", Constants.MOVIE_NAMING_TEMPLATE).trim());
+        this.tvNamingTemplate = NamingTemplate.compile(prop.getProperty("naming.tv.template", Constants.TV_NAMING_TEMPLATE).trim());
+    }
+
+    private static Properties load() {
         try (InputStream input = AppProperties.class.getClassLoader().getResourceAsStream("application.properties")) {
-            Properties prop = new Properties();
             if (input == null) {
                 System.out.println("Sorry, unable to find application.properties");
-                return;
+                return null;
             }
             // Load a properties file from class path, inside static method
+            Properties prop = new Properties();
             prop.load(input);
-            this.parseMovies = prop.getProperty("library.movies.enabled").equals("true");
-            this.parseTv = prop.getProperty("library.tv.enabled").equals("true");
-            this.renameMovies = prop.getProperty("library.movies.rename").equals("true");
-            this.renameTv = prop.getProperty("library.tv.rename").equals("true");
-            this.moviePaths = Arrays.stream(prop.getProperty("library.movies.paths").split(",")).distinct().toList();
-            this.tvShowPaths = Arrays.stream(prop.getProperty("library.tv.paths").split(",")).distinct().toList();
-            this.tmdbApiKey = prop.getProperty("tmdb.api.key");
-            this.tmdbApiUri = prop.getProperty("tmdb.api.uri");
-            this.databaseUrl = prop.getProperty("database.url");
-            this.databaseUser = prop.getProperty("database.user");
-            this.databasePass = prop.getProperty("database.pass");
-
+            return prop;
         } catch (IOException ex) {
             ex.printStackTrace();
+            return null;
         }
     }
+
+    /**
+     * @param collectionType The collection.
+     * @return Its naming template (naming.movie.template or naming.tv.template).
+     */
+    public NamingTemplate namingTemplate(Constants.CollectionType collectionType) {
+        return collectionType == Constants.CollectionType.MOVIE ? movieNamingTemplate : tvNamingTemplate;
+    }
+
+    /**
+     * @param collectionType The collection.
+     * @return The root of its library view (library.movies.view or library.tv.view), or null if it has none.
+     */
+    public String viewPath(Constants.CollectionType collectionType) {
+        return StringUtils.trimToNull(collectionType == Constants.CollectionType.MOVIE ? movieViewPath : tvViewPath);
+    }
 }
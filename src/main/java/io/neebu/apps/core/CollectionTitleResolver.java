@@ -0,0 +1,98 @@
+package io.neebu.apps.core;
+
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.CollectionRow;
+import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.core.models.TmdbTitle;
+import io.neebu.apps.utils.CollectionUtils;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves new files against titles already in the collection, before asking TMDb.
+ * <p>
+ * Existing rows are indexed by their normalized parsed title (plus release year for movies). A new file whose
+ * key maps to exactly one TMDb id reuses that row's TMDb data; keys seen with different ids are ambiguous
+ * and always go to TMDb.
+ */
+public class CollectionTitleResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CollectionTitleResolver.class);
+
+    // Marks a key that maps to more than one TMDb id
+    private static final TmdbTitle AMBIGUOUS = new TmdbTitle();
+
+    private final Constants.CollectionType collectionType;
+    private final Map<String, TmdbTitle> titles = new HashMap<>();
+    @Getter
+    private int resolvedCount = 0;
+
+    /**
+     * Builds the resolver from the collection rows loaded at scan start.
+     *
+     * @param collectionType The collection the rows belong to.
+     * @param rows           Rows from {@link io.neebu.apps.conn.DatabaseApp#getCollectionRows}.
+     */
+    public CollectionTitleResolver(Constants.CollectionType collectionType, List<CollectionRow> rows) {
+        this.collectionType = collectionType;
+        for (CollectionRow row : rows) {
+            if (row.getTmdbId() == null) continue;
+            TmdbTitle tmdbTitle = new TmdbTitle();
+            tmdbTitle.setTmdbId(row.getTmdbId());
+            tmdbTitle.setTmdbName(row.getTmdbName());
+            tmdbTitle.setTmdbDescription(row.getTmdbDescription());
+            tmdbTitle.setReleaseDate(row.getReleaseDate());
+            add(key(row.getName(), row.getReleaseYear()), tmdbTitle);
+        }
+        LOGGER.info("Indexed {} {} title(s) from the collection", titles.size(), collectionType);
+    }
+
+    /**
+     * Returns the TMDb title of an existing row matching the file, if the match is unambiguous.
+     *
+     * @param mediaFile The new file.
+     * @return The TMDb title, or null if TMDb has to be asked.
+     */
+    public TmdbTitle resolve(MediaFile mediaFile) {
+        TmdbTitle tmdbTitle = titles.get(key(mediaFile.getName(), mediaFile.getReleaseYear()));
+        if (tmdbTitle == null || tmdbTitle == AMBIGUOUS) {
+            return null;
+        }
+        resolvedCount++;
+        LOGGER.info("Resolved '{}' from the collection as TMDb ID {}", mediaFile.getName(), tmdbTitle.getTmdbId());
+        return tmdbTitle;
+    }
+
+    /**
+     * Makes a file added during this scan available to later files of the same scan.
+     *
+     * @param mediaFile The inserted file, enriched with its TMDb title.
+     */
+    public void register(MediaFile mediaFile) {
+        if (mediaFile.getTmdbId() == null) return;
+        TmdbTitle tmdbTitle = new TmdbTitle();
+        tmdbTitle.setTmdbId(mediaFile.getTmdbId());
+        tmdbTitle.setTmdbName(mediaFile.getTmdbName());
+        tmdbTitle.setTmdbDescription(mediaFile.getTmdbDescription());
+        tmdbTitle.setReleaseDate(mediaFile.getReleaseDate());
+        add(key(mediaFile.getName(), mediaFile.getReleaseYear()), tmdbTitle);
+    }
+
+    private void add(String key, TmdbTitle tmdbTitle) {
+        if (key == null) return;
+        titles.merge(key, tmdbTitle, (existing, added) ->
+                existing != AMBIGUOUS && existing.getTmdbId().equals(added.getTmdbId()) ? existing : AMBIGUOUS);
+    }
+
+    // TV rows carry the show title only, movies need the year to tell remakes apart
+    private String key(String name, Integer releaseYear) {
+        String normalized = CollectionUtils.normalizeTitle(name);
+        if (normalized.isEmpty()) return null;
+        return collectionType == Constants.CollectionType.MOVIE ? normalized + "|" + (releaseYear != null ? releaseYear : "") : normalized;
+    }
+}
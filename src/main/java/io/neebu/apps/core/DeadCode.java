@@ -98,7 +98,7 @@ public class DeadCode {
                         LOGGER.debug("Inserted into DB: {}", filePath);
                         addCount++;
 
-                        mediaFile.applyNamingConvention();
+                        mediaFile.applyNamingConvention(appProperties.namingTemplate(collectionType));
 
                         boolean renameEnabled = switch(collectionType){
                             case MOVIE -> appProperties.isRenameMovies();
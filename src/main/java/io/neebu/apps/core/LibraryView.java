@@ -0,0 +1,283 @@
+package io.neebu.apps.core;
+
+import io.neebu.apps.conn.DatabaseApp;
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.utils.NamingTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The organized view of a collection, so that the original files can keep their names (library.*.rename off, e.g.
+ * while they are seeded) while media servers see normalized ones: &lt;view&gt;/Title (Year)/&lt;name&gt;, the names
+ * those {@link MediaFile#applyNamingConvention} gives the collection's rows (library.movies.view, library.tv.view).
+ * <p>
+ * Entries are hard links, so no file data is copied; a file on another file system than the view is linked
+ * symbolically instead. Each scan compares the view the rows call for with the links on disk and only creates,
+ * replaces or removes the entries that differ, rename.threads at a time. The view directory belongs to the view:
+ * whatever the collection does not call for is removed from it, so it may not overlap a library path or the view of
+ * the other collection.
+ */
+class LibraryView {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LibraryView.class);
+
+    // Not allowed in Windows or SMB file names
+    private static final String ILLEGAL_CHARACTERS = "<>:\"/\\|?*";
+
+    private final Path root;
+    private final String label;
+    // Directories whose files cannot be hard linked from the view
+    private final Set<Path> symbolicDirectories = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger linked = new AtomicInteger();
+    private final AtomicInteger replaced = new AtomicInteger();
+    private final AtomicInteger removed = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger symbolic = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private LibraryView(Path root, String label) {
+        this.root = root;
+        this.label = label;
+    }
+
+    /**
+     * Brings the view of a collection up to date with its rows. Failures are logged, the scan goes on.
+     *
+     * @param appProperties  The application properties/configuration, with the collection's view path.
+     * @param collectionType The collection.
+     * @return Number of entries the view should have.
+     */
+    static int materialize(AppProperties appProperties, Constants.CollectionType collectionType) {
+        boolean movies = collectionType == Constants.CollectionType.MOVIE;
+        String label = movies ? "Movie" : "TV";
+        Path root = Paths.get(appProperties.viewPath(collectionType)).toAbsolutePath().normalize();
+
+        List<String> libraryPaths = new ArrayList<>();
+        if (appProperties.getMoviePaths() != null) libraryPaths.addAll(appProperties.getMoviePaths());
+        if (appProperties.getTvShowPaths() != null) libraryPaths.addAll(appProperties.getTvShowPaths());
+        for (String libraryPath : libraryPaths) {
+            Path library = Paths.get(libraryPath).toAbsolutePath().normalize();
+            if (root.startsWith(library) || library.startsWith(root)) {
+                LOGGER.error("{} view {} overlaps library path {}, not updated", label, root, library);
+                return 0;
+            }
+        }
+        String otherViewPath = appProperties.viewPath(movies ? Constants.CollectionType.TV : Constants.CollectionType.MOVIE);
+        if (otherViewPath != null) {
+            // Each view would remove the entries of the other
+            Path otherView = Paths.get(otherViewPath).toAbsolutePath().normalize();
+            if (root.startsWith(otherView) || otherView.startsWith(root)) {
+                LOGGER.error("{} view {} overlaps the {} view {}, not updated", label, root, movies ? "TV" : "Movie", otherView);
+                return 0;
+            }
+        }
+
+        LibraryView view = new LibraryView(root, label);
+        Map<Path, Path> entries = Map.of();
+        DatabaseApp databaseApp = new DatabaseApp();
+        try {
+            List<MediaFile> files;
+            databaseApp.connect(appProperties.getDatabaseUrl(), appProperties.getDatabaseUser(), appProperties.getDatabasePass());
+            try {
+                files = databaseApp.getCollectionFiles(movies ? Constants.SELECT_MOVIE_FILES_SQL : Constants.SELECT_TV_FILES_SQL,
+                        collectionType);
+            } finally {
+                databaseApp.close();
+            }
+            entries = view.entries(files, appProperties.namingTemplate(collectionType));
+            view.apply(entries, Math.max(1, appProperties.getRenameThreads()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.error("Could not update the {} view {}: {}", label, root, e.getMessage(), e);
+        }
+        return entries.size();
+    }
+
+    /**
+     * The view the rows call for.
+     *
+     * @return The file each view entry links to, by entry.
+     */
+    private Map<Path, Path> entries(List<MediaFile> files, NamingTemplate namingTemplate) {
+        Map<Path, Path> entries = new HashMap<>(files.size() * 2);
+        for (MediaFile mediaFile : files) {
+            mediaFile.applyNamingConvention(namingTemplate);
+            Path entry = root.resolve(folderName(mediaFile)).resolve(mediaFile.getNormalizedTitle().getFileName());
+            Path previous = entries.putIfAbsent(entry, mediaFile.getAbsolutePath());
+            if (previous != null) {
+                LOGGER.warn("{} and {} have the same view entry {}, only the first is linked", previous,
+                        mediaFile.getAbsolutePath(), entry);
+            }
+        }
+        return entries;
+    }
+
+    // "Title (Year)", with the year of the TMDb release date where there is one
+    private static String folderName(MediaFile mediaFile) {
+        String title = Objects.toString("NOT_FOUND".equalsIgnoreCase(mediaFile.getTmdbName())
+                ? mediaFile.getName() : mediaFile.getTmdbName(), "");
+        StringBuilder folder = new StringBuilder(title.length() + 7);
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (c >= ' ' && ILLEGAL_CHARACTERS.indexOf(c) < 0) folder.append(c);
+        }
+        // Windows drops trailing dots and spaces
+        while (!folder.isEmpty() && (folder.charAt(folder.length() - 1) == '.' || folder.charAt(folder.length() - 1) == ' ')) {
+            folder.setLength(folder.length() - 1);
+        }
+        String name = folder.toString().trim();
+        if (name.isEmpty()) name = "Unknown";
+
+        String releaseDate = mediaFile.getReleaseDate();
+        String year = releaseDate != null && releaseDate.length() >= 4 && releaseDate.substring(0, 4).chars().allMatch(Character::isDigit)
+                ? releaseDate.substring(0, 4)
+                : mediaFile.getReleaseYear() != null ? mediaFile.getReleaseYear().toString() : null;
+        return year != null ? name + " (" + year + ")" : name;
+    }
+
+    private void apply(Map<Path, Path> entries, int threads) throws IOException, InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        Map<Path, BasicFileAttributes> existing = new HashMap<>();
+        if (Files.isDirectory(root)) {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    existing.put(file, attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    LOGGER.warn("Cannot read view entry {}: {}", file, e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        List<Path> stale = existing.keySet().stream().filter(path -> !entries.containsKey(path)).toList();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "library-view");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(entries.size() + stale.size());
+            for (Path path : stale) {
+                futures.add(executor.submit(() -> remove(path)));
+            }
+            for (Map.Entry<Path, Path> entry : entries.entrySet()) {
+                futures.add(executor.submit(() -> update(entry.getKey(), entry.getValue(), existing.get(entry.getKey()))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        stale.forEach(this::pruneParents);
+
+        LOGGER.info("{} view {}: linked={}, replaced={}, removed={}, unchanged={}, symbolic={}, failed={} in {} ms", label,
+                root, linked.get(), replaced.get(), removed.get(), unchanged.get(), symbolic.get(), failed.get(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void update(Path entry, Path source, BasicFileAttributes attrs) {
+        try {
+            if (attrs != null) {
+                if (isCurrent(entry, source, attrs)) {
+                    unchanged.incrementAndGet();
+                    return;
+                }
+                Files.delete(entry);
+            }
+            link(entry, source);
+            (attrs != null ? replaced : linked).incrementAndGet();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            LOGGER.warn("Could not link {} to {}: {}", entry, source, e.getMessage());
+        }
+    }
+
+    // A hard link shares the file's key (its inode), a symbolic one names it
+    private static boolean isCurrent(Path entry, Path source, BasicFileAttributes attrs) throws IOException {
+        if (attrs.isSymbolicLink()) {
+            return Files.readSymbolicLink(entry).equals(source);
+        }
+        if (attrs.fileKey() == null) {
+            return Files.isSameFile(entry, source);
+        }
+        return attrs.fileKey().equals(Files.readAttributes(source, BasicFileAttributes.class).fileKey());
+    }
+
+    private void link(Path entry, Path source) throws IOException {
+        Files.createDirectories(entry.getParent());
+        Path sourceDirectory = source.getParent();
+        if (!symbolicDirectories.contains(sourceDirectory)) {
+            try {
+                Files.createLink(entry, source);
+                return;
+            } catch (FileAlreadyExistsException | NoSuchFileException | AccessDeniedException e) {
+                // Not about hard links, a symbolic link would fail or hide the problem as well
+                throw e;
+            } catch (FileSystemException | UnsupportedOperationException e) {
+                // Another file system, or one without hard links
+                LOGGER.debug("Cannot hard link {}, linking symbolically: {}", source, e.getMessage());
+                symbolicDirectories.add(sourceDirectory);
+            }
+        }
+        Files.createSymbolicLink(entry, source);
+        symbolic.incrementAndGet();
+    }
+
+    private void remove(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            removed.incrementAndGet();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            LOGGER.warn("Could not remove view entry {}: {}", path, e.getMessage());
+        }
+    }
+
+    // Removes the directories a stale entry leaves empty
+    private void pruneParents(Path path) {
+        for (Path directory = path.getParent(); directory != null && !directory.equals(root); directory = directory.getParent()) {
+            try {
+                Files.delete(directory);
+            } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                return;
+            } catch (IOException e) {
+                LOGGER.debug("Could not remove view directory {}: {}", directory, e.getMessage());
+                return;
+            }
+        }
+    }
+}
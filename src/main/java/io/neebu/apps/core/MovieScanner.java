@@ -3,12 +3,13 @@ package io.neebu.apps.core;
 import io.neebu.apps.conn.DatabaseApp;
 import io.neebu.apps.conn.TmdbApiClient;
 import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.CollectionRow;
 import io.neebu.apps.core.models.MediaFile;
 import io.neebu.apps.core.models.TmdbTitle;
+import io.neebu.apps.utils.NamingTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -19,12 +20,23 @@ public class MovieScanner {
     private static final Logger LOGGER = LoggerFactory.getLogger(MovieScanner.class);
 
     public static void run(AppProperties appProperties, List<String> filesList) {
+        run(appProperties, filesList, new ScanMetrics("Movie"));
+    }
+
+    public static void run(AppProperties appProperties, List<String> filesList, ScanMetrics metrics) {
         LOGGER.info("Running movie organiser...");
+        long start = System.nanoTime();
 
         DatabaseApp databaseApp = new DatabaseApp();
         databaseApp.connect(appProperties.getDatabaseUrl(), appProperties.getDatabaseUser(), appProperties.getDatabasePass());
 
-        List<String> dbCollection = databaseApp.getCollection(Constants.SELECT_MOVIES_SQL);
+        List<CollectionRow> dbRows = databaseApp.getCollectionRows(Constants.SELECT_MOVIE_ROWS_SQL);
+        List<String> dbCollection = dbRows.stream().map(CollectionRow::getAbsolutePath).toList();
+        CollectionTitleResolver titleResolver = new CollectionTitleResolver(Constants.CollectionType.MOVIE, dbRows);
+        RenameEngine renameEngine = appProperties.isRenameMovies()
+                ? RenameEngine.open(appProperties, Constants.CollectionType.MOVIE) : null;
+        ProbeContext probeContext = ProbeContext.open(appProperties, Constants.CollectionType.MOVIE, renameEngine);
+        NamingTemplate namingTemplate = appProperties.namingTemplate(Constants.CollectionType.MOVIE);
         LOGGER.info("Retrieved {} movie records from database", dbCollection.size());
 
         Set<String> dbSet = new HashSet<>(dbCollection);
@@ -35,39 +47,53 @@ public class MovieScanner {
                 .distinct()
                 .collect(Collectors.toMap(file -> file,
                         file -> getCollectionAction(dbSet.contains(file), fileSet.contains(file))));
+        // Deletes and skips first, then new files in probe order (probe.order)
+        List<String> addFiles = probeContext.order(fileActionMap.entrySet().stream()
+                .filter(entry -> entry.getValue().equals("ADD"))
+                .map(Map.Entry::getKey)
+                .toList());
+        List<String> processingOrder = Stream.concat(
+                fileActionMap.entrySet().stream().filter(entry -> !entry.getValue().equals("ADD")).map(Map.Entry::getKey),
+                addFiles.stream()).toList();
+        metrics.record(ScanMetrics.Stage.RECONCILE, start, fileActionMap.size());
 
         int addCount = 0, deleteCount = 0, skipCount = 0;
 
-        for (Map.Entry<String, String> entry : fileActionMap.entrySet()) {
-            String filePath = entry.getKey();
-            String action = entry.getValue();
+        for (String filePath : processingOrder) {
+            String action = fileActionMap.get(filePath);
 
             try {
                 switch (action) {
                     case "DELETE" -> {
                         LOGGER.info("Deleting DB entry: {}", filePath);
+                        start = System.nanoTime();
                         databaseApp.delete(filePath);
+                        metrics.record(ScanMetrics.Stage.PERSIST, start);
                         deleteCount++;
                     }
                     case "ADD" -> {
                         LOGGER.info("Adding new movie file: {}", filePath);
-                        MediaFile mediaFile = new MediaFile(Paths.get(filePath), Constants.CollectionType.MOVIE);
+                        start = System.nanoTime();
+                        MediaFile mediaFile = probeContext.newMediaFile(Paths.get(filePath), Constants.CollectionType.MOVIE);
+                        start = metrics.record(ScanMetrics.Stage.PROBE, start);
 
-                        TmdbTitle tmdbTitle = fetchMovieTitle(appProperties, mediaFile);
+                        TmdbTitle tmdbTitle = fetchMovieTitle(appProperties, mediaFile, titleResolver);
                         if (tmdbTitle == null) {
+                            metrics.record(ScanMetrics.Stage.LOOKUP, start);
                             LOGGER.warn("Skipping movie due to missing TMDb info: {}", filePath);
                             skipCount++;
                             continue;
                         }
 
                         enrichMediaWithTitle(mediaFile, tmdbTitle);
-                        databaseApp.insert(mediaFile);
-                        addCount++;
-
-                        mediaFile.applyNamingConvention();
-                        if (mediaFile.isRenameRequired() && appProperties.isRenameMovies()) {
-                            LOGGER.info("Renaming movie: {} → {}", mediaFile.getAbsolutePath(), mediaFile.getNormalizedTitle());
-                            Files.move(mediaFile.getAbsolutePath(), mediaFile.getNormalizedTitle());
+                        start = metrics.record(ScanMetrics.Stage.LOOKUP, start);
+                        // Only files that will be inserted are probed, up to one per worker process ahead
+                        for (MediaFile due : probeContext.probeAhead(mediaFile)) {
+                            if (insert(due, databaseApp, titleResolver, probeContext, renameEngine, namingTemplate, metrics)) {
+                                addCount++;
+                            } else {
+                                skipCount++;
+                            }
                         }
                     }
                     default -> {
@@ -81,11 +107,34 @@ public class MovieScanner {
             }
         }
 
+        for (MediaFile due : probeContext.drainProbingAhead()) {
+            if (insert(due, databaseApp, titleResolver, probeContext, renameEngine, namingTemplate, metrics)) {
+                addCount++;
+            } else {
+                skipCount++;
+            }
+        }
+
+        start = System.nanoTime();
         databaseApp.close();
+        // Waits for the background probes and verification
+        probeContext.close();
+        start = metrics.record(ScanMetrics.Stage.PROBE, start, 0);
+        // Waits for the renames, including those of the verified files
+        if (renameEngine != null) {
+            renameEngine.close();
+        }
+        start = metrics.record(ScanMetrics.Stage.RENAME, start, 0);
+        // Links the organized view from the rows as the scan left them
+        if (appProperties.viewPath(Constants.CollectionType.MOVIE) != null) {
+            metrics.record(ScanMetrics.Stage.VIEW, start, LibraryView.materialize(appProperties, Constants.CollectionType.MOVIE));
+        }
         LOGGER.info("Movie scan complete. Added={}, Deleted={}, Skipped={}", addCount, deleteCount, skipCount);
+        LOGGER.info("Movie titles resolved from the collection={} (TMDb searches saved)", titleResolver.getResolvedCount());
+        metrics.log();
     }
 
-    private static TmdbTitle fetchMovieTitle(AppProperties props, MediaFile mediaFile) {
+    private static TmdbTitle fetchMovieTitle(AppProperties props, MediaFile mediaFile, CollectionTitleResolver titleResolver) {
         try {
             if (mediaFile.isHasTmdbId()) {
                 return TmdbApiClient.getMovieByTmdbId(
@@ -94,6 +143,10 @@ public class MovieScanner {
                         Integer.parseInt(mediaFile.getFileTmdbId())
                 );
             }
+            TmdbTitle collectionTitle = titleResolver.resolve(mediaFile);
+            if (collectionTitle != null) {
+                return collectionTitle;
+            }
             return TmdbApiClient.getTmdbMovieId(
                     props.getTmdbApiKey(),
                     props.getTmdbApiUri(),
@@ -106,6 +159,34 @@ public class MovieScanner {
         }
     }
 
+    // Probes a looked-up file, inserts its row, and hands it to the verifier or the rename engine
+    private static boolean insert(MediaFile mediaFile, DatabaseApp databaseApp, CollectionTitleResolver titleResolver,
+                                  ProbeContext probeContext, RenameEngine renameEngine, NamingTemplate namingTemplate,
+                                  ScanMetrics metrics) {
+        try {
+            long start = System.nanoTime();
+            mediaFile.probe();
+            start = metrics.record(ScanMetrics.Stage.PROBE, start, 0);
+            databaseApp.insert(mediaFile);
+            titleResolver.register(mediaFile);
+            start = metrics.record(ScanMetrics.Stage.PERSIST, start);
+
+            // Fields guessed from the name are verified, and the file renamed, in the background
+            if (probeContext.verifyLater(mediaFile)) return true;
+
+            mediaFile.applyNamingConvention(namingTemplate);
+            // Renamed in the background, the row pointed at the new name
+            if (renameEngine != null && mediaFile.isRenameRequired()) {
+                renameEngine.submit(mediaFile);
+            }
+            metrics.record(ScanMetrics.Stage.RENAME, start);
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Error handling movie {}: {}", mediaFile.getAbsolutePath(), e.getMessage(), e);
+            return false;
+        }
+    }
+
     private static void enrichMediaWithTitle(MediaFile mediaFile, TmdbTitle tmdbTitle) {
         mediaFile.setTmdbId(tmdbTitle.getTmdbId());
         mediaFile.setTmdbName(tmdbTitle.getTmdbName());
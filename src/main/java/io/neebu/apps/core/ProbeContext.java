@@ -0,0 +1,208 @@
+package io.neebu.apps.core;
+
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.utils.probe.*;
+import lombok.Getter;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The probing setup of one scan: the probe cache, the worker processes if probe.workers is set, and the
+ * {@link MediaProber} on top of them. Closing it saves the cache, stops the workers and logs the probe stats.
+ * <p>
+ * With probe.mode=FILENAME, new files not in the cache get technical fields guessed from their names
+ * ({@link FilenameProbe}) so their rows can be inserted at once; files below probe.filename.min.confidence, or
+ * all of them with probe.verify=ALL, are probed afterwards by a {@link ProbeVerifier}.
+ * <p>
+ * With worker processes, a new file starts probing once its TMDb lookup succeeded and its row is inserted up to
+ * one file per worker later, so that the probes run while the next files are looked up.
+ */
+class ProbeContext implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeContext.class);
+
+    private final String label;
+    private final ProbeCache probeCache;
+    private final ProbeQuarantine quarantine;
+    private final ProbeWorkerPool workers;
+    @Getter
+    private final MediaProber mediaProber;
+
+    private final ProbeOrder.Mode order;
+    private final boolean filenameMode;
+    private final boolean verifyAll;
+    private final double minConfidence;
+    private final ProbeVerifier verifier;
+    private int guessedCount = 0;
+    private int deferredCount = 0;
+    private final Deque<MediaFile> probingAhead = new ArrayDeque<>();
+
+    private ProbeContext(String label, ProbeCache probeCache, ProbeQuarantine quarantine, ProbeWorkerPool workers,
+                         MediaProber mediaProber, ProbeOrder.Mode order, boolean filenameMode, boolean verifyAll,
+                         double minConfidence, ProbeVerifier verifier) {
+        this.label = label;
+        this.probeCache = probeCache;
+        this.quarantine = quarantine;
+        this.workers = workers;
+        this.mediaProber = mediaProber;
+        this.order = order;
+        this.filenameMode = filenameMode;
+        this.verifyAll = verifyAll;
+        this.minConfidence = minConfidence;
+        this.verifier = verifier;
+    }
+
+    /**
+     * Opens the probing setup of a collection scan.
+     *
+     * @param appProperties  The application properties/configuration.
+     * @param collectionType The collection.
+     * @param renameEngine   Renames the files verified in the background, or null if the collection is not renamed.
+     * @return The probing setup.
+     */
+    static ProbeContext open(AppProperties appProperties, Constants.CollectionType collectionType, RenameEngine renameEngine) {
+        boolean movies = collectionType == Constants.CollectionType.MOVIE;
+        String label = movies ? "Movie" : "TV";
+        String parseSpeed = StringUtils.trimToNull(movies ? appProperties.getMovieParseSpeed() : appProperties.getTvParseSpeed());
+
+        ProbeCache probeCache = StringUtils.isNotBlank(appProperties.getProbeCachePath())
+                ? ProbeCache.open(Paths.get(appProperties.getProbeCachePath()),
+                appProperties.getProbeCacheMaxEntries()) : null;
+        ProbeQuarantine quarantine = null;
+        ProbeWorkerPool workers = null;
+        if (appProperties.getProbeWorkers() > 0) {
+            quarantine = ProbeQuarantine.open(StringUtils.isNotBlank(appProperties.getProbeQuarantinePath())
+                    ? Paths.get(appProperties.getProbeQuarantinePath()) : null);
+            workers = new ProbeWorkerPool(appProperties.getProbeWorkers(),
+                    Duration.ofSeconds(appProperties.getProbeWorkerTimeoutSeconds()), parseSpeed,
+                    appProperties.isProbeHeaderParser(), appProperties.getProbeMediaInfoBinding(), quarantine);
+        }
+        MediaProber mediaProber = new MediaProber(workers == null ? MediaInfoPool.shared() : null, probeCache,
+                parseSpeed, appProperties.isProbeHeaderParser(), workers);
+
+        boolean filenameMode = "FILENAME".equals(appProperties.getProbeMode());
+        ProbeVerifier verifier = null;
+        if (filenameMode) {
+            LOGGER.info("{} files not in the probe cache take their technical fields from their names, verification: {}",
+                    label, appProperties.getProbeVerify());
+            if (!"NONE".equals(appProperties.getProbeVerify())) {
+                verifier = new ProbeVerifier(appProperties, mediaProber, renameEngine,
+                        appProperties.namingTemplate(collectionType),
+                        Math.max(1, appProperties.getProbeWorkers()), label);
+            }
+        }
+        return new ProbeContext(label, probeCache, quarantine, workers, mediaProber,
+                ProbeOrder.mode(appProperties.getProbeOrder()), filenameMode,
+                "ALL".equals(appProperties.getProbeVerify()), appProperties.getProbeFilenameMinConfidence(), verifier);
+    }
+
+    /**
+     * Builds a new file, probing it, or in filename mode taking its fields from the cache or its name.
+     *
+     * @param filePath       The file.
+     * @param collectionType Its collection.
+     * @return The file.
+     * @throws IOException if the file cannot be read or probed.
+     */
+    MediaFile newMediaFile(Path filePath, Constants.CollectionType collectionType) throws IOException {
+        if (!filenameMode) {
+            return new MediaFile(filePath, collectionType, mediaProber);
+        }
+        ProbeResult cached = mediaProber.probeCached(filePath);
+        if (cached != null) {
+            return new MediaFile(filePath, collectionType, cached, 1);
+        }
+        FilenameProbe.Guess guess = FilenameProbe.guess(FilenameUtils.getBaseName(filePath.toString()));
+        guessedCount++;
+        LOGGER.debug("Guessed {} from the name, confidence {}", guess.result(), String.format("%.2f", guess.confidence()));
+        return new MediaFile(filePath, collectionType, guess.result(), guess.confidence());
+    }
+
+    /**
+     * Hands a file with guessed fields to the verifier once its row is inserted, if it needs verifying.
+     *
+     * @param mediaFile The file.
+     * @return Whether the verifier took it, in which case it also renames it.
+     */
+    boolean verifyLater(MediaFile mediaFile) {
+        if (verifier == null || mediaFile.getProbeConfidence() >= 1) return false;
+        if (!verifyAll && mediaFile.getProbeConfidence() >= minConfidence) return false;
+        verifier.submit(mediaFile);
+        deferredCount++;
+        return true;
+    }
+
+    /**
+     * Sorts the scan's new files in the order they should be probed (probe.order).
+     *
+     * @param files Absolute file paths.
+     * @return The files in probe order.
+     */
+    List<String> order(Collection<String> files) {
+        return ProbeOrder.sort(files, filenameMode ? ProbeOrder.Mode.NAME : order);
+    }
+
+    /**
+     * Starts probing a new file whose TMDb lookup succeeded, unless its fields come from its name. Files whose
+     * lookup fails are never handed here, so they are not probed.
+     *
+     * @param mediaFile The file, with its TMDb title.
+     * @return The files to probe and insert now, oldest first: this one without worker processes, otherwise those
+     * more than one file per worker behind.
+     */
+    List<MediaFile> probeAhead(MediaFile mediaFile) {
+        if (filenameMode || workers == null) {
+            return List.of(mediaFile);
+        }
+        mediaProber.prefetch(List.of(mediaFile.getAbsolutePath()));
+        probingAhead.add(mediaFile);
+        List<MediaFile> due = new ArrayList<>();
+        while (probingAhead.size() > workers.size()) {
+            due.add(probingAhead.poll());
+        }
+        return due;
+    }
+
+    /**
+     * Hands back the files still probing ahead, at the end of the scan.
+     *
+     * @return The files to probe and insert, oldest first.
+     */
+    List<MediaFile> drainProbingAhead() {
+        List<MediaFile> due = new ArrayList<>(probingAhead);
+        probingAhead.clear();
+        return due;
+    }
+
+    @Override
+    public void close() {
+        if (verifier != null) {
+            verifier.close();
+        }
+        if (filenameMode) {
+            LOGGER.info("{} files with fields from their names={}, probed afterwards={}", label, guessedCount, deferredCount);
+        }
+        mediaProber.close();
+        if (workers != null) {
+            workers.close();
+            quarantine.close();
+        }
+        if (probeCache != null) {
+            probeCache.close();
+        }
+        mediaProber.getStats().log(label);
+    }
+}
@@ -0,0 +1,129 @@
+package io.neebu.apps.core;
+
+import io.neebu.apps.conn.DatabaseApp;
+import io.neebu.apps.core.models.MediaFile;
+import io.neebu.apps.utils.NamingTemplate;
+import io.neebu.apps.utils.probe.MediaProber;
+import io.neebu.apps.utils.probe.ProbeResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Probes files whose technical fields were guessed from their names, in the background while the scan goes on.
+ * <p>
+ * A file whose probed fields differ from the guess has its row corrected. Files are handed to the scan's
+ * {@link RenameEngine} here rather than by the scanner, since the name carries the technical fields. The verifier has
+ * its own database connection and {@link #close()} waits for the queue to drain.
+ */
+class ProbeVerifier implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeVerifier.class);
+
+    private final AppProperties appProperties;
+    private final MediaProber mediaProber;
+    private final RenameEngine renameEngine;
+    private final NamingTemplate namingTemplate;
+    private final String label;
+    private final ExecutorService executor;
+    private DatabaseApp databaseApp;
+
+    private final AtomicInteger verified = new AtomicInteger();
+    private final AtomicInteger corrected = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param mediaProber    Prober for the verification, shared with the scan.
+     * @param renameEngine   Renames verified files, or null if they are not renamed.
+     * @param namingTemplate Template of the new names.
+     * @param threads        Files verified at a time.
+     * @param label          "Movie" or "TV", for the log.
+     */
+    ProbeVerifier(AppProperties appProperties, MediaProber mediaProber, RenameEngine renameEngine, NamingTemplate namingTemplate,
+                  int threads, String label) {
+        this.appProperties = appProperties;
+        this.mediaProber = mediaProber;
+        this.renameEngine = renameEngine;
+        this.namingTemplate = namingTemplate;
+        this.label = label;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "probe-verify");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a file whose row has been inserted.
+     *
+     * @param mediaFile The file, not to be used by the caller afterwards.
+     */
+    void submit(MediaFile mediaFile) {
+        executor.execute(() -> verify(mediaFile));
+    }
+
+    private void verify(MediaFile mediaFile) {
+        try {
+            ProbeResult probeResult = mediaProber.probe(mediaFile.getAbsolutePath());
+            double guessedConfidence = mediaFile.getProbeConfidence();
+            String guessed = fields(mediaFile);
+            if (mediaFile.applyProbeResult(probeResult, 1)) {
+                LOGGER.info("Corrected {} (filename confidence {}): {} → {}", mediaFile.getAbsolutePath(),
+                        String.format("%.2f", guessedConfidence), guessed, fields(mediaFile));
+                synchronized (this) {
+                    database().updateTechnicalFields(mediaFile);
+                }
+                corrected.incrementAndGet();
+            }
+            verified.incrementAndGet();
+
+            mediaFile.applyNamingConvention(namingTemplate);
+            if (renameEngine != null && mediaFile.isRenameRequired()) {
+                renameEngine.submit(mediaFile);
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            LOGGER.error("Could not verify {}: {}", mediaFile.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    private DatabaseApp database() {
+        if (databaseApp == null) {
+            databaseApp = new DatabaseApp();
+            databaseApp.connect(appProperties.getDatabaseUrl(), appProperties.getDatabaseUser(), appProperties.getDatabasePass());
+        }
+        return databaseApp;
+    }
+
+    private static String fields(MediaFile mediaFile) {
+        return String.join("/", String.valueOf(mediaFile.getResolution()), String.valueOf(mediaFile.getHdrFormat()),
+                String.valueOf(mediaFile.getVideoCodec()), String.valueOf(mediaFile.getAudioCodec()),
+                String.valueOf(mediaFile.getAudioChannels()));
+    }
+
+    /**
+     * Waits for the queued files and closes the connection.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.DAYS)) {
+                LOGGER.warn("Gave up waiting for {} probe verification", label);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        synchronized (this) {
+            if (databaseApp != null) {
+                databaseApp.close();
+            }
+        }
+        LOGGER.info("{} probe verification: verified={}, corrected={}, failed={}", label, verified.get(), corrected.get(), failed.get());
+    }
+}
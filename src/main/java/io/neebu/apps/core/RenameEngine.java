@@ -0,0 +1,321 @@
+package io.neebu.apps.core;
+
+import io.neebu.apps.conn.DatabaseApp;
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.MediaFile;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renames files to their normalized names once their rows are inserted, pointing each row at the new name in the
+ * same unit of work, so that the next scan finds renamed files in the collection rather than deleting and adding
+ * them again.
+ * <p>
+ * Directories are renamed in parallel (rename.threads), the files of one directory one at a time in the order they
+ * were submitted, as a share serializes the updates of a directory anyway. Moves are atomic where the file system
+ * supports it and never replace an existing file. The row is updated first and committed once the file is moved; a
+ * failed move rolls it back, a failed commit moves the file back.
+ * <p>
+ * With a journal (rename.journal.path, a directory with one {@link RenameJournal} per collection) every rename is
+ * journaled before the file moves. Opening the engine settles the renames a crash interrupted, and {@link #undo}
+ * reverts the renames of the last scan that renamed anything.
+ */
+public class RenameEngine implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenameEngine.class);
+
+    private final AppProperties appProperties;
+    private final String label;
+    private final RenameJournal journal;
+    private final ExecutorService executor;
+    private final Map<Path, Deque<MediaFile>> queues = new HashMap<>();
+    private final ThreadLocal<DatabaseApp> threadDatabase = new ThreadLocal<>();
+    private final Set<DatabaseApp> databases = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger renamed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger nonAtomic = new AtomicInteger();
+
+    private RenameEngine(AppProperties appProperties, String label, RenameJournal journal, int threads) {
+        this.appProperties = appProperties;
+        this.label = label;
+        this.journal = journal;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "rename");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the rename stage of a collection scan, settling what the journal left unfinished.
+     *
+     * @param appProperties  The application properties/configuration.
+     * @param collectionType The collection.
+     * @return The engine.
+     */
+    static RenameEngine open(AppProperties appProperties, Constants.CollectionType collectionType) {
+        String label = collectionType == Constants.CollectionType.MOVIE ? "Movie" : "TV";
+        RenameJournal journal = null;
+        Path journalFile = journalFile(appProperties, collectionType);
+        if (journalFile != null) {
+            try {
+                List<RenameJournal.Entry> unfinished = RenameJournal.read(journalFile).stream()
+                        .filter(entry -> entry.state() == RenameJournal.State.BEGUN)
+                        .toList();
+                journal = RenameJournal.open(journalFile);
+                if (!unfinished.isEmpty()) {
+                    recover(appProperties, journal, unfinished);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Could not open rename journal {}, renaming without one: {}", journalFile, e.getMessage());
+            }
+        }
+        return new RenameEngine(appProperties, label, journal, Math.max(1, appProperties.getRenameThreads()));
+    }
+
+    /**
+     * Queues a file whose row has been inserted for renaming to its normalized title.
+     *
+     * @param mediaFile The file, with {@link MediaFile#applyNamingConvention} applied; not to be used by the caller
+     *                  afterwards.
+     */
+    public void submit(MediaFile mediaFile) {
+        Path directory = mediaFile.getAbsolutePath().getParent();
+        synchronized (queues) {
+            Deque<MediaFile> queue = queues.get(directory);
+            if (queue != null) {
+                queue.add(mediaFile);
+                return;
+            }
+            queue = new ArrayDeque<>();
+            queue.add(mediaFile);
+            queues.put(directory, queue);
+        }
+        executor.execute(() -> drain(directory));
+    }
+
+    private void drain(Path directory) {
+        while (true) {
+            MediaFile next;
+            synchronized (queues) {
+                next = queues.get(directory).poll();
+                if (next == null) {
+                    queues.remove(directory);
+                    return;
+                }
+            }
+            rename(next);
+        }
+    }
+
+    private void rename(MediaFile mediaFile) {
+        Path from = mediaFile.getAbsolutePath();
+        Path to = mediaFile.getNormalizedTitle();
+        DatabaseApp databaseApp = database();
+        long id = -1;
+        boolean moved = false;
+        try {
+            databaseApp.begin();
+            if (databaseApp.updatePath(from.toString(), to) == 0) {
+                throw new IllegalStateException("no collection row for it");
+            }
+            if (journal != null) id = journal.begin(from, to);
+            move(from, to);
+            moved = true;
+            databaseApp.commit();
+            if (journal != null) journal.done(id);
+            renamed.incrementAndGet();
+            LOGGER.info("Renamed {} file: {} → {}", label, from, to);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            try {
+                databaseApp.rollback();
+            } catch (Exception rollbackFailure) {
+                LOGGER.debug("Rollback failed: {}", rollbackFailure.getMessage());
+            }
+            if (moved && !moveBack(from, to)) {
+                LOGGER.error("Could not rename {} file {} (row not updated) nor move it back from {}: {}", label, from, to, e.getMessage());
+                return;
+            }
+            if (id >= 0) {
+                try {
+                    journal.abandoned(id);
+                } catch (IOException journalFailure) {
+                    LOGGER.debug("Could not journal abandoned rename {}: {}", id, journalFailure.getMessage());
+                }
+            }
+            LOGGER.error("Could not rename {} file {} to {}: {}", label, from, to, e.getMessage());
+        }
+    }
+
+    private boolean moveBack(Path from, Path to) {
+        try {
+            move(to, from);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void move(Path from, Path to) throws IOException {
+        // An atomic move may replace an existing file (rename(2) does), so the target is checked first
+        if (Files.exists(to)) {
+            throw new FileAlreadyExistsException(to.toString());
+        }
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            nonAtomic.incrementAndGet();
+            Files.move(from, to);
+        }
+    }
+
+    private DatabaseApp database() {
+        DatabaseApp databaseApp = threadDatabase.get();
+        if (databaseApp == null) {
+            databaseApp = connect(appProperties);
+            threadDatabase.set(databaseApp);
+            databases.add(databaseApp);
+        }
+        return databaseApp;
+    }
+
+    /**
+     * Waits for the queued renames and closes the connections and the journal.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.DAYS)) {
+                LOGGER.warn("Gave up waiting for {} renames", label);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        databases.forEach(DatabaseApp::close);
+        if (journal != null) {
+            journal.close();
+        }
+        LOGGER.info("{} renames: renamed={}, failed={}, not atomic={}", label, renamed.get(), failed.get(), nonAtomic.get());
+    }
+
+    /**
+     * Settles journaled renames that never finished: a file still at its old name was not renamed, a file at its
+     * new name was, and its row is pointed there if the commit was lost.
+     */
+    private static void recover(AppProperties appProperties, RenameJournal journal, List<RenameJournal.Entry> unfinished) throws IOException {
+        LOGGER.warn("Settling {} unfinished rename(s) from {}", unfinished.size(), journal.getJournalFile());
+        DatabaseApp databaseApp = connect(appProperties);
+        try {
+            for (RenameJournal.Entry entry : unfinished) {
+                boolean atOld = Files.exists(entry.from());
+                boolean atNew = Files.exists(entry.to());
+                if (atOld && !atNew) {
+                    journal.abandoned(entry.id());
+                } else if (atNew && !atOld) {
+                    databaseApp.updatePath(entry.from().toString(), entry.to());
+                    journal.done(entry.id());
+                    LOGGER.info("Completed interrupted rename {} → {}", entry.from(), entry.to());
+                } else {
+                    LOGGER.warn("Cannot settle interrupted rename {} → {}: the file is {}, left as is", entry.from(),
+                            entry.to(), atOld ? "at both names" : "at neither name");
+                }
+            }
+        } finally {
+            databaseApp.close();
+        }
+    }
+
+    /**
+     * Reverts the renames of the last scan that renamed anything, newest first, moving each file back and pointing
+     * its row at the old name. Files that were moved or replaced since are left alone, and a rename that cannot be
+     * undone does not stop the others.
+     *
+     * @param appProperties The application properties/configuration, with rename.journal.path.
+     */
+    public static void undo(AppProperties appProperties) {
+        if (StringUtils.isBlank(appProperties.getRenameJournalPath())) {
+            LOGGER.warn("No rename journal configured (rename.journal.path), nothing to undo");
+            return;
+        }
+        int failed = 0;
+        DatabaseApp databaseApp = connect(appProperties);
+        try {
+            for (Constants.CollectionType collectionType : Constants.CollectionType.values()) {
+                Path journalFile = journalFile(appProperties, collectionType);
+                int undone = 0, skipped = 0, collectionFailed = 0;
+                try (RenameJournal journal = RenameJournal.open(journalFile)) {
+                    List<RenameJournal.Entry> entries = RenameJournal.read(journalFile);
+                    for (int i = entries.size() - 1; i >= 0; i--) {
+                        RenameJournal.Entry entry = entries.get(i);
+                        if (entry.state() != RenameJournal.State.DONE) continue;
+                        if (!Files.exists(entry.to()) || Files.exists(entry.from())) {
+                            LOGGER.warn("Not undoing rename {} → {}: the file has changed since", entry.from(), entry.to());
+                            skipped++;
+                            continue;
+                        }
+                        databaseApp.begin();
+                        try {
+                            databaseApp.updatePath(entry.to().toString(), entry.from());
+                            Files.move(entry.to(), entry.from());
+                            databaseApp.commit();
+                        } catch (Exception e) {
+                            databaseApp.rollback();
+                            LOGGER.error("Could not undo rename {} → {}: {}", entry.from(), entry.to(), e.getMessage());
+                            collectionFailed++;
+                            continue;
+                        }
+                        journal.undone(entry.id());
+                        undone++;
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("Undoing {} renames from {} failed: {}", collectionType, journalFile, e.getMessage(), e);
+                    collectionFailed++;
+                }
+                if (undone + skipped + collectionFailed > 0) {
+                    LOGGER.info("{} renames undone={}, skipped={}, failed={}", collectionType, undone, skipped, collectionFailed);
+                }
+                failed += collectionFailed;
+            }
+        } finally {
+            databaseApp.close();
+        }
+        if (failed > 0) {
+            LOGGER.error("{} rename(s) could not be undone, see above", failed);
+        }
+    }
+
+    private static Path journalFile(AppProperties appProperties, Constants.CollectionType collectionType) {
+        if (StringUtils.isBlank(appProperties.getRenameJournalPath())) return null;
+        return Paths.get(appProperties.getRenameJournalPath()).resolve(collectionType.name().toLowerCase() + ".journal");
+    }
+
+    private static DatabaseApp connect(AppProperties appProperties) {
+        DatabaseApp databaseApp = new DatabaseApp();
+        databaseApp.connect(appProperties.getDatabaseUrl(), appProperties.getDatabaseUser(), appProperties.getDatabasePass());
+        return databaseApp;
+    }
+}
@@ -0,0 +1,225 @@
+package io.neebu.apps.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-ahead journal of the renames of a scan, so that a rename interrupted by a crash can be completed on the
+ * next run, and the renames of the last scan undone.
+ * <p>
+ * A text file, one tab-separated record per line: "B id from to" is written and forced to disk before a file is
+ * moved, then "D id" once the move and the row update are committed, or "A id" if the rename was abandoned and
+ * nothing changed. Undoing a rename appends "U id". Paths are escaped (backslash, tab, line breaks). Only the begin
+ * records are forced: losing a later record leaves a begin record that recovery settles by looking at the files.
+ * <p>
+ * The first rename journaled after opening starts the file over, so it holds the renames of the last scan that renamed
+ * anything, and a scan with nothing to rename keeps those of the one before for undoing. Begin records nothing has
+ * settled yet are carried over to the new file, for the next run to settle.
+ */
+class RenameJournal implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenameJournal.class);
+
+    enum State {
+        BEGUN,
+        DONE,
+        ABANDONED,
+        UNDONE
+    }
+
+    /**
+     * A journaled rename and its latest state.
+     */
+    record Entry(long id, Path from, Path to, State state) {
+    }
+
+    private final Path journalFile;
+    private FileChannel channel;
+    private long nextId;
+    private boolean started;
+
+    private RenameJournal(Path journalFile, FileChannel channel, long nextId) {
+        this.journalFile = journalFile;
+        this.channel = channel;
+        this.nextId = nextId;
+    }
+
+    /**
+     * Opens a journal for appending, creating it if needed.
+     *
+     * @param journalFile The journal file.
+     * @return The journal.
+     * @throws IOException if it cannot be read or opened.
+     */
+    static RenameJournal open(Path journalFile) throws IOException {
+        long nextId = read(journalFile).stream().mapToLong(Entry::id).max().orElse(0) + 1;
+        if (journalFile.getParent() != null) Files.createDirectories(journalFile.getParent());
+        FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        RenameJournal journal = new RenameJournal(journalFile, channel, nextId);
+        // Ends a line cut short by a crash, so that it is not joined to the next record
+        long size = channel.size();
+        if (size > 0) {
+            try (FileChannel reader = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                reader.read(last, size - 1);
+                if (last.get(0) != '\n') journal.append("");
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Reads a journal.
+     *
+     * @param journalFile The journal file.
+     * @return Its renames in the order they were begun, each in its latest state; none if there is no file.
+     * @throws IOException if it cannot be read.
+     */
+    static List<Entry> read(Path journalFile) throws IOException {
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(journalFile, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        for (String line : lines) {
+            String[] fields = line.split("\t");
+            try {
+                long id = Long.parseLong(fields[1]);
+                if (fields[0].equals("B") && fields.length == 4) {
+                    entries.put(id, new Entry(id, Paths.get(unescape(fields[2])), Paths.get(unescape(fields[3])), State.BEGUN));
+                    continue;
+                }
+                Entry entry = entries.get(id);
+                if (entry == null) continue;
+                State state = switch (fields[0]) {
+                    case "D" -> State.DONE;
+                    case "A" -> State.ABANDONED;
+                    case "U" -> State.UNDONE;
+                    default -> entry.state();
+                };
+                entries.put(id, new Entry(id, entry.from(), entry.to(), state));
+            } catch (RuntimeException e) {
+                // A line cut short by a crash
+                LOGGER.warn("Skipping unreadable rename journal line in {}: {}", journalFile, line);
+            }
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Records a rename about to happen, durably.
+     *
+     * @return Its id, for the following records.
+     */
+    synchronized long begin(Path from, Path to) throws IOException {
+        if (!started) {
+            rotate();
+            started = true;
+        }
+        long id = nextId++;
+        append("B\t" + id + "\t" + escape(from.toString()) + "\t" + escape(to.toString()));
+        channel.force(false);
+        return id;
+    }
+
+    synchronized void done(long id) throws IOException {
+        append("D\t" + id);
+    }
+
+    synchronized void abandoned(long id) throws IOException {
+        append("A\t" + id);
+    }
+
+    synchronized void undone(long id) throws IOException {
+        append("U\t" + id);
+    }
+
+    // Replaces the file with one holding only its unsettled begin records, renumbered from 1
+    private void rotate() throws IOException {
+        List<Entry> unsettled = read(journalFile).stream().filter(entry -> entry.state() == State.BEGUN).toList();
+        Path rotated = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        FileChannel next = FileChannel.open(rotated, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            channel.close();
+            channel = next;
+            nextId = 1;
+            for (Entry entry : unsettled) {
+                append("B\t" + nextId++ + "\t" + escape(entry.from().toString()) + "\t" + escape(entry.to().toString()));
+            }
+            channel.force(true);
+            Files.move(rotated, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            next.close();
+            throw e;
+        }
+        if (!unsettled.isEmpty()) {
+            LOGGER.warn("Kept {} unsettled rename(s) in {}", unsettled.size(), journalFile);
+        }
+    }
+
+    Path getJournalFile() {
+        return journalFile;
+    }
+
+    private void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close rename journal {}: {}", journalFile, e.getMessage());
+        }
+    }
+
+    private static String escape(String path) {
+        if (path.indexOf('\\') < 0 && path.indexOf('\t') < 0 && path.indexOf('\n') < 0 && path.indexOf('\r') < 0) {
+            return path;
+        }
+        return path.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('\\') < 0) return field;
+        StringBuilder path = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\' || i + 1 == field.length()) {
+                path.append(c);
+                continue;
+            }
+            char next = field.charAt(++i);
+            path.append(switch (next) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                default -> next;
+            });
+        }
+        return path.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package io.neebu.apps.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wall time of a collection scan, split by stage: walking the folders, reconciling them with the database,
+ * probing, TMDb lookup, persisting, renaming and linking the library view.
+ * <p>
+ * One instance per scan, updated by the scanning thread. Work done in the background (prefetched probes,
+ * verification of guessed fields) is counted when the scan waits for it, under the stage that waits.
+ */
+public class ScanMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanMetrics.class);
+
+    public enum Stage {
+        WALK,
+        RECONCILE,
+        PROBE,
+        LOOKUP,
+        PERSIST,
+        RENAME,
+        VIEW
+    }
+
+    private final String label;
+    private final long[] nanos = new long[Stage.values().length];
+    private final long[] counts = new long[Stage.values().length];
+
+    public ScanMetrics(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Adds the time since a start to a stage, for one item.
+     *
+     * @param stage      The stage.
+     * @param startNanos When the stage started, from {@link System#nanoTime()}.
+     * @return The current time, the start of whatever comes next.
+     */
+    public long record(Stage stage, long startNanos) {
+        return record(stage, startNanos, 1);
+    }
+
+    /**
+     * Adds the time since a start to a stage.
+     *
+     * @param stage      The stage.
+     * @param startNanos When the stage started, from {@link System#nanoTime()}.
+     * @param items      Files or rows handled, 0 to add only time.
+     * @return The current time, the start of whatever comes next.
+     */
+    public long record(Stage stage, long startNanos, long items) {
+        long now = System.nanoTime();
+        nanos[stage.ordinal()] += now - startNanos;
+        counts[stage.ordinal()] += items;
+        return now;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getNanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public long getCount(Stage stage) {
+        return counts[stage.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long stageNanos : nanos) total += stageNanos;
+        return total;
+    }
+
+    public void log() {
+        double totalMillis = getTotalNanos() / 1e6;
+        LOGGER.info(String.format("%s scan stages: %-10s %10s %10s %10s %6s", label, "stage", "items", "ms", "us/item", "%"));
+        for (Stage stage : Stage.values()) {
+            long count = getCount(stage);
+            double millis = getNanos(stage) / 1e6;
+            LOGGER.info(String.format("%s scan stages: %-10s %10d %10.0f %10s %5.1f%%", label, stage, count, millis,
+                    count == 0 ? "-" : String.format("%.1f", millis * 1000 / count), totalMillis == 0 ? 0 : millis * 100 / totalMillis));
+        }
+        LOGGER.info(String.format("%s scan stages: %-10s %10s %10.0f", label, "total", "", totalMillis));
+    }
+}
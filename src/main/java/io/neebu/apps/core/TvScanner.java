@@ -3,13 +3,14 @@ package io.neebu.apps.core;
 import io.neebu.apps.conn.DatabaseApp;
 import io.neebu.apps.conn.TmdbApiClient;
 import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.CollectionRow;
 import io.neebu.apps.core.models.MediaFile;
 import io.neebu.apps.core.models.TmdbEpisode;
 import io.neebu.apps.core.models.TmdbTitle;
+import io.neebu.apps.utils.NamingTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,12 +33,30 @@ public class TvScanner {
      * @param filesList     List of absolute file paths to TV show media files.
      */
     public static void run(AppProperties appProperties, List<String> filesList) {
+        run(appProperties, filesList, new ScanMetrics("TV"));
+    }
+
+    /**
+     * Main entry point for TV scanning and synchronization, timing each stage.
+     *
+     * @param appProperties Application configuration and credentials.
+     * @param filesList     List of absolute file paths to TV show media files.
+     * @param metrics       Stage timings of the scan, logged at the end.
+     */
+    public static void run(AppProperties appProperties, List<String> filesList, ScanMetrics metrics) {
         LOGGER.info("Running TV organiser...");
+        long start = System.nanoTime();
 
         DatabaseApp databaseApp = new DatabaseApp();
         databaseApp.connect(appProperties.getDatabaseUrl(), appProperties.getDatabaseUser(), appProperties.getDatabasePass());
 
-        List<String> dbCollection = databaseApp.getCollection(Constants.SELECT_TV_SQL);
+        List<CollectionRow> dbRows = databaseApp.getCollectionRows(Constants.SELECT_TV_ROWS_SQL);
+        List<String> dbCollection = dbRows.stream().map(CollectionRow::getAbsolutePath).toList();
+        CollectionTitleResolver titleResolver = new CollectionTitleResolver(Constants.CollectionType.TV, dbRows);
+        RenameEngine renameEngine = appProperties.isRenameTv()
+                ? RenameEngine.open(appProperties, Constants.CollectionType.TV) : null;
+        ProbeContext probeContext = ProbeContext.open(appProperties, Constants.CollectionType.TV, renameEngine);
+        NamingTemplate namingTemplate = appProperties.namingTemplate(Constants.CollectionType.TV);
         LOGGER.info("Retrieved {} TV records from database", dbCollection.size());
 
         Set<String> dbSet = new HashSet<>(dbCollection);
@@ -49,28 +68,41 @@ public class TvScanner {
                 .distinct()
                 .collect(Collectors.toMap(file -> file,
                         file -> getCollectionAction(dbSet.contains(file), fileSet.contains(file))));
+        // Deletes and skips first, then new files in probe order (probe.order)
+        List<String> addFiles = probeContext.order(fileActionMap.entrySet().stream()
+                .filter(entry -> entry.getValue().equals("ADD"))
+                .map(Map.Entry::getKey)
+                .toList());
+        List<String> processingOrder = Stream.concat(
+                fileActionMap.entrySet().stream().filter(entry -> !entry.getValue().equals("ADD")).map(Map.Entry::getKey),
+                addFiles.stream()).toList();
+        metrics.record(ScanMetrics.Stage.RECONCILE, start, fileActionMap.size());
 
         Map<String, TmdbTitle> titleCache = new HashMap<>();
         int addCount = 0, deleteCount = 0, skipCount = 0;
 
-        for (Map.Entry<String, String> entry : fileActionMap.entrySet()) {
-            String filePath = entry.getKey();
-            String action = entry.getValue();
+        for (String filePath : processingOrder) {
+            String action = fileActionMap.get(filePath);
 
             try {
                 switch (action) {
                     case "DELETE" -> {
                         LOGGER.info("Deleting DB entry: {}", filePath);
+                        start = System.nanoTime();
                         databaseApp.delete(filePath);
+                        metrics.record(ScanMetrics.Stage.PERSIST, start);
                         deleteCount++;
                     }
                     case "ADD" -> {
                         LOGGER.info("Adding new TV file: {}", filePath);
-                        MediaFile mediaFile = new MediaFile(Paths.get(filePath), Constants.CollectionType.TV);
+                        start = System.nanoTime();
+                        MediaFile mediaFile = probeContext.newMediaFile(Paths.get(filePath), Constants.CollectionType.TV);
+                        start = metrics.record(ScanMetrics.Stage.PROBE, start);
 
                         // Fetch TMDb title info, using cache to avoid redundant API calls
-                        TmdbTitle tmdbTitle = fetchTvTitle(appProperties, mediaFile, titleCache);
+                        TmdbTitle tmdbTitle = fetchTvTitle(appProperties, mediaFile, titleCache, titleResolver);
                         if (tmdbTitle == null) {
+                            metrics.record(ScanMetrics.Stage.LOOKUP, start);
                             LOGGER.warn("Skipping TV file due to missing TMDb info: {}", filePath);
                             skipCount++;
                             continue;
@@ -92,15 +124,15 @@ public class TvScanner {
                         } catch (Exception e) {
                             LOGGER.warn("Could not fetch episode info for {}: {}", filePath, e.getMessage());
                         }
+                        start = metrics.record(ScanMetrics.Stage.LOOKUP, start);
 
-                        databaseApp.insert(mediaFile);
-                        addCount++;
-
-                        // Optionally rename the file if required
-                        mediaFile.applyNamingConvention();
-                        if (mediaFile.isRenameRequired() && appProperties.isRenameTv()) {
-                            LOGGER.info("Renaming TV file: {} → {}", mediaFile.getAbsolutePath(), mediaFile.getNormalizedTitle());
-                            Files.move(mediaFile.getAbsolutePath(), mediaFile.getNormalizedTitle());
+                        // Only files that will be inserted are probed, up to one per worker process ahead
+                        for (MediaFile due : probeContext.probeAhead(mediaFile)) {
+                            if (insert(due, databaseApp, titleResolver, probeContext, renameEngine, namingTemplate, metrics)) {
+                                addCount++;
+                            } else {
+                                skipCount++;
+                            }
                         }
                     }
                     default -> {
@@ -114,20 +146,50 @@ public class TvScanner {
             }
         }
 
+        for (MediaFile due : probeContext.drainProbingAhead()) {
+            if (insert(due, databaseApp, titleResolver, probeContext, renameEngine, namingTemplate, metrics)) {
+                addCount++;
+            } else {
+                skipCount++;
+            }
+        }
+
+        start = System.nanoTime();
         databaseApp.close();
+        // Waits for the background probes and verification
+        probeContext.close();
+        start = metrics.record(ScanMetrics.Stage.PROBE, start, 0);
+        // Waits for the renames, including those of the verified files
+        if (renameEngine != null) {
+            renameEngine.close();
+        }
+        start = metrics.record(ScanMetrics.Stage.RENAME, start, 0);
+        // Links the organized view from the rows as the scan left them
+        if (appProperties.viewPath(Constants.CollectionType.TV) != null) {
+            metrics.record(ScanMetrics.Stage.VIEW, start, LibraryView.materialize(appProperties, Constants.CollectionType.TV));
+        }
         LOGGER.info("TV scan complete. Added={}, Deleted={}, Skipped={}", addCount, deleteCount, skipCount);
+        LOGGER.info("TV titles resolved from the collection={} (TMDb searches saved)", titleResolver.getResolvedCount());
+        metrics.log();
     }
 
     /**
-     * Fetches TMDb title information for a TV show episode, using a cache to minimize API calls.
+     * Fetches TMDb title information for a TV show episode, using a cache and the existing collection
+     * to minimize API calls.
      *
-     * @param props      Application properties for API credentials.
-     * @param mediaFile  The media file for which to fetch TMDb info.
-     * @param titleCache Cache of previously fetched titles.
+     * @param props         Application properties for API credentials.
+     * @param mediaFile     The media file for which to fetch TMDb info.
+     * @param titleCache    Cache of previously fetched titles.
+     * @param titleResolver Titles already in the collection.
      * @return The TMDb title info, or null if not found.
      */
-    private static TmdbTitle fetchTvTitle(AppProperties props, MediaFile mediaFile, Map<String, TmdbTitle> titleCache) {
+    private static TmdbTitle fetchTvTitle(AppProperties props, MediaFile mediaFile, Map<String, TmdbTitle> titleCache,
+                                          CollectionTitleResolver titleResolver) {
         return titleCache.computeIfAbsent(mediaFile.getName(), name -> {
+            TmdbTitle collectionTitle = titleResolver.resolve(mediaFile);
+            if (collectionTitle != null) {
+                return collectionTitle;
+            }
             try {
                 return TmdbApiClient.getTmdbTvId(
                         props.getTmdbApiKey(),
@@ -143,6 +205,38 @@ public class TvScanner {
         });
     }
 
+    /**
+     * Probes a looked-up file, inserts its row, and hands it to the verifier or the rename engine.
+     *
+     * @return Whether the file was added.
+     */
+    private static boolean insert(MediaFile mediaFile, DatabaseApp databaseApp, CollectionTitleResolver titleResolver,
+                                  ProbeContext probeContext, RenameEngine renameEngine, NamingTemplate namingTemplate,
+                                  ScanMetrics metrics) {
+        try {
+            long start = System.nanoTime();
+            mediaFile.probe();
+            start = metrics.record(ScanMetrics.Stage.PROBE, start, 0);
+            databaseApp.insert(mediaFile);
+            titleResolver.register(mediaFile);
+            start = metrics.record(ScanMetrics.Stage.PERSIST, start);
+
+            // Fields guessed from the name are verified, and the file renamed, in the background
+            if (probeContext.verifyLater(mediaFile)) return true;
+
+            mediaFile.applyNamingConvention(namingTemplate);
+            // Renamed in the background, the row pointed at the new name
+            if (renameEngine != null && mediaFile.isRenameRequired()) {
+                renameEngine.submit(mediaFile);
+            }
+            metrics.record(ScanMetrics.Stage.RENAME, start);
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Error handling TV file {}: {}", mediaFile.getAbsolutePath(), e.getMessage(), e);
+            return false;
+        }
+    }
+
     /**
      * Enriches a MediaFile object with TMDb title information.
      *
@@ -10,6 +10,10 @@ public class Constants {
 
     public static final Set<String> VIDEO_EXTENSIONS = Set.of(".mkv", ".mp4", ".avi");
 
+    // default naming.movie.template and naming.tv.template
+    public static final String MOVIE_NAMING_TEMPLATE = "{title}.{year}.{resolution}.{source}.{sourceType}.{hdr}.{videoCodec}.{audioCodec}.{audioChannels}.{{tmdb-{tmdbId}}}-{group|Ayumi}.{ext}";
+    public static final String TV_NAMING_TEMPLATE = "{title}.{episode}.{episodeTitle}.{resolution}.{source}.{sourceType}.{audioCodec}.{audioChannels}.{hdr}.{videoCodec}.{{tmdb-{tmdbId}}}-{group|Ayumi}.{ext}";
+
     // hard stopwords are words which will always be cleaned
     public static final String[] HARD_STOPWORDS  = { "1080", "1080i", "1080p", "2160p", "2160i", "3d", "480i", "480p", "576i", "576p", "360p",
             "10bit", "12bit", "360i", "720", "720i", "720p", "8bit", "ac3", "ac3ld", "ac3d", "ac3md", "amzn", "aoe", "atmos", "avc", "bd5", "bdrip",
@@ -32,10 +36,16 @@ public class Constants {
 
     public static final String SELECT_MOVIES_SQL = "SELECT absolute_path FILE_PATH FROM collection WHERE collection_type = 'MOVIE'";
     public static final String SELECT_TV_SQL = "SELECT absolute_path FILE_PATH FROM collection WHERE collection_type = 'TV'";
+    public static final String SELECT_MOVIE_ROWS_SQL = "SELECT ABSOLUTE_PATH ,NAME ,RELEASE_YEAR ,TMDB_ID ,TMDB_NAME ,TMDB_DESCRIPTION ,RELEASE_DATE FROM collection WHERE collection_type = 'MOVIE'";
+    public static final String SELECT_TV_ROWS_SQL = "SELECT ABSOLUTE_PATH ,NAME ,RELEASE_YEAR ,TMDB_ID ,TMDB_NAME ,TMDB_DESCRIPTION ,RELEASE_DATE FROM collection WHERE collection_type = 'TV'";
+    public static final String SELECT_MOVIE_FILES_SQL = "SELECT ABSOLUTE_PATH ,NAME ,SOURCE_TYPE ,SOURCE ,GROUP_NAME ,TMDB_ID ,RELEASE_YEAR ,RELEASE_DATE ,TMDB_NAME ,SEASON_NUMBER ,EPISODE_NUMBER ,EPISODE_NAME ,RESOLUTION ,HDR_FORMAT ,VIDEO_CODEC ,AUDIO_CODEC ,AUDIO_CHANNELS FROM collection WHERE collection_type = 'MOVIE'";
+    public static final String SELECT_TV_FILES_SQL = "SELECT ABSOLUTE_PATH ,NAME ,SOURCE_TYPE ,SOURCE ,GROUP_NAME ,TMDB_ID ,RELEASE_YEAR ,RELEASE_DATE ,TMDB_NAME ,SEASON_NUMBER ,EPISODE_NUMBER ,EPISODE_NAME ,RESOLUTION ,HDR_FORMAT ,VIDEO_CODEC ,AUDIO_CODEC ,AUDIO_CHANNELS FROM collection WHERE collection_type = 'TV'";
 
     public static final String INSERT_MEDIA_SQL = "INSERT INTO collection ( COLLECTION_TYPE ,ABSOLUTE_PATH ,FILE_NAME ,FILE_EXTENSION ,NAME ,SOURCE_TYPE ,SOURCE ,GROUP_NAME ,TMDB_ID ,RELEASE_YEAR ,FILE_SIZE ,RELEASE_DATE ,TMDB_NAME ,TMDB_DESCRIPTION ,SEASON_NUMBER ,EPISODE_NUMBER ,EPISODE_NAME ,EPISODE_OVERVIEW ,RESOLUTION ,HDR_FORMAT ,VIDEO_CODEC ,AUDIO_CODEC ,AUDIO_CHANNELS )\n" +
             "VALUES ( ? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? ,? )";
     public static final String DELETE_MEDIA_SQL = "DELETE FROM collection WHERE ABSOLUTE_PATH = ?";
+    public static final String UPDATE_PATH_SQL = "UPDATE collection SET ABSOLUTE_PATH = ? ,FILE_NAME = ? ,FILE_EXTENSION = ? WHERE ABSOLUTE_PATH = ?";
+    public static final String UPDATE_TECHNICAL_FIELDS_SQL = "UPDATE collection SET RESOLUTION = ? ,HDR_FORMAT = ? ,VIDEO_CODEC = ? ,AUDIO_CODEC = ? ,AUDIO_CHANNELS = ? WHERE ABSOLUTE_PATH = ?";
 
 
     public enum CollectionType {
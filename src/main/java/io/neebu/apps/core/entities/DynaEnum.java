@@ -35,6 +35,8 @@ public abstract class DynaEnum<E extends DynaEnum<E>> {
   private static Map<Class<? extends DynaEnum<?>>, Map<String, DynaEnum<?>>>   elements      = new LinkedHashMap<>();
   private static Map<Class<? extends DynaEnum<?>>, Set<DynaEnumEventListener>> listeners     = new LinkedHashMap<>();
   private static ReentrantReadWriteLock                                        readWriteLock = new ReentrantReadWriteLock();
+  // copy on write: replaced under the write lock whenever a value is added, read without locking
+  private static volatile Map<Class<?>, Object[]>                              snapshots     = Collections.emptyMap();
   private final String                                                         name;
   protected final int                                                          ordinal;
 
@@ -68,26 +70,36 @@ public abstract class DynaEnum<E extends DynaEnum<E>> {
    * add this element to the list of elements
    */
   protected void addElement() {
+    Class<? extends DynaEnum<?>> dynaEnumClass = getDynaEnumClass();
     readWriteLock.writeLock().lock();
-    Map<String, DynaEnum<?>> typeElements = elements.get(getClass());
+    Map<String, DynaEnum<?>> typeElements = elements.get(dynaEnumClass);
     if (typeElements == null) {
       typeElements = new LinkedHashMap<>();
-      elements.put(getDynaEnumClass(), typeElements);
+      elements.put(dynaEnumClass, typeElements);
     }
     typeElements.put(name, this);
+
+    Object[] snapshot = (Object[]) Array.newInstance(dynaEnumClass, typeElements.size());
+    int i = 0;
+    for (DynaEnum<?> value : typeElements.values()) {
+      snapshot[i++] = value;
+    }
+    Map<Class<?>, Object[]> updatedSnapshots = new HashMap<>(snapshots);
+    updatedSnapshots.put(dynaEnumClass, snapshot);
+    snapshots = updatedSnapshots;
     readWriteLock.writeLock().unlock();
 
-    valueAdded(getClass(), this);
+    valueAdded(dynaEnumClass, this);
   }
 
   /**
-   * Gets the dyna enum class.
+   * Gets the dyna enum class: the declaring class, also for a constant with a class body of its own.
    * 
    * @return the dyna enum class
    */
   @SuppressWarnings("unchecked")
   private Class<? extends DynaEnum<?>> getDynaEnumClass() {
-    return (Class<? extends DynaEnum<?>>) getClass();
+    return (Class<? extends DynaEnum<?>>) getDeclaringClass();
   }
 
   @Override
@@ -193,21 +205,25 @@ public abstract class DynaEnum<E extends DynaEnum<E>> {
    *          the enum type
    * @return the e[]
    */
-  @SuppressWarnings("unchecked")
   public static <E> E[] values(Class<E> enumType) {
-    readWriteLock.readLock().lock();
-    Collection<DynaEnum<?>> values = new ArrayList<>(elements.get(enumType).values());
-    readWriteLock.readLock().unlock();
-
-    int n = values.size();
-    E[] typedValues = (E[]) Array.newInstance(enumType, n);
-    int i = 0;
-    for (DynaEnum<?> value : values) {
-      Array.set(typedValues, i, value);
-      i++;
-    }
+    return snapshot(enumType).clone();
+  }
 
-    return typedValues;
+  /**
+   * The values of an enum type in the order they were added, without locking or copying. The array is replaced when a
+   * value is added and never modified, so it can be compared by identity to tell whether values were added since; callers
+   * must not modify it either.
+   * 
+   * @param <E>
+   *          the element type
+   * @param enumType
+   *          the enum type
+   * @return the shared e[]
+   */
+  @SuppressWarnings("unchecked")
+  protected static <E> E[] snapshot(Class<E> enumType) {
+    Object[] snapshot = snapshots.get(enumType);
+    return snapshot != null ? (E[]) snapshot : (E[]) Array.newInstance(enumType, 0);
   }
 
   protected static void valueAdded(Class<? extends DynaEnum> clazz, DynaEnum<?> value) {
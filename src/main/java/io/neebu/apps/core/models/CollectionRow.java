@@ -0,0 +1,19 @@
+package io.neebu.apps.core.models;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A title-level view of a row in the collection table, see {@link io.neebu.apps.conn.DatabaseApp#getCollectionRows}.
+ */
+@Getter
+@Setter
+public class CollectionRow {
+    private String absolutePath;
+    private String name;
+    private Integer releaseYear;
+    private Integer tmdbId;
+    private String tmdbName;
+    private String tmdbDescription;
+    private String releaseDate;
+}
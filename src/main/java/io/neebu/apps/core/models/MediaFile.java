@@ -3,8 +3,11 @@ package io.neebu.apps.core.models;
 import io.neebu.apps.utils.CollectionUtils;
 import io.neebu.apps.core.entities.Constants;
 import io.neebu.apps.utils.MediaMetadata;
+import io.neebu.apps.utils.NamingTemplate;
 import io.neebu.apps.utils.SourceParser;
-import io.neebu.apps.utils.MediaParser;
+import io.neebu.apps.utils.probe.MediaProber;
+import io.neebu.apps.utils.probe.ProbeResult;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -14,19 +17,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Objects;
 import java.util.regex.Matcher;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static io.neebu.apps.core.entities.Constants.*;
 
+/**
+ * A media file of the collection.
+ * <p>
+ * Fields derived from the file name are computed on construction. The file size and the technical fields, which
+ * need the file itself, are read on first access (or by {@link #probe()}) and kept, so a file skipped before its
+ * row is inserted is never probed.
+ */
 @Getter
-@ToString
+@ToString(doNotUseGetters = true)
 public class MediaFile {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MediaFile.class.getName());
+    // Names are rendered here, by the scan and by the background verifier
+    private static final ThreadLocal<StringBuilder> NAME_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
 
     private Path absolutePath;
     private Constants.CollectionType collectionType;
@@ -65,13 +77,63 @@ public class MediaFile {
     private String videoCodec;
     private String audioCodec;
     private String audioChannels;
+    // 1 when probed, the filename guess's confidence when the fields came from the name
+    private double probeConfidence = 1;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final MediaProber mediaProber;
+    @Getter(AccessLevel.NONE)
+    private boolean probed = false;
 
     private Path normalizedTitle;
     private boolean renameRequired;
 
     public MediaFile(Path absolutePath, Constants.CollectionType collectionType) throws IOException {
+        this(absolutePath, collectionType, MediaProber.uncached());
+    }
+
+    /**
+     * Builds the file from its name; the technical fields are probed with the prober when first needed.
+     */
+    public MediaFile(Path absolutePath, Constants.CollectionType collectionType, MediaProber mediaProber) throws IOException {
+        this(absolutePath, collectionType, mediaProber, null, 1);
+    }
+
+    /**
+     * Builds the file with technical fields obtained elsewhere, e.g. guessed from the name.
+     *
+     * @param probeResult     The technical fields.
+     * @param probeConfidence 1 if probed, lower if guessed.
+     */
+    public MediaFile(Path absolutePath, Constants.CollectionType collectionType, ProbeResult probeResult,
+                     double probeConfidence) throws IOException {
+        this(absolutePath, collectionType, null, probeResult, probeConfidence);
+    }
+
+    /**
+     * Rebuilds the file of a collection row. The fields parsed from the name are those inserted rather than parsed
+     * again, as the file may have been renamed since; the TMDb fields are set afterwards.
+     *
+     * @param probeResult The technical fields of the row.
+     */
+    public MediaFile(Path absolutePath, Constants.CollectionType collectionType, String name, String sourceType,
+                     String source, String groupName, Integer releaseYear, String seasonNumber, String episodeNumber,
+                     ProbeResult probeResult) {
+        this(absolutePath, collectionType, null, probeResult, 1);
+        this.name = name;
+        this.sourceType = sourceType;
+        this.source = source;
+        this.groupName = groupName;
+        this.releaseYear = releaseYear;
+        this.seasonNumber = seasonNumber;
+        this.episodeNumber = episodeNumber;
+    }
+
+    private MediaFile(Path absolutePath, Constants.CollectionType collectionType, MediaProber mediaProber,
+                      ProbeResult probeResult, double probeConfidence) {
 
         this.absolutePath = absolutePath;
+        this.mediaProber = mediaProber;
         this.collectionType = collectionType;
 
         this.folderName = absolutePath.getParent();
@@ -100,93 +162,137 @@ public class MediaFile {
             this.groupName = null;
         }
 
-        this.fileSize = Files.size(absolutePath);
-
         Matcher matcher = TMDB_ID_PATTERN.matcher(baseName);
         if (matcher.find() && matcher.groupCount() >= 2) {
             this.fileTmdbId = matcher.group(2);
             this.hasTmdbId = true;
         }
 
-        MediaParser mediaParser = new MediaParser(absolutePath);
-        this.videoCodec = mediaParser.getVideoCodec();
-        this.resolution = mediaParser.getVideoFormat();
-        this.hdrFormat = mediaParser.getHdrFormat();
-        this.audioCodec = mediaParser.getAudioCodec();
-        this.audioChannels = mediaParser.getAudioChannels();
+        if (probeResult != null) {
+            applyProbeResult(probeResult, probeConfidence);
+        }
+    }
+
+    /**
+     * Probes the file if its technical fields are not known yet.
+     *
+     * @throws IOException if the file cannot be read or probed.
+     */
+    public void probe() throws IOException {
+        if (!probed) {
+            applyProbeResult(mediaProber.probe(absolutePath), 1);
+        }
+    }
+
+    public Long getFileSize() {
+        if (fileSize == null) {
+            try {
+                fileSize = Files.size(absolutePath);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return fileSize;
+    }
+
+    public String getResolution() {
+        ensureProbed();
+        return resolution;
     }
 
+    public String getHdrFormat() {
+        ensureProbed();
+        return hdrFormat;
+    }
+
+    public String getVideoCodec() {
+        ensureProbed();
+        return videoCodec;
+    }
+
+    public String getAudioCodec() {
+        ensureProbed();
+        return audioCodec;
+    }
+
+    public String getAudioChannels() {
+        ensureProbed();
+        return audioChannels;
+    }
+
+    private void ensureProbed() {
+        try {
+            probe();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the technical fields.
+     *
+     * @param probeResult The fields.
+     * @param confidence  1 if probed, lower if guessed.
+     * @return Whether any field changed.
+     */
+    public boolean applyProbeResult(ProbeResult probeResult, double confidence) {
+        boolean changed = !Objects.equals(videoCodec, probeResult.videoCodec())
+                || !Objects.equals(resolution, probeResult.resolution())
+                || !Objects.equals(hdrFormat, probeResult.hdrFormat())
+                || !Objects.equals(audioCodec, probeResult.audioCodec())
+                || !Objects.equals(audioChannels, probeResult.audioChannels());
+        this.videoCodec = probeResult.videoCodec();
+        this.resolution = probeResult.resolution();
+        this.hdrFormat = probeResult.hdrFormat();
+        this.audioCodec = probeResult.audioCodec();
+        this.audioChannels = probeResult.audioChannels();
+        this.probeConfidence = confidence;
+        this.probed = true;
+        return changed;
+    }
+
+    /**
+     * Computes the normalized name with the built-in template of the collection.
+     */
     public void applyNamingConvention() {
+        applyNamingConvention(NamingTemplate.defaultFor(collectionType));
+    }
+
+    /**
+     * Computes the normalized name of the file, and whether it differs from the current one.
+     *
+     * @param namingTemplate The template, see {@link io.neebu.apps.core.AppProperties#namingTemplate}.
+     */
+    public void applyNamingConvention(NamingTemplate namingTemplate) {
+        ensureProbed();
 
-        String cleanTitle = CollectionUtils.cleanString(tmdbName.equalsIgnoreCase("NOT_FOUND") ? name : tmdbName);
-        cleanTitle = cleanTitle.startsWith("Con.") ? cleanTitle.replaceFirst("Con\\.", "Con") : cleanTitle;
-
-        Stream<String> typeSpecificParts = collectionType.equals(Constants.CollectionType.MOVIE)
-                ? Stream.of(releaseYear != null ? releaseYear.toString() : null)
-                : Stream.of("S" + seasonNumber + "E" + episodeNumber, CollectionUtils.cleanString(episodeName));
-
-        Stream<String> codecParts = collectionType.equals(Constants.CollectionType.MOVIE)
-                ? Stream.of(hdrFormat, videoCodec, audioCodec, audioChannels)
-                : Stream.of(audioCodec, audioChannels, hdrFormat, videoCodec);
-
-        this.normalizedTitle = absolutePath.resolveSibling(
-                Stream.of(
-                                Stream.of(cleanTitle),
-                                typeSpecificParts,
-                                Stream.of(resolution, source, sourceType),
-                                codecParts,
-                                Stream.of("{tmdb-" + tmdbId + "}-" + (StringUtils.isBlank(groupName) ? "Ayumi" : groupName), fileExtension)
-                        )
-                        .flatMap(s -> s)
-                        .filter(StringUtils::isNotBlank)
-                        .collect(Collectors.joining("."))
-        ).toAbsolutePath();
-
-
-//        // Helper to clean and dot-replace title
-//        String cleanTitle = CollectionUtils.removeIllegalCharacters(
-//                tmdbName.equalsIgnoreCase("NOT_FOUND") ? name : tmdbName
-//        ).replace(" ", ".");
-//        cleanTitle = cleanTitle.startsWith("Con.") ? cleanTitle.replaceFirst("Con\\.", "Con") : cleanTitle;
-//
-//        List<String> parts = new ArrayList<>();
-//
-//        parts.add(cleanTitle);
-//
-//        if (collectionType.equals(Constants.CollectionType.MOVIE)) {
-//            parts.add(releaseYear != null ? releaseYear.toString() : null);
-//        } else if (collectionType.equals(Constants.CollectionType.TV)) {
-//            parts.add("S" + seasonNumber + "E" + episodeNumber);
-//            parts.add(CollectionUtils.removeIllegalCharacters(episodeName).replace(" ", "."));
-//        }
-//
-//        parts.add(resolution);
-//        parts.add(source);
-//        parts.add(sourceType);
-//
-//        if (collectionType.equals(Constants.CollectionType.MOVIE)) {
-//            parts.add(hdrFormat);
-//            parts.add(videoCodec);
-//            parts.add(audioCodec);
-//            parts.add(audioChannels);
-//            //parts.add("{tmdb-" + tmdbId + "}-" + (StringUtils.isBlank(groupName) ? "Ayumi" : groupName));
-//        } else if (collectionType.equals(Constants.CollectionType.TV)) {
-//            parts.add(audioCodec);
-//            parts.add(audioChannels);
-//            parts.add(hdrFormat);
-//            parts.add(videoCodec); // + "-" + (StringUtils.isBlank(groupName) ? "Ayumi" : groupName));
-//        }
-//
-//        parts.add("{tmdb-" + tmdbId + "}-" + (StringUtils.isBlank(groupName) ? "Ayumi" : groupName));
-//
-//        parts.add(fileExtension);
-//
-//        this.normalizedFilename = absolutePath.resolveSibling(
-//                parts.stream()
-//                        .filter(StringUtils::isNotBlank)
-//                        .collect(Collectors.joining("."))
-//        ).toAbsolutePath();
+        StringBuilder fileName = NAME_BUFFER.get();
+        fileName.setLength(0);
+        namingTemplate.render(fileName, this::namingField);
+        this.normalizedTitle = absolutePath.resolveSibling(fileName.toString()).toAbsolutePath();
 
         this.renameRequired = !this.absolutePath.equals(this.normalizedTitle);
     }
+
+    private String namingField(NamingTemplate.Field field) {
+        return switch (field) {
+            case TITLE -> {
+                String cleanTitle = CollectionUtils.cleanString(tmdbName.equalsIgnoreCase("NOT_FOUND") ? name : tmdbName);
+                yield cleanTitle.startsWith("Con.") ? "Con" + cleanTitle.substring(4) : cleanTitle;
+            }
+            case YEAR -> releaseYear != null ? releaseYear.toString() : null;
+            case EPISODE -> "S" + seasonNumber + "E" + episodeNumber;
+            case EPISODE_TITLE -> CollectionUtils.cleanString(episodeName);
+            case RESOLUTION -> resolution;
+            case SOURCE -> source;
+            case SOURCE_TYPE -> sourceType;
+            case HDR -> hdrFormat;
+            case VIDEO_CODEC -> videoCodec;
+            case AUDIO_CODEC -> audioCodec;
+            case AUDIO_CHANNELS -> audioChannels;
+            case TMDB_ID -> tmdbId != null ? tmdbId.toString() : null;
+            case GROUP -> groupName;
+            case EXTENSION -> fileExtension;
+        };
+    }
 }
@@ -4,6 +4,9 @@ package io.neebu.apps.core.models;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Getter
 @Setter
 public class TmdbTitle {
@@ -11,4 +14,15 @@ public class TmdbTitle {
     private String tmdbName;
     private String releaseDate;
     private String tmdbDescription;
+
+    // Search results carry the original name and language too, the rest only comes with the details calls
+    // (TmdbApiClient.getMovieByTmdbId / getTvShowByTmdbId, one request with append_to_response)
+    private String originalName;
+    private String originalLanguage;
+    private Integer runtime;
+    private List<String> genres = new ArrayList<>();
+    private String imdbId;
+    private String tvdbId;
+    private String certification;
+    private List<String> translations = new ArrayList<>();
 }
@@ -19,6 +19,12 @@ import static io.neebu.apps.core.entities.Constants.*;
 public class CollectionUtils {
     private static final Logger LOGGER = LoggerFactory.getLogger(CollectionUtils.class);
 
+    // OTT platforms as ".ABBR." in list order, the first platform of the list found in a label wins
+    private static final String[] OTT_PLATFORM_NAMES = Constants.OTT_PLATFORMS.split(",");
+    private static final TokenDictionary OTT_LABELS = TokenDictionary.of(Arrays.stream(OTT_PLATFORM_NAMES)
+            .map(platform -> "." + platform + ".")
+            .toArray(String[]::new));
+
     /**
      * Detects the streaming source from a file label based on known OTT platform abbreviations.
      *
@@ -26,8 +32,14 @@ public class CollectionUtils {
      * @return The OTT platform abbreviation if found, otherwise the default value.
      */
     public static String getStreamingSource(String fileLabel) {
-        for (String ottAbbreviation : Constants.OTT_PLATFORMS.split(",")) {
-            if (fileLabel.toUpperCase().contains("." + ottAbbreviation.toUpperCase() + ".")) {
+        if (isAscii(fileLabel)) {
+            int platform = OTT_LABELS.firstIndexIn(fileLabel);
+            return platform >= 0 ? OTT_PLATFORM_NAMES[platform] : WEB_DL_DEFAULT;
+        }
+        // Upper-casing can change the length of other labels ("\uFB06" becomes "ST"), compare them upper-cased
+        String label = fileLabel.toUpperCase(Locale.ROOT);
+        for (String ottAbbreviation : OTT_PLATFORM_NAMES) {
+            if (label.contains("." + ottAbbreviation.toUpperCase(Locale.ROOT) + ".")) {
                 return ottAbbreviation;
             }
         }
@@ -79,6 +91,13 @@ public class CollectionUtils {
         return fileNames;
     }
 
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 128) return false;
+        }
+        return true;
+    }
+
     /**
      * Slightly increases a value by 1% (used for resolution blurring).
      *
@@ -116,7 +135,10 @@ public class CollectionUtils {
      * @return True if any item is found, false otherwise.
      */
     public static boolean stringContainsItemFromList(String inputStr, String[] items) {
-        return Arrays.stream(items).anyMatch(inputStr::contains);
+        for (String item : items) {
+            if (inputStr.contains(item)) return true;
+        }
+        return false;
     }
 
     /**
@@ -159,12 +181,14 @@ public class CollectionUtils {
      * 3. Replace all non-alphanumeric, non-dot, non-dash characters with dot.
      * 4. Collapse multiple dots into one.
      * 5. Trim leading/trailing dots.
+     * ASCII input, which normalization leaves as it is, is cleaned in a single pass with the same result.
      *
      * @param input The input string.
      * @return The cleaned string, or null if input is null.
      */
     public static String cleanString(String input) {
         if (input == null) return null;
+        if (isAscii(input)) return cleanAscii(input);
 
         // Replace & with "and"
         String replaced = input.replace("&", "and");
@@ -186,6 +210,58 @@ public class CollectionUtils {
         return normalized;
     }
 
+    // cleanString in one pass, for input that normalization would not change
+    private static String cleanAscii(String input) {
+        StringBuilder cleaned = new StringBuilder(input.length() + 8);
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '&') {
+                cleaned.append("and");
+            } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-') {
+                cleaned.append(c);
+            } else if (cleaned.isEmpty() || cleaned.charAt(cleaned.length() - 1) != '.') {
+                cleaned.append('.');
+            }
+        }
+        int from = !cleaned.isEmpty() && cleaned.charAt(0) == '.' ? 1 : 0;
+        int to = cleaned.length() > from && cleaned.charAt(cleaned.length() - 1) == '.' ? cleaned.length() - 1 : cleaned.length();
+        return cleaned.substring(from, to);
+    }
+
+    /**
+     * Normalizes a title for lookups, so that "Spider-Man: No Way Home" and "spider man no way home" compare equal.
+     *
+     * Steps:
+     * 1. Replace '&' with 'and'.
+     * 2. Strip accents and lowercase.
+     * 3. Drop apostrophes, so "Schindler's" matches "Schindlers".
+     * 4. Replace every run of other non-alphanumeric characters with a single space, and trim.
+     *
+     * @param title The title.
+     * @return The normalized title, or an empty string if title is null.
+     */
+    public static String normalizeTitle(String title) {
+        if (title == null) return "";
+
+        String stripped = StringUtils.stripAccents(title.replace("&", "and")).toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(stripped.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            if (c == '\'' || c == '\u2019') {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) normalized.append(' ');
+                normalized.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
     /**
      * Removes illegal characters from a string for safe use as a filename.
      *
@@ -6,20 +6,42 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static io.neebu.apps.core.entities.Constants.*;
 
+/**
+ * Title, season, episode and year parsed from a file name.
+ * <p>
+ * The name is scanned by hand rather than with a cascade of regular expressions: each cleaning step (tmdb tags,
+ * extension, resolution, {@link io.neebu.apps.core.entities.Constants#CLEANWORDS}, recording timestamps) is one
+ * pass over the characters, and the tokens are split and classified as year or stopword in a single pass without
+ * creating strings; only the tokens of the title are copied out. The steps reproduce the regular expressions they
+ * replace exactly, including their line terminator and case folding rules, see LegacyMediaMetadata in the test
+ * sources and MediaMetadataTest, which checks both against each other.
+ */
 @Getter
 @ToString
 public class MediaMetadata {
     private static final Logger LOGGER = LoggerFactory.getLogger(MediaMetadata.class);
 
-    private static final Pattern EPISODE_PATTERN = Pattern.compile("^(.+?)[. _-]+(?:[Ss](\\d{1,2})[Ee](\\d{1,4})|(\\d{1,2})x(\\d{1,2})).*\\.[^.]+$");
     private static final Pattern OPTIONAL_TAG_PATTERN = Pattern.compile("\\[(.*?)]");
-    private static final Pattern OTR_PATTERN = Pattern.compile(".*?(_\\d{2}\\.\\d{2}\\.\\d{2}[_ ]+\\d{2}-\\d{2}_).*?");
+
+    // Delimiters of the DELIMITER regex, and the characters StringUtils.split sees in the same string (with '\')
+    private static final boolean[] MATCH_DELIMITERS = asciiSet("[](){} _,.-");
+    private static final boolean[] SPLIT_DELIMITERS = asciiSet("[\\](){} _,.-");
+    private static final String TMDB_TAG_START = "{tmdb-";
+    private static final String[] CLEAN_LITERALS = Arrays.stream(CLEANWORDS)
+            .map(word -> word.replace("\\", ""))
+            .toArray(String[]::new);
+    private static final TokenDictionary HARD = TokenDictionary.of(HARD_STOPWORDS);
+    private static final TokenDictionary SOFT = TokenDictionary.of(SOFT_STOPWORDS);
+
+    private static volatile CurrentYear currentYear = CurrentYear.now();
 
     private final String title;
     private final String season;
@@ -36,99 +58,87 @@ public class MediaMetadata {
         }
 
         LOGGER.trace("Parsing filename: {}", filename);
-        filename = filename.replaceAll("\\{tmdb-\\d+}", "");
-
-        boolean episodeMatchFound = false;
+        StringBuilder name = removeTmdbTags(filename);
 
         // Step 1: Extract season and episode
-        Matcher matcher = EPISODE_PATTERN.matcher(filename);
-        if (matcher.find()) {
-            result[0] = cleanToken(matcher.group(1));
-            result[1] = matcher.group(2) != null ? matcher.group(2) : matcher.group(4); // season
-            result[2] = matcher.group(3) != null ? matcher.group(3) : matcher.group(5); // episode
-            episodeMatchFound = true;
-        }
-
+        boolean episodeMatchFound = matchEpisode(name, result);
 
         // Step 2: Remove file extension and clean tags
-        String fname = filename.replaceFirst("\\.\\w{2,4}$", "");
-        fname = fname.replaceFirst("(?i)(" + DELIMITER + ")\\d{3,4}x\\d{3,4}(" + DELIMITER + "|$)", "$1");
-
-        for (String word : CLEANWORDS) {
-            fname = fname.replaceFirst("(?i)(" + DELIMITER + ")" + word, "$1");
+        removeExtension(name);
+        removeResolution(name);
+        for (String word : CLEAN_LITERALS) {
+            removeCleanWord(name, word);
         }
+        String fname = name.toString();
 
         // Step 3: Extract and clean optionals
-        List<String> optionals = new ArrayList<>();
-        Matcher optionalTagMatcher = OPTIONAL_TAG_PATTERN.matcher(fname);
-        while (optionalTagMatcher.find()) {
-            optionals.addAll(Arrays.asList(StringUtils.split(optionalTagMatcher.group(1), DELIMITER)));
-            fname = fname.replace(optionalTagMatcher.group(), "");
+        List<String> optionals = List.of();
+        if (fname.indexOf('[') >= 0) {
+            optionals = new ArrayList<>();
+            Matcher optionalTagMatcher = OPTIONAL_TAG_PATTERN.matcher(fname);
+            while (optionalTagMatcher.find()) {
+                optionals.addAll(Arrays.asList(StringUtils.split(optionalTagMatcher.group(1), DELIMITER)));
+                fname = fname.replace(optionalTagMatcher.group(), "");
+            }
         }
 
-        Matcher otrMatcher = OTR_PATTERN.matcher(fname);
-        if (otrMatcher.matches() && otrMatcher.start(1) > 10) {
-            fname = fname.substring(0, otrMatcher.start(1));
+        int otrStart = otrTimestampStart(fname);
+        if (otrStart > 10) {
+            fname = fname.substring(0, otrStart);
         }
 
-        String[] tokens = StringUtils.split(fname, DELIMITER);
-        if (tokens.length == 0 && !optionals.isEmpty()) {
-            tokens = optionals.toArray(new String[0]);
+        // Step 4: Split and classify the tokens in one pass
+        int maxYear = currentYear().year() + 5;
+        Tokens tokens = Tokens.split(fname, maxYear);
+        if (tokens.count == 0 && !optionals.isEmpty()) {
+            tokens = Tokens.split(String.join(" ", optionals), maxYear);
         }
 
-        // Step 4: Extract year
+        // Step 5: Extract year
         int yearPosition = -1;
-        int firstStopword = tokens.length;
-        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-
-        for (int i = tokens.length - 1; i > 0; i--) {
-            if (tokens[i].matches("\\d{4}")) {
-                int parsed = Integer.parseInt(tokens[i]);
-                if (parsed >= 1900 && parsed <= currentYear + 5) {
-                    result[3] = tokens[i];
-                    yearPosition = i;
-                    tokens[i] = "";
-                    break;
-                }
+        int firstStopword = tokens.count;
+        for (int i = tokens.count - 1; i > 0; i--) {
+            if (tokens.isYear(i)) {
+                result[3] = tokens.text(i);
+                yearPosition = i;
+                tokens.blank(i);
+                break;
             }
         }
 
         if (result[3].isEmpty()) {
             for (String o : optionals) {
-                if (o.matches("\\d{4}")) {
-                    int parsed = Integer.parseInt(o);
-                    if (parsed >= 1900 && parsed <= currentYear + 5) {
-                        result[3] = o;
-                        break;
-                    }
+                if (isYear(o, 0, o.length(), maxYear)) {
+                    result[3] = o;
+                    break;
                 }
             }
         }
 
-        // Step 5: Remove HARD and SOFT stopwords
-        for (int i = 0; i < tokens.length; i++) {
-            if (isIn(tokens[i], HARD_STOPWORDS)) {
-                tokens[i] = "";
+        // Step 6: Remove HARD and SOFT stopwords
+        for (int i = 0; i < tokens.count; i++) {
+            if (tokens.isHard(i)) {
+                tokens.blank(i);
                 if (i < firstStopword && i >= 2) firstStopword = i;
             }
         }
 
         int stopScanStart = (yearPosition >= 0) ? yearPosition : 0;
-        for (int i = stopScanStart; i < tokens.length; i++) {
-            if (isIn(tokens[i], SOFT_STOPWORDS)) {
-                tokens[i] = "";
+        for (int i = stopScanStart; i < tokens.count; i++) {
+            if (tokens.isSoft(i)) {
+                tokens.blank(i);
                 if (i < firstStopword && i >= 2) firstStopword = i;
             }
         }
 
-        // Step 6: Build clean title
+        // Step 7: Build clean title
         StringBuilder cleanTitle = new StringBuilder();
         int titleEnd = (yearPosition >= 0) ? Math.min(firstStopword, yearPosition) : firstStopword;
 
         for (int i = 0; i < titleEnd; i++) {
-            if (!tokens[i].isEmpty()) {
-                String word = tokens[i];
-                cleanTitle.append(isRomanNumeral(word) ? word.toUpperCase(Locale.ROOT) : word).append(" ");
+            if (!tokens.isBlank(i)) {
+                tokens.appendTitleWord(cleanTitle, i);
+                cleanTitle.append(' ');
             }
         }
 
@@ -147,18 +157,240 @@ public class MediaMetadata {
         this.year = result[3];
     }
 
-    private boolean isIn(String token, String[] list) {
-        for (String word : list) {
-            if (word.equalsIgnoreCase(token)) return true;
+    // replaceAll("\\{tmdb-\\d+}", "")
+    private static StringBuilder removeTmdbTags(String filename) {
+        StringBuilder name = new StringBuilder(filename.length());
+        int n = filename.length();
+        int i = 0;
+        while (i < n) {
+            if (filename.startsWith(TMDB_TAG_START, i)) {
+                int end = digitsEnd(filename, i + TMDB_TAG_START.length());
+                if (end > i + TMDB_TAG_START.length() && end < n && filename.charAt(end) == '}') {
+                    i = end + 1;
+                    continue;
+                }
+            }
+            name.append(filename.charAt(i++));
+        }
+        return name;
+    }
+
+    /*
+     * find() of ^(.+?)[. _-]+(?:[Ss](\d{1,2})[Ee](\d{1,4})|(\d{1,2})x(\d{1,2})).*\.[^.]+$
+     * The tail needs the last dot after the episode, with at least one character behind it and no line terminator
+     * before it. The shortest title wins; the delimiter run after it is taken whole, since a shorter run would
+     * leave a delimiter where the season has to start.
+     */
+    private static boolean matchEpisode(CharSequence s, String[] result) {
+        int n = s.length();
+        int lastDot = lastIndexOf(s, '.');
+        if (lastDot < 0 || lastDot > n - 2) return false;
+        for (int i = 0; i < lastDot; i++) {
+            if (isLineTerminator(s.charAt(i))) return false;
+        }
+
+        for (int t = 1; t < lastDot; t++) {
+            if (!isEpisodeDelimiter(s.charAt(t))) continue;
+            int r = t;
+            while (r < n && isEpisodeDelimiter(s.charAt(r))) r++;
+            if (r >= n) return false;
+
+            char c = s.charAt(r);
+            int seasonStart;
+            int seasonEnd;
+            int episodeEnd;
+            if (c == 'S' || c == 's') {
+                seasonStart = r + 1;
+                seasonEnd = digitsEnd(s, seasonStart);
+                if (seasonEnd == seasonStart || seasonEnd - seasonStart > 2 || seasonEnd >= n
+                        || (s.charAt(seasonEnd) != 'E' && s.charAt(seasonEnd) != 'e')) continue;
+                episodeEnd = Math.min(digitsEnd(s, seasonEnd + 1), seasonEnd + 5);
+            } else if (isDigit(c)) {
+                seasonStart = r;
+                seasonEnd = digitsEnd(s, seasonStart);
+                if (seasonEnd - seasonStart > 2 || seasonEnd >= n || s.charAt(seasonEnd) != 'x') continue;
+                episodeEnd = Math.min(digitsEnd(s, seasonEnd + 1), seasonEnd + 3);
+            } else {
+                continue;
+            }
+            if (episodeEnd == seasonEnd + 1 || episodeEnd > lastDot) continue;
+
+            result[0] = cleanToken(s.subSequence(0, t).toString());
+            result[1] = s.subSequence(seasonStart, seasonEnd).toString();
+            result[2] = s.subSequence(seasonEnd + 1, episodeEnd).toString();
+            return true;
+        }
+        return false;
+    }
+
+    // replaceFirst("\\.\\w{2,4}$", ""), only the last dot can be followed by word characters up to the end
+    private static void removeExtension(StringBuilder s) {
+        int n = s.length();
+        for (int i = Math.max(0, n - 7); i < n; i++) {
+            if (s.charAt(i) != '.') continue;
+            for (int k = 4; k >= 2; k--) {
+                int end = i + 1 + k;
+                if (end <= n && isWordRun(s, i + 1, end) && atEnd(s, end)) {
+                    s.delete(i, end);
+                    return;
+                }
+            }
+        }
+    }
+
+    // replaceFirst("(?i)(" + DELIMITER + ")\\d{3,4}x\\d{3,4}(" + DELIMITER + "|$)", "$1")
+    private static void removeResolution(StringBuilder s) {
+        int n = s.length();
+        for (int i = 0; i < n - 1; i++) {
+            if (!isIn(MATCH_DELIMITERS, s.charAt(i))) continue;
+            int widthEnd = digitsEnd(s, i + 1);
+            int width = widthEnd - i - 1;
+            if (width < 3 || width > 4 || widthEnd >= n || (s.charAt(widthEnd) | 0x20) != 'x') continue;
+            int heightEnd = digitsEnd(s, widthEnd + 1);
+            int height = heightEnd - widthEnd - 1;
+            if (height < 3 || height > 4) continue;
+            if (heightEnd < n && isIn(MATCH_DELIMITERS, s.charAt(heightEnd))) {
+                s.delete(i + 1, heightEnd + 1);
+                return;
+            }
+            if (atEnd(s, heightEnd)) {
+                s.delete(i + 1, heightEnd);
+                return;
+            }
+        }
+    }
+
+    // replaceFirst("(?i)(" + DELIMITER + ")" + word, "$1"), ASCII case folding as in (?i) without UNICODE_CASE
+    private static void removeCleanWord(StringBuilder s, String word) {
+        int last = s.length() - word.length() - 1;
+        for (int i = 0; i <= last; i++) {
+            if (isIn(MATCH_DELIMITERS, s.charAt(i)) && regionMatchesAscii(s, i + 1, word)) {
+                s.delete(i + 1, i + 1 + word.length());
+                return;
+            }
+        }
+    }
+
+    /*
+     * start(1) of matches() against .*?(_\d{2}\.\d{2}\.\d{2}[_ ]+\d{2}-\d{2}_).*?, -1 if it does not match. The
+     * dots around the group cannot cross a line terminator, so a name with one never matches.
+     */
+    private static int otrTimestampStart(String s) {
+        int n = s.length();
+        int candidate = -1;
+        if (s.indexOf('_') < 0) return candidate;
+        for (int i = 0; i < n; i++) {
+            if (isLineTerminator(s.charAt(i))) return -1;
+            if (candidate < 0 && isOtrTimestamp(s, i)) candidate = i;
+        }
+        return candidate;
+    }
+
+    private static boolean isOtrTimestamp(String s, int i) {
+        int n = s.length();
+        if (i + 9 > n || s.charAt(i) != '_'
+                || !isDigitPair(s, i + 1) || s.charAt(i + 3) != '.'
+                || !isDigitPair(s, i + 4) || s.charAt(i + 6) != '.'
+                || !isDigitPair(s, i + 7)) return false;
+        int p = i + 9;
+        int runStart = p;
+        while (p < n && (s.charAt(p) == '_' || s.charAt(p) == ' ')) p++;
+        return p > runStart && p + 6 <= n
+                && isDigitPair(s, p) && s.charAt(p + 2) == '-' && isDigitPair(s, p + 3) && s.charAt(p + 5) == '_';
+    }
+
+    // matches("\\d{4}") and within 1900 to maxYear
+    private static boolean isYear(CharSequence s, int from, int to, int maxYear) {
+        if (to - from != 4) return false;
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return false;
+            value = value * 10 + (c - '0');
+        }
+        return value >= 1900 && value <= maxYear;
+    }
+
+    /*
+     * Where $ matches without MULTILINE: at the end, or before a final line terminator ("\r\n" counting as one).
+     */
+    private static boolean atEnd(CharSequence s, int i) {
+        int n = s.length();
+        if (i == n) return true;
+        if (i == n - 2) return s.charAt(i) == '\r' && s.charAt(i + 1) == '\n';
+        if (i == n - 1) {
+            char c = s.charAt(i);
+            if (c == '\n') return i == 0 || s.charAt(i - 1) != '\r';
+            return isLineTerminator(c);
         }
         return false;
     }
 
-    private String cleanToken(String input) {
+    private static boolean[] asciiSet(String chars) {
+        boolean[] set = new boolean[128];
+        for (int i = 0; i < chars.length(); i++) {
+            set[chars.charAt(i)] = true;
+        }
+        return set;
+    }
+
+    private static boolean isIn(boolean[] asciiSet, char c) {
+        return c < 128 && asciiSet[c];
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isEpisodeDelimiter(char c) {
+        return c == '.' || c == ' ' || c == '_' || c == '-';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDigitPair(CharSequence s, int i) {
+        return isDigit(s.charAt(i)) && isDigit(s.charAt(i + 1));
+    }
+
+    private static boolean isWordRun(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (!(isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_')) return false;
+        }
+        return true;
+    }
+
+    private static int digitsEnd(CharSequence s, int from) {
+        int i = from;
+        while (i < s.length() && isDigit(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static int lastIndexOf(CharSequence s, char c) {
+        for (int i = s.length() - 1; i >= 0; i--) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static boolean regionMatchesAscii(CharSequence s, int from, String word) {
+        for (int j = 0; j < word.length(); j++) {
+            if (toLowerAscii(s.charAt(from + j)) != toLowerAscii(word.charAt(j))) return false;
+        }
+        return true;
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+
+    private static String cleanToken(String input) {
         return input.replace('.', ' ').replace('_', ' ').trim();
     }
 
-    private boolean isRomanNumeral(String word) {
+    private static boolean isRomanNumeral(String word) {
         switch (word.toUpperCase(Locale.ROOT)) {
             case "I": case "II": case "III": case "IV": case "V":
             case "VI": case "VII": case "VIII": case "IX": case "X":
@@ -167,4 +399,117 @@ public class MediaMetadata {
                 return false;
         }
     }
+
+    private static CurrentYear currentYear() {
+        CurrentYear year = currentYear;
+        if (System.currentTimeMillis() >= year.validUntil()) {
+            currentYear = year = CurrentYear.now();
+        }
+        return year;
+    }
+
+    /**
+     * The calendar year in the default time zone, and when it ends.
+     */
+    private record CurrentYear(int year, long validUntil) {
+        static CurrentYear now() {
+            ZonedDateTime now = ZonedDateTime.now();
+            ZonedDateTime next = now.withDayOfYear(1).truncatedTo(ChronoUnit.DAYS).plusYears(1);
+            return new CurrentYear(now.getYear(), next.toInstant().toEpochMilli());
+        }
+    }
+
+    /**
+     * The tokens of StringUtils.split(name, DELIMITER) as offsets into the name, classified while splitting.
+     */
+    private static final class Tokens {
+        private static final byte YEAR = 1;
+        private static final byte HARD_STOPWORD = 2;
+        private static final byte SOFT_STOPWORD = 4;
+        private static final byte BLANK = 8;
+
+        private final String source;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private byte[] flags = new byte[16];
+        private int count;
+
+        private Tokens(String source) {
+            this.source = source;
+        }
+
+        static Tokens split(String name, int maxYear) {
+            Tokens tokens = new Tokens(name);
+            int n = name.length();
+            int start = -1;
+            for (int i = 0; i <= n; i++) {
+                boolean separator = i == n || isIn(SPLIT_DELIMITERS, name.charAt(i));
+                if (!separator) {
+                    if (start < 0) start = i;
+                } else if (start >= 0) {
+                    tokens.add(start, i, maxYear);
+                    start = -1;
+                }
+            }
+            return tokens;
+        }
+
+        private void add(int start, int end, int maxYear) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                flags = Arrays.copyOf(flags, count * 2);
+            }
+            byte flag = 0;
+            if (MediaMetadata.isYear(source, start, end, maxYear)) flag |= YEAR;
+            if (HARD.contains(source, start, end)) flag |= HARD_STOPWORD;
+            if (SOFT.contains(source, start, end)) flag |= SOFT_STOPWORD;
+            starts[count] = start;
+            ends[count] = end;
+            flags[count++] = flag;
+        }
+
+        boolean isYear(int i) {
+            return (flags[i] & YEAR) != 0;
+        }
+
+        // A blanked token is "", which is no stopword
+        boolean isHard(int i) {
+            return (flags[i] & (HARD_STOPWORD | BLANK)) == HARD_STOPWORD;
+        }
+
+        boolean isSoft(int i) {
+            return (flags[i] & (SOFT_STOPWORD | BLANK)) == SOFT_STOPWORD;
+        }
+
+        boolean isBlank(int i) {
+            return (flags[i] & BLANK) != 0;
+        }
+
+        void blank(int i) {
+            flags[i] |= BLANK;
+        }
+
+        String text(int i) {
+            return source.substring(starts[i], ends[i]);
+        }
+
+        // Roman numerals I to X upper-cased; upper-casing never shortens, so only words of up to four chars qualify
+        void appendTitleWord(StringBuilder title, int i) {
+            if (ends[i] - starts[i] <= 4 && mayBeRomanNumeral(i)) {
+                String word = text(i);
+                title.append(isRomanNumeral(word) ? word.toUpperCase(Locale.ROOT) : word);
+            } else {
+                title.append(source, starts[i], ends[i]);
+            }
+        }
+
+        private boolean mayBeRomanNumeral(int i) {
+            for (int j = starts[i]; j < ends[i]; j++) {
+                char upper = Character.toUpperCase(source.charAt(j));
+                if (upper != 'I' && upper != 'V' && upper != 'X') return false;
+            }
+            return true;
+        }
+    }
 }
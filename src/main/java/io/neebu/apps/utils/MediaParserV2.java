@@ -1,9 +1,7 @@
 package io.neebu.apps.utils;
 
-import com.amilesend.mediainfo.MediaInfo;
-import com.amilesend.mediainfo.lib.MediaInfoAccessor;
-import com.amilesend.mediainfo.lib.MediaInfoLibrary;
-import com.amilesend.mediainfo.type.StreamType;
+import io.neebu.apps.utils.probe.MediaInfoPool;
+import io.neebu.apps.utils.probe.MediaProbe;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,32 +17,33 @@ public class MediaParserV2 {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MediaParserV2.class);
 
-    private final MediaInfo mediaInfo;
+    private final MediaProbe probe;
 
     public MediaParserV2(Path filePath) throws IOException {
-        LOGGER.debug("Initializing MediaParser for file: {}", filePath);
-        MediaInfoLibrary library = MediaInfoLibrary.newInstance();
-        MediaInfoAccessor accessor = new MediaInfoAccessor(library);
-        this.mediaInfo = new MediaInfo(accessor).open(filePath.toFile());
-
-        if (this.mediaInfo == null) {
-            LOGGER.error("Failed to open media file: {}", filePath);
-            throw new IOException("Could not open media file: " + filePath);
-        }
+        this(filePath, MediaInfoPool.shared());
+    }
+
+    public MediaParserV2(Path filePath, MediaInfoPool pool) throws IOException {
+        this(MediaProbe.probe(filePath, pool));
         LOGGER.info("Media file loaded successfully: {}", filePath);
     }
 
+    public MediaParserV2(MediaProbe probe) {
+        this.probe = probe;
+    }
+
     public String getVideoCodec() {
-        String codecHint = mediaInfo.get(StreamType.Video, 0, "CodecID/Hint");
+        MediaProbe.VideoStream video = probe.getVideo();
+        String codecHint = video.codecHint();
         String videoCodec = StringUtils.isBlank(codecHint)
-                ? mediaInfo.get(StreamType.Video, 0, "Format")
+                ? video.format()
                 : codecHint;
 
         if (videoCodec != null && videoCodec.toLowerCase(Locale.ROOT).contains("microsoft")) {
-            videoCodec = mediaInfo.get(StreamType.Video, 0, "Format");
+            videoCodec = video.format();
         }
 
-        String codecId = mediaInfo.get(StreamType.General, 0, "CodecID");
+        String codecId = probe.getGeneralCodecId();
 
         if ("XVID".equalsIgnoreCase(codecId)) {
             videoCodec = "XVID";
@@ -55,7 +54,7 @@ public class MediaParserV2 {
         if (videoCodec != null && videoCodec.toLowerCase(Locale.ROOT).contains("mpeg")) {
             try {
                 int version = Integer.parseInt(
-                        mediaInfo.get(StreamType.Video, 0, "Format_Version").replaceAll("\\D", "")
+                        video.formatVersion().replaceAll("\\D", "")
                 );
                 videoCodec = "MPEG" + version;
             } catch (Exception e) {
@@ -67,8 +66,8 @@ public class MediaParserV2 {
 
     public String getVideoFormat() {
         try {
-            int width = Integer.parseInt(mediaInfo.get(StreamType.Video, 0, "Width"));
-            int height = Integer.parseInt(mediaInfo.get(StreamType.Video, 0, "Height"));
+            int width = Integer.parseInt(probe.getVideo().width());
+            int height = Integer.parseInt(probe.getVideo().height());
             if (width == 0 || height == 0) return "";
             return CollectionUtils.detectResolution(width, height);
         } catch (NumberFormatException e) {
@@ -78,20 +77,21 @@ public class MediaParserV2 {
     }
 
     public String getHdrFormat() {
+        MediaProbe.VideoStream video = probe.getVideo();
         String rawHdrData = String.join(" / ",
-                mediaInfo.get(StreamType.Video, 0, "HDR_Format"),
-                mediaInfo.get(StreamType.Video, 0, "HDR_Format_String"),
-                mediaInfo.get(StreamType.Video, 0, "HDR_Format_Compatibility")
+                video.hdrFormat(),
+                video.hdrFormatString(),
+                video.hdrFormatCompatibility()
         );
 
         String hdrFormat = CollectionUtils.detectHdrFormat(rawHdrData);
 
         if (StringUtils.isBlank(hdrFormat)) {
-            String transfer = mediaInfo.get(StreamType.Video, 0, "transfer_characteristics");
+            String transfer = video.transferCharacteristics();
             hdrFormat = CollectionUtils.detectHdrFormat(transfer);
 
             if (StringUtils.isBlank(hdrFormat)) {
-                String color = mediaInfo.get(StreamType.Video, 0, "colour_primaries");
+                String color = video.colourPrimaries();
                 if (color.contains("2100") || transfer.contains("2100") ||
                         "PQ".equalsIgnoreCase(transfer) || "HLG".equalsIgnoreCase(transfer)) {
                     hdrFormat = "HDR";
@@ -104,28 +104,24 @@ public class MediaParserV2 {
     /** Returns a list of audio track info arrays: {codec, channels, language, title} */
     public List<String[]> getAllAudioTracks() {
         List<String[]> audioTracks = new ArrayList<>();
-        int audioStreams = mediaInfo.getStreamCount(StreamType.Audio);
-
-        for (int i = 0; i < audioStreams; i++) {
-            String title = mediaInfo.get(StreamType.Audio, i, "Title");
-            if (title == null) title = "";
+        for (MediaProbe.AudioStream audio : probe.getAudioStreams()) {
+            String title = audio.title();
             String titleUpper = title.toUpperCase(Locale.ROOT);
             if (titleUpper.contains("COMMENT") || titleUpper.contains("COMPATIBILITY")) {
                 continue; // skip comment or compatibility tracks
             }
 
-            String language = mediaInfo.get(StreamType.Audio, i, "Language");
-            if (language == null) language = "";
+            String language = audio.language();
 
-            String formatProfile = mediaInfo.get(StreamType.Audio, i, "Format_Profile");
+            String formatProfile = audio.formatProfile();
             String formatCommercial = CollectionUtils.coalesce(
-                    mediaInfo.get(StreamType.Audio, i, "Format_Commercial"),
-                    mediaInfo.get(StreamType.Audio, i, "Format_Commercial_IfAny"),
-                    mediaInfo.get(StreamType.Audio, i, "Format")
+                    audio.formatCommercial(),
+                    audio.formatCommercialIfAny(),
+                    audio.format()
             );
 
-            String features = mediaInfo.get(StreamType.Audio, i, "Format_AdditionalFeatures");
-            String channels = CollectionUtils.getChannels(mediaInfo.get(StreamType.Audio, i, "Channels"));
+            String features = audio.additionalFeatures();
+            String channels = CollectionUtils.getChannels(audio.channels());
 
             String codec = determineAudioCodec(formatCommercial, formatProfile, features);
 
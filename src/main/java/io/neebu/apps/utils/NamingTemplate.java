@@ -0,0 +1,202 @@
+package io.neebu.apps.utils;
+
+import io.neebu.apps.core.entities.Constants;
+
+import java.util.*;
+
+/**
+ * A file naming template, such as "{title}.{year}.{resolution}.{source}.{{tmdb-{tmdbId}}}-{group|Ayumi}.{ext}",
+ * parsed once into the parts it renders.
+ * <p>
+ * Dots split the template into parts; a part that renders blank is left out together with its dot, so missing
+ * fields leave no gaps. "{field}" is replaced by a field of the file, "{field|text}" by text when the field is
+ * blank, and "{{" and "}}" stand for literal braces.
+ */
+public final class NamingTemplate {
+
+    /**
+     * The fields a template can name.
+     */
+    public enum Field {
+        TITLE("title"),
+        YEAR("year"),
+        EPISODE("episode"),
+        EPISODE_TITLE("episodeTitle"),
+        RESOLUTION("resolution"),
+        SOURCE("source"),
+        SOURCE_TYPE("sourceType"),
+        HDR("hdr"),
+        VIDEO_CODEC("videoCodec"),
+        AUDIO_CODEC("audioCodec"),
+        AUDIO_CHANNELS("audioChannels"),
+        TMDB_ID("tmdbId"),
+        GROUP("group"),
+        EXTENSION("ext");
+
+        private static final Map<String, Field> BY_KEY = new HashMap<>();
+
+        static {
+            for (Field field : values()) {
+                BY_KEY.put(field.key, field);
+            }
+        }
+
+        private final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    /**
+     * Supplies the field values of one file.
+     */
+    @FunctionalInterface
+    public interface Values {
+        /**
+         * @param field The field.
+         * @return Its value, null or blank if the file has none.
+         */
+        String get(Field field);
+    }
+
+    private static final NamingTemplate MOVIE = compile(Constants.MOVIE_NAMING_TEMPLATE);
+    private static final NamingTemplate TV = compile(Constants.TV_NAMING_TEMPLATE);
+
+    // field is null for literal text, otherwise text is the value used when the field is blank
+    private record Segment(Field field, String text) {
+    }
+
+    private final String template;
+    private final Segment[][] parts;
+
+    private NamingTemplate(String template, Segment[][] parts) {
+        this.template = template;
+        this.parts = parts;
+    }
+
+    /**
+     * @param collectionType The collection.
+     * @return The built-in template of the collection.
+     */
+    public static NamingTemplate defaultFor(Constants.CollectionType collectionType) {
+        return collectionType == Constants.CollectionType.MOVIE ? MOVIE : TV;
+    }
+
+    /**
+     * Parses a template.
+     *
+     * @param template The template.
+     * @return The compiled template.
+     * @throws IllegalArgumentException if the template is blank, names an unknown field or has unbalanced braces.
+     */
+    public static NamingTemplate compile(String template) {
+        if (template == null || template.isBlank()) {
+            throw new IllegalArgumentException("Empty naming template");
+        }
+        List<Segment[]> parts = new ArrayList<>();
+        List<Segment> part = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < template.length() && template.charAt(i + 1) == c) {
+                literal.append(c);
+                i++;
+            } else if (c == '{') {
+                int end = template.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed '{' at " + i + " in naming template: " + template);
+                }
+                addLiteral(part, literal);
+                String placeholder = template.substring(i + 1, end);
+                int bar = placeholder.indexOf('|');
+                String key = (bar < 0 ? placeholder : placeholder.substring(0, bar)).trim();
+                Field field = Field.BY_KEY.get(key);
+                if (field == null) {
+                    throw new IllegalArgumentException("Unknown field '" + key + "' in naming template: " + template
+                            + ", known fields: " + Field.BY_KEY.keySet());
+                }
+                part.add(new Segment(field, bar < 0 ? "" : placeholder.substring(bar + 1)));
+                i = end;
+            } else if (c == '}') {
+                throw new IllegalArgumentException("Unmatched '}' at " + i + " in naming template: " + template);
+            } else if (c == '.') {
+                addLiteral(part, literal);
+                addPart(parts, part);
+            } else {
+                literal.append(c);
+            }
+        }
+        addLiteral(part, literal);
+        addPart(parts, part);
+        return new NamingTemplate(template, parts.toArray(Segment[][]::new));
+    }
+
+    /**
+     * Renders the name of a file.
+     *
+     * @param out    Where the name is appended; a buffer reused across files saves its allocation.
+     * @param values The fields of the file.
+     * @return out.
+     */
+    public StringBuilder render(StringBuilder out, Values values) {
+        int start = out.length();
+        for (Segment[] part : parts) {
+            int mark = out.length();
+            if (mark > start) out.append('.');
+            int from = out.length();
+            for (Segment segment : part) {
+                if (segment.field() == null) {
+                    out.append(segment.text());
+                } else {
+                    String value = values.get(segment.field());
+                    out.append(isBlank(value) ? segment.text() : value);
+                }
+            }
+            if (isBlank(out, from)) out.setLength(mark);
+        }
+        return out;
+    }
+
+    /**
+     * @param values The fields of the file.
+     * @return The name of the file.
+     */
+    public String render(Values values) {
+        return render(new StringBuilder(64), values).toString();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private static void addLiteral(List<Segment> part, StringBuilder literal) {
+        if (!literal.isEmpty()) {
+            part.add(new Segment(null, literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    private static void addPart(List<Segment[]> parts, List<Segment> part) {
+        if (!part.isEmpty()) {
+            parts.add(part.toArray(Segment[]::new));
+            part.clear();
+        }
+    }
+
+    private static boolean isBlank(CharSequence text) {
+        return text == null || isBlank(text, 0);
+    }
+
+    private static boolean isBlank(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -17,17 +17,19 @@ package io.neebu.apps.utils;
 
 import io.neebu.apps.core.entities.DynaEnum;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.StringUtils;
 
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.Locale;
-import java.util.regex.Pattern;
+import java.util.*;
 
 /**
  * The enum {@link SourceParser} - to represent all possible media sources
+ * <p>
+ * The tokens of all sources are compiled into one case-insensitive trie together with the order in which sources take
+ * precedence (by name length, then title). A path component is scanned once: from every delimiter the trie is walked and
+ * each token found followed by a delimiter or the end marks its source. The compiled form is cached and only rebuilt when
+ * a value is added to the enum.
  * 
  * @author Manuel Laggner
  */
@@ -38,40 +40,38 @@ public class SourceParser extends DynaEnum<SourceParser> {
   // the well known and XBMC/Kodi compatible sources
   // tokens taken from http://en.wikipedia.org/wiki/Pirated_movie_release_types
   public static final SourceParser BRRIP  = new SourceParser("BRRIP", 0, "BRRip",
-      "(bdrip|brrip|dbrip)");
+      "bdrip", "brrip", "dbrip");
   public static final SourceParser BLURAY      = new SourceParser("BLURAY", 1, "Bluray",
-      "(bluray|blueray|bd25|bd50|bdmv|blu\\-ray)");
+      "bluray", "blueray", "bd25", "bd50", "bdmv", "blu-ray");
   public static final SourceParser TV          = new SourceParser("TV", 4, "TVRip",
-      "(tv|hdtv|pdtv|dsr|dtb|dtt|dttv|dtv|hdtvrip|tvrip|dvbrip|hdrip)");
+      "tv", "hdtv", "pdtv", "dsr", "dtb", "dtt", "dttv", "dtv", "hdtvrip", "tvrip", "dvbrip", "hdrip");
   // other sources
-  public static final SourceParser WEBRIP      = new SourceParser("WEBRIP", 14, "WEBRip", "(webrip)");
-  public static final SourceParser WEB_DL      = new SourceParser("WEB_DL", 15, "WEB-DL", "(web-dl|webdl|web)");
+  public static final SourceParser WEBRIP      = new SourceParser("WEBRIP", 14, "WEBRip", "webrip");
+  public static final SourceParser WEB_DL      = new SourceParser("WEB_DL", 15, "WEB-DL", "web-dl", "webdl", "web");
   public static final SourceParser STREAM      = new SourceParser("STREAM", 16, "Stream");
   // and our fallback
   public static final SourceParser UNKNOWN     = new SourceParser("UNKNOWN", 17, "");
 
-  private static final String                  START_TOKEN = "[\\/\\\\ _,.()\\[\\]-]";
-  private static final String                  END_TOKEN   = "([\\/\\\\ _,.()\\[\\]-]|$)";
+  // the characters of [\/\\ _,.()\[\]-] around a token, by ASCII code
+  private static final boolean[]               DELIMITERS  = new boolean[128];
 
-  private final String                         title;
-  private final Pattern                        pattern;
-  private final Pattern                        patternWoDelim;
+  private static final boolean                 SLASH_ONLY  = FileSystems.getDefault().getSeparator().equals("/");
+
+  private static volatile Classifier           classifier;
 
-  private SourceParser(String enumName, int ordinal, String title) {
-    this(enumName, ordinal, title, "");
+  static {
+    for (char c : "/\\ _,.()[]-".toCharArray()) {
+      DELIMITERS[c] = true;
+    }
   }
 
-  private SourceParser(String enumName, int ordinal, String title, String pattern) {
+  private final String                         title;
+  private final String[]                       tokens;
+
+  private SourceParser(String enumName, int ordinal, String title, String... tokens) {
     super(enumName, ordinal);
     this.title = title;
-    if (StringUtils.isNotBlank(pattern)) {
-      this.pattern = Pattern.compile(START_TOKEN + pattern + END_TOKEN, Pattern.CASE_INSENSITIVE);
-      this.patternWoDelim = Pattern.compile("^" + pattern + "$", Pattern.CASE_INSENSITIVE);
-    }
-    else {
-      this.pattern = null;
-      this.patternWoDelim = null;
-    }
+    this.tokens = tokens;
 
     addElement();
   }
@@ -100,57 +100,214 @@ public class SourceParser extends DynaEnum<SourceParser> {
    * @return the matching MediaSource or UNKNOWN
    */
   public static SourceParser parseMediaSource(String filename) {
-    String fn = filename.toLowerCase(Locale.ROOT);
-    SourceParser[] s = SourceParser.values();
-    Arrays.sort(s, SourceParser.COMP_LENGTH);
-
-    // convert to path, and start parsing from filename upto base directory
-    try {
-      Path p = Paths.get(fn);
-      for (SourceParser sourceParser : s) {
-        Path work = p;
-        while (work != null) {
-          String name = work.getName(work.getNameCount() - 1).toString();
-          if (sourceParser.pattern != null && sourceParser.pattern.matcher(name).find()) {
-            return sourceParser;
-          }
-          if (sourceParser.patternWoDelim != null && sourceParser.patternWoDelim.matcher(name).find()) {
-            return sourceParser;
+    return classifier().classify(filename);
+  }
+
+  /**
+   * returns the MediaSource of every file name, see {@link #parseMediaSource(String)}
+   *
+   * @param filenames
+   *          the file names
+   * @return the matching MediaSource or UNKNOWN of each file name, in the same order
+   */
+  public static List<SourceParser> parseMediaSources(Collection<String> filenames) {
+    Classifier current = classifier();
+    List<SourceParser> sources = new ArrayList<>(filenames.size());
+    for (String filename : filenames) {
+      sources.add(current.classify(filename));
+    }
+    return sources;
+  }
+
+  private static Classifier classifier() {
+    SourceParser[] snapshot = snapshot(SourceParser.class);
+    Classifier current = classifier;
+    if (current == null || current.snapshot != snapshot) {
+      current = new Classifier(snapshot);
+      classifier = current;
+    }
+    return current;
+  }
+
+  /**
+   * All tokens in one trie over ASCII chars, each node holding a bit per source whose token ends there. Bits follow the
+   * precedence order, so the lowest bit set is the source to report.
+   */
+  private static final class Classifier {
+    private static final int ASCII = 128;
+
+    private final SourceParser[] snapshot;
+    private final SourceParser[] order;
+    private int[]                children = new int[ASCII];
+    private long[]               sources  = new long[1];
+    private int                  nodes    = 1;
+
+    Classifier(SourceParser[] snapshot) {
+      if (snapshot.length > Long.SIZE) {
+        throw new IllegalStateException("At most " + Long.SIZE + " media sources are supported");
+      }
+      this.snapshot = snapshot;
+      this.order = snapshot.clone();
+      Arrays.sort(order, COMPARATOR);
+      Arrays.sort(order, COMP_LENGTH);
+      for (int i = 0; i < order.length; i++) {
+        for (String token : order[i].tokens) {
+          add(token.toLowerCase(Locale.ROOT), i);
+        }
+      }
+    }
+
+    private void add(String token, int bit) {
+      int node = 0;
+      for (int i = 0; i < token.length(); i++) {
+        int c = token.charAt(i);
+        if (children[node * ASCII + c] == 0) {
+          if ((nodes + 1) * ASCII > children.length) {
+            children = Arrays.copyOf(children, children.length * 2);
+            sources = Arrays.copyOf(sources, children.length / ASCII);
           }
-          // maybe file? try w/o extension to better match woDelims ;)
-          name = FilenameUtils.getBaseName(name);
-          if (name != null && sourceParser.patternWoDelim != null && sourceParser.patternWoDelim.matcher(name).find()) {
-            return sourceParser;
+          children[node * ASCII + c] = nodes++;
+        }
+        node = children[node * ASCII + c];
+      }
+      sources[node] |= 1L << bit;
+    }
+
+    /*
+     * Same outcome as trying each source in precedence order on every path component, from the file up: a component
+     * matches when the token is found between delimiters, or is the whole component, with or without its extension.
+     */
+    SourceParser classify(String filename) {
+      String fn = filename.toLowerCase(Locale.ROOT);
+      long matched;
+      try {
+        matched = isPlainName(fn) ? matchName(fn) : matchPath(Paths.get(fn));
+      }
+      catch (Exception e) {
+        // does not work? parse as string as before
+        matched = delimited(filename);
+      }
+      if (matched != 0) {
+        return order[Long.numberOfTrailingZeros(matched)];
+      }
+
+      String ext = "";
+      try {
+        ext = FilenameUtils.getExtension(fn);
+      }
+      catch (Exception e) {
+        // eg : on windows (see unit test)
+        int i = filename.lastIndexOf('.');
+        if (i > 0) {
+          ext = filename.substring(i + 1);
+        }
+      }
+      if (ext.equals("strm")) {
+        return STREAM;
+      }
+
+      return UNKNOWN;
+    }
+
+    /*
+     * Walking up from a path with a root ends on a path without a name, and the first source in the order gives up there:
+     * unless it matched on the way, the path cannot be parsed.
+     */
+    private long matchPath(Path p) {
+      long matched = 0;
+      for (Path work = p; work != null; work = work.getParent()) {
+        if (work.getNameCount() == 0) {
+          if ((matched & 1L) != 0) {
+            return 1L;
           }
-          work = work.getParent();
+          throw new IllegalArgumentException("No name at the root of " + p);
         }
+        matched |= matchName(work.getName(work.getNameCount() - 1).toString());
       }
+      return matched;
     }
-    catch (Exception e) {
-      // does not work? parse as string as before
-      for (SourceParser sourceParser : s) {
-        if (sourceParser.pattern != null && sourceParser.pattern.matcher(filename).find()) {
-          return sourceParser;
+
+    private long matchName(String name) {
+      long matched = delimited(name) | whole(name);
+      if (name.indexOf('.') >= 0 || name.indexOf('\\') >= 0) {
+        // maybe file? try w/o extension to better match woDelims ;)
+        String baseName = FilenameUtils.getBaseName(name);
+        if (baseName != null) {
+          matched |= whole(baseName);
         }
       }
+      return matched;
     }
 
-    String ext = "";
-    try {
-      ext = FilenameUtils.getExtension(fn);
+    // with '/' as the only separator, a name without one (or a NUL) is a path of that single name
+    private static boolean isPlainName(String fn) {
+      return SLASH_ONLY && fn.indexOf('/') < 0 && fn.indexOf('\0') < 0;
     }
-    catch (Exception e) {
-      // eg : on windows (see unit test)
-      int i = filename.lastIndexOf('.');
-      if (i > 0) {
-        ext = filename.substring(i + 1);
+
+    // sources with a token after a delimiter and before a delimiter or the end, anywhere in the text
+    private long delimited(CharSequence text) {
+      long matched = 0;
+      for (int i = 0; i < text.length(); i++) {
+        if (isDelimiter(text.charAt(i))) {
+          matched |= walk(text, i + 1, true);
+        }
       }
+      return matched;
     }
-    if (ext.equals("strm")) {
-      return STREAM;
+
+    // sources with a token making up the whole text
+    private long whole(CharSequence text) {
+      return walk(text, 0, false);
     }
 
-    return UNKNOWN;
+    private long walk(CharSequence text, int from, boolean delimiterEnds) {
+      long matched = 0;
+      int node = 0;
+      for (int j = from; ; j++) {
+        if (sources[node] != 0 && ((delimiterEnds && j < text.length() && isDelimiter(text.charAt(j)))
+            || atEnd(text, j))) {
+          matched |= sources[node];
+        }
+        if (j == text.length()) {
+          return matched;
+        }
+        int c = text.charAt(j);
+        if (c >= ASCII) {
+          return matched;
+        }
+        // case insensitive as the patterns were: ASCII letters only
+        if (c >= 'A' && c <= 'Z') {
+          c += 'a' - 'A';
+        }
+        node = children[node * ASCII + c];
+        if (node == 0) {
+          return matched;
+        }
+      }
+    }
+
+    private static boolean isDelimiter(char c) {
+      return c < ASCII && DELIMITERS[c];
+    }
+
+    // where $ matches: at the end, or before a final line terminator
+    private static boolean atEnd(CharSequence text, int i) {
+      int n = text.length();
+      if (i == n) {
+        return true;
+      }
+      if (i == n - 2) {
+        return text.charAt(i) == '\r' && text.charAt(i + 1) == '\n';
+      }
+      if (i == n - 1) {
+        char c = text.charAt(i);
+        if (c == '\n') {
+          return i == 0 || text.charAt(i - 1) != '\r';
+        }
+        return c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+      }
+      return false;
+    }
   }
 
  /**
@@ -0,0 +1,338 @@
+package io.neebu.apps.utils;
+
+import java.util.*;
+
+/**
+ * A fixed list of words compiled for case-insensitive matching, either of whole tokens or of substrings.
+ * <p>
+ * Chars compare as in String.equalsIgnoreCase: equal when their upper case, lower-cased again, is. Whole tokens
+ * are looked up in a perfect hash (hash and displace: each bucket of the first hash gets a seed
+ * under which its words land in free slots), so a lookup hashes the token twice and compares it with one word.
+ * Substrings are found with an Aho-Corasick automaton, one transition per char of the text. Neither creates
+ * objects, so both can run per token of every file name.
+ * <p>
+ * A word keeps the index of its first occurrence in the list, and substring searches report the lowest index
+ * found, so a list ordered by priority keeps its meaning.
+ */
+public final class TokenDictionary {
+
+    private static final int ASCII = 128;
+
+    private final String[] words;
+    private final int maxLength;
+
+    // Perfect hash: bucket seeds, then the slot holding each folded word and its index
+    private final int[] seeds;
+    private final String[] slotKeys;
+    private final int[] slotIndexes;
+
+    // Aho-Corasick: dense transitions for ASCII, sorted edges plus failure links for the rest
+    private final int[] asciiNext;
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    private final int[] lowestMatch;
+
+    private TokenDictionary(String[] words) {
+        this.words = words;
+        String[] keys = new String[words.length];
+        int longest = 0;
+        for (int i = 0; i < words.length; i++) {
+            keys[i] = fold(words[i]);
+            longest = Math.max(longest, keys[i].length());
+        }
+        this.maxLength = longest;
+
+        // Distinct keys in order of first occurrence
+        Map<String, Integer> distinct = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].isEmpty()) throw new IllegalArgumentException("Empty word at index " + i);
+            distinct.putIfAbsent(keys[i], i);
+        }
+
+        int size = Math.max(1, distinct.size());
+        int[] builtSeeds;
+        String[] builtKeys;
+        int[] builtIndexes;
+        for (int tableSize = size + size / 4 + 1; ; tableSize += size / 4 + 1) {
+            builtSeeds = new int[Math.max(1, size / 3)];
+            builtKeys = new String[tableSize];
+            builtIndexes = new int[tableSize];
+            if (placeKeys(distinct, builtSeeds, builtKeys, builtIndexes)) break;
+        }
+        this.seeds = builtSeeds;
+        this.slotKeys = builtKeys;
+        this.slotIndexes = builtIndexes;
+
+        Automaton automaton = new Automaton(distinct);
+        this.asciiNext = automaton.asciiNext;
+        this.edgeChars = automaton.edgeChars;
+        this.edgeTargets = automaton.edgeTargets;
+        this.failure = automaton.failure;
+        this.lowestMatch = automaton.lowestMatch;
+    }
+
+    /**
+     * Compiles a word list.
+     *
+     * @param words The words, in priority order for substring searches.
+     * @return The dictionary.
+     * @throws IllegalArgumentException if a word is empty.
+     */
+    public static TokenDictionary of(String... words) {
+        return new TokenDictionary(words.clone());
+    }
+
+    /**
+     * Compiles a comma-separated word list, such as {@link io.neebu.apps.core.entities.Constants#OTT_PLATFORMS}.
+     *
+     * @param commaSeparated The words separated by commas.
+     * @return The dictionary.
+     */
+    public static TokenDictionary ofCommaSeparated(String commaSeparated) {
+        return new TokenDictionary(commaSeparated.split(","));
+    }
+
+    /**
+     * @param index A word index.
+     * @return The word as it was given.
+     */
+    public String word(int index) {
+        return words[index];
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * Looks up a whole token.
+     *
+     * @param text The text holding the token.
+     * @param from Start of the token.
+     * @param to   End of the token, exclusive.
+     * @return Index of the word equal to the token ignoring case, -1 if none.
+     */
+    public int indexOf(CharSequence text, int from, int to) {
+        int length = to - from;
+        if (length <= 0 || length > maxLength) return -1;
+        int seed = seeds[hash(text, from, to, 0) % seeds.length];
+        int slot = hash(text, from, to, seed) % slotKeys.length;
+        String key = slotKeys[slot];
+        if (key == null || key.length() != length) return -1;
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != fold(text.charAt(from + i))) return -1;
+        }
+        return slotIndexes[slot];
+    }
+
+    /**
+     * @param token The token.
+     * @return Whether a word equals the token ignoring case.
+     */
+    public boolean contains(CharSequence token) {
+        return indexOf(token, 0, token.length()) >= 0;
+    }
+
+    public boolean contains(CharSequence text, int from, int to) {
+        return indexOf(text, from, to) >= 0;
+    }
+
+    /**
+     * Searches a text for the words as substrings.
+     *
+     * @param text The text.
+     * @return The lowest index of the words found in the text ignoring case, -1 if none is.
+     */
+    public int firstIndexIn(CharSequence text) {
+        int lowest = Integer.MAX_VALUE;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            int match = lowestMatch[state];
+            if (match < lowest) {
+                lowest = match;
+                if (lowest == 0) break;
+            }
+        }
+        return lowest == Integer.MAX_VALUE ? -1 : lowest;
+    }
+
+    /**
+     * @param text The text.
+     * @return Whether any of the words occurs in the text ignoring case.
+     */
+    public boolean occursIn(CharSequence text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            if (lowestMatch[state] != Integer.MAX_VALUE) return true;
+        }
+        return false;
+    }
+
+    // The ASCII table already maps upper case letters like lower case ones, other chars are folded first
+    private int next(int state, char c) {
+        if (c < ASCII) return asciiNext[state * ASCII + c];
+        c = fold(c);
+        if (c < ASCII) return asciiNext[state * ASCII + c];
+        while (true) {
+            int edge = Arrays.binarySearch(edgeChars[state], c);
+            if (edge >= 0) return edgeTargets[state][edge];
+            if (state == 0) return 0;
+            state = failure[state];
+        }
+    }
+
+    // Hash and displace: largest buckets first, each gets the first seed that puts all its keys in free slots
+    private static boolean placeKeys(Map<String, Integer> keys, int[] seeds, String[] slotKeys, int[] slotIndexes) {
+        List<List<String>> buckets = new ArrayList<>(seeds.length);
+        for (int b = 0; b < seeds.length; b++) buckets.add(new ArrayList<>());
+        for (String key : keys.keySet()) {
+            buckets.get(hash(key, 0, key.length(), 0) % seeds.length).add(key);
+        }
+        Integer[] order = new Integer[seeds.length];
+        for (int b = 0; b < order.length; b++) order[b] = b;
+        Arrays.sort(order, Comparator.comparingInt((Integer b) -> buckets.get(b).size()).reversed());
+
+        int[] slots = new int[keys.size()];
+        for (int b : order) {
+            List<String> bucket = buckets.get(b);
+            if (bucket.isEmpty()) break;
+            boolean placed = false;
+            for (int seed = 1; seed < 1 << 16 && !placed; seed++) {
+                placed = true;
+                for (int k = 0; k < bucket.size() && placed; k++) {
+                    String key = bucket.get(k);
+                    int slot = hash(key, 0, key.length(), seed) % slotKeys.length;
+                    if (slotKeys[slot] != null) placed = false;
+                    for (int j = 0; j < k && placed; j++) {
+                        if (slots[j] == slot) placed = false;
+                    }
+                    slots[k] = slot;
+                }
+                if (placed) {
+                    seeds[b] = seed;
+                    for (int k = 0; k < bucket.size(); k++) {
+                        slotKeys[slots[k]] = bucket.get(k);
+                        slotIndexes[slots[k]] = keys.get(bucket.get(k));
+                    }
+                }
+            }
+            if (!placed) return false;
+        }
+        return true;
+    }
+
+    // FNV-1a over the folded chars, mixed with the seed and finalized so that nearby seeds spread well
+    private static int hash(CharSequence text, int from, int to, int seed) {
+        int h = 0x811C9DC5 ^ (seed * 0x9E3779B9);
+        for (int i = from; i < to; i++) {
+            h = (h ^ fold(text.charAt(i))) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & 0x7FFFFFFF;
+    }
+
+    static char fold(char c) {
+        if (c < ASCII) return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static String fold(String word) {
+        StringBuilder folded = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            folded.append(fold(word.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Builds the trie of the folded words, then the failure links breadth first, resolving the ASCII transitions
+     * of every state into a dense table on the way. Upper case letters then get the transitions of their lower
+     * case, so ASCII text needs no folding.
+     */
+    private static final class Automaton {
+        private final int[] asciiNext;
+        private final char[][] edgeChars;
+        private final int[][] edgeTargets;
+        private final int[] failure;
+        private final int[] lowestMatch;
+
+        Automaton(Map<String, Integer> keys) {
+            List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+            List<Integer> matches = new ArrayList<>();
+            trie.add(new TreeMap<>());
+            matches.add(Integer.MAX_VALUE);
+            for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+                int state = 0;
+                for (char c : entry.getKey().toCharArray()) {
+                    Integer target = trie.get(state).get(c);
+                    if (target == null) {
+                        target = trie.size();
+                        trie.get(state).put(c, target);
+                        trie.add(new TreeMap<>());
+                        matches.add(Integer.MAX_VALUE);
+                    }
+                    state = target;
+                }
+                matches.set(state, Math.min(matches.get(state), entry.getValue()));
+            }
+
+            int states = trie.size();
+            asciiNext = new int[states * ASCII];
+            edgeChars = new char[states][];
+            edgeTargets = new int[states][];
+            failure = new int[states];
+            lowestMatch = new int[states];
+            for (int s = 0; s < states; s++) {
+                TreeMap<Character, Integer> edges = trie.get(s);
+                edgeChars[s] = new char[edges.size()];
+                edgeTargets[s] = new int[edges.size()];
+                int e = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    edgeChars[s][e] = edge.getKey();
+                    edgeTargets[s][e++] = edge.getValue();
+                }
+                lowestMatch[s] = matches.get(s);
+            }
+
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (Map.Entry<Character, Integer> edge : trie.get(0).entrySet()) {
+                if (edge.getKey() < ASCII) asciiNext[edge.getKey()] = edge.getValue();
+                queue.add(edge.getValue());
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                lowestMatch[state] = Math.min(lowestMatch[state], lowestMatch[failure[state]]);
+                for (int c = 0; c < ASCII; c++) {
+                    asciiNext[state * ASCII + c] = asciiNext[failure[state] * ASCII + c];
+                }
+                for (Map.Entry<Character, Integer> edge : trie.get(state).entrySet()) {
+                    int target = edge.getValue();
+                    failure[target] = fallback(state, edge.getKey());
+                    if (edge.getKey() < ASCII) asciiNext[state * ASCII + edge.getKey()] = target;
+                    queue.add(target);
+                }
+            }
+            for (int s = 0; s < states; s++) {
+                for (char c = 'A'; c <= 'Z'; c++) {
+                    asciiNext[s * ASCII + c] = asciiNext[s * ASCII + c + ('a' - 'A')];
+                }
+            }
+        }
+
+        // Where the failure chain of a state continues on a char
+        private int fallback(int state, char c) {
+            int s = failure[state];
+            while (true) {
+                int edge = Arrays.binarySearch(edgeChars[s], c);
+                if (edge >= 0) return edgeTargets[s][edge];
+                if (s == 0) return 0;
+                s = failure[s];
+            }
+        }
+    }
+}
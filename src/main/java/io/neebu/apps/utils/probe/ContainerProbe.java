@@ -0,0 +1,235 @@
+package io.neebu.apps.utils.probe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Pure-Java probe for Matroska and MP4 files, reading only the container headers instead of going through
+ * the native MediaInfo library.
+ * <p>
+ * The result uses MediaInfo's field vocabulary ("AVC", "AC-3", "PQ", "Dolby Vision", ...), so
+ * {@link io.neebu.apps.utils.MediaParser} derives the same outputs from it. Whatever the headers cannot settle
+ * exactly returns null, and the caller probes with MediaInfo instead: .avi and unknown containers, codecs
+ * whose commercial name is only in the bitstream (E-AC-3 and TrueHD Atmos, the DTS family), and video whose
+ * colour metadata is not in the container.
+ */
+public final class ContainerProbe {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerProbe.class);
+
+    private static final int EBML_MAGIC = 0x1A45DFA3;
+    private static final int FTYP = 0x66747970;
+
+    // ISO 639-2/B codes that differ from the 639-2/T codes known to java.util.Locale
+    private static final Map<String, String> BIBLIOGRAPHIC_CODES = Map.ofEntries(
+            Map.entry("alb", "sq"), Map.entry("arm", "hy"), Map.entry("baq", "eu"), Map.entry("bur", "my"),
+            Map.entry("chi", "zh"), Map.entry("cze", "cs"), Map.entry("dut", "nl"), Map.entry("fre", "fr"),
+            Map.entry("geo", "ka"), Map.entry("ger", "de"), Map.entry("gre", "el"), Map.entry("ice", "is"),
+            Map.entry("mac", "mk"), Map.entry("mao", "mi"), Map.entry("may", "ms"), Map.entry("per", "fa"),
+            Map.entry("rum", "ro"), Map.entry("slo", "sk"), Map.entry("tib", "bo"), Map.entry("wel", "cy")
+    );
+    private static final Map<String, String> ISO3_TO_ISO2 = iso3ToIso2();
+
+    private ContainerProbe() {
+    }
+
+    /**
+     * Reads a file's container headers.
+     *
+     * @param filePath The media file.
+     * @return The snapshot, or null if the file has to be probed with MediaInfo, truncated or malformed headers included.
+     * @throws IOException if the file cannot be read.
+     */
+    public static MediaProbe probe(Path filePath) throws IOException {
+        try (HeaderReader reader = new HeaderReader(filePath)) {
+            if (reader.size() < 12) {
+                return null;
+            }
+            ByteBuffer head = reader.read(0, 8);
+            if (head.getInt(0) == EBML_MAGIC) {
+                return MatroskaHeaderParser.parse(reader);
+            }
+            if (head.getInt(4) == FTYP) {
+                return Mp4HeaderParser.parse(reader);
+            }
+            return null;
+        } catch (EOFException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            LOGGER.debug("Malformed container headers in {}: {}", filePath, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Builds the video stream fields, or returns null when MediaInfo would look further than the headers.
+     *
+     * @param format        MediaInfo format, e.g. "HEVC".
+     * @param formatVersion MediaInfo Format_Version, e.g. "Version 2" for MPEG-2 video, or "".
+     * @param transfer      ISO/IEC 23091-2 transfer characteristics, null if the container has none.
+     * @param primaries     ISO/IEC 23091-2 colour primaries, null if the container has none.
+     * @param mastering     Whether the container carries SMPTE ST 2086 mastering display metadata.
+     * @param doviConfig    Dolby Vision decoder configuration record, null if there is none.
+     */
+    static MediaProbe.VideoStream video(String format, String formatVersion, long width, long height,
+                                        Integer transfer, Integer primaries, boolean mastering, byte[] doviConfig) {
+        // HDR-capable codecs keep their colour description in the bitstream when the container has none
+        boolean hdrCapable = format.equals("HEVC") || format.equals("AV1") || format.equals("VP9");
+        if (hdrCapable && transfer == null && doviConfig == null) {
+            return null;
+        }
+
+        List<String> hdrFormats = new ArrayList<>();
+        List<String> compatibility = new ArrayList<>();
+        if (doviConfig != null) {
+            if (doviConfig.length < 5) return null;
+            hdrFormats.add("Dolby Vision");
+            switch ((doviConfig[4] & 0xFF) >> 4) {
+                case 1 -> compatibility.add("HDR10");
+                case 2 -> compatibility.add("SDR");
+                case 4 -> compatibility.add("HLG");
+                case 6 -> compatibility.add("Blu-ray / HDR10");
+                default -> {
+                }
+            }
+        }
+        if (mastering) {
+            hdrFormats.add("SMPTE ST 2086");
+            compatibility.add("HDR10");
+        }
+        return new MediaProbe.VideoStream("", format, formatVersion, width > 0 ? String.valueOf(width) : "",
+                height > 0 ? String.valueOf(height) : "", String.join(" / ", hdrFormats), "",
+                String.join(" / ", compatibility), transferName(transfer), primariesName(primaries));
+    }
+
+    static MediaProbe.AudioStream audio(String title, String language, String format, String formatProfile,
+                                        String formatCommercial, long channels) {
+        return new MediaProbe.AudioStream(nonNull(title), language(language), format, nonNull(formatProfile), "",
+                nonNull(formatCommercial), "", channels > 0 ? String.valueOf(channels) : "");
+    }
+
+    static MediaProbe.TextStream text(String title, String language, String format) {
+        return new MediaProbe.TextStream(nonNull(title), language(language), format);
+    }
+
+    /**
+     * Channel count from an MPEG-4 AudioSpecificConfig, or -1 if it is not signalled there.
+     */
+    static int aacChannels(byte[] audioSpecificConfig) {
+        if (audioSpecificConfig == null || audioSpecificConfig.length < 2) return -1;
+        BitReader bits = new BitReader(audioSpecificConfig);
+        int objectType = bits.read(5);
+        if (objectType == 31) objectType = 32 + bits.read(6);
+        if (bits.read(4) == 0xF) bits.read(24);
+        int channelConfiguration = bits.read(4);
+        if (objectType == 29) return 2; // parametric stereo, mono core
+        return switch (channelConfiguration) {
+            case 1, 2, 3, 4, 5, 6 -> channelConfiguration;
+            case 7 -> 8;
+            default -> -1;
+        };
+    }
+
+    /**
+     * AC-3 channel count from the acmod and lfeon fields.
+     */
+    static int ac3Channels(int acmod, boolean lfe) {
+        int[] channels = {2, 1, 2, 3, 3, 4, 4, 5};
+        return channels[acmod & 7] + (lfe ? 1 : 0);
+    }
+
+    /**
+     * Converts a container language code to what MediaInfo reports: ISO 639-1 where one exists, "" if undetermined.
+     */
+    static String language(String code) {
+        if (code == null || code.isBlank() || code.equalsIgnoreCase("und")) return "";
+        String lower = code.toLowerCase(Locale.ROOT);
+        if (lower.length() == 3) {
+            String iso2 = BIBLIOGRAPHIC_CODES.getOrDefault(lower, ISO3_TO_ISO2.get(lower));
+            if (iso2 != null) return iso2;
+        }
+        return code;
+    }
+
+    private static String transferName(Integer transfer) {
+        if (transfer == null) return "";
+        return switch (transfer) {
+            case 1 -> "BT.709";
+            case 4 -> "BT.470 System M";
+            case 5 -> "BT.470 System B/G";
+            case 6 -> "BT.601";
+            case 7 -> "SMPTE 240M";
+            case 8 -> "Linear";
+            case 11 -> "xvYCC";
+            case 13 -> "sRGB/sYCC";
+            case 14 -> "BT.2020 (10-bit)";
+            case 15 -> "BT.2020 (12-bit)";
+            case 16 -> "PQ";
+            case 17 -> "SMPTE 428M";
+            case 18 -> "HLG";
+            default -> "";
+        };
+    }
+
+    private static String primariesName(Integer primaries) {
+        if (primaries == null) return "";
+        return switch (primaries) {
+            case 1 -> "BT.709";
+            case 4 -> "BT.470 System M";
+            case 5 -> "BT.601 PAL";
+            case 6 -> "BT.601 NTSC";
+            case 7 -> "SMPTE 240M";
+            case 8 -> "Generic film";
+            case 9 -> "BT.2020";
+            case 10 -> "XYZ";
+            case 11 -> "DCI P3";
+            case 12 -> "Display P3";
+            case 22 -> "EBU Tech 3213";
+            default -> "";
+        };
+    }
+
+    private static Map<String, String> iso3ToIso2() {
+        Map<String, String> codes = new HashMap<>();
+        for (String iso2 : Locale.getISOLanguages()) {
+            try {
+                codes.put(Locale.forLanguageTag(iso2).getISO3Language(), iso2);
+            } catch (MissingResourceException e) {
+                // no three-letter code, nothing to map
+            }
+        }
+        return codes;
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * MSB-first bit reader over a byte array.
+     */
+    static final class BitReader {
+        private final byte[] data;
+        private int bitPosition = 0;
+
+        BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        int read(int count) {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                int bytePosition = bitPosition >> 3;
+                if (bytePosition >= data.length) throw new IndexOutOfBoundsException("Bit reader past end of data");
+                value = (value << 1) | ((data[bytePosition] >> (7 - (bitPosition & 7))) & 1);
+                bitPosition++;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.neebu.apps.utils.probe;
+
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/**
+ * Physical location of a file's first extent on its block device, from the Linux FIEMAP ioctl.
+ * <p>
+ * Called through java.lang.foreign: open(2), ioctl(FS_IOC_FIEMAP) asking for one extent, close(2). File systems
+ * without FIEMAP (network shares, FUSE) and other operating systems report no location.
+ */
+final class ExtentLocator {
+
+    // _IOWR('f', 11, struct fiemap)
+    private static final long FS_IOC_FIEMAP = 0xC020660BL;
+    private static final int O_RDONLY = 0;
+
+    // struct fiemap: fm_start, fm_length, fm_flags, fm_mapped_extents, fm_extent_count, fm_reserved
+    private static final long FIEMAP_HEADER_SIZE = 32;
+    private static final long FM_LENGTH = 8;
+    private static final long FM_MAPPED_EXTENTS = 20;
+    private static final long FM_EXTENT_COUNT = 24;
+    // struct fiemap_extent: fe_logical, fe_physical, fe_length, fe_reserved64[2], fe_flags, fe_reserved[3]
+    private static final long FIEMAP_EXTENT_SIZE = 56;
+    private static final long FE_PHYSICAL = 8;
+
+    private static final MethodHandle OPEN;
+    private static final MethodHandle IOCTL;
+    private static final MethodHandle CLOSE;
+
+    static {
+        MethodHandle open = null, ioctl = null, close = null;
+        if (System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux")) {
+            try {
+                Linker linker = Linker.nativeLinker();
+                SymbolLookup libc = linker.defaultLookup();
+                open = linker.downcallHandle(libc.find("open").orElseThrow(),
+                        FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT), Linker.Option.firstVariadicArg(2));
+                ioctl = linker.downcallHandle(libc.find("ioctl").orElseThrow(),
+                        FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG, ADDRESS), Linker.Option.firstVariadicArg(2));
+                close = linker.downcallHandle(libc.find("close").orElseThrow(), FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+            } catch (RuntimeException e) {
+                // Native access not permitted or libc symbols missing, locations stay unknown
+                open = ioctl = close = null;
+            }
+        }
+        OPEN = open;
+        IOCTL = ioctl;
+        CLOSE = close;
+    }
+
+    private ExtentLocator() {
+    }
+
+    static boolean isAvailable() {
+        return IOCTL != null;
+    }
+
+    /**
+     * @param filePath The file.
+     * @return Byte offset of the file's first extent on its device, or -1 if unknown.
+     */
+    static long firstPhysicalOffset(Path filePath) {
+        if (!isAvailable()) return -1;
+        try (Arena arena = Arena.ofConfined()) {
+            int fd = (int) OPEN.invokeExact(arena.allocateFrom(filePath.toString()), O_RDONLY, 0);
+            if (fd < 0) return -1;
+            try {
+                MemorySegment fiemap = arena.allocate(FIEMAP_HEADER_SIZE + FIEMAP_EXTENT_SIZE, 8);
+                fiemap.set(JAVA_LONG, FM_LENGTH, -1L);
+                fiemap.set(JAVA_INT, FM_EXTENT_COUNT, 1);
+                int result = (int) IOCTL.invokeExact(fd, FS_IOC_FIEMAP, fiemap);
+                if (result != 0 || fiemap.get(JAVA_INT, FM_MAPPED_EXTENTS) < 1) return -1;
+                return fiemap.get(JAVA_LONG, FIEMAP_HEADER_SIZE + FE_PHYSICAL);
+            } finally {
+                int ignored = (int) CLOSE.invokeExact(fd);
+            }
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package io.neebu.apps.utils.probe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Guesses a file's {@link ProbeResult} from its release name, without reading the file.
+ * <p>
+ * Release names usually state resolution, video codec, HDR and audio ("Movie.2019.2160p.UHD.BluRay.DV.HDR10.
+ * TrueHD.Atmos.7.1.x265-GRP"); the guess maps those tokens to the values MediaParser would derive from MediaInfo.
+ * The confidence says how much of the result the name accounted for: each field found adds its weight, a 2160p
+ * name without an HDR token loses some, since HDR is then only assumed absent. The weights add up to 0.95, a
+ * name never counts as much as a probe.
+ */
+public final class FilenameProbe {
+
+    private static final String B = "(?<![a-z0-9])";
+    private static final String E = "(?![a-z0-9])";
+
+    // An explicit height wins over a marketing token wherever it stands ("UHD.Remux.1080p" is 1080p)
+    private static final Pattern RESOLUTION = Pattern.compile(B + "(?:(2160|1440|1080|720|576|480)[pi]|4k|uhd)" + E);
+    private static final Pattern HEVC = Pattern.compile(B + "(x265|h\\.?265|hevc)" + E);
+    private static final Pattern H264 = Pattern.compile(B + "(x264|h\\.?264|avc)" + E);
+    private static final Pattern XVID = Pattern.compile(B + "xvid" + E);
+    private static final Pattern AV1 = Pattern.compile(B + "av1" + E);
+    private static final Pattern VP9 = Pattern.compile(B + "vp9" + E);
+
+    private static final Pattern DOLBY_VISION = Pattern.compile(B + "(dv|dovi|dolby[ .]?vision)" + E);
+    private static final Pattern HLG = Pattern.compile(B + "hlg" + E);
+    private static final Pattern HDR = Pattern.compile(B + "(hdr|hdr10|hdr10\\+|hdr10plus)(?![a-z0-9+])");
+
+    private static final Pattern ATMOS = Pattern.compile(B + "atmos" + E);
+    // Longest names first, "dts-hd.ma" must not be read as plain "dts"
+    private static final String[][] AUDIO_CODECS = {
+            {"truehd", "TrueHD"},
+            {"dts-hd[ .]?ma|dtshd[ .]?ma|dts-hdma", "DTS-HD.MA"},
+            {"dts-x|dtsx", "DTS-X"},
+            {"dts-es", "DTS-ES"},
+            {"ddp|dd\\+|eac3|e-ac-3", "DD+"},
+            {"dts", "DTS"},
+            {"dd|ac3", "DD"},
+            {"aac", "AAC"},
+            {"flac", "FLAC"},
+            {"opus", "Opus"},
+            {"mp3", "MP3"}
+    };
+    private static final List<Pattern> AUDIO_PATTERNS = new ArrayList<>();
+    // Channels right after the codec or Atmos token, "DDP5.1", "AAC 2.0", "Atmos.7.1"
+    private static final Pattern CHANNELS = Pattern.compile(
+            B + "(?:truehd|atmos|ddp|dd\\+|dd|eac3|ac3|aac|flac|opus|dts(?:-hd[ .]?ma|-x|-es)?|dtsx)[ .]?([1-9])[ .]([01])(?!\\d)");
+
+    static {
+        for (String[] codec : AUDIO_CODECS) {
+            // "DD5.1" and "AAC2.0" run the channels into the codec
+            AUDIO_PATTERNS.add(Pattern.compile(B + "(" + codec[0] + ")(?![a-z])"));
+        }
+    }
+
+    private static final double RESOLUTION_WEIGHT = 0.3;
+    private static final double VIDEO_CODEC_WEIGHT = 0.3;
+    private static final double AUDIO_CODEC_WEIGHT = 0.2;
+    private static final double AUDIO_CHANNELS_WEIGHT = 0.15;
+    private static final double UNSTATED_UHD_HDR_PENALTY = 0.1;
+
+    private FilenameProbe() {
+    }
+
+    /**
+     * @param result     The guessed fields, empty (video) or null (audio) where the name says nothing.
+     * @param confidence From 0 (nothing recognised) to 0.95 (every field stated).
+     */
+    public record Guess(ProbeResult result, double confidence) {
+    }
+
+    /**
+     * Guesses the technical fields of a file from its name.
+     *
+     * @param baseName The file name without extension.
+     * @return The guess.
+     */
+    public static Guess guess(String baseName) {
+        String name = baseName.toLowerCase(Locale.ROOT).replace('_', ' ');
+        double confidence = 0;
+
+        String resolution = resolution(name);
+        if (!resolution.isEmpty()) confidence += RESOLUTION_WEIGHT;
+
+        String videoCodec = videoCodec(name);
+        if (!videoCodec.isEmpty()) confidence += VIDEO_CODEC_WEIGHT;
+
+        String hdrFormat = hdrFormat(name);
+        if (resolution.equals("2160p") && hdrFormat.isEmpty()) confidence -= UNSTATED_UHD_HDR_PENALTY;
+
+        String audioCodec = audioCodec(name);
+        String audioChannels = null;
+        if (audioCodec != null) {
+            confidence += AUDIO_CODEC_WEIGHT;
+            if (audioCodec.equals("MP3")) {
+                // MediaParser reports no channels for MP3
+                confidence += AUDIO_CHANNELS_WEIGHT;
+            } else {
+                Matcher channels = CHANNELS.matcher(name);
+                if (channels.find()) {
+                    audioChannels = channels.group(1) + "." + channels.group(2);
+                    confidence += AUDIO_CHANNELS_WEIGHT;
+                }
+            }
+        }
+
+        ProbeResult result = new ProbeResult(videoCodec, resolution, hdrFormat, audioCodec, audioChannels, List.of());
+        return new Guess(result, Math.max(0, confidence));
+    }
+
+    // "1080i" gives "1080p" as well: CollectionUtils.detectResolution only knows the frame size, so a probe never
+    // reports a scan type, and a guess must not store values a probe would not
+    private static String resolution(String name) {
+        Matcher matcher = RESOLUTION.matcher(name);
+        boolean marketing = false;
+        while (matcher.find()) {
+            if (matcher.group(1) != null) return matcher.group(1) + "p";
+            marketing = true;
+        }
+        return marketing ? "2160p" : "";
+    }
+
+    private static String videoCodec(String name) {
+        if (HEVC.matcher(name).find()) return "HEVC";
+        if (H264.matcher(name).find()) return "H264";
+        if (AV1.matcher(name).find()) return "AV1";
+        if (VP9.matcher(name).find()) return "VP9";
+        if (XVID.matcher(name).find()) return "XVID";
+        return "";
+    }
+
+    // Same order and joining as CollectionUtils.detectHdrFormat
+    private static String hdrFormat(String name) {
+        List<String> formats = new ArrayList<>(3);
+        if (DOLBY_VISION.matcher(name).find()) formats.add("DV");
+        if (HLG.matcher(name).find()) formats.add("HLG");
+        if (HDR.matcher(name).find()) formats.add("HDR");
+        return String.join(".", formats);
+    }
+
+    private static String audioCodec(String name) {
+        for (int i = 0; i < AUDIO_CODECS.length; i++) {
+            if (!AUDIO_PATTERNS.get(i).matcher(name).find()) continue;
+            String codec = AUDIO_CODECS[i][1];
+            if ((codec.equals("TrueHD") || codec.equals("DD+")) && ATMOS.matcher(name).find()) {
+                return codec + ".Atmos";
+            }
+            return codec;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,214 @@
+package io.neebu.apps.utils.probe;
+
+import com.amilesend.mediainfo.type.StreamType;
+
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/**
+ * {@link MediaInfoBinding} through java.lang.foreign downcall handles on libmediainfo's C API.
+ * <p>
+ * Uses the narrow-string MediaInfoA_* functions with the library's CharSet set to UTF-8, so strings cross as
+ * UTF-8 on every platform instead of as wchar_t, which differs in width between Windows and the rest. String
+ * arguments live in a confined arena for the duration of the call; returned strings belong to the handle and are
+ * copied out before the next call. 64-bit only (size_t is mapped to a Java long).
+ */
+final class ForeignMediaInfoBinding implements MediaInfoBinding {
+
+    private static final List<String> LIBRARY_NAMES = List.of(
+            "libmediainfo.so.0", "libmediainfo.so", "libmediainfo.0.dylib", "libmediainfo.dylib", "MediaInfo.dll");
+
+    // Stream number for MediaInfoA_Count_Get meaning "count the streams of this kind"
+    private static final long ALL_STREAMS = -1L;
+    private static final int INFO_TEXT = 1;
+    private static final int INFO_NAME = 0;
+
+    private final MethodHandle newHandle;
+    private final MethodHandle delete;
+    private final MethodHandle open;
+    private final MethodHandle close;
+    private final MethodHandle option;
+    private final MethodHandle inform;
+    private final MethodHandle get;
+    private final MethodHandle countGet;
+
+    private ForeignMediaInfoBinding(SymbolLookup library) {
+        Linker linker = Linker.nativeLinker();
+        this.newHandle = downcall(linker, library, "MediaInfoA_New", FunctionDescriptor.of(ADDRESS));
+        this.delete = downcall(linker, library, "MediaInfoA_Delete", FunctionDescriptor.ofVoid(ADDRESS));
+        this.open = downcall(linker, library, "MediaInfoA_Open", FunctionDescriptor.of(JAVA_LONG, ADDRESS, ADDRESS));
+        this.close = downcall(linker, library, "MediaInfoA_Close", FunctionDescriptor.ofVoid(ADDRESS));
+        this.option = downcall(linker, library, "MediaInfoA_Option", FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+        this.inform = downcall(linker, library, "MediaInfoA_Inform", FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_LONG));
+        this.get = downcall(linker, library, "MediaInfoA_Get",
+                FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT, JAVA_LONG, ADDRESS, JAVA_INT, JAVA_INT));
+        this.countGet = downcall(linker, library, "MediaInfoA_Count_Get", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT, JAVA_LONG));
+    }
+
+    /**
+     * Loads libmediainfo from the library path and switches its narrow API to UTF-8.
+     *
+     * @return The binding.
+     * @throws IllegalStateException if the library cannot be found or does not export the C API.
+     */
+    static ForeignMediaInfoBinding load() {
+        if (ADDRESS.byteSize() != 8) {
+            throw new IllegalStateException("The ffm MediaInfo binding requires a 64-bit JVM");
+        }
+        SymbolLookup library = null;
+        for (String name : LIBRARY_NAMES) {
+            try {
+                library = SymbolLookup.libraryLookup(name, Arena.global());
+                break;
+            } catch (IllegalArgumentException e) {
+                // Not under this name, try the next
+            }
+        }
+        if (library == null) {
+            throw new IllegalStateException("libmediainfo not found, tried " + LIBRARY_NAMES);
+        }
+        ForeignMediaInfoBinding binding = new ForeignMediaInfoBinding(library);
+        binding.callOption(MemorySegment.NULL, "CharSet", "UTF-8");
+        return binding;
+    }
+
+    @Override
+    public String name() {
+        return "ffm";
+    }
+
+    @Override
+    public Handle newHandle() {
+        try {
+            MemorySegment handle = (MemorySegment) newHandle.invokeExact();
+            if (handle.equals(MemorySegment.NULL)) {
+                throw new IllegalStateException("MediaInfoA_New returned NULL");
+            }
+            return new ForeignHandle(handle);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String callOption(MemorySegment handle, String name, String value) {
+        try (Arena arena = Arena.ofConfined()) {
+            return string((MemorySegment) option.invokeExact(handle, arena.allocateFrom(name), arena.allocateFrom(value)));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returned pointers are zero-length segments, widen them to read up to the terminator
+    private static String string(MemorySegment pointer) {
+        if (pointer.equals(MemorySegment.NULL)) return "";
+        return pointer.reinterpret(Long.MAX_VALUE).getString(0);
+    }
+
+    private static MethodHandle downcall(Linker linker, SymbolLookup library, String symbol, FunctionDescriptor descriptor) {
+        Optional<MemorySegment> address = library.find(symbol);
+        if (address.isEmpty()) {
+            throw new IllegalStateException("libmediainfo does not export " + symbol);
+        }
+        return linker.downcallHandle(address.get(), descriptor);
+    }
+
+    private final class ForeignHandle implements Handle {
+        private MemorySegment handle;
+
+        private ForeignHandle(MemorySegment handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public boolean open(Path filePath) {
+            try (Arena arena = Arena.ofConfined()) {
+                return (long) open.invokeExact(live(), arena.allocateFrom(filePath.toString())) != 0;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String option(String name, String value) {
+            return callOption(live(), name, value);
+        }
+
+        @Override
+        public String inform() {
+            try {
+                return string((MemorySegment) inform.invokeExact(live(), 0L));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int streamCount(StreamType type) {
+            try {
+                return (int) (long) countGet.invokeExact(live(), type.ordinal(), ALL_STREAMS);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // StreamType declares the kinds in MediaInfo's stream_t order
+        @Override
+        public String get(StreamType type, int streamNumber, String parameter) {
+            try (Arena arena = Arena.ofConfined()) {
+                return string((MemorySegment) get.invokeExact(live(), type.ordinal(), (long) streamNumber,
+                        arena.allocateFrom(parameter), INFO_TEXT, INFO_NAME));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void closeFile() {
+            try {
+                close.invokeExact(live());
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (handle == null) return;
+            try {
+                delete.invokeExact(handle);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            } finally {
+                handle = null;
+            }
+        }
+
+        private MemorySegment live() {
+            if (handle == null) {
+                throw new IllegalStateException("MediaInfo handle already closed");
+            }
+            return handle;
+        }
+    }
+}
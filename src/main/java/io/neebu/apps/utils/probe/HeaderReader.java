@@ -0,0 +1,67 @@
+package io.neebu.apps.utils.probe;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Positional reads over a file, through a small window so that walking neighbouring headers costs one read.
+ * <p>
+ * Only the windows that are actually touched are read, so skipping a multi-gigabyte payload to reach the next
+ * header costs nothing.
+ */
+final class HeaderReader implements AutoCloseable {
+
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private ByteBuffer window = ByteBuffer.allocate(0);
+    private long windowStart = 0;
+
+    HeaderReader(Path filePath) throws IOException {
+        this.channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns a big-endian buffer holding {@code length} bytes at {@code position}.
+     *
+     * @throws EOFException if the range goes past the end of the file.
+     */
+    ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > size) {
+            throw new EOFException("Read of " + length + " bytes at " + position + " past end of file (" + size + ")");
+        }
+        if (position < windowStart || position + length > windowStart + window.limit()) {
+            fill(position, Math.max(length, WINDOW_SIZE));
+        }
+        return window.slice((int) (position - windowStart), length).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private void fill(long position, int length) throws IOException {
+        int toRead = (int) Math.min(length, size - position);
+        // A fresh buffer each time, slices handed out earlier stay valid
+        ByteBuffer buffer = ByteBuffer.allocate(toRead);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+        window = buffer.flip();
+        windowStart = position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
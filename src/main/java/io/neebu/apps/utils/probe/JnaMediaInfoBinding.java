@@ -0,0 +1,88 @@
+package io.neebu.apps.utils.probe;
+
+import com.amilesend.mediainfo.MediaInfo;
+import com.amilesend.mediainfo.lib.MediaInfoAccessor;
+import com.amilesend.mediainfo.lib.MediaInfoLibrary;
+import com.amilesend.mediainfo.type.StreamType;
+
+import java.nio.file.Path;
+
+/**
+ * {@link MediaInfoBinding} through the mediainfo-jna-wrapper.
+ * <p>
+ * The wrapper only closes a file by freeing its native instance, so its handles serve one file each and are not
+ * reused by {@link MediaInfoPool}; the ffm binding closes the file alone and keeps its handles.
+ */
+final class JnaMediaInfoBinding implements MediaInfoBinding {
+
+    private final MediaInfoLibrary library;
+
+    JnaMediaInfoBinding() {
+        this.library = MediaInfoLibrary.newInstance();
+    }
+
+    @Override
+    public String name() {
+        return "jna";
+    }
+
+    @Override
+    public Handle newHandle() {
+        MediaInfoAccessor accessor = new MediaInfoAccessor(library);
+        return new JnaHandle(accessor, new MediaInfo(accessor));
+    }
+
+    private static final class JnaHandle implements Handle {
+        private final MediaInfoAccessor accessor;
+        private final MediaInfo mediaInfo;
+        private boolean freed = false;
+
+        private JnaHandle(MediaInfoAccessor accessor, MediaInfo mediaInfo) {
+            this.accessor = accessor;
+            this.mediaInfo = mediaInfo;
+        }
+
+        @Override
+        public boolean open(Path filePath) {
+            return mediaInfo.open(filePath.toFile()) != null;
+        }
+
+        @Override
+        public String option(String option, String value) {
+            return accessor.option(option, value);
+        }
+
+        @Override
+        public String inform() {
+            return accessor.inform();
+        }
+
+        @Override
+        public int streamCount(StreamType type) {
+            return mediaInfo.getStreamCount(type);
+        }
+
+        @Override
+        public String get(StreamType type, int streamNumber, String parameter) {
+            return mediaInfo.get(type, streamNumber, parameter);
+        }
+
+        // The wrapper frees the instance when its file is closed
+        @Override
+        public void closeFile() {
+            close();
+        }
+
+        @Override
+        public boolean isReusable() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            if (freed) return;
+            freed = true;
+            mediaInfo.close();
+        }
+    }
+}
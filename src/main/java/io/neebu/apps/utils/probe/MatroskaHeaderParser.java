@@ -0,0 +1,402 @@
+package io.neebu.apps.utils.probe;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the Tracks element of a Matroska/WebM file into a {@link MediaProbe}.
+ * <p>
+ * Only the EBML header, the Segment's top-level element headers, the SeekHead and the Tracks element are read;
+ * the Tracks element is located through the SeekHead when clusters come first.
+ */
+final class MatroskaHeaderParser {
+
+    private static final int SEGMENT = 0x18538067;
+    private static final int SEEK_HEAD = 0x114D9B74;
+    private static final int SEEK = 0x4DBB;
+    private static final int SEEK_ID = 0x53AB;
+    private static final int SEEK_POSITION = 0x53AC;
+    private static final int TRACKS = 0x1654AE6B;
+    private static final int CLUSTER = 0x1F43B675;
+    private static final int DOC_TYPE = 0x4282;
+
+    private static final int TRACK_ENTRY = 0xAE;
+    private static final int TRACK_TYPE = 0x83;
+    private static final int CODEC_ID = 0x86;
+    private static final int CODEC_PRIVATE = 0x63A2;
+    private static final int NAME = 0x536E;
+    private static final int LANGUAGE = 0x22B59C;
+    private static final int LANGUAGE_BCP47 = 0x22B59D;
+    private static final int VIDEO = 0xE0;
+    private static final int PIXEL_WIDTH = 0xB0;
+    private static final int PIXEL_HEIGHT = 0xBA;
+    private static final int COLOUR = 0x55B0;
+    private static final int TRANSFER_CHARACTERISTICS = 0x55BA;
+    private static final int PRIMARIES = 0x55BB;
+    private static final int MASTERING_METADATA = 0x55D0;
+    private static final int AUDIO = 0xE1;
+    private static final int CHANNELS = 0x9F;
+    private static final int BLOCK_ADDITION_MAPPING = 0x41E4;
+    private static final int BLOCK_ADD_ID_TYPE = 0x41E7;
+    private static final int BLOCK_ADD_ID_EXTRA_DATA = 0x41ED;
+
+    private static final int TYPE_VIDEO = 1;
+    private static final int TYPE_AUDIO = 2;
+    private static final int TYPE_SUBTITLE = 17;
+
+    private static final long DVCC = 0x64766343L; // "dvcC"
+    private static final long DVVC = 0x64767643L; // "dvvC"
+
+    // The elements read whole (EBML header, SeekHead, Tracks) are a few KiB, anything this large is not worth reading
+    private static final long MAX_HEADER_SIZE = 4 * 1024 * 1024;
+    private static final long UNKNOWN_SIZE = -1;
+
+    private MatroskaHeaderParser() {
+    }
+
+    private static final class Track {
+        int type;
+        String codecId = "";
+        byte[] codecPrivate;
+        String name = "";
+        String language = "eng";
+        String languageBcp47;
+        long width;
+        long height;
+        Integer transfer;
+        Integer primaries;
+        boolean mastering;
+        byte[] doviConfig;
+        long channels = 1;
+    }
+
+    // Header of an element: id, payload size (UNKNOWN_SIZE if unknown), offset of the payload
+    private record Element(int id, long size, long dataStart) {
+        long end() {
+            return dataStart + size;
+        }
+    }
+
+    static MediaProbe parse(HeaderReader reader) throws IOException {
+        Element ebml = readElement(reader, 0);
+        String docType = "";
+        for (Element child : children(readPayload(reader, ebml), ebml.dataStart())) {
+            if (child.id() == DOC_TYPE) docType = readString(reader, child);
+        }
+        if (!docType.equals("matroska") && !docType.equals("webm")) return null;
+
+        Element segment = readElement(reader, ebml.end());
+        if (segment.id() != SEGMENT) return null;
+        long segmentEnd = segment.size() == UNKNOWN_SIZE ? reader.size() : Math.min(segment.end(), reader.size());
+
+        Element tracks = findTracks(reader, segment.dataStart(), segmentEnd);
+        if (tracks == null || tracks.size() > MAX_HEADER_SIZE) return null;
+
+        ByteBuffer data = readPayload(reader, tracks);
+        List<Track> entries = new ArrayList<>();
+        for (Element entry : children(data, tracks.dataStart())) {
+            if (entry.id() == TRACK_ENTRY) {
+                entries.add(readTrack(slice(data, tracks.dataStart(), entry), entry.dataStart()));
+            }
+        }
+        return toProbe(entries);
+    }
+
+    // Walks the top-level elements up to Tracks, jumping through the SeekHead once clusters start
+    private static Element findTracks(HeaderReader reader, long segmentDataStart, long segmentEnd) throws IOException {
+        long position = segmentDataStart;
+        long seekTracks = -1;
+        while (position < segmentEnd) {
+            Element element = readElement(reader, position);
+            if (element.id() == TRACKS) {
+                return element;
+            }
+            if (element.id() == SEEK_HEAD && element.size() != UNKNOWN_SIZE && element.size() <= MAX_HEADER_SIZE) {
+                long found = readSeekHead(readPayload(reader, element), element.dataStart());
+                if (found >= 0) seekTracks = segmentDataStart + found;
+            }
+            if (element.id() == CLUSTER || element.size() == UNKNOWN_SIZE) {
+                break;
+            }
+            position = element.end();
+        }
+        if (seekTracks < 0) {
+            return null;
+        }
+        Element element = readElement(reader, seekTracks);
+        return element.id() == TRACKS ? element : null;
+    }
+
+    // Returns the position of the Tracks element relative to the Segment payload, or -1
+    private static long readSeekHead(ByteBuffer data, long dataStart) {
+        for (Element seek : children(data, dataStart)) {
+            if (seek.id() != SEEK) continue;
+            long id = -1;
+            long position = -1;
+            ByteBuffer seekData = slice(data, dataStart, seek);
+            for (Element field : children(seekData, seek.dataStart())) {
+                ByteBuffer value = slice(seekData, seek.dataStart(), field);
+                if (field.id() == SEEK_ID) id = readUnsigned(value);
+                if (field.id() == SEEK_POSITION) position = readUnsigned(value);
+            }
+            if (id == TRACKS && position >= 0) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static Track readTrack(ByteBuffer data, long dataStart) {
+        Track track = new Track();
+        for (Element field : children(data, dataStart)) {
+            ByteBuffer value = slice(data, dataStart, field);
+            switch (field.id()) {
+                case TRACK_TYPE -> track.type = (int) readUnsigned(value);
+                case CODEC_ID -> track.codecId = readString(value);
+                case CODEC_PRIVATE -> track.codecPrivate = readBytes(value);
+                case NAME -> track.name = readString(value);
+                case LANGUAGE -> track.language = readString(value);
+                case LANGUAGE_BCP47 -> track.languageBcp47 = readString(value);
+                case VIDEO -> readVideo(value, field.dataStart(), track);
+                case AUDIO -> readAudio(value, field.dataStart(), track);
+                case BLOCK_ADDITION_MAPPING -> readBlockAdditionMapping(value, field.dataStart(), track);
+                default -> {
+                }
+            }
+        }
+        return track;
+    }
+
+    private static void readVideo(ByteBuffer data, long dataStart, Track track) {
+        for (Element field : children(data, dataStart)) {
+            ByteBuffer value = slice(data, dataStart, field);
+            switch (field.id()) {
+                case PIXEL_WIDTH -> track.width = readUnsigned(value);
+                case PIXEL_HEIGHT -> track.height = readUnsigned(value);
+                case COLOUR -> readColour(value, field.dataStart(), track);
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static void readColour(ByteBuffer data, long dataStart, Track track) {
+        for (Element field : children(data, dataStart)) {
+            ByteBuffer value = slice(data, dataStart, field);
+            switch (field.id()) {
+                case TRANSFER_CHARACTERISTICS -> track.transfer = (int) readUnsigned(value);
+                case PRIMARIES -> track.primaries = (int) readUnsigned(value);
+                case MASTERING_METADATA -> track.mastering = true;
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static void readAudio(ByteBuffer data, long dataStart, Track track) {
+        for (Element field : children(data, dataStart)) {
+            if (field.id() == CHANNELS) track.channels = readUnsigned(slice(data, dataStart, field));
+        }
+    }
+
+    private static void readBlockAdditionMapping(ByteBuffer data, long dataStart, Track track) {
+        long type = -1;
+        byte[] extraData = null;
+        for (Element field : children(data, dataStart)) {
+            ByteBuffer value = slice(data, dataStart, field);
+            if (field.id() == BLOCK_ADD_ID_TYPE) type = readUnsigned(value);
+            if (field.id() == BLOCK_ADD_ID_EXTRA_DATA) extraData = readBytes(value);
+        }
+        if ((type == DVCC || type == DVVC) && extraData != null) {
+            track.doviConfig = extraData;
+        }
+    }
+
+    private static MediaProbe toProbe(List<Track> tracks) {
+        List<MediaProbe.VideoStream> video = new ArrayList<>();
+        List<MediaProbe.AudioStream> audio = new ArrayList<>();
+        List<MediaProbe.TextStream> text = new ArrayList<>();
+        for (Track track : tracks) {
+            String language = track.languageBcp47 != null ? track.languageBcp47 : track.language;
+            switch (track.type) {
+                case TYPE_VIDEO -> {
+                    MediaProbe.VideoStream stream = toVideo(track);
+                    if (stream == null) return null;
+                    video.add(stream);
+                }
+                case TYPE_AUDIO -> {
+                    MediaProbe.AudioStream stream = toAudio(track, language);
+                    if (stream == null) return null;
+                    audio.add(stream);
+                }
+                case TYPE_SUBTITLE -> text.add(ContainerProbe.text(track.name, language, subtitleFormat(track.codecId)));
+                default -> {
+                }
+            }
+        }
+        return new MediaProbe("", video, audio, text);
+    }
+
+    private static MediaProbe.VideoStream toVideo(Track track) {
+        String format;
+        String formatVersion = "";
+        switch (track.codecId) {
+            case "V_MPEG4/ISO/AVC" -> format = "AVC";
+            case "V_MPEGH/ISO/HEVC" -> format = "HEVC";
+            case "V_AV1" -> format = "AV1";
+            case "V_VP9" -> format = "VP9";
+            case "V_VP8" -> format = "VP8";
+            case "V_MPEG1" -> {
+                format = "MPEG Video";
+                formatVersion = "Version 1";
+            }
+            case "V_MPEG2" -> {
+                format = "MPEG Video";
+                formatVersion = "Version 2";
+            }
+            default -> {
+                return null;
+            }
+        }
+        // Without a Dolby Vision mapping MediaInfo may still find DV RPUs in an HEVC PQ bitstream
+        if (format.equals("HEVC") && track.doviConfig == null && track.transfer != null && track.transfer == 16) {
+            return null;
+        }
+        return ContainerProbe.video(format, formatVersion, track.width, track.height, track.transfer, track.primaries,
+                track.mastering, track.doviConfig);
+    }
+
+    private static MediaProbe.AudioStream toAudio(Track track, String language) {
+        String codecId = track.codecId;
+        if (codecId.equals("A_AC3") || codecId.startsWith("A_AC3/")) {
+            return ContainerProbe.audio(track.name, language, "AC-3", "", "Dolby Digital", track.channels);
+        }
+        if (codecId.startsWith("A_AAC")) {
+            int channels = ContainerProbe.aacChannels(track.codecPrivate);
+            return ContainerProbe.audio(track.name, language, "AAC", "", "", channels > 0 ? channels : track.channels);
+        }
+        return switch (codecId) {
+            case "A_MPEG/L3" -> ContainerProbe.audio(track.name, language, "MPEG Audio", "Layer 3", "", track.channels);
+            case "A_MPEG/L2" -> ContainerProbe.audio(track.name, language, "MPEG Audio", "Layer 2", "", track.channels);
+            case "A_FLAC" -> ContainerProbe.audio(track.name, language, "FLAC", "", "", track.channels);
+            case "A_OPUS" -> ContainerProbe.audio(track.name, language, "Opus", "", "", track.channels);
+            case "A_VORBIS" -> ContainerProbe.audio(track.name, language, "Vorbis", "", "", track.channels);
+            case "A_PCM/INT/LIT", "A_PCM/INT/BIG", "A_PCM/FLOAT/IEEE" ->
+                    ContainerProbe.audio(track.name, language, "PCM", "", "", track.channels);
+            // A_EAC3, A_TRUEHD, A_DTS*: Atmos and DTS-HD flavours are only in the bitstream
+            default -> null;
+        };
+    }
+
+    private static String subtitleFormat(String codecId) {
+        return switch (codecId) {
+            case "S_TEXT/UTF8" -> "UTF-8";
+            case "S_TEXT/ASS", "S_ASS" -> "ASS";
+            case "S_TEXT/SSA", "S_SSA" -> "SSA";
+            case "S_TEXT/WEBVTT" -> "WebVTT";
+            case "S_HDMV/PGS" -> "PGS";
+            case "S_VOBSUB" -> "VobSub";
+            default -> codecId;
+        };
+    }
+
+    // ---- EBML primitives ----
+
+    private static Element readElement(HeaderReader reader, long position) throws IOException {
+        if (position >= reader.size()) {
+            throw new EOFException("EBML element at " + position + " past end of file (" + reader.size() + ")");
+        }
+        ByteBuffer head = reader.read(position, (int) Math.min(12, reader.size() - position));
+        int idLength = vintLength(head.get(0));
+        int id = 0;
+        for (int i = 0; i < idLength; i++) id = (id << 8) | (head.get(i) & 0xFF);
+        int sizeLength = vintLength(head.get(idLength));
+        long size = readVintValue(head, idLength, sizeLength);
+        return new Element(id, size, position + idLength + sizeLength);
+    }
+
+    // Reads a whole element, whose size has to be known and small
+    private static ByteBuffer readPayload(HeaderReader reader, Element element) throws IOException {
+        if (element.size() == UNKNOWN_SIZE || element.size() > MAX_HEADER_SIZE) {
+            throw new IllegalArgumentException("EBML element 0x" + Integer.toHexString(element.id()) + " has "
+                    + (element.size() == UNKNOWN_SIZE ? "an unknown" : "a too large") + " size");
+        }
+        return reader.read(element.dataStart(), (int) element.size());
+    }
+
+    /**
+     * Lists the child elements of a fully read master element.
+     *
+     * @param data      The master element's payload.
+     * @param dataStart File offset of the payload, child offsets are absolute.
+     */
+    private static List<Element> children(ByteBuffer data, long dataStart) {
+        List<Element> elements = new ArrayList<>();
+        int position = 0;
+        while (position < data.limit()) {
+            int idLength = vintLength(data.get(position));
+            if (position + idLength >= data.limit()) break;
+            int id = 0;
+            for (int i = 0; i < idLength; i++) id = (id << 8) | (data.get(position + i) & 0xFF);
+            int sizeLength = vintLength(data.get(position + idLength));
+            long size = readVintValue(data, position + idLength, sizeLength);
+            int payload = position + idLength + sizeLength;
+            if (size == UNKNOWN_SIZE || payload + size > data.limit()) {
+                throw new IllegalArgumentException("EBML element 0x" + Integer.toHexString(id) + " overruns its parent");
+            }
+            elements.add(new Element(id, size, dataStart + payload));
+            position = (int) (payload + size);
+        }
+        return elements;
+    }
+
+    private static ByteBuffer slice(ByteBuffer data, long dataStart, Element element) {
+        return data.slice((int) (element.dataStart() - dataStart), (int) element.size());
+    }
+
+    private static int vintLength(byte first) {
+        int length = Integer.numberOfLeadingZeros(first & 0xFF) - 23;
+        if (length < 1 || length > 8) throw new IllegalArgumentException("Invalid EBML variable-size integer");
+        return length;
+    }
+
+    private static long readVintValue(ByteBuffer data, int offset, int length) {
+        long value = data.get(offset) & (0xFF >> length);
+        boolean allOnes = value == (0xFF >> length);
+        for (int i = 1; i < length; i++) {
+            int b = data.get(offset + i) & 0xFF;
+            allOnes &= b == 0xFF;
+            value = (value << 8) | b;
+        }
+        return allOnes ? UNKNOWN_SIZE : value;
+    }
+
+    private static long readUnsigned(ByteBuffer value) {
+        long result = 0;
+        for (int i = 0; i < value.limit(); i++) result = (result << 8) | (value.get(i) & 0xFF);
+        return result;
+    }
+
+    private static String readString(ByteBuffer value) {
+        int length = value.limit();
+        // Strings may be zero-padded
+        while (length > 0 && value.get(length - 1) == 0) length--;
+        byte[] bytes = new byte[length];
+        value.get(0, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(HeaderReader reader, Element element) throws IOException {
+        return readString(readPayload(reader, element));
+    }
+
+    private static byte[] readBytes(ByteBuffer value) {
+        byte[] bytes = new byte[value.limit()];
+        value.get(0, bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,95 @@
+package io.neebu.apps.utils.probe;
+
+import com.amilesend.mediainfo.type.StreamType;
+
+import java.nio.file.Path;
+
+/**
+ * Access to the native MediaInfo library: how {@link MediaInfoPool} creates handles and how {@link MediaProbe}
+ * reads them.
+ * <p>
+ * Two bindings exist: "jna", through the mediainfo-jna-wrapper, and "ffm", through java.lang.foreign downcall
+ * handles, which skips JNA's reflective marshalling on every call. Both produce the same values; the choice is
+ * probe.mediainfo.binding.
+ */
+public interface MediaInfoBinding {
+
+    /**
+     * @return "jna", "ffm", or the name of another implementation.
+     */
+    String name();
+
+    /**
+     * @return A new native handle; dispose of it with {@link Handle#close()}.
+     */
+    Handle newHandle();
+
+    /**
+     * One native MediaInfo instance. Not thread-safe.
+     */
+    interface Handle extends AutoCloseable {
+
+        /**
+         * @return Whether MediaInfo could open the file.
+         */
+        boolean open(Path filePath);
+
+        String option(String option, String value);
+
+        /**
+         * @return The open file rendered with the current "Inform" option.
+         */
+        String inform();
+
+        int streamCount(StreamType type);
+
+        /**
+         * @return The field's text value, empty if the stream does not have it.
+         */
+        String get(StreamType type, int streamNumber, String parameter);
+
+        /**
+         * Closes the open file; the handle stays usable if it {@link #isReusable()}.
+         */
+        void closeFile();
+
+        /**
+         * @return Whether the handle can open another file after {@link #closeFile()}. A pool disposes of handles
+         * that cannot after their first file.
+         */
+        default boolean isReusable() {
+            return true;
+        }
+
+        /**
+         * Frees the native instance.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Loads a binding by name.
+     *
+     * @param name "jna", "ffm", null/blank for jna, or the class name of another implementation with a no-arg
+     *             constructor, e.g. a stub for benchmarks.
+     * @return The binding.
+     * @throws IllegalArgumentException if the name is not known.
+     */
+    static MediaInfoBinding named(String name) {
+        if (name == null || name.isBlank() || name.trim().equalsIgnoreCase("jna")) {
+            return new JnaMediaInfoBinding();
+        }
+        if (name.trim().equalsIgnoreCase("ffm")) {
+            return ForeignMediaInfoBinding.load();
+        }
+        if (name.indexOf('.') > 0) {
+            try {
+                return (MediaInfoBinding) Class.forName(name.trim()).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException("Cannot load MediaInfo binding " + name + ": " + e, e);
+            }
+        }
+        throw new IllegalArgumentException("Unknown MediaInfo binding: " + name);
+    }
+}
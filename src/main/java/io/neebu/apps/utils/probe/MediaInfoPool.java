@@ -0,0 +1,302 @@
+package io.neebu.apps.utils.probe;
+
+import com.amilesend.mediainfo.type.StreamType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of reusable native MediaInfo handles, one per probing thread.
+ * <p>
+ * The native library is loaded once. Each thread gets its own handle on first use and keeps it for the
+ * following files; the handle is reset (its file closed) when a {@link Lease} is released. A thread that needs
+ * a second handle while its own is leased gets a temporary one, closed on release. Handles of threads that
+ * have terminated are reclaimed, and {@link #close()} disposes of everything, so native memory no longer grows
+ * with the number of probed files. Handles that cannot close a file alone ({@link MediaInfoBinding.Handle#isReusable()})
+ * are disposed of on release instead of being reset.
+ * <p>
+ * Handles come from a {@link MediaInfoBinding}; the shared pool uses the one set with {@link #useSharedBinding(String)}.
+ */
+public class MediaInfoPool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MediaInfoPool.class);
+
+    // MediaInfo's own default
+    static final String DEFAULT_PARSE_SPEED = "0.5";
+
+    private static volatile MediaInfoPool shared;
+    private static volatile String sharedBinding;
+
+    private final MediaInfoBinding binding;
+    private final ThreadLocal<Handle> threadHandles = new ThreadLocal<>();
+    private final Set<Handle> handles = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong handlesCreated = new AtomicLong();
+    private final AtomicLong handlesDisposed = new AtomicLong();
+    private final AtomicLong activeLeases = new AtomicLong();
+    private final AtomicLong filesOpened = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    public MediaInfoPool() {
+        this(MediaInfoBinding.named(null));
+    }
+
+    public MediaInfoPool(MediaInfoBinding binding) {
+        this.binding = binding;
+    }
+
+    public MediaInfoBinding getBinding() {
+        return binding;
+    }
+
+    /**
+     * Selects the binding of the process-wide pool. Only effective before the pool is first used.
+     *
+     * @param bindingName "jna", "ffm", or null for the default.
+     */
+    public static void useSharedBinding(String bindingName) {
+        sharedBinding = bindingName;
+    }
+
+    /**
+     * @return The process-wide pool, created on first use.
+     */
+    public static MediaInfoPool shared() {
+        MediaInfoPool pool = shared;
+        if (pool == null) {
+            synchronized (MediaInfoPool.class) {
+                pool = shared;
+                if (pool == null) {
+                    pool = new MediaInfoPool(MediaInfoBinding.named(sharedBinding));
+                    LOGGER.info("Using the {} MediaInfo binding", pool.binding.name());
+                    shared = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Closes the process-wide pool if it was ever created.
+     */
+    public static void closeShared() {
+        MediaInfoPool pool = shared;
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Opens a file on the calling thread's handle with MediaInfo's default parse speed.
+     *
+     * @param filePath The media file.
+     * @return The lease, release it with {@link Lease#close()} once all fields are read.
+     * @throws IOException if MediaInfo cannot open the file.
+     */
+    public Lease open(Path filePath) throws IOException {
+        return open(filePath, null);
+    }
+
+    /**
+     * Opens a file on the calling thread's handle.
+     *
+     * @param filePath   The media file.
+     * @param parseSpeed MediaInfo ParseSpeed, from "0" (container headers only) to "1" (whole file), or null
+     *                   for the default.
+     * @return The lease, release it with {@link Lease#close()} once all fields are read.
+     * @throws IOException if MediaInfo cannot open the file.
+     */
+    public Lease open(Path filePath, String parseSpeed) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("MediaInfo pool is closed");
+        }
+
+        Handle handle = threadHandles.get();
+        boolean temporary = false;
+        if (handle == null) {
+            reclaimOrphans();
+            handle = newHandle();
+            threadHandles.set(handle);
+        } else if (handle.leased) {
+            handle = newHandle();
+            temporary = true;
+        }
+
+        applyParseSpeed(handle, parseSpeed != null ? parseSpeed : DEFAULT_PARSE_SPEED);
+        if (!handle.nativeHandle.open(filePath)) {
+            if (temporary) dispose(handle);
+            throw new IOException("Could not open media file: " + filePath);
+        }
+        handle.leased = true;
+        activeLeases.incrementAndGet();
+        filesOpened.incrementAndGet();
+        return new Lease(handle, temporary);
+    }
+
+    public long getHandlesCreated() {
+        return handlesCreated.get();
+    }
+
+    /**
+     * @return Native handles currently allocated (idle per-thread handles included).
+     */
+    public long getLiveHandles() {
+        return handlesCreated.get() - handlesDisposed.get();
+    }
+
+    public long getActiveLeases() {
+        return activeLeases.get();
+    }
+
+    public long getFilesOpened() {
+        return filesOpened.get();
+    }
+
+    public void logStats() {
+        LOGGER.info("MediaInfo handles: live={}, created={}, leased={}, files opened={}",
+                getLiveHandles(), getHandlesCreated(), getActiveLeases(), getFilesOpened());
+    }
+
+    /**
+     * Disposes of every handle. Leases still held fail on their next use.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Handle handle : handles) {
+            dispose(handle);
+        }
+        synchronized (MediaInfoPool.class) {
+            if (shared == this) shared = null;
+        }
+        logStats();
+    }
+
+    // Options stick to a handle, only send them when they change
+    private void applyParseSpeed(Handle handle, String parseSpeed) {
+        if (parseSpeed.equals(handle.parseSpeed)) return;
+        handle.nativeHandle.option("ParseSpeed", parseSpeed);
+        // Do not look for numbered sibling files (image sequences), a directory listing each over SMB
+        handle.nativeHandle.option("File_TestContinuousFileNames", "0");
+        handle.parseSpeed = parseSpeed;
+    }
+
+    private Handle newHandle() {
+        Handle handle = new Handle(Thread.currentThread(), binding.newHandle());
+        handles.add(handle);
+        handlesCreated.incrementAndGet();
+        return handle;
+    }
+
+    // Handles of threads that are gone can no longer be reached through the ThreadLocal
+    private void reclaimOrphans() {
+        for (Handle handle : handles) {
+            if (!handle.owner.isAlive() && !handle.leased) {
+                dispose(handle);
+            }
+        }
+    }
+
+    private void dispose(Handle handle) {
+        if (!handles.remove(handle)) return;
+        try {
+            handle.nativeHandle.close();
+        } catch (Exception e) {
+            LOGGER.debug("Error closing MediaInfo handle: {}", e.getMessage());
+        }
+        handlesDisposed.incrementAndGet();
+    }
+
+    private static class Handle {
+        private final Thread owner;
+        private final MediaInfoBinding.Handle nativeHandle;
+        private volatile boolean leased = false;
+        private String parseSpeed;
+
+        private Handle(Thread owner, MediaInfoBinding.Handle nativeHandle) {
+            this.owner = owner;
+            this.nativeHandle = nativeHandle;
+        }
+    }
+
+    /**
+     * A file opened on a pooled handle. Not thread-safe: use it on the thread that opened it.
+     */
+    public class Lease implements AutoCloseable {
+        private final Handle handle;
+        private final boolean temporary;
+        private boolean released = false;
+
+        private Lease(Handle handle, boolean temporary) {
+            this.handle = handle;
+            this.temporary = temporary;
+        }
+
+        public int getStreamCount(StreamType type) {
+            return live().streamCount(type);
+        }
+
+        /**
+         * Reads one field of one stream.
+         *
+         * @return The value, empty if the stream does not have the field.
+         */
+        public String get(StreamType type, int streamNumber, String parameter) {
+            return live().get(type, streamNumber, parameter);
+        }
+
+        /**
+         * Renders the open file through a custom Inform template in a single native call.
+         *
+         * @param template The template, e.g. "Video;%Format%|%Width%\\n".
+         * @return The rendered text.
+         */
+        public String inform(String template) {
+            MediaInfoBinding.Handle nativeHandle = live();
+            nativeHandle.option("Inform", template);
+            String inform = nativeHandle.inform();
+            return inform != null ? inform : "";
+        }
+
+        /**
+         * Closes the file and hands the handle back for the next file.
+         */
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            activeLeases.decrementAndGet();
+            if (temporary || closed) {
+                dispose(handle);
+                return;
+            }
+            if (!handle.nativeHandle.isReusable()) {
+                threadHandles.remove();
+                dispose(handle);
+                return;
+            }
+            try {
+                handle.nativeHandle.closeFile();
+            } catch (Exception e) {
+                LOGGER.debug("Error resetting MediaInfo handle, discarding it: {}", e.getMessage());
+                threadHandles.remove();
+                dispose(handle);
+                return;
+            }
+            handle.leased = false;
+        }
+
+        private MediaInfoBinding.Handle live() {
+            if (released) {
+                throw new IllegalStateException("MediaInfo lease already released");
+            }
+            return handle.nativeHandle;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package io.neebu.apps.utils.probe;
+
+import com.amilesend.mediainfo.type.StreamType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable snapshot of every MediaInfo field we use, for all video, audio and text streams of a file.
+ * <p>
+ * The snapshot is taken with one custom Inform template per stream kind, so a file costs a handful of native
+ * calls instead of one per field and stream. Missing values are empty strings, as with MediaInfo's Get.
+ * If the Inform output does not account for every stream, that stream kind is read field by field instead.
+ */
+public final class MediaProbe {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MediaProbe.class);
+
+    private static final String SEPARATOR = "|~|";
+    private static final Pattern SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(SEPARATOR));
+
+    static final String[] GENERAL_FIELDS = {"CodecID"};
+    static final String[] VIDEO_FIELDS = {"CodecID/Hint", "Format", "Format_Version", "Width", "Height", "HDR_Format",
+            "HDR_Format_String", "HDR_Format_Compatibility", "transfer_characteristics", "colour_primaries"};
+    static final String[] AUDIO_FIELDS = {"Title", "Language", "Format", "Format_Profile", "Format_Commercial",
+            "Format_Commercial_IfAny", "Format_AdditionalFeatures", "Channels"};
+    static final String[] TEXT_FIELDS = {"Title", "Language", "Format"};
+
+    private static final VideoStream NO_VIDEO = new VideoStream("", "", "", "", "", "", "", "", "", "");
+
+    private final String generalCodecId;
+    private final List<VideoStream> videoStreams;
+    private final List<AudioStream> audioStreams;
+    private final List<TextStream> textStreams;
+
+    public MediaProbe(String generalCodecId, List<VideoStream> videoStreams, List<AudioStream> audioStreams, List<TextStream> textStreams) {
+        this.generalCodecId = nonNull(generalCodecId);
+        this.videoStreams = List.copyOf(videoStreams);
+        this.audioStreams = List.copyOf(audioStreams);
+        this.textStreams = List.copyOf(textStreams);
+    }
+
+    public record VideoStream(String codecHint, String format, String formatVersion, String width, String height,
+                              String hdrFormat, String hdrFormatString, String hdrFormatCompatibility,
+                              String transferCharacteristics, String colourPrimaries) {
+        static VideoStream of(String[] v) {
+            return new VideoStream(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8], v[9]);
+        }
+    }
+
+    public record AudioStream(String title, String language, String format, String formatProfile, String formatCommercial,
+                              String formatCommercialIfAny, String additionalFeatures, String channels) {
+        static AudioStream of(String[] v) {
+            return new AudioStream(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7]);
+        }
+    }
+
+    public record TextStream(String title, String language, String format) {
+        static TextStream of(String[] v) {
+            return new TextStream(v[0], v[1], v[2]);
+        }
+    }
+
+    /**
+     * Opens a file on a pooled handle, takes the snapshot and releases the handle.
+     *
+     * @param filePath The media file.
+     * @param pool     The handle pool.
+     * @return The snapshot.
+     * @throws IOException if MediaInfo cannot open the file.
+     */
+    public static MediaProbe probe(Path filePath, MediaInfoPool pool) throws IOException {
+        return probe(filePath, pool, null);
+    }
+
+    /**
+     * Opens a file on a pooled handle with the given parse speed, takes the snapshot and releases the handle.
+     *
+     * @param filePath   The media file.
+     * @param pool       The handle pool.
+     * @param parseSpeed MediaInfo ParseSpeed, "0" for headers only, or null for the default.
+     * @return The snapshot.
+     * @throws IOException if MediaInfo cannot open the file.
+     */
+    public static MediaProbe probe(Path filePath, MediaInfoPool pool, String parseSpeed) throws IOException {
+        try (MediaInfoPool.Lease lease = pool.open(filePath, parseSpeed)) {
+            return read(lease);
+        }
+    }
+
+    /**
+     * Takes the snapshot of the file currently open on a lease.
+     *
+     * @param lease The lease.
+     * @return The snapshot.
+     */
+    public static MediaProbe read(MediaInfoPool.Lease lease) {
+        List<String[]> general = readStreams(lease, StreamType.General, GENERAL_FIELDS);
+        List<VideoStream> video = readStreams(lease, StreamType.Video, VIDEO_FIELDS).stream().map(VideoStream::of).toList();
+        List<AudioStream> audio = readStreams(lease, StreamType.Audio, AUDIO_FIELDS).stream().map(AudioStream::of).toList();
+        List<TextStream> text = readStreams(lease, StreamType.Text, TEXT_FIELDS).stream().map(TextStream::of).toList();
+        return new MediaProbe(general.isEmpty() ? "" : general.get(0)[0], video, audio, text);
+    }
+
+    private static List<String[]> readStreams(MediaInfoPool.Lease lease, StreamType type, String[] fields) {
+        int streamCount = type == StreamType.General ? 1 : lease.getStreamCount(type);
+        List<String[]> streams = new ArrayList<>(streamCount);
+        if (streamCount == 0) {
+            return streams;
+        }
+
+        String inform = "";
+        try {
+            inform = lease.inform(template(type, fields));
+        } catch (Exception e) {
+            LOGGER.debug("Inform failed for {} streams: {}", type, e.getMessage());
+        }
+        for (String line : inform.split("\\R")) {
+            if (line.isEmpty()) continue;
+            String[] values = SEPARATOR_PATTERN.split(line, -1);
+            if (values.length != fields.length) break;
+            streams.add(values);
+        }
+        if (streams.size() == streamCount) {
+            return streams;
+        }
+
+        // Inform output did not line up with the stream count, read the fields one by one
+        LOGGER.debug("Inform returned {} of {} {} streams, reading fields individually", streams.size(), streamCount, type);
+        streams.clear();
+        for (int i = 0; i < streamCount; i++) {
+            String[] values = new String[fields.length];
+            for (int f = 0; f < fields.length; f++) {
+                values[f] = safeGet(lease, type, i, fields[f]);
+            }
+            streams.add(values);
+        }
+        return streams;
+    }
+
+    // e.g. "Audio;%Title%|~|%Language%|~|...\n", repeated by MediaInfo for each stream of the kind
+    private static String template(StreamType type, String[] fields) {
+        StringBuilder template = new StringBuilder(type.name()).append(';');
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) template.append(SEPARATOR);
+            template.append('%').append(fields[i]).append('%');
+        }
+        return template.append("\\n").toString();
+    }
+
+    private static String safeGet(MediaInfoPool.Lease lease, StreamType type, int streamNumber, String key) {
+        try {
+            return nonNull(lease.get(type, streamNumber, key));
+        } catch (Exception e) {
+            LOGGER.debug("Error getting stream data for key '{}': {}", key, e.getMessage());
+            return "";
+        }
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+    public String getGeneralCodecId() {
+        return generalCodecId;
+    }
+
+    public List<VideoStream> getVideoStreams() {
+        return videoStreams;
+    }
+
+    public List<AudioStream> getAudioStreams() {
+        return audioStreams;
+    }
+
+    public List<TextStream> getTextStreams() {
+        return textStreams;
+    }
+
+    /**
+     * @return The first video stream, or an all-empty stream if the file has none.
+     */
+    public VideoStream getVideo() {
+        return videoStreams.isEmpty() ? NO_VIDEO : videoStreams.get(0);
+    }
+}
@@ -0,0 +1,206 @@
+package io.neebu.apps.utils.probe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Produces the {@link ProbeResult} of a file, from the probe cache when the file is unchanged and from
+ * MediaInfo otherwise.
+ * <p>
+ * Matroska and MP4 files are first read by {@link ContainerProbe}, without MediaInfo; anything it cannot settle
+ * goes to MediaInfo, at the configured parse speed ("0" reads container headers only, which over a network share
+ * saves megabytes per file). The bytes read and wall time of every probe are charged to {@link #getStats()}.
+ * <p>
+ * With a {@link ProbeWorkerPool}, probing runs in child processes instead, so a file that hangs or crashes
+ * MediaInfo cannot take the scan down, and {@link #prefetch(Collection)} spreads files over the workers.
+ */
+public class MediaProber implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MediaProber.class);
+
+    private final MediaInfoPool pool;
+    private final ProbeCache cache;
+    private final String parseSpeed;
+    private final boolean headerParser;
+    private final String cacheConfiguration;
+    private final ProbeWorkerPool workers;
+    private final ProbeStats stats = new ProbeStats();
+
+    private final Map<Path, CompletableFuture<ProbeResult>> prefetched = new ConcurrentHashMap<>();
+    private ExecutorService prefetchExecutor;
+
+    /**
+     * The outcome of probing one file.
+     *
+     * @param bytesRead  Bytes read, or -1 if not measurable.
+     * @param nanos      Wall time.
+     * @param headerOnly Whether the container parser settled the file without MediaInfo.
+     */
+    record Probed(ProbeResult result, long bytesRead, long nanos, boolean headerOnly) {
+    }
+
+    /**
+     * @param pool  Handle pool used on cache misses.
+     * @param cache The probe cache, or null to always probe.
+     */
+    public MediaProber(MediaInfoPool pool, ProbeCache cache) {
+        this(pool, cache, null, true);
+    }
+
+    /**
+     * @param pool         Handle pool used on cache misses.
+     * @param cache        The probe cache, or null to always probe.
+     * @param parseSpeed   MediaInfo ParseSpeed, "0" (headers only) to "1" (whole file), or null for the default.
+     * @param headerParser Whether to try the pure-Java container parser before MediaInfo.
+     */
+    public MediaProber(MediaInfoPool pool, ProbeCache cache, String parseSpeed, boolean headerParser) {
+        this(pool, cache, parseSpeed, headerParser, null);
+    }
+
+    /**
+     * @param pool         Handle pool used on cache misses, unused (and may be null) when workers are given.
+     * @param cache        The probe cache, or null to always probe.
+     * @param parseSpeed   MediaInfo ParseSpeed, "0" (headers only) to "1" (whole file), or null for the default.
+     * @param headerParser Whether to try the pure-Java container parser before MediaInfo.
+     * @param workers      Child processes to probe in, or null to probe in this process.
+     */
+    public MediaProber(MediaInfoPool pool, ProbeCache cache, String parseSpeed, boolean headerParser, ProbeWorkerPool workers) {
+        this.pool = pool;
+        this.cache = cache;
+        this.parseSpeed = parseSpeed;
+        this.headerParser = headerParser;
+        this.cacheConfiguration = ProbeCache.configuration(parseSpeed, headerParser);
+        this.workers = workers;
+    }
+
+    public ProbeStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return A prober on the shared pool without a cache.
+     */
+    public static MediaProber uncached() {
+        return new MediaProber(MediaInfoPool.shared(), null);
+    }
+
+    /**
+     * Probes a file, consulting the cache before opening MediaInfo.
+     *
+     * @param filePath The media file.
+     * @return The technical fields of the file.
+     * @throws IOException if the file cannot be read or MediaInfo cannot open it.
+     */
+    public ProbeResult probe(Path filePath) throws IOException {
+        CompletableFuture<ProbeResult> future = prefetched.remove(filePath);
+        if (future == null) {
+            return load(filePath);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while probing " + filePath, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+            if (cause instanceof IOException ioException) throw ioException;
+            throw new IOException("Probe failed for " + filePath, cause);
+        }
+    }
+
+    /**
+     * Looks a file up in the cache only.
+     *
+     * @param filePath The media file.
+     * @return The cached result, or null if there is no cache or the file is not in it unchanged.
+     * @throws IOException if the file's attributes cannot be read.
+     */
+    public ProbeResult probeCached(Path filePath) throws IOException {
+        return cache == null ? null : cache.get(ProbeCache.FileIdentity.of(filePath), cacheConfiguration);
+    }
+
+    /**
+     * Starts probing files ahead of {@link #probe(Path)}, one per worker process at a time. Without workers
+     * this does nothing, as in-process probing gains nothing from it.
+     *
+     * @param filePaths Files the scan is about to probe.
+     */
+    public synchronized void prefetch(Collection<Path> filePaths) {
+        if (workers == null || filePaths.isEmpty()) return;
+        if (prefetchExecutor == null) {
+            prefetchExecutor = Executors.newFixedThreadPool(workers.size(), runnable -> {
+                Thread thread = new Thread(runnable, "probe-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        for (Path filePath : filePaths) {
+            prefetched.computeIfAbsent(filePath, path -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return load(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, prefetchExecutor));
+        }
+        LOGGER.debug("Probing {} file(s) ahead on {} worker process(es)", filePaths.size(), workers.size());
+    }
+
+    /**
+     * Stops prefetching; files not yet probed are dropped.
+     */
+    @Override
+    public synchronized void close() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+        prefetched.clear();
+    }
+
+    private ProbeResult load(Path filePath) throws IOException {
+        if (cache == null) {
+            return probeFile(filePath);
+        }
+
+        ProbeCache.FileIdentity identity = ProbeCache.FileIdentity.of(filePath);
+        ProbeResult result = cache.get(identity, cacheConfiguration);
+        if (result != null) {
+            LOGGER.debug("Probe cache hit for {}", filePath);
+            return result;
+        }
+        result = probeFile(filePath);
+        cache.put(identity, cacheConfiguration, result);
+        return result;
+    }
+
+    private ProbeResult probeFile(Path filePath) throws IOException {
+        Probed probed = workers != null ? workers.probe(filePath) : probeInProcess(filePath, pool, parseSpeed, headerParser);
+        stats.record(probed.bytesRead(), probed.nanos(), probed.headerOnly());
+        LOGGER.debug("Probed {} {} in {} ms, {} KiB read", filePath, probed.headerOnly() ? "from container headers" : "with MediaInfo",
+                probed.nanos() / 1_000_000, probed.bytesRead() < 0 ? "?" : probed.bytesRead() / 1024);
+        return probed.result();
+    }
+
+    // MediaInfo reads on the calling thread, so the thread's read counter covers the native reads
+    static Probed probeInProcess(Path filePath, MediaInfoPool pool, String parseSpeed, boolean headerParser) throws IOException {
+        long bytesBefore = ThreadIo.bytesRead();
+        long start = System.nanoTime();
+        MediaProbe probe = headerParser ? ContainerProbe.probe(filePath) : null;
+        boolean fromHeaders = probe != null;
+        if (!fromHeaders) {
+            probe = MediaProbe.probe(filePath, pool, parseSpeed);
+        }
+        ProbeResult result = ProbeResult.of(probe);
+        long nanos = System.nanoTime() - start;
+        long bytesRead = bytesBefore < 0 ? -1 : ThreadIo.bytesRead() - bytesBefore;
+        return new Probed(result, bytesRead, nanos, fromHeaders);
+    }
+}
@@ -0,0 +1,370 @@
+package io.neebu.apps.utils.probe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the track headers of an ISO base media (MP4) file into a {@link MediaProbe}.
+ * <p>
+ * Top-level boxes are walked by their headers only, so a leading or trailing mdat is skipped without reading
+ * it. Inside moov only the boxes leading to the sample descriptions are read; the sample tables are skipped.
+ */
+final class Mp4HeaderParser {
+
+    private static final int MOOV = fourcc("moov");
+    private static final int FTYP = fourcc("ftyp");
+    private static final int TRAK = fourcc("trak");
+    private static final int MDIA = fourcc("mdia");
+    private static final int MDHD = fourcc("mdhd");
+    private static final int HDLR = fourcc("hdlr");
+    private static final int MINF = fourcc("minf");
+    private static final int STBL = fourcc("stbl");
+    private static final int STSD = fourcc("stsd");
+    private static final int UDTA = fourcc("udta");
+    private static final int NAME = fourcc("name");
+
+    private static final int VIDE = fourcc("vide");
+    private static final int SOUN = fourcc("soun");
+    private static final int SBTL = fourcc("sbtl");
+    private static final int SUBT = fourcc("subt");
+
+    private static final int COLR = fourcc("colr");
+    private static final int NCLX = fourcc("nclx");
+    private static final int NCLC = fourcc("nclc");
+    private static final int MDCV = fourcc("mdcv");
+    private static final int DVCC = fourcc("dvcC");
+    private static final int DVVC = fourcc("dvvC");
+    private static final int ESDS = fourcc("esds");
+    private static final int DAC3 = fourcc("dac3");
+    private static final int DOPS = fourcc("dOps");
+
+    // Offsets of the child boxes in a sample entry, box header included
+    private static final int VISUAL_SAMPLE_ENTRY_SIZE = 8 + 78;
+    private static final int AUDIO_SAMPLE_ENTRY_SIZE = 8 + 28;
+
+    // moov without sample tables is small, this only guards against corrupt sizes
+    private static final long MAX_BOX_SIZE = 64L * 1024 * 1024;
+
+    private Mp4HeaderParser() {
+    }
+
+    private record Box(int type, long start, long dataStart, long end) {
+    }
+
+    static MediaProbe parse(HeaderReader reader) throws IOException {
+        String brand = "";
+        Box moov = null;
+        for (Box box : boxes(reader, 0, reader.size())) {
+            if (box.type() == FTYP) brand = fourccString(reader.read(box.dataStart(), 4).getInt(0)).trim();
+            if (box.type() == MOOV) {
+                moov = box;
+                break;
+            }
+        }
+        if (moov == null) return null;
+
+        List<MediaProbe.VideoStream> video = new ArrayList<>();
+        List<MediaProbe.AudioStream> audio = new ArrayList<>();
+        List<MediaProbe.TextStream> text = new ArrayList<>();
+        for (Box trak : boxes(reader, moov.dataStart(), moov.end())) {
+            if (trak.type() != TRAK) continue;
+            if (!readTrack(reader, trak, video, audio, text)) return null;
+        }
+        return new MediaProbe(brand, video, audio, text);
+    }
+
+    // Returns false if the track cannot be described without MediaInfo
+    private static boolean readTrack(HeaderReader reader, Box trak, List<MediaProbe.VideoStream> video,
+                                     List<MediaProbe.AudioStream> audio, List<MediaProbe.TextStream> text) throws IOException {
+        Box mdia = child(reader, trak, MDIA);
+        if (mdia == null) return true;
+
+        String language = "";
+        int handler = 0;
+        String handlerName = "";
+        Box stsd = null;
+        for (Box box : boxes(reader, mdia.dataStart(), mdia.end())) {
+            if (box.type() == MDHD) {
+                language = readMdhdLanguage(read(reader, box));
+            } else if (box.type() == HDLR) {
+                ByteBuffer data = read(reader, box);
+                handler = data.getInt(16);
+                handlerName = readCString(data, 32);
+            } else if (box.type() == MINF) {
+                Box stbl = child(reader, box, STBL);
+                stsd = stbl != null ? child(reader, stbl, STSD) : null;
+            }
+        }
+        String title = readUdtaName(reader, trak);
+        if (title == null) title = isDefaultHandlerName(handlerName) ? "" : handlerName;
+
+        if (handler == SBTL || handler == SUBT) {
+            String format = stsd != null ? firstSampleEntryType(reader, stsd) : "";
+            text.add(ContainerProbe.text(title, language, format));
+            return true;
+        }
+        if (handler != VIDE && handler != SOUN) return true;
+        if (stsd == null) return false;
+
+        ByteBuffer entries = read(reader, stsd);
+        if (entries.getInt(12) < 1) return false;
+        ByteBuffer entry = entries.slice(16, entries.getInt(16));
+        int entryType = entry.getInt(4);
+        if (handler == VIDE) {
+            MediaProbe.VideoStream stream = readVisualSampleEntry(entry, entryType);
+            if (stream == null) return false;
+            video.add(stream);
+        } else {
+            MediaProbe.AudioStream stream = readAudioSampleEntry(entry, entryType, title, language);
+            if (stream == null) return false;
+            audio.add(stream);
+        }
+        return true;
+    }
+
+    private static MediaProbe.VideoStream readVisualSampleEntry(ByteBuffer entry, int entryType) {
+        String type = fourccString(entryType);
+        String format = switch (type) {
+            case "avc1", "avc3" -> "AVC";
+            case "hvc1", "hev1", "dvh1", "dvhe" -> "HEVC";
+            case "av01" -> "AV1";
+            case "vp09" -> "VP9";
+            default -> null;
+        };
+        if (format == null) return null;
+
+        int width = entry.getShort(32) & 0xFFFF;
+        int height = entry.getShort(34) & 0xFFFF;
+        Integer transfer = null;
+        Integer primaries = null;
+        boolean mastering = false;
+        byte[] doviConfig = null;
+        for (ByteBuffer child : childBoxes(entry, VISUAL_SAMPLE_ENTRY_SIZE)) {
+            int childType = child.getInt(4);
+            if (childType == COLR && child.limit() >= 18) {
+                int colourType = child.getInt(8);
+                if (colourType == NCLX || colourType == NCLC) {
+                    primaries = child.getShort(12) & 0xFFFF;
+                    transfer = child.getShort(14) & 0xFFFF;
+                }
+            } else if (childType == MDCV) {
+                mastering = true;
+            } else if (childType == DVCC || childType == DVVC) {
+                doviConfig = new byte[child.limit() - 8];
+                child.get(8, doviConfig);
+            }
+        }
+        // Dolby Vision sample entries always carry their configuration box
+        if ((type.equals("dvh1") || type.equals("dvhe")) && doviConfig == null) return null;
+        return ContainerProbe.video(format, "", width, height, transfer, primaries, mastering, doviConfig);
+    }
+
+    private static MediaProbe.AudioStream readAudioSampleEntry(ByteBuffer entry, int entryType, String title, String language) {
+        // QuickTime sound description versions 1 and 2 have extra fields before the child boxes
+        int version = entry.getShort(16) & 0xFFFF;
+        int fixedSize = switch (version) {
+            case 0 -> AUDIO_SAMPLE_ENTRY_SIZE;
+            case 1 -> AUDIO_SAMPLE_ENTRY_SIZE + 16;
+            case 2 -> AUDIO_SAMPLE_ENTRY_SIZE + 36;
+            default -> -1;
+        };
+        if (fixedSize < 0) return null;
+        int channels = entry.getShort(24) & 0xFFFF;
+        List<ByteBuffer> children = childBoxes(entry, fixedSize);
+
+        switch (fourccString(entryType)) {
+            case "mp4a" -> {
+                ByteBuffer esds = find(children, ESDS);
+                if (esds == null) return null;
+                return readEsds(esds, title, language, channels);
+            }
+            case "ac-3" -> {
+                ByteBuffer dac3 = find(children, DAC3);
+                if (dac3 == null || dac3.limit() < 11) return null;
+                // fscod(2) bsid(5) bsmod(3) acmod(3) lfeon(1) ...
+                int bits = ((dac3.get(8) & 0xFF) << 16) | ((dac3.get(9) & 0xFF) << 8) | (dac3.get(10) & 0xFF);
+                int acmod = (bits >> 11) & 0x7;
+                boolean lfe = ((bits >> 10) & 0x1) == 1;
+                return ContainerProbe.audio(title, language, "AC-3", "", "Dolby Digital", ContainerProbe.ac3Channels(acmod, lfe));
+            }
+            case "Opus" -> {
+                ByteBuffer dops = find(children, DOPS);
+                return ContainerProbe.audio(title, language, "Opus", "", "", dops != null ? dops.get(9) & 0xFF : channels);
+            }
+            case "fLaC" -> {
+                return ContainerProbe.audio(title, language, "FLAC", "", "", channels);
+            }
+            case "alac" -> {
+                return ContainerProbe.audio(title, language, "ALAC", "", "", channels);
+            }
+            case "lpcm", "sowt", "twos", "ipcm", "fpcm" -> {
+                return ContainerProbe.audio(title, language, "PCM", "", "", channels);
+            }
+            // ec-3, mlpa and the dts* entries: Atmos and DTS-HD flavours are only in the bitstream
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    // ES_Descriptor > DecoderConfigDescriptor (objectTypeIndication) > DecoderSpecificInfo (AudioSpecificConfig)
+    private static MediaProbe.AudioStream readEsds(ByteBuffer esds, String title, String language, int channels) {
+        int position = 12; // box header + version/flags
+        if ((esds.get(position++) & 0xFF) != 0x03) return null;
+        position = skipDescriptorLength(esds, position);
+        position += 2; // ES_ID
+        int flags = esds.get(position++) & 0xFF;
+        if ((flags & 0x80) != 0) position += 2;
+        if ((flags & 0x40) != 0) position += 1 + (esds.get(position) & 0xFF);
+        if ((flags & 0x20) != 0) position += 2;
+
+        if ((esds.get(position++) & 0xFF) != 0x04) return null;
+        position = skipDescriptorLength(esds, position);
+        int objectType = esds.get(position) & 0xFF;
+        position += 13;
+
+        byte[] audioSpecificConfig = null;
+        if (position < esds.limit() && (esds.get(position) & 0xFF) == 0x05) {
+            int length = 0;
+            position++;
+            for (int i = 0; i < 4; i++) {
+                int b = esds.get(position++) & 0xFF;
+                length = (length << 7) | (b & 0x7F);
+                if ((b & 0x80) == 0) break;
+            }
+            audioSpecificConfig = new byte[length];
+            esds.get(position, audioSpecificConfig);
+        }
+
+        return switch (objectType) {
+            case 0x40, 0x66, 0x67, 0x68 -> {
+                int aacChannels = ContainerProbe.aacChannels(audioSpecificConfig);
+                yield ContainerProbe.audio(title, language, "AAC", "", "", aacChannels > 0 ? aacChannels : channels);
+            }
+            case 0x69, 0x6B -> ContainerProbe.audio(title, language, "MPEG Audio", "Layer 3", "", channels);
+            default -> null;
+        };
+    }
+
+    private static int skipDescriptorLength(ByteBuffer data, int position) {
+        for (int i = 0; i < 4; i++) {
+            if ((data.get(position++) & 0x80) == 0) break;
+        }
+        return position;
+    }
+
+    // Packed ISO 639-2/T code after the timestamps, which are 32 or 64 bits depending on the version
+    private static String readMdhdLanguage(ByteBuffer mdhd) {
+        int offset = mdhd.get(8) == 1 ? 8 + 4 + 28 : 8 + 4 + 16;
+        int packed = mdhd.getShort(offset) & 0x7FFF;
+        if (packed == 0 || packed == 0x7FFF) return "";
+        char[] code = {
+                (char) (((packed >> 10) & 0x1F) + 0x60),
+                (char) (((packed >> 5) & 0x1F) + 0x60),
+                (char) ((packed & 0x1F) + 0x60)
+        };
+        return new String(code);
+    }
+
+    private static String readUdtaName(HeaderReader reader, Box trak) throws IOException {
+        Box udta = child(reader, trak, UDTA);
+        if (udta == null) return null;
+        Box name = child(reader, udta, NAME);
+        if (name == null) return null;
+        ByteBuffer data = read(reader, name);
+        byte[] bytes = new byte[data.limit() - 8];
+        data.get(8, bytes);
+        return new String(bytes, StandardCharsets.UTF_8).replace("\0", "").trim();
+    }
+
+    // Muxer-generated handler names ("SoundHandler", "Core Media Audio", ...) are not track titles
+    private static boolean isDefaultHandlerName(String handlerName) {
+        return handlerName.isEmpty() || handlerName.contains("Handler") || handlerName.startsWith("Core Media")
+                || handlerName.startsWith("ISO Media file produced by");
+    }
+
+    private static String firstSampleEntryType(HeaderReader reader, Box stsd) throws IOException {
+        ByteBuffer entries = read(reader, stsd);
+        return entries.limit() >= 24 ? fourccString(entries.getInt(20)) : "";
+    }
+
+    // ---- box primitives ----
+
+    private static List<Box> boxes(HeaderReader reader, long start, long end) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        long position = start;
+        while (position + 8 <= end) {
+            ByteBuffer header = reader.read(position, (int) Math.min(16, end - position));
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int type = header.getInt(4);
+            long dataStart = position + 8;
+            if (size == 1) {
+                if (header.limit() < 16) break;
+                size = header.getLong(8);
+                dataStart += 8;
+            } else if (size == 0) {
+                size = end - position;
+            }
+            if (size < dataStart - position || position + size > end) break;
+            boxes.add(new Box(type, position, dataStart, position + size));
+            position += size;
+        }
+        return boxes;
+    }
+
+    private static Box child(HeaderReader reader, Box parent, int type) throws IOException {
+        for (Box box : boxes(reader, parent.dataStart(), parent.end())) {
+            if (box.type() == type) return box;
+        }
+        return null;
+    }
+
+    // Whole box, header included
+    private static ByteBuffer read(HeaderReader reader, Box box) throws IOException {
+        long size = box.end() - box.start();
+        if (size > MAX_BOX_SIZE) throw new IllegalArgumentException("Box too large: " + size);
+        return reader.read(box.start(), (int) size);
+    }
+
+    // Child boxes of an in-memory box, starting after its fixed fields
+    private static List<ByteBuffer> childBoxes(ByteBuffer parent, int offset) {
+        List<ByteBuffer> children = new ArrayList<>();
+        int position = offset;
+        while (position + 8 <= parent.limit()) {
+            int size = parent.getInt(position);
+            if (size < 8 || position + size > parent.limit()) break;
+            children.add(parent.slice(position, size));
+            position += size;
+        }
+        return children;
+    }
+
+    private static ByteBuffer find(List<ByteBuffer> boxes, int type) {
+        for (ByteBuffer box : boxes) {
+            if (box.getInt(4) == type) return box;
+        }
+        return null;
+    }
+
+    private static String readCString(ByteBuffer data, int offset) {
+        int end = offset;
+        while (end < data.limit() && data.get(end) != 0) end++;
+        byte[] bytes = new byte[end - offset];
+        data.get(offset, bytes);
+        // QuickTime handler names are Pascal strings, drop the length byte
+        return new String(bytes, StandardCharsets.UTF_8).replaceAll("\\p{Cntrl}", "").trim();
+    }
+
+    private static int fourcc(String type) {
+        byte[] bytes = type.getBytes(StandardCharsets.US_ASCII);
+        return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+    }
+
+    private static String fourccString(int type) {
+        return new String(new byte[]{(byte) (type >> 24), (byte) (type >> 16), (byte) (type >> 8), (byte) type},
+                StandardCharsets.ISO_8859_1);
+    }
+}
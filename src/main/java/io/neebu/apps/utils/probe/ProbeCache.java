@@ -0,0 +1,288 @@
+package io.neebu.apps.utils.probe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent cache of {@link ProbeResult}s, so unchanged files are not probed again when their rows are
+ * deleted and re-added or the database is rebuilt.
+ * <p>
+ * Entries are keyed by the probe configuration (ParseSpeed and whether container headers are parsed, see
+ * {@link #configuration}) and by file identity: device and inode where the file system exposes them (a renamed or
+ * moved file keeps its entry), the absolute path otherwise. An entry is only used while the file's size and
+ * modification time are unchanged; a mismatch drops it. Past probe.cache.max.entries the least recently used
+ * entries are evicted.
+ * <p>
+ * File layout (big-endian): magic, version, entry count, then per entry the key, size, mtime, last use, the five
+ * technical fields and the audio tracks. The file is loaded whole on open and rewritten on {@link #save()}.
+ */
+public class ProbeCache implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeCache.class);
+
+    private static final int MAGIC = 0x50524243; // "PRBC"
+    private static final int VERSION = 2;
+
+    private final Path cacheFile;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static final class Entry {
+
+        private final long size;
+        private final long modifiedMillis;
+        private final ProbeResult result;
+        private volatile long lastUsedMillis;
+
+        private Entry(long size, long modifiedMillis, long lastUsedMillis, ProbeResult result) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.lastUsedMillis = lastUsedMillis;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Identity of a file as seen when it was looked up.
+     *
+     * @param key            "dev:ino", or the absolute path if the file system has no inodes.
+     * @param size           Size in bytes.
+     * @param modifiedMillis Last modification time.
+     */
+    public record FileIdentity(String key, long size, long modifiedMillis) {
+
+        public static FileIdentity of(Path filePath) throws IOException {
+            try {
+                Map<String, Object> attrs = Files.readAttributes(filePath, "unix:dev,ino,size,lastModifiedTime");
+                return new FileIdentity(attrs.get("dev") + ":" + attrs.get("ino"), (Long) attrs.get("size"),
+                        ((FileTime) attrs.get("lastModifiedTime")).toMillis());
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                BasicFileAttributes attrs = Files.readAttributes(filePath, BasicFileAttributes.class);
+                return new FileIdentity(filePath.toAbsolutePath().normalize().toString(), attrs.size(),
+                        attrs.lastModifiedTime().toMillis());
+            }
+        }
+    }
+
+    private ProbeCache(Path cacheFile, int maxEntries) {
+        this.cacheFile = cacheFile;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Loads the cache file, starting empty if it does not exist or cannot be read.
+     *
+     * @param cacheFile  The cache file.
+     * @param maxEntries Number of entries past which the least recently used ones are evicted.
+     * @return The cache.
+     */
+    public static ProbeCache open(Path cacheFile, int maxEntries) {
+        ProbeCache cache = new ProbeCache(cacheFile, maxEntries);
+        try {
+            cache.load();
+            cache.evict();
+            LOGGER.info("Loaded {} probe result(s) from {}", cache.entries.size(), cacheFile);
+        } catch (NoSuchFileException e) {
+            LOGGER.info("No probe cache at {}, starting empty", cacheFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read probe cache {}, starting empty: {}", cacheFile, e.getMessage());
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * The part of the key that tells probe configurations apart, as their results differ for the same file.
+     *
+     * @param parseSpeed   MediaInfo ParseSpeed, or null for the default.
+     * @param headerParser Whether the pure-Java container parser is tried first.
+     * @return The configuration, e.g. "0.5,headers".
+     */
+    public static String configuration(String parseSpeed, boolean headerParser) {
+        return (parseSpeed != null ? parseSpeed : MediaInfoPool.DEFAULT_PARSE_SPEED) + (headerParser ? ",headers" : ",mediainfo");
+    }
+
+    /**
+     * Returns the cached result for a file if it was probed with the same configuration and its identity, size and
+     * modification time still match.
+     *
+     * @param identity      The file's current identity.
+     * @param configuration The probe configuration, see {@link #configuration}.
+     * @return The result, or null if the file has to be probed.
+     */
+    public ProbeResult get(FileIdentity identity, String configuration) {
+        String key = key(identity, configuration);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.size != identity.size() || entry.modifiedMillis != identity.modifiedMillis()) {
+            entries.remove(key, entry);
+            dirty = true;
+            invalidations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.lastUsedMillis = System.currentTimeMillis();
+        hits.incrementAndGet();
+        return entry.result;
+    }
+
+    public void put(FileIdentity identity, String configuration, ProbeResult result) {
+        entries.put(key(identity, configuration),
+                new Entry(identity.size(), identity.modifiedMillis(), System.currentTimeMillis(), result));
+        dirty = true;
+        if (entries.size() > maxEntries) evict();
+    }
+
+    private static String key(FileIdentity identity, String configuration) {
+        return configuration + "|" + identity.key();
+    }
+
+    // Down to 90% of the bound, so that a scan adding files does not sort the cache on every put; a small bound
+    // keeps at least the entry just put
+    private synchronized void evict() {
+        if (entries.size() <= maxEntries) return;
+        List<Map.Entry<String, Entry>> byLastUse = new ArrayList<>(entries.entrySet());
+        byLastUse.sort(Comparator.comparingLong(mapEntry -> mapEntry.getValue().lastUsedMillis));
+        int excess = byLastUse.size() - Math.max(1, maxEntries * 9 / 10);
+        for (int i = 0; i < excess; i++) {
+            if (entries.remove(byLastUse.get(i).getKey(), byLastUse.get(i).getValue())) evictions.incrementAndGet();
+        }
+        dirty = true;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Writes the cache file if anything changed, replacing the previous one atomically.
+     */
+    public synchronized void save() {
+        if (!dirty) return;
+        Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try {
+            if (cacheFile.getParent() != null) Files.createDirectories(cacheFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                write(out);
+            }
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.warn("Could not write probe cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the cache and reports its hit rate.
+     */
+    @Override
+    public void close() {
+        save();
+        LOGGER.info("Probe cache: entries={}, hits={}, misses={}, invalidated={}, evicted={}",
+                entries.size(), getHits(), getMisses(), getInvalidations(), getEvictions());
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a probe cache file");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("unsupported version " + version);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long size = in.readLong();
+                long modifiedMillis = in.readLong();
+                long lastUsedMillis = in.readLong();
+                String videoCodec = readString(in);
+                String resolution = readString(in);
+                String hdrFormat = readString(in);
+                String audioCodec = readString(in);
+                String audioChannels = readString(in);
+                int trackCount = in.readUnsignedShort();
+                List<ProbeResult.AudioTrack> audioTracks = new ArrayList<>(trackCount);
+                for (int t = 0; t < trackCount; t++) {
+                    audioTracks.add(new ProbeResult.AudioTrack(readString(in), readString(in), readString(in), readString(in)));
+                }
+                entries.put(key, new Entry(size, modifiedMillis, lastUsedMillis,
+                        new ProbeResult(videoCodec, resolution, hdrFormat, audioCodec, audioChannels, audioTracks)));
+            }
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        // Snapshot first, the count has to match the entries written
+        List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Entry> mapEntry : snapshot) {
+            Entry entry = mapEntry.getValue();
+            ProbeResult result = entry.result;
+            out.writeUTF(mapEntry.getKey());
+            out.writeLong(entry.size);
+            out.writeLong(entry.modifiedMillis);
+            out.writeLong(entry.lastUsedMillis);
+            writeString(out, result.videoCodec());
+            writeString(out, result.resolution());
+            writeString(out, result.hdrFormat());
+            writeString(out, result.audioCodec());
+            writeString(out, result.audioChannels());
+            out.writeShort(result.audioTracks().size());
+            for (ProbeResult.AudioTrack track : result.audioTracks()) {
+                writeString(out, track.codec());
+                writeString(out, track.channels());
+                writeString(out, track.language());
+                writeString(out, track.title());
+            }
+        }
+    }
+
+    // Nulls are kept apart from empty strings, the parsers use both
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,121 @@
+package io.neebu.apps.utils.probe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Orders the files of the probe stage so that a spinning disk reads them with short seeks.
+ * <p>
+ * EXTENT sorts by the physical offset of each file's first extent (FIEMAP, Linux only), INODE by inode number,
+ * which on ext4 and XFS roughly follows allocation. Files whose location is unknown come after the others,
+ * grouped by directory. DIRECTORY keeps each directory's files together, NAME is the order of the walk (by file
+ * name). Locating costs one stat (INODE) or one open and ioctl (EXTENT) per file.
+ */
+public final class ProbeOrder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeOrder.class);
+
+    public enum Mode {
+        NAME, DIRECTORY, INODE, EXTENT
+    }
+
+    private ProbeOrder() {
+    }
+
+    /**
+     * A file's position in the order: located files first by device and key, then the rest by directory.
+     *
+     * @param tier 0 located by extent, 1 by inode, 2 not located.
+     */
+    private record Located(String file, int tier, long device, long key, String directory, String name) {
+    }
+
+    /**
+     * @param mode "NAME", "DIRECTORY", "INODE" or "EXTENT" (any case), null or blank for NAME.
+     * @return The mode.
+     * @throws IllegalArgumentException if the name is not a mode.
+     */
+    public static Mode mode(String mode) {
+        return mode == null || mode.isBlank() ? Mode.NAME : Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Sorts files for probing.
+     *
+     * @param files Absolute file paths.
+     * @param mode  The ordering.
+     * @return The files in probe order.
+     */
+    public static List<String> sort(Collection<String> files, Mode mode) {
+        if (mode == Mode.NAME) {
+            return files.stream()
+                    .sorted(Comparator.comparing(file -> fileName(file).toLowerCase(Locale.ROOT)))
+                    .toList();
+        }
+
+        long start = System.nanoTime();
+        boolean extents = mode == Mode.EXTENT && ExtentLocator.isAvailable();
+        if (mode == Mode.EXTENT && !extents) {
+            LOGGER.info("FIEMAP not available, ordering probes by inode instead");
+        }
+        List<Located> located = new ArrayList<>(files.size());
+        int[] tiers = new int[3];
+        for (String file : files) {
+            Located entry = locate(file, mode == Mode.DIRECTORY ? -1 : extents ? 0 : 1);
+            tiers[entry.tier()]++;
+            located.add(entry);
+        }
+        located.sort(Comparator.comparingInt(Located::tier)
+                .thenComparingLong(Located::device)
+                .thenComparingLong(Located::key)
+                .thenComparing(Located::directory)
+                .thenComparing(entry -> entry.name().toLowerCase(Locale.ROOT)));
+        if (mode != Mode.DIRECTORY) {
+            LOGGER.info("Ordered {} file(s) for probing in {} ms: by extent={}, by inode={}, by directory={}",
+                    files.size(), (System.nanoTime() - start) / 1_000_000, tiers[0], tiers[1], tiers[2]);
+        }
+        return located.stream().map(Located::file).toList();
+    }
+
+    // Tries the extent, then the inode, then falls back to the directory; from tier -1 goes to the directory directly
+    private static Located locate(String file, int fromTier) {
+        Path path = Paths.get(file);
+        String directory = path.getParent() != null ? path.getParent().toString() : "";
+        String name = fileName(file);
+        if (fromTier < 0) {
+            return new Located(file, 2, 0, 0, directory, name);
+        }
+        try {
+            Map<String, Object> attrs = Files.readAttributes(path, "unix:dev,ino");
+            long device = ((Number) attrs.get("dev")).longValue();
+            if (fromTier == 0) {
+                long offset = ExtentLocator.firstPhysicalOffset(path);
+                if (offset >= 0) {
+                    return new Located(file, 0, device, offset, directory, name);
+                }
+            }
+            return new Located(file, 1, device, ((Number) attrs.get("ino")).longValue(), directory, name);
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return new Located(file, 2, 0, 0, directory, name);
+        }
+    }
+
+    /**
+     * @param filePath The file.
+     * @return Byte offset of the file's first extent on its device, or -1 if unknown.
+     */
+    public static long physicalOffset(Path filePath) {
+        return ExtentLocator.firstPhysicalOffset(filePath);
+    }
+
+    private static String fileName(String file) {
+        Path fileName = Paths.get(file).getFileName();
+        return fileName != null ? fileName.toString() : file;
+    }
+}
@@ -0,0 +1,128 @@
+package io.neebu.apps.utils.probe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Files that hung or crashed a probe worker, so later scans skip them instead of losing a worker again.
+ * <p>
+ * A file is quarantined by identity, size and modification time (see {@link ProbeCache.FileIdentity}): replacing
+ * or remuxing it lifts the quarantine. The list is a text file, one tab-separated line per file (identity, size,
+ * mtime, path, reason), appended as files are added so a crash of the scan itself does not lose it. Delete a line,
+ * or the file, to retry.
+ */
+public class ProbeQuarantine implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeQuarantine.class);
+
+    private final Path listFile;
+    private final Set<String> entries = ConcurrentHashMap.newKeySet();
+    private BufferedWriter writer;
+
+    private ProbeQuarantine(Path listFile) {
+        this.listFile = listFile;
+    }
+
+    /**
+     * Loads the quarantine list.
+     *
+     * @param listFile The list file, or null to keep the quarantine for this run only.
+     * @return The quarantine.
+     */
+    public static ProbeQuarantine open(Path listFile) {
+        ProbeQuarantine quarantine = new ProbeQuarantine(listFile);
+        if (listFile == null) return quarantine;
+        try {
+            List<String> lines = Files.readAllLines(listFile, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length == 4) {
+                    quarantine.entries.add(entryKey(fields[0], fields[1], fields[2]));
+                }
+            }
+            if (!quarantine.entries.isEmpty()) {
+                LOGGER.info("{} file(s) quarantined from probing, see {}", quarantine.entries.size(), listFile);
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing quarantined yet
+        } catch (IOException e) {
+            LOGGER.warn("Could not read probe quarantine {}: {}", listFile, e.getMessage());
+        }
+        return quarantine;
+    }
+
+    public boolean contains(Path filePath) {
+        try {
+            return entries.contains(entryKey(ProbeCache.FileIdentity.of(filePath)));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Quarantines a file and appends it to the list file.
+     *
+     * @param filePath The file.
+     * @param reason   Why, e.g. "timed out after 120 s".
+     */
+    public synchronized void add(Path filePath, String reason) {
+        ProbeCache.FileIdentity identity;
+        try {
+            identity = ProbeCache.FileIdentity.of(filePath);
+        } catch (IOException e) {
+            LOGGER.warn("Could not quarantine {}: {}", filePath, e.getMessage());
+            return;
+        }
+        if (!entries.add(entryKey(identity))) return;
+        LOGGER.warn("Quarantined {} from probing: {}", filePath, reason);
+        if (listFile == null) return;
+        try {
+            if (writer == null) {
+                if (listFile.getParent() != null) Files.createDirectories(listFile.getParent());
+                writer = Files.newBufferedWriter(listFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(String.join("\t", identity.key(), String.valueOf(identity.size()),
+                    String.valueOf(identity.modifiedMillis()), filePath.toString().replace('\t', ' ')
+                            + "\t" + reason.replace('\n', ' ')));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            LOGGER.warn("Could not write probe quarantine {}: {}", listFile, e.getMessage());
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close probe quarantine {}: {}", listFile, e.getMessage());
+        }
+        writer = null;
+    }
+
+    private static String entryKey(ProbeCache.FileIdentity identity) {
+        return entryKey(identity.key(), String.valueOf(identity.size()), String.valueOf(identity.modifiedMillis()));
+    }
+
+    private static String entryKey(String key, String size, String modifiedMillis) {
+        return key + "/" + size + "/" + modifiedMillis;
+    }
+}
@@ -0,0 +1,42 @@
+package io.neebu.apps.utils.probe;
+
+import io.neebu.apps.utils.MediaParser;
+import io.neebu.apps.utils.MediaParserV2;
+
+import java.util.List;
+
+/**
+ * Technical fields derived from a MediaInfo snapshot, as stored on a {@link io.neebu.apps.core.models.MediaFile}.
+ *
+ * @param videoCodec    e.g. "H264", "HEVC".
+ * @param resolution    e.g. "1080p".
+ * @param hdrFormat     e.g. "DV.HDR10", empty if SDR.
+ * @param audioCodec    Codec of the preferred audio track, null if there is none.
+ * @param audioChannels Channels of the preferred audio track, null if there is none.
+ * @param audioTracks   Every non-commentary audio track, in stream order.
+ */
+public record ProbeResult(String videoCodec, String resolution, String hdrFormat, String audioCodec,
+                          String audioChannels, List<AudioTrack> audioTracks) {
+
+    public ProbeResult {
+        audioTracks = List.copyOf(audioTracks);
+    }
+
+    public record AudioTrack(String codec, String channels, String language, String title) {
+    }
+
+    /**
+     * Derives the result from a snapshot.
+     *
+     * @param probe The snapshot.
+     * @return The result.
+     */
+    public static ProbeResult of(MediaProbe probe) {
+        MediaParser mediaParser = new MediaParser(probe);
+        List<AudioTrack> audioTracks = new MediaParserV2(probe).getAllAudioTracks().stream()
+                .map(track -> new AudioTrack(track[0], track[1], track[2], track[3]))
+                .toList();
+        return new ProbeResult(mediaParser.getVideoCodec(), mediaParser.getVideoFormat(), mediaParser.getHdrFormat(),
+                mediaParser.getAudioCodec(), mediaParser.getAudioChannels(), audioTracks);
+    }
+}
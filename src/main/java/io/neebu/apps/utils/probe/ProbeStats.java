@@ -0,0 +1,85 @@
+package io.neebu.apps.utils.probe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * I/O cost of the MediaInfo probes of a scan: files, bytes read and wall time, in total and worst case.
+ * Cache hits are not probes and are not counted.
+ */
+public class ProbeStats {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeStats.class);
+
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong headerOnlyFiles = new AtomicLong();
+    private final AtomicLong measuredFiles = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+    private final LongAccumulator maxBytesRead = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param fileBytesRead Bytes read for the file, or a negative value if it could not be measured.
+     * @param fileNanos     Wall time of the probe.
+     * @param headerOnly    Whether the file was read by the container parser rather than MediaInfo.
+     */
+    public void record(long fileBytesRead, long fileNanos, boolean headerOnly) {
+        files.incrementAndGet();
+        if (headerOnly) headerOnlyFiles.incrementAndGet();
+        nanos.addAndGet(fileNanos);
+        maxNanos.accumulate(fileNanos);
+        if (fileBytesRead >= 0) {
+            measuredFiles.incrementAndGet();
+            bytesRead.addAndGet(fileBytesRead);
+            maxBytesRead.accumulate(fileBytesRead);
+        }
+    }
+
+    public long getFiles() {
+        return files.get();
+    }
+
+    public long getHeaderOnlyFiles() {
+        return headerOnlyFiles.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getNanos() {
+        return nanos.get();
+    }
+
+    /**
+     * @return Average bytes read per measured file, or -1 if no file could be measured.
+     */
+    public long getAverageBytesRead() {
+        long measured = measuredFiles.get();
+        return measured == 0 ? -1 : bytesRead.get() / measured;
+    }
+
+    public double getAverageMillis() {
+        long count = files.get();
+        return count == 0 ? 0 : nanos.get() / 1e6 / count;
+    }
+
+    public void log(String label) {
+        if (files.get() == 0) {
+            LOGGER.info("{} probes: none", label);
+            return;
+        }
+        if (measuredFiles.get() == 0) {
+            LOGGER.info("{} probes: files={} ({} from container headers), avg={} ms, max={} ms, bytes read not measurable on this platform",
+                    label, files.get(), headerOnlyFiles.get(), String.format("%.1f", getAverageMillis()), String.format("%.1f", maxNanos.get() / 1e6));
+            return;
+        }
+        LOGGER.info("{} probes: files={} ({} from container headers), read={} KiB (avg {} KiB, max {} KiB), avg={} ms, max={} ms",
+                label, files.get(), headerOnlyFiles.get(), bytesRead.get() / 1024, getAverageBytesRead() / 1024, maxBytesRead.get() / 1024,
+                String.format("%.1f", getAverageMillis()), String.format("%.1f", maxNanos.get() / 1e6));
+    }
+}
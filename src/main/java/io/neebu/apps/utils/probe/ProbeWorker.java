@@ -0,0 +1,210 @@
+package io.neebu.apps.utils.probe;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Child-process entry point of the {@link ProbeWorkerPool}.
+ * <p>
+ * Reads one request per line from stdin (the file path as a JSON string) and answers each with one JSON line on
+ * stdout, in order: {"path":"..","ok":true,"bytesRead":..,"nanos":..,"headerOnly":..,"result":{..}} or
+ * {"path":"..","ok":false,"error":".."}. The path is the request's, so that the parent can tell a response from
+ * anything else native code writes to stdout. Logging goes to stderr, which the parent inherits. The process exits
+ * when stdin is closed.
+ * <p>
+ * Usage: ProbeWorker [parse speed, or - for MediaInfo's default] [use container parser: true|false] [jna|ffm]
+ */
+public class ProbeWorker {
+
+    public static void main(String[] args) throws IOException {
+        // Keep stdout for the protocol, anything else printed goes to stderr
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), false, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        String parseSpeed = args.length > 0 && !args[0].equals("-") ? args[0] : null;
+        boolean headerParser = args.length < 2 || Boolean.parseBoolean(args[1]);
+        MediaInfoBinding binding = MediaInfoBinding.named(args.length > 2 ? args[2] : null);
+
+        BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        try (MediaInfoPool pool = new MediaInfoPool(binding)) {
+            String line;
+            while ((line = requests.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String path = null;
+                String response;
+                try {
+                    path = decodeRequest(line);
+                    response = encodeResponse(path, MediaProber.probeInProcess(Path.of(path), pool, parseSpeed, headerParser));
+                } catch (Exception e) {
+                    response = encodeError(path, e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+                protocol.println(response);
+                protocol.flush();
+            }
+        }
+    }
+
+    static String encodeRequest(Path filePath) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.value(filePath.toString());
+        }
+        return out.toString();
+    }
+
+    static String decodeRequest(String line) throws IOException {
+        try (JsonReader json = new JsonReader(new StringReader(line))) {
+            return json.nextString();
+        }
+    }
+
+    static String encodeResponse(String path, MediaProber.Probed probed) throws IOException {
+        ProbeResult result = probed.result();
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject()
+                    .name("path").value(path)
+                    .name("ok").value(true)
+                    .name("bytesRead").value(probed.bytesRead())
+                    .name("nanos").value(probed.nanos())
+                    .name("headerOnly").value(probed.headerOnly())
+                    .name("result").beginObject()
+                    .name("videoCodec").value(result.videoCodec())
+                    .name("resolution").value(result.resolution())
+                    .name("hdrFormat").value(result.hdrFormat())
+                    .name("audioCodec").value(result.audioCodec())
+                    .name("audioChannels").value(result.audioChannels())
+                    .name("audioTracks").beginArray();
+            for (ProbeResult.AudioTrack track : result.audioTracks()) {
+                json.beginObject()
+                        .name("codec").value(track.codec())
+                        .name("channels").value(track.channels())
+                        .name("language").value(track.language())
+                        .name("title").value(track.title())
+                        .endObject();
+            }
+            json.endArray().endObject().endObject();
+        }
+        return out.toString();
+    }
+
+    static String encodeError(String path, String message) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.beginObject().name("path").value(path).name("ok").value(false).name("error").value(message).endObject();
+        }
+        return out.toString();
+    }
+
+    /**
+     * A line on the worker's stdout that is not the response to the request in flight. The worker's later responses
+     * cannot be trusted to line up with their requests any more.
+     */
+    static class ProtocolException extends IOException {
+
+        ProtocolException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Decodes a response line.
+     *
+     * @param line     The line read from the worker.
+     * @param filePath The file of the request in flight.
+     * @return The probe outcome.
+     * @throws ProtocolException if the line is not a response, or the response to another file.
+     * @throws IOException       with the worker's message if the probe failed there.
+     */
+    static MediaProber.Probed decodeResponse(String line, Path filePath) throws IOException {
+        String path = null;
+        boolean ok = false;
+        String error = null;
+        long bytesRead = -1;
+        long nanos = 0;
+        boolean headerOnly = false;
+        ProbeResult result = null;
+        try (JsonReader json = new JsonReader(new StringReader(line))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "path" -> path = nextStringOrNull(json);
+                    case "ok" -> ok = json.nextBoolean();
+                    case "error" -> error = nextStringOrNull(json);
+                    case "bytesRead" -> bytesRead = json.nextLong();
+                    case "nanos" -> nanos = json.nextLong();
+                    case "headerOnly" -> headerOnly = json.nextBoolean();
+                    case "result" -> result = readResult(json);
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            if (json.peek() != JsonToken.END_DOCUMENT) throw new IllegalStateException("Trailing characters");
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new ProtocolException("Malformed probe worker response: " + line, e);
+        }
+        if (!filePath.toString().equals(path)) {
+            throw new ProtocolException("Probe worker answered for " + path + " while probing " + filePath, null);
+        }
+        if (!ok || result == null) {
+            throw new IOException(error != null ? error : "Probe worker returned no result");
+        }
+        return new MediaProber.Probed(result, bytesRead, nanos, headerOnly);
+    }
+
+    private static ProbeResult readResult(JsonReader json) throws IOException {
+        String videoCodec = null, resolution = null, hdrFormat = null, audioCodec = null, audioChannels = null;
+        List<ProbeResult.AudioTrack> audioTracks = new ArrayList<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "videoCodec" -> videoCodec = nextStringOrNull(json);
+                case "resolution" -> resolution = nextStringOrNull(json);
+                case "hdrFormat" -> hdrFormat = nextStringOrNull(json);
+                case "audioCodec" -> audioCodec = nextStringOrNull(json);
+                case "audioChannels" -> audioChannels = nextStringOrNull(json);
+                case "audioTracks" -> {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        audioTracks.add(readAudioTrack(json));
+                    }
+                    json.endArray();
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new ProbeResult(videoCodec, resolution, hdrFormat, audioCodec, audioChannels, audioTracks);
+    }
+
+    private static ProbeResult.AudioTrack readAudioTrack(JsonReader json) throws IOException {
+        String codec = null, channels = null, language = null, title = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "codec" -> codec = nextStringOrNull(json);
+                case "channels" -> channels = nextStringOrNull(json);
+                case "language" -> language = nextStringOrNull(json);
+                case "title" -> title = nextStringOrNull(json);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new ProbeResult.AudioTrack(codec, channels, language, title);
+    }
+
+    private static String nextStringOrNull(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+}
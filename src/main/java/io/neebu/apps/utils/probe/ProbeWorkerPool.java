@@ -0,0 +1,273 @@
+package io.neebu.apps.utils.probe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of child JVMs running {@link ProbeWorker}, so MediaInfo runs outside the scanning process.
+ * <p>
+ * Each worker handles one file at a time: the path goes down its stdin and the result comes back as one line on
+ * its stdout. A worker that does not answer within the timeout is killed, one that dies is noticed by its closed
+ * stdout; either way the file is quarantined and the worker is started again on its next use. A worker whose line
+ * is not the response to the file in flight is killed and started again too, as its later lines would belong to
+ * the wrong files. Workers are started
+ * lazily, so an all-cached scan starts none. The workers get this JVM's system properties, so that they load the
+ * same MediaInfo library.
+ */
+public class ProbeWorkerPool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeWorkerPool.class);
+
+    // Queued by a worker's reader thread when its stdout closes
+    private static final Object EOF = new Object();
+
+    // Where MediaInfo and JNA's native parts are loaded from, passed on to the workers with every -D given to this JVM
+    private static final List<String> FORWARDED_PROPERTIES = List.of("java.library.path", "jna.library.path",
+            "jna.boot.library.path", "jna.nosys", "jna.tmpdir", "java.io.tmpdir");
+
+    private final int size;
+    private final Duration timeout;
+    private final List<String> command;
+    private final ProbeQuarantine quarantine;
+    private final BlockingQueue<Worker> idle;
+    private final List<Worker> all = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param size         Number of worker processes.
+     * @param timeout      Time allowed per file before its worker is killed.
+     * @param parseSpeed   MediaInfo ParseSpeed for the workers, or null for the default.
+     * @param headerParser Whether the workers try the pure-Java container parser first.
+     * @param binding      MediaInfo binding for the workers, see {@link MediaInfoBinding#named(String)}.
+     * @param quarantine   Where files that hang or crash a worker are recorded.
+     */
+    public ProbeWorkerPool(int size, Duration timeout, String parseSpeed, boolean headerParser, String binding,
+                           ProbeQuarantine quarantine) {
+        if (size < 1) throw new IllegalArgumentException("Worker pool size must be at least 1");
+        this.size = size;
+        this.timeout = timeout;
+        this.quarantine = quarantine;
+        List<String> command = new ArrayList<>(List.of(javaBinary(), "-Xmx256m", "--enable-native-access=ALL-UNNAMED"));
+        command.addAll(systemProperties());
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), ProbeWorker.class.getName(),
+                parseSpeed != null ? parseSpeed : "-", String.valueOf(headerParser), binding != null ? binding : "jna"));
+        this.command = List.copyOf(command);
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            Worker worker = new Worker(i + 1);
+            all.add(worker);
+            idle.add(worker);
+        }
+        LOGGER.info("Probing in {} worker process(es), {} s per file", size, timeout.toSeconds());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Probes a file in the next idle worker, waiting for one if all are busy.
+     *
+     * @param filePath The media file.
+     * @return The probe outcome.
+     * @throws IOException if the file is quarantined, could not be probed, or hung or crashed the worker.
+     */
+    public MediaProber.Probed probe(Path filePath) throws IOException {
+        if (quarantine.contains(filePath)) {
+            throw new IOException("Quarantined from probing: " + filePath);
+        }
+        Worker worker;
+        try {
+            worker = idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a probe worker", e);
+        }
+        try {
+            return worker.probe(filePath);
+        } finally {
+            idle.add(worker);
+        }
+    }
+
+    /**
+     * Closes the workers' stdin so they exit, killing any that have not within a few seconds.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Worker worker : all) {
+            worker.stop();
+        }
+    }
+
+    private static List<String> systemProperties() {
+        Set<String> names = new LinkedHashSet<>(FORWARDED_PROPERTIES);
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-D")) {
+                int equals = argument.indexOf('=');
+                names.add(argument.substring(2, equals < 0 ? argument.length() : equals));
+            }
+        }
+        List<String> options = new ArrayList<>();
+        for (String name : names) {
+            String value = System.getProperty(name);
+            if (value != null) {
+                options.add("-D" + name + "=" + value);
+            }
+        }
+        return options;
+    }
+
+    private static String javaBinary() {
+        return ProcessHandle.current().info().command()
+                .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    }
+
+    private class Worker {
+
+        private final int id;
+        // Replaced under the worker's lock, a probe in flight keeps using the ones it started with
+        private Process process;
+        private Writer requests;
+        private BlockingQueue<Object> responses;
+
+        Worker(int id) {
+            this.id = id;
+        }
+
+        MediaProber.Probed probe(Path filePath) throws IOException {
+            Process running;
+            Writer writer;
+            BlockingQueue<Object> queue;
+            synchronized (this) {
+                if (closed) throw new IOException("Probe worker pool is closed");
+                if (process == null) {
+                    start();
+                }
+                running = process;
+                writer = requests;
+                queue = responses;
+            }
+            try {
+                writer.write(ProbeWorker.encodeRequest(filePath));
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                // Died while idle or stopped by close(), the file is not to blame
+                kill(running);
+                throw new IOException("Probe worker " + id + " is gone: " + e.getMessage(), e);
+            }
+
+            Object response;
+            try {
+                response = queue.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                kill(running);
+                throw new IOException("Interrupted while probing " + filePath, e);
+            }
+            if (response == null) {
+                kill(running);
+                quarantine.add(filePath, "timed out after " + timeout.toSeconds() + " s");
+                throw new IOException("Probe timed out after " + timeout.toSeconds() + " s: " + filePath);
+            }
+            if (response == EOF) {
+                if (closed) {
+                    throw new IOException("Probe worker pool closed while probing " + filePath);
+                }
+                int exitCode = exitCode(running);
+                kill(running);
+                quarantine.add(filePath, "worker crashed, exit code " + exitCode);
+                throw new IOException("Probe worker crashed (exit code " + exitCode + ") on " + filePath);
+            }
+            try {
+                return ProbeWorker.decodeResponse((String) response, filePath);
+            } catch (ProbeWorker.ProtocolException e) {
+                kill(running);
+                throw e;
+            }
+        }
+
+        private void start() throws IOException {
+            process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+            responses = queue;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            Thread readerThread = new Thread(() -> {
+                try (reader) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        queue.add(line);
+                    }
+                } catch (IOException e) {
+                    // Treated as the end of the stream
+                }
+                queue.add(EOF);
+            }, "probe-worker-" + id);
+            readerThread.setDaemon(true);
+            readerThread.start();
+            LOGGER.debug("Started probe worker {} (pid {})", id, process.pid());
+        }
+
+        private int exitCode(Process running) {
+            try {
+                return running.waitFor(1, TimeUnit.SECONDS) ? running.exitValue() : -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+
+        // The next probe starts a fresh process, unless one has been started since
+        private synchronized void kill(Process running) {
+            running.destroyForcibly();
+            if (process == running) {
+                process = null;
+                requests = null;
+                responses = null;
+            }
+        }
+
+        private void stop() {
+            Process running;
+            Writer writer;
+            synchronized (this) {
+                running = process;
+                writer = requests;
+                if (running == null) return;
+                process = null;
+                requests = null;
+                responses = null;
+            }
+            try {
+                writer.close();
+                if (!running.waitFor(5, TimeUnit.SECONDS)) {
+                    running.destroyForcibly();
+                }
+            } catch (IOException e) {
+                running.destroyForcibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running.destroyForcibly();
+            }
+        }
+    }
+}
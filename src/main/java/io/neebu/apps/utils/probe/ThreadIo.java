@@ -0,0 +1,41 @@
+package io.neebu.apps.utils.probe;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Bytes read by the calling thread, for charging file reads (native ones included) to the code that made them.
+ * <p>
+ * Uses the rchar counter of /proc/thread-self/io, which counts every read syscall of the thread whether it hits
+ * a local disk, the page cache or a network share. Where that file is missing (non-Linux) nothing is measured.
+ */
+final class ThreadIo {
+
+    private static final Path THREAD_IO = Path.of("/proc/thread-self/io");
+    private static final boolean SUPPORTED = Files.isReadable(THREAD_IO);
+
+    private ThreadIo() {
+    }
+
+    static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * @return Bytes read by the calling thread so far, or -1 if unknown.
+     */
+    static long bytesRead() {
+        if (!SUPPORTED) return -1;
+        try {
+            for (String line : Files.readAllLines(THREAD_IO)) {
+                if (line.startsWith("rchar:")) {
+                    return Long.parseLong(line.substring("rchar:".length()).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // fall through, the caller treats it as unmeasured
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,124 @@
+package io.neebu.apps.conn;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.neebu.apps.core.entities.Constants;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TmdbApiClientTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static HttpServer server;
+    private static String tmdbApiUri;
+    private static final AtomicInteger searches = new AtomicInteger();
+    private static final AtomicInteger tvSearches = new AtomicInteger();
+
+    @BeforeAll
+    static void start() throws Exception {
+        Path export = Paths.get(TmdbApiClientTest.class.getResource("/tmdb/movie_ids_fixture.json").toURI());
+        Path indexFile = tempDir.resolve("movie.index");
+        TmdbExportImporter.importExport(export, indexFile);
+        TmdbApiClient.useTitleIndex(Constants.CollectionType.MOVIE, TmdbTitleIndex.open(indexFile));
+        Path tvExport = Paths.get(TmdbApiClientTest.class.getResource("/tmdb/tv_series_ids_fixture.json").toURI());
+        Path tvIndexFile = tempDir.resolve("tv.index");
+        TmdbExportImporter.importExport(tvExport, tvIndexFile);
+        TmdbApiClient.useTitleIndex(Constants.CollectionType.TV, TmdbTitleIndex.open(tvIndexFile));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/3/movie/3924", exchange -> respond(exchange,
+                "{\"id\":3924,\"title\":\"Blondie\",\"release_date\":\"1938-11-30\"}"));
+        server.createContext("/3/search/movie", exchange -> {
+            searches.incrementAndGet();
+            respond(exchange, "{\"page\":1,\"results\":[{\"id\":1200000,\"title\":\"Blondie\",\"release_date\":\"2024-03-01\"}]}");
+        });
+        // The US remake (index hit) has no season 9 episode 1 on this server, the UK original (search result) has
+        server.createContext("/3/tv", exchange -> {
+            switch (exchange.getRequestURI().getPath()) {
+                case "/3/tv/64513" -> respond(exchange, "{\"id\":64513,\"name\":\"Shameless\",\"first_air_date\":\"2011-01-09\"}");
+                case "/3/tv/64513/season/1/episode/1", "/3/tv/1906/season/9/episode/1" ->
+                        respond(exchange, "{\"id\":1,\"name\":\"Pilot\",\"overview\":\"\"}");
+                default -> {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                }
+            }
+        });
+        server.createContext("/3/search/tv", exchange -> {
+            tvSearches.incrementAndGet();
+            respond(exchange, "{\"page\":1,\"results\":[{\"id\":1906,\"name\":\"Shameless\",\"first_air_date\":\"2004-01-13\"}]}");
+        });
+        server.start();
+        tmdbApiUri = "http://127.0.0.1:" + server.getAddress().getPort() + "/3";
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void acceptsAnIndexHitReleasedInTheRequestedYear() throws Exception {
+        int before = searches.get();
+        assertEquals(3924, TmdbApiClient.getTmdbMovieId("key", tmdbApiUri, "Blondie", 1938).getTmdbId());
+        assertEquals(before, searches.get());
+    }
+
+    @Test
+    void searchesWhenTheIndexHitContradictsTheYear() throws Exception {
+        int before = searches.get();
+        assertEquals(1200000, TmdbApiClient.getTmdbMovieId("key", tmdbApiUri, "Blondie", 2024).getTmdbId());
+        assertEquals(before + 1, searches.get());
+    }
+
+    @Test
+    void acceptsATvIndexHitThatHasTheEpisode() throws Exception {
+        int before = tvSearches.get();
+        assertEquals(64513, TmdbApiClient.getTmdbTvId("key", tmdbApiUri, "Shameless", 1, 1).getTmdbId());
+        assertEquals(before, tvSearches.get());
+    }
+
+    @Test
+    void searchesWhenTheTvIndexHitLacksTheEpisode() throws Exception {
+        int before = tvSearches.get();
+        assertEquals(1906, TmdbApiClient.getTmdbTvId("key", tmdbApiUri, "Shameless", 9, 1).getTmdbId());
+        assertEquals(before + 1, tvSearches.get());
+    }
+
+    @Test
+    void comparesReleaseDatesByYear() {
+        assertTrue(TmdbApiClient.isReleasedIn("1938-11-30", 1938));
+        assertFalse(TmdbApiClient.isReleasedIn("1938-11-30", 2024));
+        assertTrue(TmdbApiClient.isReleasedIn(null, 2024));
+        assertTrue(TmdbApiClient.isReleasedIn("1938-11-30", null));
+    }
+}
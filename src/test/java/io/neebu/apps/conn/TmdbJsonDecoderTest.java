@@ -0,0 +1,51 @@
+package io.neebu.apps.conn;
+
+import com.google.gson.stream.JsonReader;
+import io.neebu.apps.core.entities.Constants;
+import io.neebu.apps.core.models.TmdbTitle;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TmdbJsonDecoderTest {
+
+    @Test
+    void readsTheAppendedSubResourcesOfMovieDetails() throws Exception {
+        String json = "{\"id\":603,\"title\":\"The Matrix\",\"original_title\":\"The Matrix\",\"original_language\":\"en\","
+                + "\"release_date\":\"1999-03-30\",\"runtime\":136,\"genres\":[{\"id\":28,\"name\":\"Action\"}],"
+                + "\"imdb_id\":\"tt0133093\",\"external_ids\":{\"imdb_id\":\"tt0133093\",\"wikidata_id\":\"Q83495\"},"
+                + "\"release_dates\":{\"results\":[{\"iso_3166_1\":\"DE\",\"release_dates\":[{\"certification\":\"16\"}]},"
+                + "{\"iso_3166_1\":\"US\",\"release_dates\":[{\"certification\":\"\"},{\"certification\":\"R\"}]}]},"
+                + "\"translations\":{\"translations\":[{\"iso_3166_1\":\"FR\",\"iso_639_1\":\"fr\",\"data\":{\"title\":\"Matrix\"}}]}}";
+        TmdbTitle title = TmdbJsonDecoder.readTitle(new JsonReader(new StringReader(json)), Constants.CollectionType.MOVIE);
+
+        assertEquals(603, title.getTmdbId());
+        assertEquals("The Matrix", title.getTmdbName());
+        assertEquals("en", title.getOriginalLanguage());
+        assertEquals(136, title.getRuntime());
+        assertEquals(List.of("Action"), title.getGenres());
+        assertEquals("tt0133093", title.getImdbId());
+        assertEquals("R", title.getCertification());
+        assertEquals(List.of("fr-FR"), title.getTranslations());
+    }
+
+    @Test
+    void readsTheAppendedSubResourcesOfTvDetails() throws Exception {
+        String json = "{\"id\":1396,\"name\":\"Breaking Bad\",\"first_air_date\":\"2008-01-20\",\"episode_run_time\":[45,47],"
+                + "\"external_ids\":{\"imdb_id\":\"tt0903747\",\"tvdb_id\":81189},"
+                + "\"content_ratings\":{\"results\":[{\"iso_3166_1\":\"US\",\"rating\":\"TV-MA\"}]}}";
+        TmdbTitle title = TmdbJsonDecoder.readTitle(new JsonReader(new StringReader(json)), Constants.CollectionType.TV);
+
+        assertEquals("Breaking Bad", title.getTmdbName());
+        assertEquals("2008-01-20", title.getReleaseDate());
+        assertEquals(45, title.getRuntime());
+        assertEquals("tt0903747", title.getImdbId());
+        assertEquals("81189", title.getTvdbId());
+        assertEquals("TV-MA", title.getCertification());
+        assertNull(title.getOriginalName());
+    }
+}
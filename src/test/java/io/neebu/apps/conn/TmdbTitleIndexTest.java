@@ -0,0 +1,63 @@
+package io.neebu.apps.conn;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TmdbTitleIndexTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static TmdbTitleIndex titleIndex;
+
+    @BeforeAll
+    static void importFixture() throws Exception {
+        Path export = Paths.get(TmdbTitleIndexTest.class.getResource("/tmdb/movie_ids_fixture.json").toURI());
+        Path indexFile = tempDir.resolve("movie.index");
+        // The adult, malformed and id-less lines are left out
+        assertEquals(6, TmdbExportImporter.importExport(export, indexFile));
+        titleIndex = TmdbTitleIndex.open(indexFile);
+    }
+
+    @Test
+    void resolvesAnUnambiguousTitle() {
+        assertEquals(3924, titleIndex.resolve("blondie", null).tmdbId());
+    }
+
+    @Test
+    void leavesAdultTitlesOut() {
+        assertEquals(1, titleIndex.lookup("Blondie").size());
+    }
+
+    @Test
+    void keepsASingleTitleWithoutYearForTheCallerToCheck() {
+        TmdbTitleIndex.Candidate candidate = titleIndex.resolve("Blondie", 2024);
+        assertEquals(3924, candidate.tmdbId());
+        assertNull(candidate.year());
+    }
+
+    @Test
+    void filtersByYearWhereTheExportHasOne() {
+        assertEquals(62, titleIndex.resolve("2001 A Space Odyssey", 1968).tmdbId());
+        assertNull(titleIndex.resolve("2001 A Space Odyssey", 1970));
+    }
+
+    @Test
+    void acceptsADominantTitleOnlyWithoutYear() {
+        assertEquals(438631, titleIndex.resolve("Dune", null).tmdbId());
+        assertNull(titleIndex.resolve("Dune", 1984));
+    }
+
+    @Test
+    void leavesAmbiguousTitlesToTheSearch() {
+        assertNull(titleIndex.resolve("The Thing", null));
+        assertNull(titleIndex.resolve("Unknown Title", null));
+    }
+}
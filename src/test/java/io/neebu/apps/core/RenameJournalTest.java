@@ -0,0 +1,47 @@
+package io.neebu.apps.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RenameJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void keepsUnsettledRenamesWhenStartingOver() throws Exception {
+        Path journalFile = tempDir.resolve("movie.journal");
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            journal.done(journal.begin(Path.of("/a/done.mkv"), Path.of("/a/Done.mkv")));
+            journal.begin(Path.of("/a/unsettled.mkv"), Path.of("/a/Unsettled.mkv"));
+        }
+
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            journal.done(journal.begin(Path.of("/b/next.mkv"), Path.of("/b/Next.mkv")));
+        }
+
+        List<RenameJournal.Entry> entries = RenameJournal.read(journalFile);
+        assertEquals(2, entries.size());
+        assertEquals(new RenameJournal.Entry(1, Path.of("/a/unsettled.mkv"), Path.of("/a/Unsettled.mkv"),
+                RenameJournal.State.BEGUN), entries.get(0));
+        assertEquals(new RenameJournal.Entry(2, Path.of("/b/next.mkv"), Path.of("/b/Next.mkv"),
+                RenameJournal.State.DONE), entries.get(1));
+    }
+
+    @Test
+    void startsOverOnlyOnce() throws Exception {
+        Path journalFile = tempDir.resolve("tv.journal");
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            journal.done(journal.begin(Path.of("/a/one.mkv"), Path.of("/a/One.mkv")));
+            journal.done(journal.begin(Path.of("/a/two\tpart.mkv"), Path.of("/a/Two.mkv")));
+        }
+        List<RenameJournal.Entry> entries = RenameJournal.read(journalFile);
+        assertEquals(2, entries.size());
+        assertEquals(Path.of("/a/two\tpart.mkv"), entries.get(1).from());
+    }
+}
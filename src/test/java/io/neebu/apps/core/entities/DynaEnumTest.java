@@ -0,0 +1,33 @@
+package io.neebu.apps.core.entities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DynaEnumTest {
+
+    static class Flavour extends DynaEnum<Flavour> {
+
+        static final Flavour PLAIN = new Flavour("PLAIN", 0);
+        // A constant with a class body of its own
+        static final Flavour SPICY = new Flavour("SPICY", 1) {
+            @Override
+            public String toString() {
+                return "spicy";
+            }
+        };
+
+        private Flavour(String name, int ordinal) {
+            super(name, ordinal);
+            addElement();
+        }
+    }
+
+    @Test
+    void registersSubclassedConstantsUnderTheDeclaringClass() {
+        assertArrayEquals(new Flavour[]{Flavour.PLAIN, Flavour.SPICY}, DynaEnum.values(Flavour.class));
+        assertSame(Flavour[].class, DynaEnum.snapshot(Flavour.class).getClass());
+        assertSame(Flavour.SPICY, DynaEnum.valueOf(Flavour.class, "SPICY"));
+    }
+}
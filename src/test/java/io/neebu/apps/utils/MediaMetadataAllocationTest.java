@@ -0,0 +1,66 @@
+package io.neebu.apps.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Bytes allocated per file name by {@link MediaMetadata} against the regular expression version it replaced,
+ * both measured in the same run with the thread allocation counter after a warm-up, keeping the least of a few
+ * rounds.
+ * <p>
+ * Being a ratio of two measurements on the running JDK, the check needs no recorded values; on JDK 21 the lexer
+ * allocates about 22 times fewer bytes. Absolute budgets per operation are checked by the bench profile's
+ * AllocationBudgetCheck, against values recorded on the build JDK.
+ */
+class MediaMetadataAllocationTest {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 5;
+
+    // Written by every run so the JIT cannot drop the operation as dead code
+    private static volatile Object sink;
+
+    private static String[] names;
+
+    @BeforeAll
+    static void generate() {
+        assumeTrue(THREAD_BEAN.isThreadAllocatedMemorySupported(), "no thread allocation counter on this JVM");
+        names = ReleaseNames.generate(2000, new Random(7)).toArray(String[]::new);
+    }
+
+    private static double bytesPerOp(IntFunction<Object> op) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < names.length; i++) {
+                sink = op.apply(i);
+            }
+        }
+        long threadId = Thread.currentThread().threadId();
+        double least = Double.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long before = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < names.length; i++) {
+                sink = op.apply(i);
+            }
+            least = Math.min(least, (THREAD_BEAN.getThreadAllocatedBytes(threadId) - before) / (double) names.length);
+        }
+        return least;
+    }
+
+    @Test
+    void allocatesAFractionOfTheRegularExpressions() {
+        double lexer = bytesPerOp(i -> new MediaMetadata(names[i]));
+        double legacy = bytesPerOp(i -> new LegacyMediaMetadata(names[i]));
+        assertTrue(lexer <= legacy / 5, String.format("MediaMetadata allocates %.0f B/op, the regular expressions %.0f",
+                lexer, legacy));
+    }
+}
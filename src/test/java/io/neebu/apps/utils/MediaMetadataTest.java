@@ -0,0 +1,61 @@
+package io.neebu.apps.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MediaMetadataTest {
+
+    // Large enough to reach every branch of the generator many times, small enough for every build
+    private static final int GENERATED_NAMES = 50_000;
+
+    @Test
+    void agreesWithTheRegularExpressionsOnGeneratedNames() {
+        List<String> mismatches = new ArrayList<>();
+        for (String name : ReleaseNames.generate(GENERATED_NAMES, new Random(41))) {
+            LegacyMediaMetadata expected = new LegacyMediaMetadata(name);
+            MediaMetadata actual = new MediaMetadata(name);
+            if (!expected.getTitle().equals(actual.getTitle()) || !expected.getSeason().equals(actual.getSeason())
+                    || !expected.getEpisode().equals(actual.getEpisode()) || !expected.getYear().equals(actual.getYear())) {
+                mismatches.add(name + "\n  legacy: " + expected + "\n  lexer:  " + actual);
+            }
+        }
+        assertTrue(mismatches.isEmpty(), mismatches.size() + " mismatch(es), first ones:\n"
+                + String.join("\n", mismatches.subList(0, Math.min(10, mismatches.size()))));
+    }
+
+    @Test
+    void agreesWithTheRegularExpressionsOnEdgeCases() {
+        String[] names = {"", " ", "Movie", "2001", "1917.2019.1080p", "The.Matrix.1999.{tmdb-603}.mkv",
+                "Show.S01E02.Title.mkv", "Show 1x02 Title.avi", "Show.S01E02-E03.mkv", "Movie [2012] [1080p]",
+                "Title_21.03.04_20-15_ard_90_TVOON_DE.mpg.HQ.avi", "Movie.1920x1080.2010", "Movie\n2010", "\u0130t.2010",
+                "Movie.K.2010", "Rocky.ii.1979.PAL.DVDRip"};
+        for (String name : names) {
+            LegacyMediaMetadata expected = new LegacyMediaMetadata(name);
+            MediaMetadata actual = new MediaMetadata(name);
+            String message = "'" + name + "'";
+            assertEquals(expected.getTitle(), actual.getTitle(), message);
+            assertEquals(expected.getSeason(), actual.getSeason(), message);
+            assertEquals(expected.getEpisode(), actual.getEpisode(), message);
+            assertEquals(expected.getYear(), actual.getYear(), message);
+        }
+    }
+
+    @Test
+    void parsesReleaseNames() {
+        MediaMetadata movie = new MediaMetadata("The.Matrix.1999.1080p.BluRay.x264-GRP.mkv");
+        assertEquals("The Matrix", movie.getTitle());
+        assertEquals("1999", movie.getYear());
+        assertEquals("", movie.getSeason());
+
+        MediaMetadata episode = new MediaMetadata("Show.Name.S02E13.720p.WEB.x264-GRP.mkv");
+        assertEquals("Show Name", episode.getTitle());
+        assertEquals("02", episode.getSeason());
+        assertEquals("13", episode.getEpisode());
+    }
+}
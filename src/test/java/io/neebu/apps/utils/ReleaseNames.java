@@ -0,0 +1,154 @@
+package io.neebu.apps.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated file names for the {@link MediaMetadata} differential test and the benchmarks: release names for movies
+ * and episodes built from the tokens the parser cares about (years, SxxEyy and NxNN, resolutions, stopwords in mixed
+ * case, CLEANWORDS, tmdb and [optional] tags, recording timestamps, Roman numerals), the same with random edits, and
+ * random strings over delimiters, digits and the characters where regular expressions and hand-written scanning tend
+ * to disagree (line terminators, dotless i, Kelvin sign, long s).
+ */
+public final class ReleaseNames {
+
+    private static final String[] TITLE_WORDS = {"The", "Lord", "of", "the", "Rings", "Return", "King", "Star", "Wars",
+            "A", "New", "Hope", "Rocky", "ii", "iv", "Vi", "x", "Alien", "Blade", "Runner", "Se7en", "2001", "Space",
+            "Odyssey", "1917", "L\u00e9on", "Am\u00e9lie", "Das", "Boot", "Crouching", "Tiger", "Mr.", "Robot", "Dr", "No", "it",
+            "Complete", "Extended", "Pal", "Dubbed", "Proper", "Se", "Ma", "Am", "Pm", "Up", "Her", "Us", "Him"};
+    private static final String[] RESOLUTIONS = {"2160p", "1080p", "1080i", "720p", "576p", "480p", "4K", "UHD",
+            "1920x1080", "1280X720", "3840x2160", "720x576"};
+    private static final String[] SOURCES = {"BluRay", "Blu-Ray", "WEB-DL", "web-dl", "WEB-Rip", "WEBRip", "HDTV",
+            "DVDRip", "dvd-rip", "BDRip", "BRRip", "Remux", "HDRip", "AMZN", "NF", "DSNP"};
+    private static final String[] VIDEO = {"x264", "x265", "H.264", "h265", "HEVC", "AVC", "XviD", "DivX", "AV1",
+            "10bit", "8bit", "HDR", "HDR10", "HDR10+", "DV", "Hybrid", "3D"};
+    private static final String[] AUDIO = {"DTS", "DTS-HD.MA.5.1", "TrueHD.Atmos.7.1", "DDP5.1", "DD5.1", "AAC2.0",
+            "AC3", "FLAC", "Opus", "MP3", "Atmos", "23.976", "24.000", "23.98", "24.00", "25fps"};
+    private static final String[] EXTRAS = {"Extended", "EXTENDED", "Directors.Cut", "DC", "PROPER", "REPACK",
+            "Internal", "LIMITED", "Multi", "MULTiSUBS", "Remastered", "Complete", "Retail", "xXx", "www", "PAL",
+            "NTSC", "Uncut", "Unrated", "iNTERNAL", "READ.NFO", "custom", "Doku", "Docu"};
+    private static final String[] GROUPS = {"-GRP", "-SPARKS", "-FGT", "-RARBG", "-YIFY", "-NTb", "-EVO", "", "",
+            "[YTS.MX]", "(2019)", "{tmdb-603}", "{tmdb-}", "{TMDB-12}", "[1080p]", "[x265 10bit]", "[2012]"};
+    private static final String[] EXTENSIONS = {"", "", ".mkv", ".mp4", ".avi", ".ts", ".m2ts", ".x", ".srt", ".part",
+            ".HEVC"};
+    private static final String[] SEPARATORS = {".", " ", "_", "-", " - ", "..", "._", " . ", ", "};
+    private static final String FUZZ = "[](){}\\ _,.-+'&!#xX01234567899SsEe" + "abcdefghijklmnop"
+            + "\u0131\u0130\u212a\u017f\u00dfIVX" + "\n\r\u0085\u2028\u2029\t\u00a0\u3000";
+
+    private ReleaseNames() {
+    }
+
+    /**
+     * @param count  Number of names.
+     * @param random Source of the names, seeded for a reproducible corpus.
+     * @return The names, modifiable.
+     */
+    public static List<String> generate(int count, Random random) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = switch (i % 8) {
+                case 0, 1, 2 -> movie(random);
+                case 3, 4 -> episode(random);
+                case 5 -> mutate(random.nextBoolean() ? movie(random) : episode(random), random);
+                case 6 -> otr(random);
+                default -> fuzz(random);
+            };
+            names.add(name);
+        }
+        return names;
+    }
+
+    private static String movie(Random random) {
+        String separator = pick(SEPARATORS, random);
+        List<String> parts = new ArrayList<>();
+        title(parts, random);
+        if (random.nextInt(10) > 0) {
+            String year = String.valueOf(1890 + random.nextInt(150));
+            parts.add(random.nextInt(5) == 0 ? "(" + year + ")" : year);
+        }
+        tail(parts, random);
+        return String.join(separator, parts) + pick(GROUPS, random) + pick(EXTENSIONS, random);
+    }
+
+    private static String episode(Random random) {
+        String separator = pick(SEPARATORS, random);
+        List<String> parts = new ArrayList<>();
+        title(parts, random);
+        if (random.nextInt(4) == 0) parts.add(String.valueOf(1950 + random.nextInt(80)));
+        int season = random.nextInt(random.nextInt(10) == 0 ? 150 : 30);
+        int episode = random.nextInt(random.nextInt(10) == 0 ? 12000 : 30);
+        parts.add(switch (random.nextInt(4)) {
+            case 0 -> String.format("S%02dE%02d", season, episode);
+            case 1 -> String.format("s%de%d", season, episode);
+            case 2 -> season + "x" + String.format("%02d", episode);
+            default -> String.format("S%02dE%02d-E%02d", season, episode, episode + 1);
+        });
+        if (random.nextBoolean()) title(parts, random);
+        tail(parts, random);
+        return String.join(separator, parts) + pick(GROUPS, random) + pick(EXTENSIONS, random);
+    }
+
+    // Recordings named like "Title_21.03.04_20-15_ard_90_TVOON_DE.mpg.HQ.avi"
+    private static String otr(Random random) {
+        List<String> parts = new ArrayList<>();
+        title(parts, random);
+        return String.join("_", parts)
+                + String.format("_%02d.%02d.%02d%s%02d-%02d_", random.nextInt(30), 1 + random.nextInt(12),
+                1 + random.nextInt(28), random.nextBoolean() ? "_" : "_ _", random.nextInt(24), random.nextInt(60))
+                + "ard_90_TVOON_DE.mpg" + pick(new String[]{".HQ.avi", ".avi", ".mp4", ""}, random);
+    }
+
+    private static void title(List<String> parts, Random random) {
+        int words = 1 + random.nextInt(5);
+        for (int w = 0; w < words; w++) {
+            parts.add(pick(TITLE_WORDS, random));
+        }
+    }
+
+    private static void tail(List<String> parts, Random random) {
+        if (random.nextInt(3) == 0) parts.add(pick(EXTRAS, random));
+        if (random.nextInt(5) > 0) parts.add(pick(RESOLUTIONS, random));
+        if (random.nextInt(4) > 0) parts.add(pick(SOURCES, random));
+        if (random.nextInt(4) > 0) parts.add(pick(VIDEO, random));
+        if (random.nextInt(3) > 0) parts.add(pick(AUDIO, random));
+    }
+
+    // Random deletions, insertions, case flips and swaps of delimiters
+    private static String mutate(String name, Random random) {
+        StringBuilder mutated = new StringBuilder(name);
+        int edits = 1 + random.nextInt(4);
+        for (int e = 0; e < edits && mutated.length() > 0; e++) {
+            int at = random.nextInt(mutated.length());
+            switch (random.nextInt(4)) {
+                case 0 -> mutated.deleteCharAt(at);
+                case 1 -> mutated.insert(at, FUZZ.charAt(random.nextInt(FUZZ.length())));
+                case 2 -> {
+                    char c = mutated.charAt(at);
+                    mutated.setCharAt(at, Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+                }
+                default -> mutated.setCharAt(at, ".-_ []()".charAt(random.nextInt(8)));
+            }
+        }
+        return mutated.toString();
+    }
+
+    private static String fuzz(Random random) {
+        // Not blank, the parser only logs a warning for those
+        int length = 1 + random.nextInt(40);
+        StringBuilder name = new StringBuilder(length).append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(6) == 0) {
+                String[] pool = random.nextBoolean() ? RESOLUTIONS : EXTRAS;
+                name.append(pick(pool, random));
+            } else {
+                name.append(FUZZ.charAt(random.nextInt(FUZZ.length())));
+            }
+        }
+        return name.toString();
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,34 @@
+package io.neebu.apps.utils.probe;
+
+import io.neebu.apps.utils.CollectionUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilenameProbeTest {
+
+    private static String resolution(String baseName) {
+        return FilenameProbe.guess(baseName).result().resolution();
+    }
+
+    @Test
+    void prefersAnExplicitHeightOverAMarketingToken() {
+        assertEquals("1080p", resolution("Movie.2019.UHD.Remux.1080p.AVC.DTS-HD.MA.5.1-GRP"));
+        assertEquals("2160p", resolution("Movie.2019.2160p.UHD.BluRay.HDR10.x265-GRP"));
+        assertEquals("2160p", resolution("Movie.2019.4K.WEB-DL.DDP5.1.x265-GRP"));
+        assertEquals("2160p", resolution("Movie 2019 UHD BluRay x265"));
+    }
+
+    @Test
+    void reportsInterlacedHeightsAsAProbeWould() {
+        assertEquals(CollectionUtils.detectResolution(1920, 1080), resolution("Show.S01E01.1080i.HDTV.H.264-GRP"));
+        assertEquals(CollectionUtils.detectResolution(720, 576), resolution("Show.S01E01.576i.DVB.MPEG2-GRP"));
+        assertEquals("720p", resolution("Show.S01E01.720p.WEB.x264-GRP"));
+    }
+
+    @Test
+    void leavesAnUnstatedResolutionEmpty() {
+        assertEquals("", resolution("Movie.2019.BluRay.x264-GRP"));
+        assertEquals("", resolution("Movie.10800p.x264"));
+    }
+}
@@ -0,0 +1,118 @@
+package io.neebu.apps.utils.probe;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MatroskaHeaderParserTest {
+
+    // Size field of an element whose size is unknown (all value bits set)
+    private static final byte[] UNKNOWN = {(byte) 0xFF};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsTheTracks() throws Exception {
+        MediaProbe probe = probe(file(tracks()));
+        assertNotNull(probe);
+        assertEquals(1, probe.getVideoStreams().size());
+        assertEquals("AVC", probe.getVideoStreams().get(0).format());
+        assertEquals("1920", probe.getVideoStreams().get(0).width());
+        assertEquals(1, probe.getAudioStreams().size());
+        assertEquals("6", probe.getAudioStreams().get(0).channels());
+    }
+
+    @Test
+    void returnsNullForEveryTruncation() throws Exception {
+        byte[] file = file(tracks());
+        for (int length = 0; length < file.length; length++) {
+            assertNull(probe(Arrays.copyOf(file, length)), "truncated to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void returnsNullForAnEbmlHeaderOfUnknownSize() throws Exception {
+        byte[] file = concat(element(0x1A45DFA3, UNKNOWN, docType()), element(0x18538067, tracks()));
+        assertNull(probe(file));
+    }
+
+    @Test
+    void returnsNullForTracksOfUnknownSize() throws Exception {
+        byte[] file = concat(element(0x1A45DFA3, docType()), element(0x18538067, element(0x1654AE6B, UNKNOWN, new byte[16])));
+        assertNull(probe(file));
+    }
+
+    @Test
+    void returnsNullForSizesPastTheEndOfTheFile() throws Exception {
+        // A Tracks element claiming 1 MiB in a file of a few bytes
+        byte[] tracksHeader = concat(id(0x1654AE6B), new byte[]{0x10, 0x10, 0x00, 0x00});
+        assertNull(probe(concat(element(0x1A45DFA3, docType()), element(0x18538067, tracksHeader))));
+        // An EBML header larger than anything worth reading
+        byte[] hugeHeader = concat(id(0x1A45DFA3), new byte[]{0x01, 0x00, 0x00, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        assertNull(probe(concat(hugeHeader, new byte[16])));
+    }
+
+    @Test
+    void returnsNullForGarbageAfterTheMagic() throws Exception {
+        byte[] file = new byte[64];
+        System.arraycopy(id(0x1A45DFA3), 0, file, 0, 4);
+        assertNull(probe(file));
+    }
+
+    private MediaProbe probe(byte[] content) throws Exception {
+        Path file = Files.createTempFile(tempDir, "probe", ".mkv");
+        Files.write(file, content);
+        return ContainerProbe.probe(file);
+    }
+
+    private static byte[] file(byte[] tracks) {
+        return concat(element(0x1A45DFA3, docType()), element(0x18538067, tracks));
+    }
+
+    private static byte[] docType() {
+        return element(0x4282, "matroska".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] tracks() {
+        byte[] video = element(0xAE, concat(
+                element(0x83, new byte[]{1}),
+                element(0x86, "V_MPEG4/ISO/AVC".getBytes(StandardCharsets.US_ASCII)),
+                element(0xE0, concat(element(0xB0, new byte[]{0x07, (byte) 0x80}), element(0xBA, new byte[]{0x04, 0x38})))));
+        byte[] audio = element(0xAE, concat(
+                element(0x83, new byte[]{2}),
+                element(0x86, "A_AC3".getBytes(StandardCharsets.US_ASCII)),
+                element(0xE1, element(0x9F, new byte[]{6}))));
+        return element(0x1654AE6B, concat(video, audio));
+    }
+
+    private static byte[] element(int id, byte[] payload) {
+        return element(id, new byte[]{(byte) (0x40 | (payload.length >> 8)), (byte) payload.length}, payload);
+    }
+
+    private static byte[] element(int id, byte[] size, byte[] payload) {
+        return concat(id(id), size, payload);
+    }
+
+    private static byte[] id(int id) {
+        int length = 4 - Integer.numberOfLeadingZeros(id) / 8;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = (byte) (id >> (8 * (length - 1 - i)));
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) out.writeBytes(part);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,82 @@
+package io.neebu.apps.utils.probe;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProbeCacheTest {
+
+    private static final String HEADERS = ProbeCache.configuration(null, true);
+    private static final String FULL = ProbeCache.configuration("1", false);
+
+    private static final ProbeResult RESULT = new ProbeResult("HEVC", "2160p", "HDR", "DD+", "5.1",
+            List.of(new ProbeResult.AudioTrack("DD+", "5.1", "en", null)));
+
+    @TempDir
+    Path tempDir;
+
+    private static ProbeCache.FileIdentity identity(int inode) {
+        return new ProbeCache.FileIdentity("1:" + inode, 1000 + inode, 5000);
+    }
+
+    @Test
+    void keepsTheResultsOfEachConfigurationApart() {
+        ProbeCache cache = ProbeCache.open(tempDir.resolve("probe.cache"), 10);
+        cache.put(identity(1), HEADERS, RESULT);
+
+        assertEquals(RESULT, cache.get(identity(1), HEADERS));
+        assertNull(cache.get(identity(1), FULL));
+        assertEquals(ProbeCache.configuration("0.5", true), HEADERS);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntriesPastTheBound() throws Exception {
+        ProbeCache cache = ProbeCache.open(tempDir.resolve("probe.cache"), 10);
+        for (int inode = 0; inode < 10; inode++) {
+            cache.put(identity(inode), HEADERS, RESULT);
+        }
+        Thread.sleep(5);
+        assertNotNull(cache.get(identity(0), HEADERS));
+
+        cache.put(identity(10), HEADERS, RESULT);
+
+        assertEquals(9, cache.size());
+        assertEquals(2, cache.getEvictions());
+        assertNotNull(cache.get(identity(0), HEADERS));
+        assertNotNull(cache.get(identity(10), HEADERS));
+    }
+
+    @Test
+    void keepsTheLatestEntryUnderASmallBound() throws Exception {
+        ProbeCache cache = ProbeCache.open(tempDir.resolve("probe.cache"), 1);
+        cache.put(identity(1), HEADERS, RESULT);
+        Thread.sleep(5);
+
+        cache.put(identity(2), HEADERS, RESULT);
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.get(identity(2), HEADERS));
+    }
+
+    @Test
+    void savesAndLoadsEntriesWithTheirConfiguration() {
+        Path cacheFile = tempDir.resolve("probe.cache");
+        try (ProbeCache cache = ProbeCache.open(cacheFile, 10)) {
+            cache.put(identity(1), HEADERS, RESULT);
+            cache.put(identity(2), FULL, RESULT);
+        }
+
+        ProbeCache reopened = ProbeCache.open(cacheFile, 10);
+        assertEquals(2, reopened.size());
+        assertEquals(RESULT, reopened.get(identity(1), HEADERS));
+        assertEquals(RESULT, reopened.get(identity(2), FULL));
+        assertNull(reopened.get(identity(2), HEADERS));
+    }
+}
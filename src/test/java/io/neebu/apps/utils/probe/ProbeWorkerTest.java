@@ -0,0 +1,47 @@
+package io.neebu.apps.utils.probe;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProbeWorkerTest {
+
+    private static final Path FILE = Path.of("/media/Movie.2019.2160p.mkv");
+
+    private static final MediaProber.Probed PROBED = new MediaProber.Probed(new ProbeResult("HEVC", "2160p", "HDR",
+            "DD+", "5.1", List.of(new ProbeResult.AudioTrack("DD+", "5.1", "en", null))), 4096, 1000, true);
+
+    @Test
+    void decodesTheResponseToTheFileInFlight() throws IOException {
+        MediaProber.Probed decoded = ProbeWorker.decodeResponse(ProbeWorker.encodeResponse(FILE.toString(), PROBED), FILE);
+
+        assertEquals(PROBED, decoded);
+    }
+
+    @Test
+    void reportsAProbeFailureAsSuch() throws IOException {
+        String response = ProbeWorker.encodeError(FILE.toString(), "No video track");
+
+        IOException e = assertThrows(IOException.class, () -> ProbeWorker.decodeResponse(response, FILE));
+        assertFalse(e instanceof ProbeWorker.ProtocolException);
+        assertEquals("No video track", e.getMessage());
+    }
+
+    @Test
+    void rejectsLinesThatAreNotTheResponseToTheFileInFlight() throws IOException {
+        String other = ProbeWorker.encodeResponse("/media/Other.mkv", PROBED);
+        String response = ProbeWorker.encodeResponse(FILE.toString(), PROBED);
+
+        for (String line : List.of(other, "MediaInfo: opening file", response + "garbage", "{\"ok\":true}")) {
+            assertInstanceOf(ProbeWorker.ProtocolException.class,
+                    assertThrows(IOException.class, () -> ProbeWorker.decodeResponse(line, FILE)), line);
+        }
+    }
+}